@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.common.cache;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ Size-bounded map that evicts the least recently used entry once {@link #maxSize()} is exceeded. All operations are
+ synchronized on the cache; they only touch memory, so the lock is held for a few map operations at most.
+ <p>
+ Read-through callers should take an {@link #epoch()} before loading from the database and store the result with
+ {@link #putIfNotInvalidatedSince(Object, Object, long)}. If any entry was invalidated while the load was running the
+ result is dropped instead of cached, so a slow reader cannot put back a value that a writer has just replaced.
+ @param <K> Key type
+ @param <V> Value type */
+public final class BoundedCache<K, V> {
+  private final int maxSize;
+  private final LinkedHashMap<K, V> entries;
+  private long epoch;
+  private long hits;
+  private long misses;
+
+  public BoundedCache(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Cache size must be positive.");
+    }
+    this.maxSize = maxSize;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > BoundedCache.this.maxSize;
+      }
+    };
+  }
+
+  /**
+   Looks up a single entry and marks it as recently used.
+   @param key Key to look up
+   @return The cached value, or empty on a miss
+   */
+  public synchronized Optional<V> get(K key) {
+    V value = entries.get(key);
+    if (value == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return Optional.ofNullable(value);
+  }
+
+  /**
+   Looks up several entries at once.
+   @param keys Keys to look up
+   @return Cached values of the keys that were present; missing keys are absent from the map
+   */
+  public synchronized Map<K, V> getAll(Collection<K> keys) {
+    Map<K, V> found = new HashMap<>();
+    for (K key : keys) {
+      V value = entries.get(key);
+      if (value != null) {
+        found.put(key, value);
+      }
+    }
+    hits += found.size();
+    misses += keys.size() - found.size();
+    return found;
+  }
+
+  public synchronized boolean containsKey(K key) {
+    return entries.containsKey(key);
+  }
+
+  /**
+   Returns the current invalidation epoch, to be passed to {@link #putIfNotInvalidatedSince(Object, Object, long)}.
+   */
+  public synchronized long epoch() {
+    return epoch;
+  }
+
+  /**
+   Stores a value loaded from the database, unless something was invalidated after {@code epoch} was taken.
+   @param key Key of the loaded value
+   @param value Loaded value
+   @param epoch Epoch taken before the load started
+   */
+  public synchronized void putIfNotInvalidatedSince(K key, V value, long epoch) {
+    if (this.epoch == epoch) {
+      entries.put(key, value);
+    }
+  }
+
+  /**
+   Stores several loaded values, unless something was invalidated after {@code epoch} was taken.
+   @param values Loaded values
+   @param keyExtractor Function deriving the key of a value
+   @param epoch Epoch taken before the load started
+   */
+  public synchronized void putAllIfNotInvalidatedSince(Collection<V> values, Function<V, K> keyExtractor, long epoch) {
+    if (this.epoch == epoch) {
+      values.forEach(value -> entries.put(keyExtractor.apply(value), value));
+    }
+  }
+
+  public synchronized void invalidate(K key) {
+    epoch++;
+    entries.remove(key);
+  }
+
+  public synchronized void invalidateAll() {
+    epoch++;
+    entries.clear();
+  }
+
+  public int maxSize() {
+    return maxSize;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long hits() {
+    return hits;
+  }
+
+  public synchronized long misses() {
+    return misses;
+  }
+}
@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.common.cache;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongPredicate;
+
+/**
+ Dense bitset of the IDs that exist in an identity-keyed table, one bit per ID up to the highest ID seen. Recorded IDs
+ are answered from memory, and so are missing IDs at or below the high-water mark, the highest ID of the last load.
+ Above the mark a miss falls through to the database, since inserts that committed out of ID order may not be
+ recorded yet; every ID before the first load does the same. IDs found there are remembered.
+ <p>
+ Reads are lock-free. Writes are serialized on the index and, inside a transaction, applied only after commit, so a
+ rolled-back insert or delete never becomes visible. Subclasses provide the IDs for a full reload. */
+public abstract class IdExistenceIndex
+    implements Rebuildable {
+  private volatile AtomicLongArray words = new AtomicLongArray(0);
+  private volatile long highWaterMark = -1;
+  private volatile boolean loaded;
+  private long deletions;
+
+  /**
+   Loads the IDs of all rows currently present in the table.
+   @return All existing IDs
+   */
+  protected abstract Collection<Long> loadIds();
+
+  /**
+   Checks whether the ID exists.
+   @param id ID to check
+   @param database Fallback query used for IDs the index cannot answer
+   @return true if the ID exists, false otherwise
+   */
+  public boolean contains(long id, LongPredicate database) {
+    if (id < 0) {
+      return false;
+    }
+    if (loaded) {
+      if (isSet(words, id)) {
+        return true;
+      }
+      if (id <= highWaterMark) {
+        return false;
+      }
+    }
+    long deletionsBefore = deletions();
+    boolean exists = database.test(id);
+    if (exists && !TransactionSynchronizationManager.isActualTransactionActive()) {
+      markFound(id, deletionsBefore);
+    }
+    return exists;
+  }
+
+  /**
+   Records a newly inserted ID. Inside a transaction the ID is recorded after commit.
+   @param id Inserted ID
+   */
+  public void markPresent(long id) {
+    TransactionCallbacks.afterCommit(() -> set(id, true));
+  }
+
+  /**
+   Records a deleted ID. Inside a transaction the ID is cleared after commit.
+   @param id Deleted ID
+   */
+  public void markAbsent(long id) {
+    TransactionCallbacks.afterCommit(() -> set(id, false));
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadOnStartup() {
+    rebuild();
+  }
+
+  /**
+   Replaces the index with the IDs currently stored in the database.
+   */
+  @Override
+  public synchronized void rebuild() {
+    Collection<Long> ids = loadIds();
+    long max = ids.stream()
+                  .mapToLong(Long::longValue)
+                  .max()
+                  .orElse(-1);
+    AtomicLongArray fresh = new AtomicLongArray(wordCount(max));
+    ids.forEach(id -> fresh.getAndUpdate(wordIndex(id), word -> word | bit(id)));
+    words = fresh;
+    highWaterMark = max;
+    loaded = true;
+  }
+
+  private synchronized long deletions() {
+    return deletions;
+  }
+
+  private synchronized void markFound(long id, long deletionsBefore) {
+    if (deletions == deletionsBefore) {
+      set(id, true);
+    }
+  }
+
+  private synchronized void set(long id, boolean present) {
+    if (!present) {
+      deletions++;
+    }
+    AtomicLongArray current = words;
+    if (wordIndex(id) >= current.length()) {
+      if (!present) {
+        return;
+      }
+      AtomicLongArray grown = new AtomicLongArray(Math.max(wordCount(id), current.length() * 2));
+      for (int i = 0; i < current.length(); i++) {
+        grown.set(i, current.get(i));
+      }
+      words = current = grown;
+    }
+    long mask = bit(id);
+    current.getAndUpdate(wordIndex(id), word -> present ? word | mask : word & ~mask);
+  }
+
+  private static boolean isSet(AtomicLongArray words, long id) {
+    int index = wordIndex(id);
+    return index < words.length() && (words.get(index) & bit(id)) != 0;
+  }
+
+  private static int wordIndex(long id) {
+    return Math.toIntExact(id >>> 6);
+  }
+
+  private static int wordCount(long maxId) {
+    return maxId < 0 ? 0 : wordIndex(maxId) + 1;
+  }
+
+  private static long bit(long id) {
+    return 1L << (id & 63);
+  }
+}
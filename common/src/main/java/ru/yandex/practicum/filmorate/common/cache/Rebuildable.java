@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.common.cache;
+
+/**
+ In-memory state derived from the database (caches, indexes, counters) that can be thrown away and rebuilt from the
+ source tables at any time. Implementations rebuild themselves on startup; {@link #rebuild()} is also the hook for
+ resynchronising after the tables were changed behind the application's back, e.g. by a maintenance script. */
+public interface Rebuildable {
+  /**
+   Discards the current in-memory state and reloads it from the database.
+   */
+  void rebuild();
+}
@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate.common.cache;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ Holds the in-memory structure of a {@link Rebuildable} and swaps in a freshly built one without losing the changes
+ that arrive while it is built. Changes are applied to the current structure and, during a rebuild, also recorded;
+ right before the swap they are replayed on the fresh structure. A replayed change may find the fresh structure
+ already reflecting it, so changes must be harmless to apply twice.
+ <p>
+ Changes hold a shared lock and the replay and swap an exclusive one, so no change falls between them. Rebuilds must
+ not overlap; callers serialize them, usually with a synchronized {@link Rebuildable#rebuild()}.
+ @param <T> Type of the structure */
+public final class RebuildableState<T> {
+  private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+  private final Queue<Consumer<T>> changesDuringRebuild = new ConcurrentLinkedQueue<>();
+  private volatile boolean rebuilding;
+  private volatile T current;
+
+  /**
+   Creates a holder with no structure; changes are only recorded for the first rebuild until it swaps one in.
+   */
+  public RebuildableState() {
+  }
+
+  public RebuildableState(T initial) {
+    current = initial;
+  }
+
+  /**
+   @return The current structure, or {@code null} before the first rebuild of a holder created without one
+   */
+  public T get() {
+    return current;
+  }
+
+  /**
+   Applies a change to the current structure, if there is one, and records it while a rebuild runs.
+   @param change Change of the structure
+   */
+  public void apply(Consumer<T> change) {
+    swapLock.readLock()
+            .lock();
+    try {
+      applyLocked(change);
+    } finally {
+      swapLock.readLock()
+              .unlock();
+    }
+  }
+
+  /**
+   Applies a change while holding {@code lock}, so that changes serialized on the same lock are also replayed in the
+   order they were applied.
+   @param lock Lock serializing related changes, such as a stripe of the changed key
+   @param change Change of the structure
+   */
+  public void apply(Lock lock, Consumer<T> change) {
+    swapLock.readLock()
+            .lock();
+    lock.lock();
+    try {
+      applyLocked(change);
+    } finally {
+      lock.unlock();
+      swapLock.readLock()
+              .unlock();
+    }
+  }
+
+  /**
+   Builds a fresh structure and swaps it in after replaying the changes applied meanwhile.
+   @param builder Builds the structure from the database; if it fails, the current structure stays in place
+   @return The swapped-in structure
+   */
+  public T rebuild(Supplier<T> builder) {
+    changesDuringRebuild.clear();
+    rebuilding = true;
+    T fresh;
+    try {
+      fresh = builder.get();
+    } catch (RuntimeException e) {
+      rebuilding = false;
+      changesDuringRebuild.clear();
+      throw e;
+    }
+    swapLock.writeLock()
+            .lock();
+    try {
+      Consumer<T> change;
+      while ((change = changesDuringRebuild.poll()) != null) {
+        change.accept(fresh);
+      }
+      current = fresh;
+      rebuilding = false;
+    } finally {
+      swapLock.writeLock()
+              .unlock();
+    }
+    return fresh;
+  }
+
+  private void applyLocked(Consumer<T> change) {
+    T state = current;
+    if (state != null) {
+      change.accept(state);
+    }
+    if (rebuilding) {
+      changesDuringRebuild.add(change);
+    }
+  }
+}
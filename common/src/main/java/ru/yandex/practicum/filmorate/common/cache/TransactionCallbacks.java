@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.common.cache;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ Defers updates of in-memory state to the end of the surrounding transaction, so that caches and indexes never show a
+ change that is rolled back. Outside a transaction the action runs at once. */
+public final class TransactionCallbacks {
+  private TransactionCallbacks() {
+  }
+
+  /**
+   Runs the action once the current transaction has committed; a rollback skips it.
+   @param action Update of in-memory state
+   */
+  public static void afterCommit(Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          action.run();
+        }
+      });
+    } else {
+      action.run();
+    }
+  }
+
+  /**
+   Runs the action once the current transaction has completed, whether it committed or rolled back.
+   @param action Update of in-memory state, typically an invalidation
+   */
+  public static void afterCompletion(Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          action.run();
+        }
+      });
+    } else {
+      action.run();
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.common.events;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ Batch counterpart of {@link FilmSearchDataUpdatedEvent}, published once per imported batch so that the search index
+ is updated with a single batch write. */
+@Getter
+public class FilmSearchDataBatchUpdatedEvent
+    extends ApplicationEvent {
+  private final List<FilmSearchData> films;
+
+  public FilmSearchDataBatchUpdatedEvent(Object source, List<FilmSearchData> films) {
+    super(source);
+    this.films = List.copyOf(films);
+  }
+
+  public record FilmSearchData(long filmId, String title, Set<String> directors) {}
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.common.events;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ Published when a user is deleted, inside the deleting transaction and before the user row is removed. Modules that own
+ rows of the user remove them in a plain listener, which also keeps their read models such as {@code film_stats}
+ right; whatever they miss goes with the database cascade. In-memory views listen after commit and resynchronise. */
+@Getter
+public class UserDeletedEvent extends ApplicationEvent {
+  private final long userId;
+
+  public UserDeletedEvent(Object source, long userId) {
+    super(source);
+    this.userId = userId;
+  }
+}
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.common.infrastructure.storage.jdbc;
+
+import org.springframework.jdbc.support.SqlArrayValue;
+
+import java.util.Collection;
+
+/**
+ Binds a list of IDs as a single SQL array parameter. Queries written as {@code WHERE id = ANY(?)} (or
+ {@code = ANY(:ids)} with named parameters) have one SQL text for any number of IDs, so they share a single
+ prepared-statement and plan cache entry and never grow into a statement with thousands of placeholders. H2 and
+ PostgreSQL both resolve {@code = ANY(?)} on an indexed column with index lookups. */
+public final class IdArrayParameter {
+  private IdArrayParameter() {
+  }
+
+  /**
+   Wraps the IDs for binding to an {@code = ANY(?)} placeholder.
+   @param ids IDs to bind; duplicates are harmless
+   @return Parameter value creating a {@code BIGINT} array on the statement's connection
+   */
+  public static SqlArrayValue of(Collection<Long> ids) {
+    return new SqlArrayValue("BIGINT", ids.toArray());
+  }
+}
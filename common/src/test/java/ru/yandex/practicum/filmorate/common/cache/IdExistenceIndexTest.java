@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.common.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdExistenceIndexTest {
+
+  private final List<Long> storedIds = new ArrayList<>();
+  private final AtomicInteger databaseLookups = new AtomicInteger();
+  private final LongPredicate database = id -> {
+    databaseLookups.incrementAndGet();
+    return storedIds.contains(id);
+  };
+  private IdExistenceIndex index;
+
+  @BeforeEach
+  void setup() {
+    storedIds.addAll(List.of(1L, 2L, 70L));
+    index = new IdExistenceIndex() {
+      @Override
+      protected Collection<Long> loadIds() {
+        return List.copyOf(storedIds);
+      }
+    };
+  }
+
+  @Test
+  @DisplayName("Should fall back to the database before the first load")
+  void shouldFallBackBeforeLoad() {
+    assertThat(index.contains(1L, database)).isTrue();
+    assertThat(index.contains(3L, database)).isFalse();
+    assertThat(databaseLookups).hasValue(2);
+  }
+
+  @Test
+  @DisplayName("Should answer IDs up to the high-water mark from memory")
+  void shouldAnswerKnownRangeFromMemory() {
+    index.rebuild();
+
+    assertThat(index.contains(1L, database)).isTrue();
+    assertThat(index.contains(70L, database)).isTrue();
+    assertThat(index.contains(3L, database)).isFalse();
+    assertThat(index.contains(69L, database)).isFalse();
+    assertThat(databaseLookups).hasValue(0);
+  }
+
+  @Test
+  @DisplayName("Should track inserts and deletes")
+  void shouldTrackInsertsAndDeletes() {
+    index.rebuild();
+
+    index.markPresent(200L);
+    index.markAbsent(2L);
+
+    assertThat(index.contains(200L, database)).isTrue();
+    assertThat(index.contains(2L, database)).isFalse();
+    assertThat(databaseLookups).hasValue(0);
+  }
+
+  @Test
+  @DisplayName("Should not report an ID as missing while a lower insert is still being recorded")
+  void shouldAskDatabaseForIdsRecordedOutOfOrder() {
+    storedIds.remove(70L);
+    index.rebuild();
+    storedIds.addAll(List.of(10L, 11L));
+
+    index.markPresent(11L);
+
+    assertThat(index.contains(10L, database)).isTrue();
+    assertThat(databaseLookups).hasValue(1);
+
+    index.markPresent(10L);
+    assertThat(index.contains(10L, database)).isTrue();
+    assertThat(index.contains(11L, database)).isTrue();
+    assertThat(databaseLookups).hasValue(1);
+  }
+
+  @Test
+  @DisplayName("Should ask the database for IDs above the high-water mark and remember hits")
+  void shouldRememberIdsFoundAboveHighWaterMark() {
+    index.rebuild();
+    storedIds.add(500L);
+
+    assertThat(index.contains(500L, database)).isTrue();
+    assertThat(index.contains(500L, database)).isTrue();
+    assertThat(index.contains(600L, database)).isFalse();
+    assertThat(databaseLookups).hasValue(2);
+  }
+}
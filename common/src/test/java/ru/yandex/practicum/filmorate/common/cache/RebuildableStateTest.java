@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.common.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RebuildableStateTest {
+
+  @Test
+  @DisplayName("Should skip changes before the first rebuild and replay those made during it")
+  void shouldReplayChangesDuringFirstRebuild() {
+    RebuildableState<List<String>> state = new RebuildableState<>();
+    state.apply(list -> list.add("lost"));
+
+    List<String> fresh = state.rebuild(() -> {
+      state.apply(list -> list.add("during"));
+      return new ArrayList<>(List.of("loaded"));
+    });
+
+    assertThat(fresh).containsExactly("loaded", "during");
+    assertThat(state.get()).isSameAs(fresh);
+  }
+
+  @Test
+  @DisplayName("Should apply changes to the current structure and replay those made during a rebuild in order")
+  void shouldReplayChangesDuringRebuild() {
+    List<String> initial = new ArrayList<>();
+    RebuildableState<List<String>> state = new RebuildableState<>(initial);
+    ReentrantLock stripe = new ReentrantLock();
+    state.apply(list -> list.add("before"));
+
+    state.rebuild(() -> {
+      state.apply(list -> list.add("first"));
+      state.apply(stripe, list -> list.add("second"));
+      return new ArrayList<>();
+    });
+    state.apply(list -> list.add("after"));
+
+    assertThat(initial).containsExactly("before", "first", "second");
+    assertThat(state.get()).containsExactly("first", "second", "after");
+  }
+
+  @Test
+  @DisplayName("Should keep the current structure and stop recording when a rebuild fails")
+  void shouldKeepStructureWhenRebuildFails() {
+    List<String> initial = new ArrayList<>();
+    RebuildableState<List<String>> state = new RebuildableState<>(initial);
+
+    assertThatThrownBy(() -> state.rebuild(() -> {
+      state.apply(list -> list.add("during"));
+      throw new IllegalStateException("database is down");
+    })).isInstanceOf(IllegalStateException.class);
+    state.apply(list -> list.add("after"));
+    List<String> fresh = state.rebuild(ArrayList::new);
+
+    assertThat(initial).containsExactly("during", "after");
+    assertThat(fresh).isEmpty();
+  }
+}
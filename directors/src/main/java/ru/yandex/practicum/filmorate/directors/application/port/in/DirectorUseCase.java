@@ -78,9 +78,19 @@ public interface DirectorUseCase {
    Updates the association between a film and its directors.
    @param filmId The unique identifier of the film to update
    @param directorIds A set of director IDs to associate with the film
+   @return The directors now associated with the film, ordered by ID
    @throws ResourceNotFoundException if one or more directors with the given IDs do not exist
    */
-  void updateFilmDirectors(long filmId, Set<Long> directorIds);
+  List<Director> updateFilmDirectors(long filmId, Set<Long> directorIds);
+
+  /**
+   Links a batch of newly created films to their directors. All referenced directors are checked at once before
+   anything is written.
+   @param directorIdsByFilmId Director IDs of each film, keyed by film ID
+   @return The linked directors of each film, keyed by film ID; films without directors are absent
+   @throws ResourceNotFoundException if one or more directors with the given IDs do not exist
+   */
+  Map<Long, List<Director>> linkFilmsToDirectors(Map<Long, Set<Long>> directorIdsByFilmId);
 
   /**
    Retrieves directors associated with multiple films.
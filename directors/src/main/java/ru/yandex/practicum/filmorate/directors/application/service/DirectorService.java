@@ -10,9 +10,7 @@ import ru.yandex.practicum.filmorate.directors.domain.port.CreateDirectorCommand
 import ru.yandex.practicum.filmorate.directors.domain.port.DirectorRepository;
 import ru.yandex.practicum.filmorate.directors.domain.port.UpdateDirectorCommand;
 
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 @Service
 @RequiredArgsConstructor
@@ -66,14 +64,48 @@ public class DirectorService
   }
 
   @Override
-  public void updateFilmDirectors(long filmId, Set<Long> directorIds) {
+  public List<Director> updateFilmDirectors(long filmId, Set<Long> directorIds) {
+    List<Director> foundDirectors = List.of();
     if (directorIds != null && !directorIds.isEmpty()) {
-      List<Director> foundDirectors = directorRepository.findByIds(directorIds);
+      foundDirectors = directorRepository.findByIds(directorIds)
+                                         .stream()
+                                         .sorted(Comparator.comparingLong(Director::id))
+                                         .toList();
       if (foundDirectors.size() != directorIds.size()) {
         throw new ResourceNotFoundException("One or more directors not found.");
       }
     }
     directorRepository.updateFilmDirectors(filmId, directorIds);
+    return foundDirectors;
+  }
+
+  @Override
+  public Map<Long, List<Director>> linkFilmsToDirectors(Map<Long, Set<Long>> directorIdsByFilmId) {
+    List<Long> requestedIds = directorIdsByFilmId.values()
+                                                 .stream()
+                                                 .flatMap(Set::stream)
+                                                 .distinct()
+                                                 .toList();
+    Map<Long, Director> directorsById = new HashMap<>();
+    directorRepository.findByIds(new HashSet<>(requestedIds))
+                      .forEach(director -> directorsById.put(director.id(), director));
+    if (directorsById.size() != requestedIds.size()) {
+      throw new ResourceNotFoundException("One or more directors not found.");
+    }
+
+    directorRepository.linkFilmsToDirectors(directorIdsByFilmId);
+
+    Map<Long, List<Director>> directorsByFilmId = new HashMap<>();
+    directorIdsByFilmId.forEach((filmId, directorIds) -> {
+      if (!directorIds.isEmpty()) {
+        directorsByFilmId.put(filmId,
+                              directorIds.stream()
+                                         .map(directorsById::get)
+                                         .sorted(Comparator.comparingLong(Director::id))
+                                         .toList());
+      }
+    });
+    return directorsByFilmId;
   }
 
   @Override
@@ -51,7 +51,6 @@ public interface DirectorRepository {
    Finds multiple directors by their IDs.
    @param ids A set of director IDs to find
    @return A list of {@link Director} entities matching the provided IDs
-   @throws IllegalArgumentException if the number of requested IDs exceeds the maximum limit
    */
   List<Director> findByIds(Set<Long> ids);
 
@@ -78,8 +77,14 @@ public interface DirectorRepository {
   void linkFilmToDirectors(long filmId, Set<Long> directorIds);
 
   /**
-   Updates the directors associated with a specific film by removing all existing associations and creating new ones
-   based on the provided director IDs.
+   Creates associations between several films and their directors in a single batch.
+   @param directorIdsByFilmId Director IDs to be linked, keyed by film ID
+   */
+  void linkFilmsToDirectors(Map<Long, Set<Long>> directorIdsByFilmId);
+
+  /**
+   Updates the directors associated with a specific film. Only the associations that differ from the stored ones are
+   deleted or inserted.
    @param filmId The ID of the film whose directors should be updated
    @param directorIds A set of director IDs to be associated with the film
    */
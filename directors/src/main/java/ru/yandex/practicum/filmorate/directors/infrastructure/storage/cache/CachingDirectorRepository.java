@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.directors.infrastructure.storage.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.common.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.common.cache.Rebuildable;
+import ru.yandex.practicum.filmorate.common.cache.TransactionCallbacks;
+import ru.yandex.practicum.filmorate.common.enums.SortBy;
+import ru.yandex.practicum.filmorate.directors.domain.model.Director;
+import ru.yandex.practicum.filmorate.directors.domain.port.CreateDirectorCommand;
+import ru.yandex.practicum.filmorate.directors.domain.port.DirectorRepository;
+import ru.yandex.practicum.filmorate.directors.domain.port.UpdateDirectorCommand;
+import ru.yandex.practicum.filmorate.directors.infrastructure.storage.jdbc.JdbcDirectorRepository;
+
+import java.util.*;
+
+/**
+ Caches the directors of each film in front of {@link JdbcDirectorRepository}, so that hydrating a film page or a
+ single film does not re-read {@code film_directors}. Films without directors are cached as well. Relinking a film
+ invalidates its entry; renaming or deleting a director invalidates the whole cache, since any film may reference it.
+ Nothing read inside a read-write transaction is cached. */
+@Primary
+@Repository
+public class CachingDirectorRepository
+    implements DirectorRepository, Rebuildable {
+  private final JdbcDirectorRepository delegate;
+  private final BoundedCache<Long, List<Director>> directorsByFilmId;
+
+  public CachingDirectorRepository(JdbcDirectorRepository delegate,
+                                   @Value("${filmorate.cache.film-directors.max-size:10000}") int maxSize) {
+    this.delegate = delegate;
+    this.directorsByFilmId = new BoundedCache<>(maxSize);
+  }
+
+  @Override
+  public Director save(CreateDirectorCommand command) {
+    return delegate.save(command);
+  }
+
+  @Override
+  public Director update(UpdateDirectorCommand command) {
+    invalidateAll();
+    return delegate.update(command);
+  }
+
+  @Override
+  public boolean deleteById(long id) {
+    invalidateAll();
+    return delegate.deleteById(id);
+  }
+
+  @Override
+  public List<Director> findAll() {
+    return delegate.findAll();
+  }
+
+  @Override
+  public Optional<Director> findById(long id) {
+    return delegate.findById(id);
+  }
+
+  @Override
+  public List<Director> findByIds(Set<Long> ids) {
+    return delegate.findByIds(ids);
+  }
+
+  @Override
+  public boolean existsById(long id) {
+    return delegate.existsById(id);
+  }
+
+  @Override
+  public List<Long> findFilmIdsByDirectorId(long directorId, SortBy sortBy) {
+    return delegate.findFilmIdsByDirectorId(directorId, sortBy);
+  }
+
+  @Override
+  public void linkFilmToDirectors(long filmId, Set<Long> directorIds) {
+    invalidate(filmId);
+    delegate.linkFilmToDirectors(filmId, directorIds);
+  }
+
+  @Override
+  public void linkFilmsToDirectors(Map<Long, Set<Long>> directorIdsByFilmId) {
+    directorIdsByFilmId.keySet()
+                       .forEach(this::invalidate);
+    delegate.linkFilmsToDirectors(directorIdsByFilmId);
+  }
+
+  @Override
+  public void updateFilmDirectors(long filmId, Set<Long> directorIds) {
+    invalidate(filmId);
+    delegate.updateFilmDirectors(filmId, directorIds);
+  }
+
+  @Override
+  public Map<Long, List<Director>> findDirectorsForFilmIds(Set<Long> filmIds) {
+    if (filmIds == null || filmIds.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Map<Long, List<Director>> found = directorsByFilmId.getAll(filmIds);
+    if (found.size() < filmIds.size()) {
+      Set<Long> missing = new HashSet<>(filmIds);
+      missing.removeAll(found.keySet());
+      long epoch = directorsByFilmId.epoch();
+      Map<Long, List<Director>> loaded = delegate.findDirectorsForFilmIds(missing);
+      boolean populate = mayPopulate();
+      for (Long filmId : missing) {
+        List<Director> directors = List.copyOf(loaded.getOrDefault(filmId, List.of()));
+        found.put(filmId, directors);
+        if (populate) {
+          directorsByFilmId.putIfNotInvalidatedSince(filmId, directors, epoch);
+        }
+      }
+    }
+    found.values()
+         .removeIf(List::isEmpty);
+    return found;
+  }
+
+  /**
+   Drops every cached film-to-directors mapping.
+   */
+  @Override
+  public void rebuild() {
+    directorsByFilmId.invalidateAll();
+  }
+
+  private void invalidate(long filmId) {
+    directorsByFilmId.invalidate(filmId);
+    TransactionCallbacks.afterCompletion(() -> directorsByFilmId.invalidate(filmId));
+  }
+
+  private void invalidateAll() {
+    directorsByFilmId.invalidateAll();
+    TransactionCallbacks.afterCompletion(directorsByFilmId::invalidateAll);
+  }
+
+  private static boolean mayPopulate() {
+    return !TransactionSynchronizationManager.isActualTransactionActive()
+           || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+}
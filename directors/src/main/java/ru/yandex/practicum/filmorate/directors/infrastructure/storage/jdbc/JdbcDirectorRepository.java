@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate.directors.infrastructure.storage.jdbc;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
@@ -7,6 +9,7 @@ import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.common.enums.SortBy;
+import ru.yandex.practicum.filmorate.common.infrastructure.storage.jdbc.IdArrayParameter;
 import ru.yandex.practicum.filmorate.directors.domain.factory.DirectorFactory;
 import ru.yandex.practicum.filmorate.directors.domain.model.Director;
 import ru.yandex.practicum.filmorate.directors.domain.port.CreateDirectorCommand;
@@ -14,19 +17,23 @@ import ru.yandex.practicum.filmorate.directors.domain.port.DirectorRepository;
 import ru.yandex.practicum.filmorate.directors.domain.port.UpdateDirectorCommand;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Repository
 public class JdbcDirectorRepository
     implements DirectorRepository {
-  private static final int MAX_IDS_IN_CLAUSE = 1000;
-
   private static final String TABLE_DIRECTORS = "directors";
   private static final String COLUMN_ID = "director_id";
   private static final String COLUMN_NAME = "name";
 
   private static final String PARAM_DIRECTOR_IDS = "director_ids";
 
+  private static final String LINK_FILM_TO_DIRECTOR_SQL = """
+                                                          INSERT INTO film_directors (film_id, director_id)
+                                                          VALUES(:film_id, :director_id)
+                                                          """;
+
   private static final String FIND_ALL_SQL = """
                                              SELECT director_id, name
                                              FROM directors
@@ -42,7 +49,7 @@ public class JdbcDirectorRepository
   private static final String FIND_ALL_BY_IDS_SQL = """
                                                     SELECT director_id, name
                                                     FROM directors
-                                                    WHERE director_id IN (:director_ids)
+                                                    WHERE director_id = ANY(:director_ids)
                                                     """;
 
   private static final String UPDATE_DIRECTOR_SQL = """
@@ -68,26 +75,32 @@ public class JdbcDirectorRepository
   private static final String FIND_FILMS_BY_DIRECTOR_SORT_BY_LIKES_SQL = """
                                                                          SELECT fd.film_id
                                                                          FROM film_directors AS fd
-                                                                         LEFT JOIN likes AS l ON fd.film_id = l.film_id
+                                                                         JOIN film_stats AS s ON fd.film_id = s.film_id
                                                                          WHERE fd.director_id = :director_id
-                                                                         GROUP BY fd.film_id
-                                                                         ORDER BY COUNT(l.user_id) DESC
+                                                                         ORDER BY s.like_count DESC, fd.film_id
                                                                          """;
   private static final String LINK_FILM_TO_DIRECTORS_SQL = """
                                                            INSERT INTO film_directors (film_id, director_id)
                                                            VALUES (:film_id, :director_id)
                                                            """;
 
-  private static final String DELETE_FILM_DIRECTORS_BY_FILM_ID_SQL = """
-                                                                     DELETE FROM film_directors
-                                                                     WHERE film_id = :film_id
-                                                                     """;
+  private static final String FIND_DIRECTOR_IDS_BY_FILM_ID_SQL = """
+                                                                 SELECT director_id
+                                                                 FROM film_directors
+                                                                 WHERE film_id = :film_id
+                                                                 """;
+
+  private static final String DELETE_FILM_DIRECTORS_SQL = """
+                                                          DELETE FROM film_directors
+                                                          WHERE film_id = :film_id
+                                                            AND director_id = ANY(:director_ids)
+                                                          """;
 
   private static final String FIND_DIRECTORS_FOR_FILM_IDS_SQL = """
                                                                 SELECT fd.film_id, d.director_id, d.name
                                                                 FROM film_directors fd
                                                                 JOIN directors d ON fd.director_id = d.director_id
-                                                                WHERE fd.film_id IN (:film_ids)
+                                                                WHERE fd.film_id = ANY(:film_ids)
                                                                 ORDER BY d.director_id
                                                                 """;
 
@@ -97,12 +110,19 @@ public class JdbcDirectorRepository
   private final NamedParameterJdbcTemplate jdbcTemplate;
   private final DirectorFactory directorFactory;
   private final SimpleJdbcInsert directorInserter;
+  private final DistributionSummary directorRowsWritten;
 
-  public JdbcDirectorRepository(NamedParameterJdbcTemplate jdbcTemplate, DirectorFactory directorFactory) {
+  public JdbcDirectorRepository(NamedParameterJdbcTemplate jdbcTemplate,
+                                DirectorFactory directorFactory,
+                                MeterRegistry meterRegistry) {
     this.jdbcTemplate = jdbcTemplate;
     this.directorFactory = directorFactory;
     this.directorInserter = new SimpleJdbcInsert(jdbcTemplate.getJdbcTemplate()).withTableName(TABLE_DIRECTORS)
                                 .usingGeneratedKeyColumns(COLUMN_ID);
+    this.directorRowsWritten = DistributionSummary.builder("filmorate.film.update.rows.written")
+                                                  .tag("table", "film_directors")
+                                                  .description("Link rows inserted or deleted by a single film update")
+                                                  .register(meterRegistry);
   }
 
   @Override
@@ -150,12 +170,9 @@ public class JdbcDirectorRepository
     if (ids == null || ids.isEmpty())
       return List.of();
 
-    if (ids.size() > MAX_IDS_IN_CLAUSE) {
-      log.warn("Requested number of IDs ({}) exceeds the recommended limit of {}.", ids.size(), MAX_IDS_IN_CLAUSE);
-      throw new IllegalArgumentException("Too many IDs requested at once. Max allowed: " + MAX_IDS_IN_CLAUSE);
-    }
-
-    return jdbcTemplate.query(FIND_ALL_BY_IDS_SQL, new MapSqlParameterSource(PARAM_DIRECTOR_IDS, ids), rowMapper);
+    return jdbcTemplate.query(FIND_ALL_BY_IDS_SQL,
+                              new MapSqlParameterSource(PARAM_DIRECTOR_IDS, IdArrayParameter.of(ids)),
+                              rowMapper);
   }
 
   @Override
@@ -182,11 +199,6 @@ public class JdbcDirectorRepository
     if (directorIds == null || directorIds.isEmpty()) {
       return;
     }
-    String sql = """
-                 INSERT INTO film_directors (film_id, director_id)
-                 VALUES(:film_id, :director_id)
-                 """;
-
     List<MapSqlParameterSource> batchParams = directorIds.stream()
                                                          .map(directorId -> {
                                                            MapSqlParameterSource params = new MapSqlParameterSource();
@@ -195,16 +207,48 @@ public class JdbcDirectorRepository
                                                            return params;
                                                          })
                                                          .toList();
-    jdbcTemplate.batchUpdate(sql, batchParams.toArray(new MapSqlParameterSource[0]));
+    jdbcTemplate.batchUpdate(LINK_FILM_TO_DIRECTOR_SQL, batchParams.toArray(new MapSqlParameterSource[0]));
+  }
+
+  @Override
+  public void linkFilmsToDirectors(Map<Long, Set<Long>> directorIdsByFilmId) {
+    List<MapSqlParameterSource> batchParams = new ArrayList<>();
+    directorIdsByFilmId.forEach((filmId, directorIds) -> directorIds.forEach(directorId -> {
+      MapSqlParameterSource params = new MapSqlParameterSource();
+      params.addValue("film_id", filmId);
+      params.addValue("director_id", directorId);
+      batchParams.add(params);
+    }));
+    if (!batchParams.isEmpty()) {
+      jdbcTemplate.batchUpdate(LINK_FILM_TO_DIRECTOR_SQL, batchParams.toArray(new MapSqlParameterSource[0]));
+    }
   }
 
   @Override
   public void updateFilmDirectors(long filmId, Set<Long> directorIds) {
-    MapSqlParameterSource parameters = new MapSqlParameterSource();
-    parameters.addValue("film_id", filmId);
+    Set<Long> requested = directorIds == null ? Set.of() : directorIds;
+    Set<Long> current = new HashSet<>(jdbcTemplate.queryForList(FIND_DIRECTOR_IDS_BY_FILM_ID_SQL,
+                                                                new MapSqlParameterSource("film_id", filmId),
+                                                                Long.class));
+    List<Long> removed = current.stream()
+                                .filter(directorId -> !requested.contains(directorId))
+                                .toList();
+    Set<Long> added = requested.stream()
+                               .filter(directorId -> !current.contains(directorId))
+                               .collect(Collectors.toSet());
+
+    int written = 0;
+    if (!removed.isEmpty()) {
+      MapSqlParameterSource parameters = new MapSqlParameterSource();
+      parameters.addValue("film_id", filmId);
+      parameters.addValue(PARAM_DIRECTOR_IDS, IdArrayParameter.of(removed));
+      written += jdbcTemplate.update(DELETE_FILM_DIRECTORS_SQL, parameters);
+    }
+    linkFilmToDirectors(filmId, added);
+    written += added.size();
 
-    jdbcTemplate.update(DELETE_FILM_DIRECTORS_BY_FILM_ID_SQL, parameters);
-    linkFilmToDirectors(filmId, directorIds);
+    directorRowsWritten.record(written);
+    log.debug("Film {} directors updated: {} link rows written", filmId, written);
   }
 
 
@@ -214,7 +258,7 @@ public class JdbcDirectorRepository
       return Collections.emptyMap();
     }
 
-    Map<String, Set<Long>> params = Collections.singletonMap("film_ids", filmIds);
+    Map<String, Object> params = Collections.singletonMap("film_ids", IdArrayParameter.of(filmIds));
     Map<Long, List<Director>> directorsByFilmId = new HashMap<>();
 
     jdbcTemplate.query(FIND_DIRECTORS_FOR_FILM_IDS_SQL, params, (rs) -> {
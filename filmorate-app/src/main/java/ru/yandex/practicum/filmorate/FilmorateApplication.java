@@ -4,12 +4,28 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import ru.yandex.practicum.filmorate.common.config.AppValidationProperties;
+import ru.yandex.practicum.filmorate.likes.application.service.FilmCooccurrenceProperties;
+import ru.yandex.practicum.filmorate.likes.application.service.MinHashProperties;
+import ru.yandex.practicum.filmorate.likes.infrastructure.storage.buffer.LikeWriteBehindProperties;
+import ru.yandex.practicum.filmorate.search.infrastructure.indexing.SearchIndexingProperties;
+import ru.yandex.practicum.filmorate.search.infrastructure.indexing.SearchReindexProperties;
+import ru.yandex.practicum.filmorate.service.popularity.PopularityIndexProperties;
+import ru.yandex.practicum.filmorate.service.recommendation.RecommendationPrecomputeProperties;
 
 
 @SpringBootApplication
-@EnableConfigurationProperties(AppValidationProperties.class)
+@EnableConfigurationProperties({AppValidationProperties.class,
+                                PopularityIndexProperties.class,
+                                LikeWriteBehindProperties.class,
+                                MinHashProperties.class,
+                                FilmCooccurrenceProperties.class,
+                                RecommendationPrecomputeProperties.class,
+                                SearchIndexingProperties.class,
+                                SearchReindexProperties.class})
 @EnableAsync
+@EnableScheduling
 public class FilmorateApplication {
     public static void main(String[] args) {
         SpringApplication.run(FilmorateApplication.class,
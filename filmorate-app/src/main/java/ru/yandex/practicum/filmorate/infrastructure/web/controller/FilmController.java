@@ -3,16 +3,23 @@ package ru.yandex.practicum.filmorate.infrastructure.web.controller;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.common.enums.SortBy;
+import ru.yandex.practicum.filmorate.films.application.port.in.FilmPageQuery;
 import ru.yandex.practicum.filmorate.films.application.port.in.FilmRatingQuery;
 import ru.yandex.practicum.filmorate.films.application.port.in.RecommendationQuery;
 import ru.yandex.practicum.filmorate.infrastructure.web.dto.CreateFilmRequest;
+import ru.yandex.practicum.filmorate.infrastructure.web.dto.FilmImportResponse;
 import ru.yandex.practicum.filmorate.infrastructure.web.dto.FilmResponse;
+import ru.yandex.practicum.filmorate.infrastructure.web.dto.FilmWithDirectors;
 import ru.yandex.practicum.filmorate.infrastructure.web.dto.UpdateFilmRequest;
 import ru.yandex.practicum.filmorate.infrastructure.web.mapper.FilmMapper;
 import ru.yandex.practicum.filmorate.service.FilmCompositionService;
@@ -25,15 +32,20 @@ import java.util.List;
 @Validated
 public class FilmController {
 
+  private static final int MAX_IMPORT_SIZE = 10_000;
+
   private final FilmCompositionService filmCompositionService;
   private final FilmMapper filmMapper;
 
   @GetMapping
-  public List<FilmResponse> getAllFilms() {
-    return filmCompositionService.getAllFilms()
-                                 .stream()
-                                 .map(filmMapper::toResponse)
-                                 .toList();
+  public List<FilmResponse> getAllFilms(@RequestParam(required = false) @PositiveOrZero Long after,
+                                        @RequestParam(required = false) @Min(1) @Max(FilmPageQuery.MAX_LIMIT) Integer limit) {
+    List<FilmWithDirectors> films = after == null && limit == null
+                                    ? filmCompositionService.getAllFilms()
+                                    : filmCompositionService.getFilmsPage(FilmPageQuery.of(after, limit));
+    return films.stream()
+                .map(filmMapper::toResponse)
+                .toList();
   }
 
   @PostMapping
@@ -42,6 +54,18 @@ public class FilmController {
     return filmMapper.toResponse(filmCompositionService.createFilm(filmMapper.toCommand(request)));
   }
 
+  @PostMapping("/bulk")
+  @ResponseStatus(HttpStatus.CREATED)
+  public FilmImportResponse importFilms(@RequestBody
+                                        @NotEmpty
+                                        @Size(max = MAX_IMPORT_SIZE)
+                                        List<@Valid @NotNull CreateFilmRequest> requests) {
+    List<Long> ids = filmCompositionService.importFilms(requests.stream()
+                                                                .map(filmMapper::toCommand)
+                                                                .toList());
+    return new FilmImportResponse(ids.size(), ids);
+  }
+
   @PutMapping
   public FilmResponse updateFilm(@Valid @RequestBody UpdateFilmRequest request) {
     return filmMapper.toResponse(filmCompositionService.updateFilm(filmMapper.toCommand(request)));
@@ -79,6 +103,15 @@ public class FilmController {
     return filmMapper.toResponse(filmCompositionService.getFilmById(id));
   }
 
+  @GetMapping("/{id}/similar")
+  public List<FilmResponse> getSimilarFilms(@PathVariable long id,
+                                            @RequestParam(defaultValue = "10") @Min(1) @Max(1000) Integer count) {
+    return filmCompositionService.getSimilarFilms(id, count)
+                                 .stream()
+                                 .map(filmMapper::toResponse)
+                                 .toList();
+  }
+
   @GetMapping("/common")
   public List<FilmResponse> getCommonFilms(@RequestParam long userId,
                                            @RequestParam long friendId) {
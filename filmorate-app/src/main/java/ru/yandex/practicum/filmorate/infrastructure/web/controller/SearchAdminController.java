@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.infrastructure.web.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.search.infrastructure.indexing.ReindexProgress;
+import ru.yandex.practicum.filmorate.search.infrastructure.indexing.SearchReindexJob;
+
+@RestController
+@RequestMapping("/admin/search/reindex")
+@RequiredArgsConstructor
+public class SearchAdminController {
+  private final SearchReindexJob searchReindexJob;
+
+  @PostMapping
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public ReindexProgress startReindex() {
+    return searchReindexJob.start();
+  }
+
+  @GetMapping
+  public ReindexProgress getReindexProgress() {
+    return searchReindexJob.progress();
+  }
+}
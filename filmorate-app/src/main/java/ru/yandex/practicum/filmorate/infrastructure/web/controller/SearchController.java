@@ -1,6 +1,9 @@
 package ru.yandex.practicum.filmorate.infrastructure.web.controller;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -8,14 +11,18 @@ import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.infrastructure.web.dto.FilmResponse;
 import ru.yandex.practicum.filmorate.infrastructure.web.mapper.FilmMapper;
 import ru.yandex.practicum.filmorate.service.FilmCompositionService;
+import ru.yandex.practicum.filmorate.service.suggestion.FilmSuggestion;
+import ru.yandex.practicum.filmorate.service.suggestion.FilmSuggestionIndex;
 
 import java.util.List;
 
 @RestController
 @RequestMapping("/films")
 @RequiredArgsConstructor
+@Validated
 public class SearchController {
   private final FilmCompositionService filmCompositionService;
+  private final FilmSuggestionIndex filmSuggestionIndex;
   private final FilmMapper filmMapper;
 
   @GetMapping("/search")
@@ -25,4 +32,11 @@ public class SearchController {
                                  .map(filmMapper::toResponse)
                                  .toList();
   }
-}
\ No newline at end of file
+
+  @GetMapping("/search/suggest")
+  public List<FilmSuggestion> suggest(@RequestParam String prefix,
+                                      @RequestParam(defaultValue = "10") @Min(1) @Max(FilmSuggestionIndex.MAX_LIMIT)
+                                      int limit) {
+    return filmSuggestionIndex.suggest(prefix, limit);
+  }
+}
@@ -4,10 +4,10 @@ package ru.yandex.practicum.filmorate.infrastructure.web.controller;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.common.exception.ResourceNotFoundException;
 import ru.yandex.practicum.filmorate.films.application.port.in.RecommendationQuery;
-import ru.yandex.practicum.filmorate.films.application.port.in.RecommendationUseCase;
 import ru.yandex.practicum.filmorate.infrastructure.web.dto.CreateUserRequest;
 import ru.yandex.practicum.filmorate.infrastructure.web.dto.FilmResponse;
 import ru.yandex.practicum.filmorate.infrastructure.web.dto.UpdateUserRequest;
@@ -15,6 +15,8 @@ import ru.yandex.practicum.filmorate.infrastructure.web.dto.UserResponse;
 import ru.yandex.practicum.filmorate.infrastructure.web.mapper.FilmMapper;
 import ru.yandex.practicum.filmorate.infrastructure.web.mapper.UserMapper;
 import ru.yandex.practicum.filmorate.service.UserCompositionService;
+import ru.yandex.practicum.filmorate.service.recommendation.RecommendationPrecomputer;
+import ru.yandex.practicum.filmorate.service.recommendation.RecommendedFilms;
 import ru.yandex.practicum.filmorate.users.application.port.in.UserUseCase;
 
 import java.util.List;
@@ -28,7 +30,7 @@ public class UserController {
   private final UserUseCase userUseCase;
   private final UserMapper userMapper;
   private final UserCompositionService userCompositionService;
-  private final RecommendationUseCase recommendationUseCase;
+  private final RecommendationPrecomputer recommendationPrecomputer;
   private final FilmMapper filmMapper;
 
   @GetMapping
@@ -90,11 +92,11 @@ public class UserController {
    @param limit (optional) max number of results
    @param genreId (optional) genre filter
    @param year (optional) year filter
-   @return list of recommended films
+   @return list of recommended films; {@code Last-Modified} tells when the recommendation was computed
    */
 
   @GetMapping("/{id}/recommendations")
-  public List<FilmResponse> getRecommendations(@PathVariable long id,
+  public ResponseEntity<List<FilmResponse>> getRecommendations(@PathVariable long id,
                                                Optional<Integer> limit,
                                                Optional<Long> genreId,
                                                Optional<Integer> year) {
@@ -105,10 +107,13 @@ public class UserController {
             year.orElse(null)
     );
 
-    return recommendationUseCase.getRecommendations(query)
-            .stream()
-            .map(filmMapper::toResponse)
-            .toList();
+    RecommendedFilms recommended = recommendationPrecomputer.getRecommendations(query);
+    return ResponseEntity.ok()
+                         .lastModified(recommended.computedAt())
+                         .body(recommended.films()
+                                          .stream()
+                                          .map(filmMapper::toResponse)
+                                          .toList());
   }
 
   @GetMapping("/{id}")
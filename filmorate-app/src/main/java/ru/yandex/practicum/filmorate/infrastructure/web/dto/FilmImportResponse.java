@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.infrastructure.web.dto;
+
+import java.util.List;
+
+public record FilmImportResponse(int imported,
+                                 List<Long> ids) {
+}
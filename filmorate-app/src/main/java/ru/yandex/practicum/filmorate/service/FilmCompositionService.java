@@ -6,6 +6,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.RequestParam;
 import ru.yandex.practicum.filmorate.common.enums.SortBy;
+import ru.yandex.practicum.filmorate.common.events.FilmSearchDataBatchUpdatedEvent;
 import ru.yandex.practicum.filmorate.common.events.FilmSearchDataUpdatedEvent;
 import ru.yandex.practicum.filmorate.common.exception.ResourceNotFoundException;
 import ru.yandex.practicum.filmorate.common.exception.ValidationException;
@@ -13,6 +14,7 @@ import ru.yandex.practicum.filmorate.directors.application.port.in.DirectorUseCa
 import ru.yandex.practicum.filmorate.directors.domain.model.Director;
 import ru.yandex.practicum.filmorate.events.domain.model.value.Operation;
 import ru.yandex.practicum.filmorate.events.domain.service.DomainEventPublisher;
+import ru.yandex.practicum.filmorate.films.application.port.in.FilmPageQuery;
 import ru.yandex.practicum.filmorate.films.application.port.in.FilmRatingQuery;
 import ru.yandex.practicum.filmorate.films.application.port.in.FilmUseCase;
 import ru.yandex.practicum.filmorate.films.application.port.in.RecommendationQuery;
@@ -24,6 +26,9 @@ import ru.yandex.practicum.filmorate.films.domain.port.UpdateFilmCommand;
 import ru.yandex.practicum.filmorate.infrastructure.web.dto.FilmWithDirectors;
 import ru.yandex.practicum.filmorate.likes.application.port.in.LikeUseCase;
 import ru.yandex.practicum.filmorate.search.application.port.in.SearchUseCase;
+import ru.yandex.practicum.filmorate.service.popularity.PopularityIndex;
+import ru.yandex.practicum.filmorate.service.recommendation.RecommendationPrecomputer;
+import ru.yandex.practicum.filmorate.service.suggestion.FilmSuggestionIndex;
 import ru.yandex.practicum.filmorate.users.application.port.in.UserUseCase;
 import ru.yandex.practicum.filmorate.users.domain.model.User;
 
@@ -34,6 +39,8 @@ import java.util.stream.Collectors;
 @Service
 @RequiredArgsConstructor
 public class FilmCompositionService {
+  public static final int IMPORT_CHUNK_SIZE = 1000;
+
   private final FilmUseCase filmUseCase;
   private final LikeUseCase likeService;
   private final UserUseCase userUseCase;
@@ -41,20 +48,62 @@ public class FilmCompositionService {
   private final ApplicationEventPublisher eventPublisher;
   private final SearchUseCase searchUseCase;
   private final DomainEventPublisher domainEventPublisher;
+  private final PopularityIndex popularityIndex;
+  private final RecommendationPrecomputer recommendationPrecomputer;
+  private final FilmSuggestionIndex filmSuggestionIndex;
 
   @Transactional
   public FilmWithDirectors createFilm(CreateFilmCommand command) {
     Film film = filmUseCase.addFilm(command);
-    directorUseCase.updateFilmDirectors(film.id(), command.directorIds());
-    return getFilmWithDirectors(film);
+    List<Director> directors = directorUseCase.updateFilmDirectors(film.id(), command.directorIds());
+    FilmWithDirectors filmWithDirectors = new FilmWithDirectors(film, directors);
+    publishSearchUpdateEvent(filmWithDirectors);
+    popularityIndex.put(filmWithDirectors);
+    return filmWithDirectors;
+  }
+
+  /**
+   Imports a batch of films in one transaction. Films, genres and director links are written with JDBC batches per
+   chunk of {@link #IMPORT_CHUNK_SIZE} films, nothing is read back, and the search index receives one event per chunk.
+   @param commands Films to create
+   @return IDs of the created films, in the order of the commands
+   */
+  @Transactional
+  public List<Long> importFilms(List<CreateFilmCommand> commands) {
+    List<Long> ids = new ArrayList<>(commands.size());
+    for (int from = 0; from < commands.size(); from += IMPORT_CHUNK_SIZE) {
+      List<CreateFilmCommand> chunk = commands.subList(from, Math.min(from + IMPORT_CHUNK_SIZE, commands.size()));
+      List<Film> films = filmUseCase.addFilms(chunk);
+
+      Map<Long, Set<Long>> directorIdsByFilmId = new HashMap<>();
+      for (int i = 0; i < films.size(); i++) {
+        Set<Long> directorIds = chunk.get(i)
+                                     .directorIds();
+        directorIdsByFilmId.put(films.get(i)
+                                     .id(), directorIds == null ? Set.of() : directorIds);
+      }
+      Map<Long, List<Director>> directorsByFilmId = directorUseCase.linkFilmsToDirectors(directorIdsByFilmId);
+
+      List<FilmSearchDataBatchUpdatedEvent.FilmSearchData> searchData = new ArrayList<>(films.size());
+      for (Film film : films) {
+        List<Director> directors = directorsByFilmId.getOrDefault(film.id(), Collections.emptyList());
+        popularityIndex.put(new FilmWithDirectors(film, directors));
+        searchData.add(new FilmSearchDataBatchUpdatedEvent.FilmSearchData(film.id(),
+                                                                           film.name(),
+                                                                           directors.stream()
+                                                                                    .map(Director::name)
+                                                                                    .collect(Collectors.toSet())));
+        ids.add(film.id());
+      }
+      eventPublisher.publishEvent(new FilmSearchDataBatchUpdatedEvent(this, searchData));
+    }
+    return ids;
   }
 
   private FilmWithDirectors getFilmWithDirectors(Film film) {
     Map<Long, List<Director>> directorsMap = directorUseCase.getDirectorsForFilmIds(Set.of(film.id()));
     List<Director> directors = directorsMap.getOrDefault(film.id(), Collections.emptyList());
-    FilmWithDirectors filmWithDirectors = new FilmWithDirectors(film, directors);
-    publishSearchUpdateEvent(filmWithDirectors);
-    return filmWithDirectors;
+    return new FilmWithDirectors(film, directors);
   }
 
   private void publishSearchUpdateEvent(FilmWithDirectors filmWithDirectors) {
@@ -77,20 +126,26 @@ public class FilmCompositionService {
   @Transactional
   public FilmWithDirectors updateFilm(UpdateFilmCommand command) {
     Film film = filmUseCase.updateFilm(command);
-    directorUseCase.updateFilmDirectors(film.id(), command.directorIds());
-    FilmWithDirectors filmWithDirectors = getFilmWithDirectors(film);
+    List<Director> directors = directorUseCase.updateFilmDirectors(film.id(), command.directorIds());
+    FilmWithDirectors filmWithDirectors = new FilmWithDirectors(film, directors);
     publishSearchUpdateEvent(filmWithDirectors);
+    popularityIndex.put(filmWithDirectors);
     return filmWithDirectors;
   }
 
   public List<Film> getRecommendations(RecommendationQuery query) {
-    return filmUseCase.getRecommendations(query);
+    return recommendationPrecomputer.getRecommendations(query)
+                                    .films();
   }
 
   public List<FilmWithDirectors> getAllFilms() {
     return enrichFilmsWithDirectors(filmUseCase.getAllFilms());
   }
 
+  public List<FilmWithDirectors> getFilmsPage(FilmPageQuery query) {
+    return enrichFilmsWithDirectors(filmUseCase.getFilmsPage(query));
+  }
+
   public List<FilmWithDirectors> enrichFilmsWithDirectors(List<Film> films) {
     if (films.isEmpty()) {
       return Collections.emptyList();
@@ -114,14 +169,12 @@ public class FilmCompositionService {
   }
 
   public void validateFilmExists(long filmId) {
-    if (filmUseCase.findFilmById(filmId)
-                   .isEmpty())
+    if (!filmUseCase.existsById(filmId))
       throw new ResourceNotFoundException("Film with id " + filmId + " not found");
   }
 
   public void validateUserExists(long userId) {
-    if (userUseCase.findUserById(userId)
-                   .isEmpty())
+    if (!userUseCase.existsById(userId))
       throw new ResourceNotFoundException("User with id " + userId + " not found");
   }
 
@@ -134,39 +187,16 @@ public class FilmCompositionService {
   }
 
   public List<FilmWithDirectors> getPopularFilms(FilmRatingQuery query) {
-    List<Long> filmIds = filmUseCase.getFilmIdsByFilters(query.genreId()
-                                                              .orElse(null),
-                                                         query.year()
-                                                              .orElse(null));
-
-    Optional<Long> directorIdOpt = query.directorId();
-    if (directorIdOpt.isPresent()) {
-      Set<Long> directorFilmIds = new HashSet<>(directorUseCase.getFilmIdsByDirector(directorIdOpt.get(),
-                                                                                     SortBy.LIKES));
-      filmIds = filmIds.stream()
-                       .filter(directorFilmIds::contains)
-                       .toList();
-    }
-
-    if (filmIds.isEmpty()) {
-      return Collections.emptyList();
-    }
-
-    Map<Long, Integer> likeCounts = likeService.getLikeCountsForFilms(new HashSet<>(filmIds));
+    query.directorId()
+         .ifPresent(directorUseCase::findDirectorById);
 
-    List<Long> sortedPopularFilmIds = filmIds.stream()
-                                             .sorted(Comparator.comparingInt((Long id) -> likeCounts.getOrDefault(id,
-                                                                                                                  0))
-                                                               .reversed())
-                                             .limit(query.limit())
-                                             .toList();
-
-    if (sortedPopularFilmIds.isEmpty()) {
+    List<Long> popularFilmIds = popularityIndex.findTopFilmIds(query)
+                                               .orElseGet(() -> filmUseCase.getPopularFilmIds(query));
+    if (popularFilmIds.isEmpty()) {
       return Collections.emptyList();
     }
 
-    List<Film> popularFilms = filmUseCase.getFilmsByIds(sortedPopularFilmIds);
-    return enrichFilmsWithDirectors(popularFilms);
+    return enrichFilmsWithDirectors(filmUseCase.getFilmsByIds(popularFilmIds));
   }
 
   public List<Genre> getGenres() {
@@ -201,25 +231,38 @@ public class FilmCompositionService {
     validateUserExists(userId);
     validateUserExists(friendId);
 
-    Set<Long> userLikes = likeService.findLikedFilms(userId);
-    Set<Long> friendLikes = likeService.findLikedFilms(friendId);
-
-    Set<Long> commonFilmIds = new HashSet<>(userLikes);
-    commonFilmIds.retainAll(friendLikes);
-
+    List<Long> commonFilmIds = Arrays.stream(likeService.findCommonLikedFilms(userId, friendId))
+                                     .boxed()
+                                     .toList();
     if (commonFilmIds.isEmpty()) {
       return List.of();
     }
 
-    List<Film> commonFilms = filmUseCase.getFilmsByIds(commonFilmIds.stream()
-                                                                    .toList());
-    Map<Long, Integer> likeCounts = likeService.getLikeCountsForFilms(commonFilmIds);
+    List<Film> commonFilms = filmUseCase.getFilmsByIds(commonFilmIds);
+    Map<Long, Integer> likeCounts = likeService.getLikeCountsForFilms(new HashSet<>(commonFilmIds));
 
     return commonFilms.stream()
                       .sorted(Comparator.comparingInt(film -> -likeCounts.getOrDefault(film.id(), 0)))
                       .toList();
   }
 
+  /**
+   Returns the films most often liked by the users who liked the given film.
+   @param filmId ID of the film
+   @param count Maximum number of films
+   @return Films in order of co-likes, most first
+   */
+  public List<FilmWithDirectors> getSimilarFilms(long filmId, int count) {
+    validateFilmExists(filmId);
+    List<Long> similarFilmIds = Arrays.stream(likeService.findSimilarFilms(filmId, count))
+                                      .boxed()
+                                      .toList();
+    if (similarFilmIds.isEmpty()) {
+      return List.of();
+    }
+    return enrichFilmsWithDirectors(filmUseCase.getFilmsByIds(similarFilmIds));
+  }
+
   public List<FilmWithDirectors> getDirectorFilms(long directorId, SortBy sortBy) {
     List<Long> filmIds = directorUseCase.getFilmIdsByDirector(directorId, sortBy);
     if (filmIds.isEmpty()) {
@@ -234,8 +277,17 @@ public class FilmCompositionService {
                       .orElseThrow(() -> new ResourceNotFoundException("User with id " + id + " not found"));
   }
 
+  /**
+   Deletes a film. Its likes are removed through the like service first, so the like counters and the like matrix
+   drop them too instead of keeping counts for an ID the database may hand out again.
+   @param id ID of the film
+   */
+  @Transactional
   public void deleteFilmById(long id) {
+    likeService.deleteLikesByFilmId(id);
     filmUseCase.deleteFilmById(id);
+    popularityIndex.remove(id);
+    filmSuggestionIndex.remove(id);
   }
 
   public List<FilmWithDirectors> searchFilms(@RequestParam String query, @RequestParam List<String> by) {
@@ -30,8 +30,7 @@ public class UserCompositionService {
   }
 
   public void validateUserExists(long userId) {
-    if (userUseCase.findUserById(userId)
-                   .isEmpty())
+    if (!userUseCase.existsById(userId))
       throw new ResourceNotFoundException("User with id " + userId + " not found.");
   }
 
@@ -54,8 +53,8 @@ public class UserCompositionService {
   }
 
   private void validateUsersExists(Set<Long> userIds) {
-    if (userUseCase.findUsersByIds(userIds)
-                   .size() != userIds.size())
+    if (!userIds.stream()
+                .allMatch(userUseCase::existsById))
       throw new ResourceNotFoundException("One or more users not found.");
   }
 
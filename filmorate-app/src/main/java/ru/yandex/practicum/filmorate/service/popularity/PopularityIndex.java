@@ -0,0 +1,333 @@
+package ru.yandex.practicum.filmorate.service.popularity;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.common.cache.Rebuildable;
+import ru.yandex.practicum.filmorate.common.cache.RebuildableState;
+import ru.yandex.practicum.filmorate.common.cache.TransactionCallbacks;
+import ru.yandex.practicum.filmorate.common.events.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.directors.application.port.in.DirectorUseCase;
+import ru.yandex.practicum.filmorate.directors.domain.model.Director;
+import ru.yandex.practicum.filmorate.events.domain.service.DomainEventPublisher;
+import ru.yandex.practicum.filmorate.films.application.port.in.FilmPageQuery;
+import ru.yandex.practicum.filmorate.films.application.port.in.FilmRatingQuery;
+import ru.yandex.practicum.filmorate.films.application.port.in.FilmUseCase;
+import ru.yandex.practicum.filmorate.films.domain.model.Film;
+import ru.yandex.practicum.filmorate.films.domain.model.value.Genre;
+import ru.yandex.practicum.filmorate.infrastructure.web.dto.FilmWithDirectors;
+import ru.yandex.practicum.filmorate.likes.application.port.in.LikeUseCase;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ In-process top-K index answering {@code /films/popular} without touching the database.
+ <p>
+ Films are kept in one ordered set per genre, per release year and per director, plus a global one, each sorted by
+ like count (descending) and film ID. A query walks the most selective partition in order and stops after
+ {@code count} matches. Like counts are refreshed from {@code film_stats} on every
+ {@link DomainEventPublisher.LikeEvent}; because the refresh reads the absolute value, repeated events for the same
+ like are harmless. Film metadata is pushed by {@code FilmCompositionService} when films are created, updated or
+ deleted.
+ <p>
+ The index is built on startup. Until then, and while disabled, lookups report a miss and the caller falls back to
+ the database. A periodic consistency check compares the counters with {@code film_stats} and repairs drifted films.
+ */
+@Slf4j
+@Component
+public class PopularityIndex
+    implements Rebuildable {
+  private static final int LOCK_STRIPES = 64;
+
+  private final FilmUseCase filmUseCase;
+  private final DirectorUseCase directorUseCase;
+  private final LikeUseCase likeUseCase;
+  private final PopularityIndexProperties properties;
+  private final Counter hits;
+  private final Counter misses;
+  private final AtomicLong drift = new AtomicLong();
+  private final Lock[] stripes = new Lock[LOCK_STRIPES];
+  private final RebuildableState<Partitions> partitions = new RebuildableState<>();
+
+  public PopularityIndex(FilmUseCase filmUseCase,
+                         DirectorUseCase directorUseCase,
+                         LikeUseCase likeUseCase,
+                         PopularityIndexProperties properties,
+                         MeterRegistry meterRegistry) {
+    this.filmUseCase = filmUseCase;
+    this.directorUseCase = directorUseCase;
+    this.likeUseCase = likeUseCase;
+    this.properties = properties;
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+    this.hits = Counter.builder("filmorate.popularity.index.lookups")
+                       .tag("result", "hit")
+                       .description("Popular film queries answered from the in-memory index")
+                       .register(meterRegistry);
+    this.misses = Counter.builder("filmorate.popularity.index.lookups")
+                         .tag("result", "miss")
+                         .description("Popular film queries that fell back to the database")
+                         .register(meterRegistry);
+    Gauge.builder("filmorate.popularity.index.drift", drift, AtomicLong::get)
+         .description("Films whose like count differed from film_stats at the last consistency check")
+         .register(meterRegistry);
+  }
+
+  /**
+   Returns the IDs of the most liked films matching the query.
+   @param query Popular films query; the sort order is always by likes
+   @return Film IDs in popularity order, or empty if the index cannot answer and the caller has to use the database
+   */
+  public Optional<List<Long>> findTopFilmIds(FilmRatingQuery query) {
+    Partitions current = partitions.get();
+    if (!properties.enabled() || current == null) {
+      misses.increment();
+      return Optional.empty();
+    }
+    hits.increment();
+    return Optional.of(current.top(query.genreId()
+                                        .orElse(null),
+                                   query.year()
+                                        .orElse(null),
+                                   query.directorId()
+                                        .orElse(null),
+                                   query.limit()));
+  }
+
+  /**
+   Adds a film to the index or moves it to the partitions matching its current genres, year and directors. Inside a
+   transaction the change is applied after commit.
+   @param film The film as it was saved
+   */
+  public void put(FilmWithDirectors film) {
+    FilmKeys keys = FilmKeys.of(film.film(), film.directors());
+    long filmId = film.film()
+                      .id();
+    TransactionCallbacks.afterCommit(() -> apply(filmId, current -> {
+      IndexedFilm existing = current.films.get(filmId);
+      current.upsert(filmId, keys, existing != null ? existing.likes() : 0);
+    }));
+  }
+
+  /**
+   Removes a deleted film from the index. Inside a transaction the change is applied after commit.
+   @param filmId ID of the deleted film
+   */
+  public void remove(long filmId) {
+    TransactionCallbacks.afterCommit(() -> apply(filmId, current -> current.remove(filmId)));
+  }
+
+  @EventListener
+  public void onLike(DomainEventPublisher.LikeEvent event) {
+    long filmId = event.getEntityId();
+    apply(filmId, current -> refreshLikes(current, filmId));
+  }
+
+  /**
+   Refreshes the films a deleted user liked once the deletion has committed. Runs in the deleting transaction ahead of
+   the listener that removes the user's likes, so the liked films can still be read; the like counters drop in the
+   first after-commit callback, before the refresh reads them.
+   */
+  @EventListener
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  public void onUserDeleted(UserDeletedEvent event) {
+    Set<Long> likedFilms = likeUseCase.findLikedFilms(event.getUserId());
+    TransactionCallbacks.afterCommit(() -> likedFilms.forEach(filmId -> apply(filmId,
+                                                                            current -> refreshLikes(current,
+                                                                                                    filmId))));
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void buildOnStartup() {
+    rebuild();
+  }
+
+  /**
+   Builds a fresh index from the database page by page and swaps it in. Changes that arrive while the rebuild is
+   running are replayed on the fresh index before the swap, so none of them is lost.
+   */
+  @Override
+  public synchronized void rebuild() {
+    if (!properties.enabled()) {
+      return;
+    }
+    long started = System.nanoTime();
+    Partitions fresh = partitions.rebuild(() -> {
+      Partitions built = new Partitions();
+      Long after = null;
+      List<Film> page;
+      while (!(page = filmUseCase.getFilmsPage(FilmPageQuery.of(after, FilmPageQuery.MAX_LIMIT))).isEmpty()) {
+        Set<Long> filmIds = page.stream()
+                                .map(Film::id)
+                                .collect(Collectors.toSet());
+        Map<Long, List<Director>> directors = directorUseCase.getDirectorsForFilmIds(filmIds);
+        Map<Long, Integer> likes = likeUseCase.getLikeCountsForFilms(filmIds);
+        for (Film film : page) {
+          built.upsert(film.id(),
+                       FilmKeys.of(film, directors.getOrDefault(film.id(), List.of())),
+                       likes.getOrDefault(film.id(), 0));
+        }
+        after = page.get(page.size() - 1)
+                    .id();
+      }
+      return built;
+    });
+    log.info("Popularity index rebuilt with {} films in {} ms",
+             fresh.films.size(),
+             (System.nanoTime() - started) / 1_000_000);
+  }
+
+  /**
+   Compares the indexed like counts with {@code film_stats} and refreshes every film that drifted.
+   @return Number of films whose count differed
+   */
+  @Scheduled(initialDelayString = "${filmorate.popularity-index.consistency-check-interval:PT5M}",
+             fixedDelayString = "${filmorate.popularity-index.consistency-check-interval:PT5M}")
+  public long checkConsistency() {
+    Partitions current = partitions.get();
+    if (current == null) {
+      return 0;
+    }
+    Map<Long, Long> expected = likeUseCase.getLikeCounts();
+    List<Long> drifted = current.films.entrySet()
+                                      .stream()
+                                      .filter(entry -> entry.getValue()
+                                                            .likes() != expected.getOrDefault(entry.getKey(), 0L))
+                                      .map(Map.Entry::getKey)
+                                      .toList();
+    drift.set(drifted.size());
+    if (!drifted.isEmpty()) {
+      log.warn("Popularity index drifted from film_stats for {} films, refreshing them", drifted.size());
+      drifted.forEach(filmId -> apply(filmId, latest -> refreshLikes(latest, filmId)));
+    }
+    return drifted.size();
+  }
+
+  private void refreshLikes(Partitions current, long filmId) {
+    long likes = likeUseCase.getLikeCountsForFilms(Set.of(filmId))
+                            .getOrDefault(filmId, 0);
+    IndexedFilm existing = current.films.get(filmId);
+    if (existing != null) {
+      current.upsert(filmId, existing.keys(), likes);
+    }
+  }
+
+  private void apply(long filmId, Consumer<Partitions> change) {
+    partitions.apply(stripes[Math.floorMod(Long.hashCode(filmId), LOCK_STRIPES)], change);
+  }
+
+  private record FilmKeys(Set<Long> genreIds, int year, Set<Long> directorIds) {
+    static FilmKeys of(Film film, Collection<Director> directors) {
+      return new FilmKeys(film.genres()
+                              .stream()
+                              .map(Genre::id)
+                              .collect(Collectors.toUnmodifiableSet()),
+                          film.releaseDate()
+                              .getYear(),
+                          directors.stream()
+                                   .map(Director::id)
+                                   .collect(Collectors.toUnmodifiableSet()));
+    }
+  }
+
+  private record IndexedFilm(FilmKeys keys, long likes) {}
+
+  private record Ranked(long filmId, long likes)
+      implements Comparable<Ranked> {
+    @Override
+    public int compareTo(Ranked other) {
+      int byLikes = Long.compare(other.likes, likes);
+      return byLikes != 0 ? byLikes : Long.compare(filmId, other.filmId);
+    }
+  }
+
+  private static final class Partitions {
+    private final ConcurrentMap<Long, IndexedFilm> films = new ConcurrentHashMap<>();
+    private final NavigableSet<Ranked> global = new ConcurrentSkipListSet<>();
+    private final ConcurrentMap<Long, NavigableSet<Ranked>> byGenre = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, NavigableSet<Ranked>> byYear = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, NavigableSet<Ranked>> byDirector = new ConcurrentHashMap<>();
+
+    void upsert(long filmId, FilmKeys keys, long likes) {
+      remove(filmId);
+      Ranked ranked = new Ranked(filmId, likes);
+      global.add(ranked);
+      keys.genreIds()
+          .forEach(genreId -> partition(byGenre, genreId).add(ranked));
+      partition(byYear, keys.year()).add(ranked);
+      keys.directorIds()
+          .forEach(directorId -> partition(byDirector, directorId).add(ranked));
+      films.put(filmId, new IndexedFilm(keys, likes));
+    }
+
+    void remove(long filmId) {
+      IndexedFilm existing = films.remove(filmId);
+      if (existing == null) {
+        return;
+      }
+      Ranked ranked = new Ranked(filmId, existing.likes());
+      global.remove(ranked);
+      existing.keys()
+              .genreIds()
+              .forEach(genreId -> partition(byGenre, genreId).remove(ranked));
+      partition(byYear, existing.keys()
+                                .year()).remove(ranked);
+      existing.keys()
+              .directorIds()
+              .forEach(directorId -> partition(byDirector, directorId).remove(ranked));
+    }
+
+    List<Long> top(Long genreId, Integer year, Long directorId, int limit) {
+      NavigableSet<Ranked> source;
+      if (directorId != null) {
+        source = byDirector.get(directorId);
+      } else if (genreId != null) {
+        source = byGenre.get(genreId);
+      } else if (year != null) {
+        source = byYear.get(year);
+      } else {
+        source = global;
+      }
+      if (source == null) {
+        return List.of();
+      }
+
+      List<Long> result = new ArrayList<>(Math.min(limit, 64));
+      for (Ranked ranked : source) {
+        IndexedFilm film = films.get(ranked.filmId());
+        if (film == null || film.likes() != ranked.likes()) {
+          continue;
+        }
+        FilmKeys keys = film.keys();
+        if ((genreId == null || keys.genreIds()
+                                    .contains(genreId)) && (year == null || keys.year() == year)) {
+          result.add(ranked.filmId());
+          if (result.size() == limit) {
+            break;
+          }
+        }
+      }
+      return result;
+    }
+
+    private static <K> NavigableSet<Ranked> partition(ConcurrentMap<K, NavigableSet<Ranked>> partitions, K key) {
+      return partitions.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>());
+    }
+  }
+}
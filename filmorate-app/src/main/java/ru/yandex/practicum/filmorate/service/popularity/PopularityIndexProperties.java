@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.service.popularity;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ Configuration of the in-memory popularity index. Maps to properties with prefix "filmorate.popularity-index".
+ @param enabled Whether {@code /films/popular} is answered from the index. When disabled every request goes to the
+ database.
+ @param consistencyCheckInterval How often the index is compared with {@code film_stats} and repaired. */
+@ConfigurationProperties(prefix = "filmorate.popularity-index")
+public record PopularityIndexProperties(@DefaultValue("true")
+                                        boolean enabled,
+                                        @DefaultValue("PT5M")
+                                        Duration consistencyCheckInterval) {}
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.service.recommendation;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ Configuration of the precomputed recommendations. Maps to properties with prefix
+ "filmorate.recommendations.precompute".
+ @param enabled Whether recommendations are served from precomputed results. When disabled every request computes
+ them.
+ @param interval How often the users touched by likes since the last run are recomputed.
+ @param parallelism Number of threads the recomputation runs on.
+ @param neighbours Number of most similar users kept per user. */
+@ConfigurationProperties(prefix = "filmorate.recommendations.precompute")
+public record RecommendationPrecomputeProperties(@DefaultValue("true")
+                                                 boolean enabled,
+                                                 @DefaultValue("PT10S")
+                                                 Duration interval,
+                                                 @DefaultValue("4")
+                                                 int parallelism,
+                                                 @DefaultValue("10")
+                                                 int neighbours) {}
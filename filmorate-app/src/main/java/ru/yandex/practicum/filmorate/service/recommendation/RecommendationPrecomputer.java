@@ -0,0 +1,240 @@
+package ru.yandex.practicum.filmorate.service.recommendation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.common.cache.Rebuildable;
+import ru.yandex.practicum.filmorate.common.events.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.events.domain.model.value.Operation;
+import ru.yandex.practicum.filmorate.events.domain.service.DomainEventPublisher;
+import ru.yandex.practicum.filmorate.films.application.port.in.RecommendationQuery;
+import ru.yandex.practicum.filmorate.films.application.port.in.RecommendationUseCase;
+import ru.yandex.practicum.filmorate.films.application.port.in.UserRecommendations;
+import ru.yandex.practicum.filmorate.likes.application.port.in.LikeUseCase;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ Serves recommendations from per-user results computed ahead of time.
+ <p>
+ Every {@link DomainEventPublisher.LikeEvent} marks the user who liked and the users who have them among their most
+ similar users; both are known without reading any likes. The users whose similarity to the liker grew, the other fans
+ of a liked film or every co-liker after an unlike, can be as many as a film has fans, so the like only records the
+ film or user and the scheduled job looks them up before it recomputes the marked users in parallel. A request for a
+ user with a marked change newer than its result, or without a result, computes it on the spot; a user who only gained
+ a possible neighbour may see the previous result until the next run. Every response carries the time its result was
+ computed.
+ <p>
+ Changes are numbered; a result remembers the last number issued before it was computed, and a mark only counts as
+ handled once a result at least as new is stored. Likes written without a {@code LikeEvent} are not tracked, so a
+ rebuild drops all results.
+ */
+@Slf4j
+@Component
+public class RecommendationPrecomputer
+    implements Rebuildable {
+  private final RecommendationUseCase recommendationUseCase;
+  private final LikeUseCase likeUseCase;
+  private final RecommendationPrecomputeProperties properties;
+  private final ForkJoinPool pool;
+  private final Counter hits;
+  private final Counter misses;
+  private final AtomicLong changes = new AtomicLong();
+  private final Map<Long, Long> dirty = new ConcurrentHashMap<>();
+  private final Map<Long, Precomputed> results = new ConcurrentHashMap<>();
+  private final Map<Long, Set<Long>> dependents = new ConcurrentHashMap<>();
+  private final Set<Long> likedFilms = ConcurrentHashMap.newKeySet();
+  private final Set<Long> unlikingUsers = ConcurrentHashMap.newKeySet();
+
+  public RecommendationPrecomputer(RecommendationUseCase recommendationUseCase,
+                                   LikeUseCase likeUseCase,
+                                   RecommendationPrecomputeProperties properties,
+                                   MeterRegistry meterRegistry) {
+    this.recommendationUseCase = recommendationUseCase;
+    this.likeUseCase = likeUseCase;
+    this.properties = properties;
+    this.pool = new ForkJoinPool(properties.parallelism());
+    this.hits = Counter.builder("filmorate.recommendations.precomputed.lookups")
+                       .tag("result", "hit")
+                       .description("Recommendation requests answered from a precomputed result")
+                       .register(meterRegistry);
+    this.misses = Counter.builder("filmorate.recommendations.precomputed.lookups")
+                         .tag("result", "miss")
+                         .description("Recommendation requests that had to compute the result")
+                         .register(meterRegistry);
+    Gauge.builder("filmorate.recommendations.precomputed.dirty", dirty, Map::size)
+         .description("Users waiting for their recommendations to be recomputed")
+         .register(meterRegistry);
+  }
+
+  /**
+   Returns the recommended films of a user, from the precomputed result if it is still current.
+   @param query Recommendation query
+   @return Filtered films and the time their result was computed
+   */
+  public RecommendedFilms getRecommendations(RecommendationQuery query) {
+    UserRecommendations recommendations;
+    if (!properties.enabled()) {
+      recommendations = recommendationUseCase.computeRecommendations(query.userId(), 1);
+    } else {
+      Precomputed precomputed = results.get(query.userId());
+      if (precomputed != null && isCurrent(query.userId(), precomputed)) {
+        hits.increment();
+        recommendations = precomputed.recommendations();
+      } else {
+        misses.increment();
+        recommendations = refresh(query.userId());
+      }
+    }
+    return new RecommendedFilms(recommendationUseCase.getRecommendations(query, recommendations),
+                                recommendations.computedAt());
+  }
+
+  @EventListener
+  public void onLike(DomainEventPublisher.LikeEvent event) {
+    long userId = event.getUserId();
+    markDirty(userId);
+    markDirty(dependents.getOrDefault(userId, Set.of()));
+    if (event.getOperation() == Operation.REMOVE) {
+      unlikingUsers.add(userId);
+    } else {
+      likedFilms.add(event.getEntityId());
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onUserDeleted(UserDeletedEvent event) {
+    long userId = event.getUserId();
+    markDirty(dependents.getOrDefault(userId, Set.of()));
+    dirty.remove(userId);
+    unlikingUsers.remove(userId);
+    results.computeIfPresent(userId, (id, removed) -> {
+      unlink(userId, removed);
+      return null;
+    });
+    dependents.remove(userId);
+  }
+
+  /**
+   Marks the users affected by the likes since the last run, then recomputes every marked user on
+   {@code parallelism} threads.
+   @return Number of users recomputed
+   */
+  @Scheduled(initialDelayString = "${filmorate.recommendations.precompute.interval:PT10S}",
+             fixedDelayString = "${filmorate.recommendations.precompute.interval:PT10S}")
+  public int precomputeDirty() {
+    if (!properties.enabled()) {
+      return 0;
+    }
+    markSimilarityChanges();
+    if (dirty.isEmpty()) {
+      return 0;
+    }
+    long started = System.nanoTime();
+    List<Long> userIds = List.copyOf(dirty.keySet());
+    pool.submit(() -> userIds.parallelStream()
+                             .forEach(this::refresh))
+        .join();
+    log.debug("Recomputed recommendations of {} users in {} ms",
+              userIds.size(),
+              (System.nanoTime() - started) / 1_000_000);
+    return userIds.size();
+  }
+
+  /**
+   Drops every result; they are computed again on demand.
+   */
+  @Override
+  public void rebuild() {
+    results.clear();
+    dependents.clear();
+    dirty.clear();
+    likedFilms.clear();
+    unlikingUsers.clear();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    pool.shutdownNow();
+  }
+
+  private UserRecommendations refresh(long userId) {
+    long sequence = changes.get();
+    Precomputed fresh = new Precomputed(recommendationUseCase.computeRecommendations(userId, properties.neighbours()),
+                                        sequence);
+    results.compute(userId, (id, previous) -> {
+      if (previous != null && previous.sequence() > sequence) {
+        return previous;
+      }
+      unlink(userId, previous);
+      fresh.recommendations()
+           .similarUserIds()
+           .forEach(similarUserId -> dependents.computeIfAbsent(similarUserId, key -> ConcurrentHashMap.newKeySet())
+                                               .add(userId));
+      return fresh;
+    });
+    dirty.computeIfPresent(userId, (id, changed) -> changed <= sequence ? null : changed);
+    return fresh.recommendations();
+  }
+
+  /**
+   A like brings its user closer to the film's other fans. An unlike shrinks the user's like set, which brings them
+   closer to every co-liker who did not like the film.
+   */
+  private void markSimilarityChanges() {
+    for (Long filmId : List.copyOf(likedFilms)) {
+      likedFilms.remove(filmId);
+      markDirty(likeUseCase.findUsersWhoLikedFilm(filmId));
+    }
+    for (Long userId : List.copyOf(unlikingUsers)) {
+      unlikingUsers.remove(userId);
+      markDirty(likeUseCase.findCoLikedUsers(userId)
+                           .userIds());
+    }
+  }
+
+  private boolean isCurrent(long userId, Precomputed precomputed) {
+    Long changed = dirty.get(userId);
+    return changed == null || changed <= precomputed.sequence();
+  }
+
+  private void unlink(long userId, Precomputed previous) {
+    if (previous == null) {
+      return;
+    }
+    for (Long similarUserId : previous.recommendations()
+                                      .similarUserIds()) {
+      dependents.computeIfPresent(similarUserId, (id, users) -> {
+        users.remove(userId);
+        return users.isEmpty() ? null : users;
+      });
+    }
+  }
+
+  private void markDirty(long userId) {
+    dirty.put(userId, changes.incrementAndGet());
+  }
+
+  private void markDirty(long[] userIds) {
+    for (long userId : userIds) {
+      markDirty(userId);
+    }
+  }
+
+  private void markDirty(Set<Long> userIds) {
+    userIds.forEach(this::markDirty);
+  }
+
+  private record Precomputed(UserRecommendations recommendations, long sequence) {}
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.service.recommendation;
+
+import ru.yandex.practicum.filmorate.films.domain.model.Film;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ Recommended films together with the time the recommendation they come from was computed.
+ @param films Recommended films after filtering
+ @param computedAt When the similar users and film IDs behind the films were computed */
+public record RecommendedFilms(List<Film> films, Instant computedAt) {}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.service.suggestion;
+
+/**
+ One type-ahead suggestion.
+ @param text Lowercase title or director name that starts with the typed prefix, or has a word that does
+ @param type Whether the text is a film title or a director name
+ @param filmId The most liked film with this title or by this director
+ @param likes Like count of that film */
+public record FilmSuggestion(String text,
+                             Type type,
+                             long filmId,
+                             long likes) {
+  public enum Type {
+    TITLE,
+    DIRECTOR
+  }
+}
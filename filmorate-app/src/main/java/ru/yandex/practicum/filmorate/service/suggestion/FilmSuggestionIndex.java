@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate.service.suggestion;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.common.cache.Rebuildable;
+import ru.yandex.practicum.filmorate.common.cache.RebuildableState;
+import ru.yandex.practicum.filmorate.common.cache.TransactionCallbacks;
+import ru.yandex.practicum.filmorate.common.events.FilmSearchDataBatchUpdatedEvent;
+import ru.yandex.practicum.filmorate.common.events.FilmSearchDataUpdatedEvent;
+import ru.yandex.practicum.filmorate.common.events.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.directors.application.port.in.DirectorUseCase;
+import ru.yandex.practicum.filmorate.directors.domain.model.Director;
+import ru.yandex.practicum.filmorate.events.domain.service.DomainEventPublisher;
+import ru.yandex.practicum.filmorate.films.application.port.in.FilmPageQuery;
+import ru.yandex.practicum.filmorate.films.application.port.in.FilmUseCase;
+import ru.yandex.practicum.filmorate.films.domain.model.Film;
+import ru.yandex.practicum.filmorate.likes.application.port.in.LikeUseCase;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ Type-ahead suggestions for {@code /films/search/suggest}, answered from a {@link SuggestionTrie} over film titles and
+ director names without touching the database.
+ <p>
+ Titles and directors follow {@link FilmSearchDataUpdatedEvent} after commit, the way the search index does, and like
+ counts are refreshed on every {@link DomainEventPublisher.LikeEvent}. Deleted films are removed by
+ {@code FilmCompositionService}. The trie is built from the database on startup; until then no suggestions are
+ returned. */
+@Slf4j
+@Component
+public class FilmSuggestionIndex
+    implements Rebuildable {
+  public static final int MAX_LIMIT = 50;
+
+  private final FilmUseCase filmUseCase;
+  private final DirectorUseCase directorUseCase;
+  private final LikeUseCase likeUseCase;
+  private final RebuildableState<SuggestionTrie> trie = new RebuildableState<>();
+
+  public FilmSuggestionIndex(FilmUseCase filmUseCase, DirectorUseCase directorUseCase, LikeUseCase likeUseCase) {
+    this.filmUseCase = filmUseCase;
+    this.directorUseCase = directorUseCase;
+    this.likeUseCase = likeUseCase;
+  }
+
+  /**
+   Suggests titles and director names for a typed prefix.
+   @param prefix Typed text, matched case-insensitively against the start of titles, names and their words
+   @param limit Number of suggestions, at most {@link #MAX_LIMIT}
+   @return Suggestions with the most liked film first
+   */
+  public List<FilmSuggestion> suggest(String prefix, int limit) {
+    SuggestionTrie current = trie.get();
+    if (current == null) {
+      return List.of();
+    }
+    return current.find(prefix.toLowerCase(), limit);
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onFilmSearchDataUpdated(FilmSearchDataUpdatedEvent event) {
+    trie.apply(current -> current.putFilm(event.getFilmId(), event.getTitle(), event.getDirectors()));
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onFilmSearchDataBatchUpdated(FilmSearchDataBatchUpdatedEvent event) {
+    trie.apply(current -> event.getFilms()
+                               .forEach(film -> current.putFilm(film.filmId(), film.title(), film.directors())));
+  }
+
+  @EventListener
+  public void onLike(DomainEventPublisher.LikeEvent event) {
+    long filmId = event.getEntityId();
+    long likes = likeUseCase.getLikeCountsForFilms(Set.of(filmId))
+                            .getOrDefault(filmId, 0);
+    trie.apply(current -> current.setLikes(filmId, likes));
+  }
+
+  /**
+   Refreshes the like counts of the films a deleted user liked once the deletion has committed. Runs in the deleting
+   transaction ahead of the listener that removes the user's likes, so the liked films can still be read; the like
+   counters drop in the first after-commit callback, before the counts are read here.
+   */
+  @EventListener
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  public void onUserDeleted(UserDeletedEvent event) {
+    Set<Long> likedFilms = likeUseCase.findLikedFilms(event.getUserId());
+    if (likedFilms.isEmpty()) {
+      return;
+    }
+    TransactionCallbacks.afterCommit(() -> {
+      Map<Long, Integer> likes = likeUseCase.getLikeCountsForFilms(likedFilms);
+      trie.apply(current -> likedFilms.forEach(filmId -> current.setLikes(filmId, likes.getOrDefault(filmId, 0))));
+    });
+  }
+
+  /**
+   Removes a deleted film. Inside a transaction the change is applied after commit.
+   @param filmId ID of the deleted film
+   */
+  public void remove(long filmId) {
+    TransactionCallbacks.afterCommit(() -> trie.apply(current -> current.removeFilm(filmId)));
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void buildOnStartup() {
+    rebuild();
+  }
+
+  /**
+   Builds a fresh trie from the database page by page and swaps it in. Changes that arrive while the rebuild is
+   running are replayed on the fresh trie before the swap, so none of them is lost.
+   */
+  @Override
+  public synchronized void rebuild() {
+    long started = System.nanoTime();
+    SuggestionTrie fresh = trie.rebuild(() -> {
+      SuggestionTrie.Builder builder = new SuggestionTrie.Builder(MAX_LIMIT);
+      Long after = null;
+      List<Film> page;
+      while (!(page = filmUseCase.getFilmsPage(FilmPageQuery.of(after, FilmPageQuery.MAX_LIMIT))).isEmpty()) {
+        Set<Long> filmIds = page.stream()
+                                .map(Film::id)
+                                .collect(Collectors.toSet());
+        Map<Long, List<Director>> directors = directorUseCase.getDirectorsForFilmIds(filmIds);
+        Map<Long, Integer> likes = likeUseCase.getLikeCountsForFilms(filmIds);
+        for (Film film : page) {
+          builder.add(film.id(),
+                      film.name(),
+                      directors.getOrDefault(film.id(), List.of())
+                               .stream()
+                               .map(Director::name)
+                               .toList(),
+                      likes.getOrDefault(film.id(), 0));
+        }
+        after = page.get(page.size() - 1)
+                    .id();
+      }
+      return builder.build();
+    });
+    log.info("Suggestion index rebuilt with {} titles and names in {} ms",
+             fresh.size(),
+             (System.nanoTime() - started) / 1_000_000);
+  }
+}
@@ -0,0 +1,569 @@
+package ru.yandex.practicum.filmorate.service.suggestion;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ Burst trie over lowercase film titles and director names that answers a prefix with the most liked matches.
+ <p>
+ Every distinct title and director name is one term, keyed by its whole text and by the rest of the text from each
+ further word on, so {@code "matr"} suggests {@code "the matrix"}. A node keeps the keys below it in a plain bucket
+ until more than {@value #BURST_SIZE} arrive, then splits into one child per next character; long unique tails
+ therefore stay in buckets instead of one node per character. A split node also keeps the best {@code capacity} terms
+ of its subtree, merged from the best terms of its children, so a query walks one node per typed character and copies
+ a ready list, and a query that ends in a bucket sorts the few keys there.
+ <p>
+ A term ranks by the like count of its most liked film, then alphabetically. When a term is added, removed or changes
+ its like count, the lists of the nodes on the paths of its keys are patched deepest first: the term moves within a
+ list, enters it in place of the last term or leaves it. Only when a term leaves a full list, or falls to its end, is
+ the list merged again from the children, since a term outside it may now belong in. A {@link Builder} loads a whole
+ catalogue without maintaining the lists and computes them once at the end. Queries share a read lock, changes take
+ the write lock. */
+public final class SuggestionTrie {
+  static final int BURST_SIZE = 32;
+  private static final Comparator<Term> ORDER = Comparator.comparingLong((Term term) -> -term.likes)
+                                                          .thenComparing(term -> term.text)
+                                                          .thenComparing(term -> term.type);
+  private static final char[] NO_LABELS = new char[0];
+  private static final Node[] NO_CHILDREN = new Node[0];
+  private static final Term[] NO_TERMS = new Term[0];
+
+  private final int capacity;
+  private final Node root = new Node(0);
+  private final Map<Long, IndexedFilm> films = new HashMap<>();
+  private final Map<TermKey, Term> terms = new HashMap<>();
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private boolean deferred;
+
+  /**
+   @param capacity Largest number of suggestions a query can return
+   */
+  public SuggestionTrie(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   Returns the most liked titles and director names that start with the prefix, or have a word that does.
+   @param prefix Lowercase prefix; an empty prefix matches everything
+   @param limit Number of suggestions, at most the capacity of the trie
+   @return Suggestions by like count (descending), then alphabetically
+   */
+  public List<FilmSuggestion> find(String prefix, int limit) {
+    int count = Math.min(limit, capacity);
+    lock.readLock()
+        .lock();
+    try {
+      Node node = root;
+      while (node.split && node.depth < prefix.length()) {
+        node = node.child(prefix.charAt(node.depth));
+        if (node == null) {
+          return List.of();
+        }
+      }
+      List<Term> best = node.split
+          ? Arrays.asList(node.top)
+          : best(node.entries, prefix);
+      List<FilmSuggestion> suggestions = new ArrayList<>(Math.min(count, best.size()));
+      for (int i = 0; i < best.size() && suggestions.size() < count; i++) {
+        Term term = best.get(i);
+        suggestions.add(new FilmSuggestion(term.text, term.type, term.filmId, term.likes));
+      }
+      return suggestions;
+    } finally {
+      lock.readLock()
+          .unlock();
+    }
+  }
+
+  /**
+   Adds a film or replaces its title and directors, keeping its like count.
+   @param filmId ID of the film
+   @param title Title of the film
+   @param directors Names of the film's directors
+   */
+  public void putFilm(long filmId, String title, Collection<String> directors) {
+    lock.writeLock()
+        .lock();
+    try {
+      IndexedFilm existing = films.get(filmId);
+      put(filmId, title, directors, existing == null ? 0 : existing.likes());
+    } finally {
+      lock.writeLock()
+          .unlock();
+    }
+  }
+
+  /**
+   Adds a film or replaces its title, directors and like count.
+   @param filmId ID of the film
+   @param title Title of the film
+   @param directors Names of the film's directors
+   @param likes Like count of the film
+   */
+  public void putFilm(long filmId, String title, Collection<String> directors, long likes) {
+    lock.writeLock()
+        .lock();
+    try {
+      put(filmId, title, directors, likes);
+    } finally {
+      lock.writeLock()
+          .unlock();
+    }
+  }
+
+  /**
+   Updates the like count of an indexed film; unknown films are ignored.
+   @param filmId ID of the film
+   @param likes Current like count of the film
+   */
+  public void setLikes(long filmId, long likes) {
+    lock.writeLock()
+        .lock();
+    try {
+      IndexedFilm film = films.get(filmId);
+      if (film == null || film.likes() == likes) {
+        return;
+      }
+      films.put(filmId, new IndexedFilm(film.terms(), likes));
+      for (Term term : film.terms()) {
+        term.films.put(filmId, likes);
+        if (term.recompute()) {
+          refresh(term);
+        }
+      }
+    } finally {
+      lock.writeLock()
+          .unlock();
+    }
+  }
+
+  public void removeFilm(long filmId) {
+    lock.writeLock()
+        .lock();
+    try {
+      IndexedFilm film = films.remove(filmId);
+      if (film != null) {
+        film.terms()
+            .forEach(term -> leave(term, filmId));
+      }
+    } finally {
+      lock.writeLock()
+          .unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock()
+        .lock();
+    try {
+      return terms.size();
+    } finally {
+      lock.readLock()
+          .unlock();
+    }
+  }
+
+  private void put(long filmId, String title, Collection<String> directors, long likes) {
+    Set<Term> current = new LinkedHashSet<>();
+    current.add(term(FilmSuggestion.Type.TITLE, title));
+    for (String director : directors) {
+      current.add(term(FilmSuggestion.Type.DIRECTOR, director));
+    }
+    IndexedFilm previous = films.put(filmId, new IndexedFilm(List.copyOf(current), likes));
+    if (previous != null) {
+      for (Term term : previous.terms()) {
+        if (!current.contains(term)) {
+          leave(term, filmId);
+        }
+      }
+    }
+    for (Term term : current) {
+      Long before = term.films.put(filmId, likes);
+      if (before == null && term.films.size() == 1) {
+        term.recompute();
+        insertKeys(term);
+      } else if ((before == null || before != likes) && term.recompute()) {
+        refresh(term);
+      }
+    }
+  }
+
+  private Term term(FilmSuggestion.Type type, String text) {
+    return terms.computeIfAbsent(new TermKey(type, text.toLowerCase()), key -> new Term(key.type(), key.text()));
+  }
+
+  private void leave(Term term, long filmId) {
+    term.films.remove(filmId);
+    if (term.films.isEmpty()) {
+      terms.remove(new TermKey(term.type, term.text));
+      removeKeys(term);
+    } else if (term.recompute()) {
+      refresh(term);
+    }
+  }
+
+  private void insertKeys(Term term) {
+    List<Node> touched = new ArrayList<>();
+    for (int offset : offsets(term.text)) {
+      Entry entry = new Entry(term, offset);
+      Node node = walk(entry, true, touched);
+      node.entries.add(entry);
+      if (!node.split && node.entries.size() > BURST_SIZE) {
+        split(node);
+        touch(touched, node);
+      }
+    }
+    if (!deferred) {
+      deepestFirst(touched).forEach(node -> offer(node, term));
+    }
+  }
+
+  private void removeKeys(Term term) {
+    List<Node> touched = new ArrayList<>();
+    for (int offset : offsets(term.text)) {
+      Node node = walk(new Entry(term, offset), false, touched);
+      if (node != null) {
+        node.entries.removeIf(entry -> entry.term() == term && entry.offset() == offset);
+      }
+    }
+    if (!deferred) {
+      deepestFirst(touched).forEach(node -> withdraw(node, term));
+    }
+  }
+
+  private void refresh(Term term) {
+    if (deferred) {
+      return;
+    }
+    List<Node> touched = new ArrayList<>();
+    for (int offset : offsets(term.text)) {
+      walk(new Entry(term, offset), false, touched);
+    }
+    deepestFirst(touched).forEach(node -> offer(node, term));
+  }
+
+  /**
+   Moves a term whose like count changed, or that was just added below the node, to its place in the node's list.
+   */
+  private void offer(Node node, Term term) {
+    Term[] top = node.top;
+    int index = indexOf(top, term);
+    if (index >= 0) {
+      Term[] rest = without(top, index);
+      boolean last = rest.length == 0 || ORDER.compare(term, rest[rest.length - 1]) > 0;
+      if (top.length == capacity && last) {
+        recompute(node);
+      } else {
+        node.top = with(rest, term);
+      }
+    } else if (top.length < capacity) {
+      node.top = with(top, term);
+    } else if (ORDER.compare(term, top[top.length - 1]) < 0) {
+      node.top = with(without(top, top.length - 1), term);
+    }
+  }
+
+  /**
+   Drops a term that no longer has keys below the node from the node's list.
+   */
+  private void withdraw(Node node, Term term) {
+    int index = indexOf(node.top, term);
+    if (index < 0) {
+      return;
+    }
+    if (node.top.length == capacity) {
+      recompute(node);
+    } else {
+      node.top = without(node.top, index);
+    }
+  }
+
+  private static int indexOf(Term[] top, Term term) {
+    for (int i = 0; i < top.length; i++) {
+      if (top[i] == term) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static Term[] without(Term[] top, int index) {
+    Term[] result = new Term[top.length - 1];
+    System.arraycopy(top, 0, result, 0, index);
+    System.arraycopy(top, index + 1, result, index, top.length - index - 1);
+    return result;
+  }
+
+  private static Term[] with(Term[] top, Term term) {
+    int index = -Arrays.binarySearch(top, term, ORDER) - 1;
+    Term[] result = new Term[top.length + 1];
+    System.arraycopy(top, 0, result, 0, index);
+    result[index] = term;
+    System.arraycopy(top, index, result, index + 1, top.length - index);
+    return result;
+  }
+
+  private static void touch(List<Node> touched, Node node) {
+    for (Node seen : touched) {
+      if (seen == node) {
+        return;
+      }
+    }
+    touched.add(node);
+  }
+
+  private static List<Node> deepestFirst(List<Node> nodes) {
+    nodes.sort(Comparator.comparingInt((Node node) -> node.depth)
+                         .reversed());
+    return nodes;
+  }
+
+  /**
+   Follows the key of an entry down to the bucket or split node holding it.
+   @param create Whether missing children are created
+   @param touched Collects the split nodes on the way, whose best terms may change
+   @return The node holding the key, or {@code null} if a child is missing and not created
+   */
+  private Node walk(Entry entry, boolean create, List<Node> touched) {
+    Node node = root;
+    while (node.split && node.depth < entry.length()) {
+      touch(touched, node);
+      char label = entry.charAt(node.depth);
+      Node child = create ? node.childOrCreate(label) : node.child(label);
+      if (child == null) {
+        return null;
+      }
+      node = child;
+    }
+    if (node.split) {
+      touch(touched, node);
+    }
+    return node;
+  }
+
+  /**
+   Turns a full bucket into a split node, moving every key longer than the node's depth to the child of its next
+   character. Children that are still too full split in turn.
+   */
+  private void split(Node node) {
+    List<Entry> ending = new ArrayList<>();
+    for (Entry entry : node.entries) {
+      if (entry.length() == node.depth) {
+        ending.add(entry);
+      } else {
+        node.childOrCreate(entry.charAt(node.depth)).entries.add(entry);
+      }
+    }
+    node.entries = ending;
+    node.split = true;
+    for (Node child : node.children) {
+      if (child.entries.size() > BURST_SIZE) {
+        split(child);
+      }
+    }
+    if (!deferred) {
+      recompute(node);
+    }
+  }
+
+  private void recomputeAll(Node node) {
+    if (node.split) {
+      for (Node child : node.children) {
+        recomputeAll(child);
+      }
+      recompute(node);
+    }
+  }
+
+  /**
+   Merges the best terms of the keys ending at a split node and of its children. Every source is already sorted, so
+   the merge stops after {@code capacity} distinct terms.
+   */
+  private void recompute(Node node) {
+    PriorityQueue<Cursor> heads = new PriorityQueue<>((a, b) -> ORDER.compare(a.head(), b.head()));
+    addCursor(heads, best(node.entries, ""));
+    for (Node child : node.children) {
+      addCursor(heads, child.split ? Arrays.asList(child.top) : best(child.entries, ""));
+    }
+    List<Term> top = new ArrayList<>(capacity);
+    Set<Term> seen = new HashSet<>();
+    while (top.size() < capacity && !heads.isEmpty()) {
+      Cursor cursor = heads.poll();
+      Term term = cursor.head();
+      if (seen.add(term)) {
+        top.add(term);
+      }
+      cursor.index++;
+      addCursor(heads, cursor);
+    }
+    node.top = top.toArray(NO_TERMS);
+  }
+
+  private static void addCursor(PriorityQueue<Cursor> heads, List<Term> terms) {
+    addCursor(heads, new Cursor(terms));
+  }
+
+  private static void addCursor(PriorityQueue<Cursor> heads, Cursor cursor) {
+    if (cursor.index < cursor.terms.size()) {
+      heads.add(cursor);
+    }
+  }
+
+  /**
+   @return The distinct terms of the entries whose key starts with the prefix, best first, at most {@code capacity}
+   */
+  private List<Term> best(List<Entry> entries, String prefix) {
+    if (entries.isEmpty()) {
+      return List.of();
+    }
+    List<Term> matches = new ArrayList<>(entries.size());
+    Set<Term> seen = new HashSet<>();
+    for (Entry entry : entries) {
+      if (entry.term().text.startsWith(prefix, entry.offset()) && seen.add(entry.term())) {
+        matches.add(entry.term());
+      }
+    }
+    matches.sort(ORDER);
+    return matches.size() > capacity ? matches.subList(0, capacity) : matches;
+  }
+
+  /**
+   @return Start of the text and of every further word
+   */
+  static List<Integer> offsets(String text) {
+    List<Integer> offsets = new ArrayList<>(4);
+    offsets.add(0);
+    for (int i = 1; i < text.length(); i++) {
+      if (text.charAt(i - 1) == ' ' && text.charAt(i) != ' ') {
+        offsets.add(i);
+      }
+    }
+    return offsets;
+  }
+
+  /**
+   Loads a catalogue into a new trie, computing the lists of best terms once when the trie is built. Not thread-safe;
+   the trie must be published safely after {@link #build()}.
+   */
+  public static final class Builder {
+    private final SuggestionTrie trie;
+
+    /**
+     @param capacity Largest number of suggestions a query can return
+     */
+    public Builder(int capacity) {
+      trie = new SuggestionTrie(capacity);
+      trie.deferred = true;
+    }
+
+    public Builder add(long filmId, String title, Collection<String> directors, long likes) {
+      trie.put(filmId, title, directors, likes);
+      return this;
+    }
+
+    public SuggestionTrie build() {
+      trie.recomputeAll(trie.root);
+      trie.deferred = false;
+      return trie;
+    }
+  }
+
+  private static final class Term {
+    private final FilmSuggestion.Type type;
+    private final String text;
+    private final Map<Long, Long> films = new HashMap<>(2);
+    private long filmId;
+    private long likes;
+
+    Term(FilmSuggestion.Type type, String text) {
+      this.type = type;
+      this.text = text;
+    }
+
+    /**
+     Picks the most liked film of the term, the lowest ID on ties.
+     @return Whether the like count of the term changed, which moves it in the ranking
+     */
+    boolean recompute() {
+      long bestId = Long.MAX_VALUE;
+      long bestLikes = -1;
+      for (Map.Entry<Long, Long> film : films.entrySet()) {
+        if (film.getValue() > bestLikes || film.getValue() == bestLikes && film.getKey() < bestId) {
+          bestId = film.getKey();
+          bestLikes = film.getValue();
+        }
+      }
+      filmId = bestId;
+      boolean changed = bestLikes != likes;
+      likes = bestLikes;
+      return changed;
+    }
+  }
+
+  private static final class Node {
+    private final int depth;
+    private char[] labels = NO_LABELS;
+    private Node[] children = NO_CHILDREN;
+    private List<Entry> entries = new ArrayList<>(2);
+    private boolean split;
+    private Term[] top = NO_TERMS;
+
+    Node(int depth) {
+      this.depth = depth;
+    }
+
+    Node child(char label) {
+      int index = Arrays.binarySearch(labels, label);
+      return index >= 0 ? children[index] : null;
+    }
+
+    Node childOrCreate(char label) {
+      int index = Arrays.binarySearch(labels, label);
+      if (index >= 0) {
+        return children[index];
+      }
+      int insertAt = -index - 1;
+      char[] newLabels = new char[labels.length + 1];
+      Node[] newChildren = new Node[children.length + 1];
+      System.arraycopy(labels, 0, newLabels, 0, insertAt);
+      System.arraycopy(children, 0, newChildren, 0, insertAt);
+      newLabels[insertAt] = label;
+      newChildren[insertAt] = new Node(depth + 1);
+      System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+      System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+      labels = newLabels;
+      children = newChildren;
+      return newChildren[insertAt];
+    }
+  }
+
+  /**
+   One key of a term: its text from {@code offset} on.
+   */
+  private record Entry(Term term, int offset) {
+    int length() {
+      return term.text.length() - offset;
+    }
+
+    char charAt(int index) {
+      return term.text.charAt(offset + index);
+    }
+  }
+
+  private static final class Cursor {
+    private final List<Term> terms;
+    private int index;
+
+    Cursor(List<Term> terms) {
+      this.terms = terms;
+    }
+
+    Term head() {
+      return terms.get(index);
+    }
+  }
+
+  private record TermKey(FilmSuggestion.Type type, String text) {}
+
+  private record IndexedFilm(List<Term> terms, long likes) {}
+}
@@ -1,18 +1,4 @@
 DELETE
-FROM film_genres;
-DELETE
-FROM friendships;
-DELETE
-FROM likes;
-DELETE
-FROM films;
-DELETE
-FROM users;
-DELETE
-FROM directors;
-DELETE
-FROM film_directors;
-DELETE
 FROM events;
 
 ALTER TABLE films
@@ -20,4 +6,4 @@ ALTER TABLE films
 ALTER TABLE users
     ALTER COLUMN user_id RESTART WITH 1;
 ALTER TABLE directors
-    ALTER COLUMN director_id RESTART WITH 1;
\ No newline at end of file
+    ALTER COLUMN director_id RESTART WITH 1;
@@ -1,5 +1,6 @@
 DROP TABLE IF EXISTS film_genres, friendships, likes, users, films, mpa_ratings, genres CASCADE;
-DROP TABLE IF EXISTS reviews, reactions, directors, film_directors, search_index, events CASCADE;
+DROP TABLE IF EXISTS reviews, reactions, directors, film_directors, search_index, search_index_shadow,
+    search_index_old, events, film_stats CASCADE;
 
 CREATE TABLE IF NOT EXISTS genres
 (
@@ -25,11 +26,25 @@ CREATE TABLE IF NOT EXISTS films
     name         VARCHAR(255) NOT NULL,
     description  VARCHAR(200),
     release_date DATE,
+    release_year INT GENERATED ALWAYS AS (EXTRACT(YEAR FROM release_date)),
     duration     INT,
     mpa_id       BIGINT REFERENCES mpa_ratings (mpa_id),
     FOREIGN KEY (mpa_id) REFERENCES mpa_ratings (mpa_id)
 );
 
+CREATE INDEX IF NOT EXISTS idx_films_release_year ON films (release_year, film_id);
+
+CREATE TABLE IF NOT EXISTS film_stats
+(
+    film_id       BIGINT PRIMARY KEY,
+    like_count    BIGINT NOT NULL DEFAULT 0,
+    review_count  BIGINT NOT NULL DEFAULT 0,
+    last_liked_at TIMESTAMP,
+    FOREIGN KEY (film_id) REFERENCES films (film_id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_film_stats_like_count ON film_stats (like_count DESC, film_id);
+
 CREATE TABLE IF NOT EXISTS users
 (
     user_id  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -48,6 +63,8 @@ CREATE TABLE IF NOT EXISTS film_genres
     FOREIGN KEY (genre_id) REFERENCES genres (genre_id) ON DELETE CASCADE
 );
 
+CREATE INDEX IF NOT EXISTS idx_film_genres_genre ON film_genres (genre_id, film_id);
+
 CREATE TABLE IF NOT EXISTS likes
 (
     film_id BIGINT NOT NULL,
@@ -57,6 +74,8 @@ CREATE TABLE IF NOT EXISTS likes
     FOREIGN KEY (user_id) REFERENCES users (user_id) ON DELETE CASCADE
 );
 
+CREATE INDEX IF NOT EXISTS idx_likes_user ON likes (user_id, film_id);
+
 CREATE TABLE IF NOT EXISTS friendships
 (
     user_id   BIGINT      NOT NULL,
@@ -68,6 +87,8 @@ CREATE TABLE IF NOT EXISTS friendships
     CONSTRAINT check_status CHECK (status IN ('PENDING', 'CONFIRMED'))
 );
 
+CREATE INDEX IF NOT EXISTS idx_friendships_friend ON friendships (friend_id, status, user_id);
+
 CREATE TABLE IF NOT EXISTS reviews
 (
     review_id   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -99,6 +120,8 @@ CREATE TABLE IF NOT EXISTS film_directors
     PRIMARY KEY (film_id, director_id)
 );
 
+CREATE INDEX IF NOT EXISTS idx_film_directors_director ON film_directors (director_id, film_id);
+
 CREATE TABLE IF NOT EXISTS search_index
 (
     film_id         BIGINT PRIMARY KEY,
@@ -22,6 +22,9 @@ import ru.yandex.practicum.filmorate.infrastructure.web.dto.FilmWithDirectors;
 import ru.yandex.practicum.filmorate.likes.application.port.in.LikeUseCase;
 import ru.yandex.practicum.filmorate.search.application.port.in.SearchUseCase;
 import ru.yandex.practicum.filmorate.service.FilmCompositionService;
+import ru.yandex.practicum.filmorate.service.popularity.PopularityIndex;
+import ru.yandex.practicum.filmorate.service.recommendation.RecommendationPrecomputer;
+import ru.yandex.practicum.filmorate.service.suggestion.FilmSuggestionIndex;
 import ru.yandex.practicum.filmorate.users.application.port.in.UserUseCase;
 import ru.yandex.practicum.filmorate.users.domain.model.User;
 import ru.yandex.practicum.filmorate.users.domain.model.value.Email;
@@ -34,6 +37,8 @@ import java.util.*;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -53,6 +58,12 @@ class FilmCompositionServiceTest {
   private ApplicationEventPublisher eventPublisher;
   @Mock
   private SearchUseCase searchUseCase;
+  @Mock
+  private PopularityIndex popularityIndex;
+  @Mock
+  private RecommendationPrecomputer recommendationPrecomputer;
+  @Mock
+  private FilmSuggestionIndex filmSuggestionIndex;
   private Film film;
   private CreateFilmCommand createFilmCommand;
   private UpdateFilmCommand updateFilmCommand;
@@ -76,7 +87,10 @@ class FilmCompositionServiceTest {
             directorUseCase,
             eventPublisher,
             searchUseCase,
-            noopPublisher
+            noopPublisher,
+            popularityIndex,
+            recommendationPrecomputer,
+            filmSuggestionIndex
     );
 
     film = Film.builder()
@@ -126,10 +140,11 @@ class FilmCompositionServiceTest {
   @Test
   void shouldCreateFilm() {
     when(filmUseCase.addFilm(createFilmCommand)).thenReturn(film);
-    when(directorUseCase.getDirectorsForFilmIds(Set.of(film.id()))).thenReturn(Collections.emptyMap());
+    when(directorUseCase.updateFilmDirectors(film.id(), createFilmCommand.directorIds())).thenReturn(List.of());
     FilmWithDirectors expected = new FilmWithDirectors(film, Collections.emptyList());
     FilmWithDirectors actual = filmCompositionService.createFilm(createFilmCommand);
     assertThat(actual).isEqualTo(expected);
+    verify(directorUseCase, never()).getDirectorsForFilmIds(any());
   }
 
   @Test
@@ -144,39 +159,40 @@ class FilmCompositionServiceTest {
                            .mpa(film.mpa())
                            .build();
     when(filmUseCase.updateFilm(updateFilmCommand)).thenReturn(updatedFilm);
-    when(directorUseCase.getDirectorsForFilmIds(Set.of(updatedFilm.id()))).thenReturn(Collections.emptyMap());
+    when(directorUseCase.updateFilmDirectors(updatedFilm.id(), updateFilmCommand.directorIds())).thenReturn(List.of());
     FilmWithDirectors expected = new FilmWithDirectors(updatedFilm, Collections.emptyList());
     FilmWithDirectors actual = filmCompositionService.updateFilm(updateFilmCommand);
     assertThat(actual).isEqualTo(expected);
+    verify(directorUseCase, never()).getDirectorsForFilmIds(any());
   }
 
   @Nested
   class LikeOperationsTests {
     @Test
     void shouldAddLike() {
-      when(filmUseCase.findFilmById(1L)).thenReturn(Optional.of(film));
-      when(userUseCase.findUserById(2L)).thenReturn(Optional.of(user));
+      when(filmUseCase.existsById(1L)).thenReturn(true);
+      when(userUseCase.existsById(2L)).thenReturn(true);
       when(likeService.addLike(1L, 2L)).thenReturn(true);
       assertThat(filmCompositionService.addLike(1L, 2L)).isTrue();
     }
 
     @Test
     void shouldThrowExceptionWhenFilmNotFoundOnAddLike() {
-      when(filmUseCase.findFilmById(1L)).thenReturn(Optional.empty());
+      when(filmUseCase.existsById(1L)).thenReturn(false);
       assertThrows(ResourceNotFoundException.class, () -> filmCompositionService.addLike(1L, 2L));
     }
 
     @Test
     void shouldThrowExceptionWhenUserNotFoundOnAddLike() {
-      when(filmUseCase.findFilmById(1L)).thenReturn(Optional.of(film));
-      when(userUseCase.findUserById(2L)).thenReturn(Optional.empty());
+      when(filmUseCase.existsById(1L)).thenReturn(true);
+      when(userUseCase.existsById(2L)).thenReturn(false);
       assertThrows(ResourceNotFoundException.class, () -> filmCompositionService.addLike(1L, 2L));
     }
 
     @Test
     void shouldRemoveLike() {
-      when(filmUseCase.findFilmById(1L)).thenReturn(Optional.of(film));
-      when(userUseCase.findUserById(2L)).thenReturn(Optional.of(user));
+      when(filmUseCase.existsById(1L)).thenReturn(true);
+      when(userUseCase.existsById(2L)).thenReturn(true);
       when(likeService.removeLike(1L, 2L)).thenReturn(true);
       assertThat(filmCompositionService.removeLike(1L, 2L)).isTrue();
     }
@@ -189,9 +205,8 @@ class FilmCompositionServiceTest {
       FilmRatingQuery query = FilmRatingQuery.of(1, null, null, null, FilmRatingQuery.SortBy.LIKES);
 
       List<Long> filmIds = List.of(film.id());
-      when(filmUseCase.getFilmIdsByFilters(null, null)).thenReturn(filmIds);
-      when(likeService.getLikeCountsForFilms(new HashSet<>(filmIds))).thenReturn(Map.of(film.id(), 10));
-      when(filmUseCase.getFilmsByIds(new ArrayList<>(filmIds))).thenReturn(List.of(film));
+      when(filmUseCase.getPopularFilmIds(query)).thenReturn(filmIds);
+      when(filmUseCase.getFilmsByIds(filmIds)).thenReturn(List.of(film));
       when(directorUseCase.getDirectorsForFilmIds(Set.of(film.id()))).thenReturn(Collections.emptyMap());
 
       FilmWithDirectors expected = new FilmWithDirectors(film, Collections.emptyList());
@@ -203,12 +218,26 @@ class FilmCompositionServiceTest {
     @Test
     void shouldReturnEmptyWhenNoMatchingFilmsForQuery() {
       FilmRatingQuery query = FilmRatingQuery.ofDefault();
-      when(filmUseCase.getFilmIdsByFilters(any(), any())).thenReturn(Collections.emptyList());
+      when(filmUseCase.getPopularFilmIds(query)).thenReturn(Collections.emptyList());
 
       List<FilmWithDirectors> result = filmCompositionService.getPopularFilms(query);
 
       assertThat(result).isEmpty();
     }
+
+    @Test
+    void shouldNotQueryDatabaseRankingWhenIndexAnswers() {
+      FilmRatingQuery query = FilmRatingQuery.ofDefault();
+      List<Long> filmIds = List.of(film.id());
+      when(popularityIndex.findTopFilmIds(query)).thenReturn(Optional.of(filmIds));
+      when(filmUseCase.getFilmsByIds(filmIds)).thenReturn(List.of(film));
+      when(directorUseCase.getDirectorsForFilmIds(Set.of(film.id()))).thenReturn(Collections.emptyMap());
+
+      List<FilmWithDirectors> result = filmCompositionService.getPopularFilms(query);
+
+      assertThat(result).containsExactly(new FilmWithDirectors(film, Collections.emptyList()));
+      verify(filmUseCase, never()).getPopularFilmIds(any());
+    }
   }
 
   @Nested
@@ -268,20 +297,6 @@ class FilmCompositionServiceTest {
 
     @Test
     void shouldReturnCommonFilms() {
-      User user1 = User.builder()
-                       .id(1L)
-                       .email(new Email("u1@a.com"))
-                       .login(new Login("u1"))
-                       .name("u1")
-                       .birthday(LocalDate.of(1990, 1, 1))
-                       .build();
-      User friend = User.builder()
-                        .id(2L)
-                        .email(new Email("u2@a.com"))
-                        .login(new Login("u2"))
-                        .name("u2")
-                        .birthday(LocalDate.of(1991, 1, 1))
-                        .build();
       Film commonFilm = Film.builder()
                             .id(20L)
                             .name("Common Film")
@@ -292,10 +307,9 @@ class FilmCompositionServiceTest {
                             .mpa(new Mpa(1L, "G"))
                             .build();
 
-      when(userUseCase.findUserById(1L)).thenReturn(Optional.of(user1));
-      when(userUseCase.findUserById(2L)).thenReturn(Optional.of(friend));
-      when(likeService.findLikedFilms(1L)).thenReturn(Set.of(10L, 20L));
-      when(likeService.findLikedFilms(2L)).thenReturn(Set.of(20L, 30L));
+      when(userUseCase.existsById(1L)).thenReturn(true);
+      when(userUseCase.existsById(2L)).thenReturn(true);
+      when(likeService.findCommonLikedFilms(1L, 2L)).thenReturn(new long[]{20L});
 
       List<Long> commonFilmIds = List.of(20L);
       List<Film> commonFilmsFromRepo = List.of(commonFilm);
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.likes.application.port.in.LikeUseCase;
+import ru.yandex.practicum.filmorate.likes.application.service.FilmCooccurrenceIndex;
+import ru.yandex.practicum.filmorate.service.FilmCompositionService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ Checks that the film co-like index follows likes. The default rebuild interval of an hour keeps the scheduled
+ rebuild out of the test.
+ */
+@SpringBootTest
+@ActiveProfiles({"test",
+                 "db"
+})
+@Import({TestDataCleaner.class,
+         TestFixtures.class
+})
+@DisplayName("Film co-like index")
+class FilmCooccurrenceTest {
+  @Autowired
+  private LikeUseCase likeUseCase;
+  @Autowired
+  private FilmCooccurrenceIndex index;
+  @Autowired
+  private FilmCompositionService filmCompositionService;
+  @Autowired
+  private TestDataCleaner testDataCleaner;
+  @Autowired
+  private TestFixtures fixtures;
+
+  @BeforeEach
+  void cleanUp() {
+    testDataCleaner.clean();
+  }
+
+  @Test
+  @DisplayName("Similar films are ranked by co-likes and follow likes and unlikes")
+  void shouldFollowLikes() {
+    long film = fixtures.createFilm();
+    long often = fixtures.createFilm();
+    long once = fixtures.createFilm();
+    long first = fixtures.createUser();
+    long second = fixtures.createUser();
+    likeUseCase.addLike(film, first);
+    likeUseCase.addLike(film, second);
+    likeUseCase.addLike(often, first);
+    likeUseCase.addLike(often, second);
+    likeUseCase.addLike(once, second);
+
+    assertThat(filmCompositionService.getSimilarFilms(film, 10)).extracting(similar -> similar.film()
+                                                                                              .id())
+                                                                .containsExactly(often, once);
+    assertThat(index.findSimilarFilms(film, 10)
+                    .coLikes()).containsExactly(2, 1);
+
+    likeUseCase.removeLike(often, first);
+    likeUseCase.removeLike(often, second);
+
+    assertThat(index.findSimilarFilms(film, 10)
+                    .filmIds()).containsExactly(once);
+    assertThat(index.findSimilarFilms(often, 10)
+                    .filmIds()).isEmpty();
+  }
+}
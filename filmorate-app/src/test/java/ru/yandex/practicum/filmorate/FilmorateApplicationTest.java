@@ -4,17 +4,19 @@ import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
-import org.springframework.test.context.jdbc.Sql;
 import org.springframework.web.client.RestClientException;
 import ru.yandex.practicum.filmorate.films.domain.model.value.Genre;
 import ru.yandex.practicum.filmorate.infrastructure.web.dto.*;
 import ru.yandex.practicum.filmorate.infrastructure.web.exception.ErrorResponse;
 import ru.yandex.practicum.filmorate.infrastructure.web.exception.ValidationErrorResponse;
+import ru.yandex.practicum.filmorate.search.infrastructure.indexing.SearchIndexingQueue;
+import ru.yandex.practicum.filmorate.service.suggestion.FilmSuggestion;
 
 import java.time.LocalDate;
 import java.util.*;
@@ -26,13 +28,24 @@ import static org.assertj.core.api.Assertions.assertThat;
 @ActiveProfiles({"test",
                  "db"
 })
-@Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Import(TestDataCleaner.class)
 @DisplayName("Filmorate Integration Tests")
 class FilmorateApplicationTest {
 
   @Autowired
   private TestRestTemplate restTemplate;
 
+  @Autowired
+  private TestDataCleaner testDataCleaner;
+
+  @Autowired
+  private SearchIndexingQueue searchIndexingQueue;
+
+  @BeforeEach
+  void cleanUp() {
+    testDataCleaner.clean();
+  }
+
   private UserResponse createUser(CreateUserRequest request) {
     ResponseEntity<UserResponse> response = restTemplate.postForEntity("/users", request, UserResponse.class);
     assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
@@ -82,6 +95,7 @@ class FilmorateApplicationTest {
 
       like(filmByDirector, createUser(new CreateUserRequest("u1@a.com", "u1", "u1", LocalDate.of(1990, 1, 1))));
 
+      searchIndexingQueue.flush();
       ResponseEntity<FilmResponse[]> response = restTemplate.getForEntity(
           "/films/search?query={query}&by=title,director",
           FilmResponse[].class,
@@ -119,6 +133,7 @@ class FilmorateApplicationTest {
                                        new MpaIdDto(2L),
                                        null));
 
+      searchIndexingQueue.flush();
       ResponseEntity<FilmResponse[]> response = restTemplate.getForEntity("/films/search?query={query}&by=title",
                                                                           FilmResponse[].class,
                                                                           query);
@@ -151,6 +166,7 @@ class FilmorateApplicationTest {
                                        new MpaIdDto(1L),
                                        null));
 
+      searchIndexingQueue.flush();
       ResponseEntity<FilmResponse[]> response = restTemplate.getForEntity("/films/search?query={query}&by=director",
                                                                           FilmResponse[].class,
                                                                           query);
@@ -172,6 +188,7 @@ class FilmorateApplicationTest {
                                        new MpaIdDto(1L),
                                        null));
 
+      searchIndexingQueue.flush();
       ResponseEntity<FilmResponse[]> response = restTemplate.getForEntity(
           "/films/search?query={query}&by=title,director",
           FilmResponse[].class,
@@ -212,6 +229,7 @@ class FilmorateApplicationTest {
       like(filmByTitle, user2);
       like(filmByDirector, user1);
 
+      searchIndexingQueue.flush();
       ResponseEntity<FilmResponse[]> response = restTemplate.getForEntity(
           "/films/search?query={query}&by=title,director",
           FilmResponse[].class,
@@ -224,6 +242,63 @@ class FilmorateApplicationTest {
                                  .toList();
       assertThat(filmIds).containsExactly(filmByTitle.id(), filmByDirector.id());
     }
+
+    @Test
+    @DisplayName("Should suggest titles and directors by prefix, most liked first")
+    void shouldSuggestByPrefix() {
+      UserResponse user = createUser(new CreateUserRequest("u1@suggest.com", "u1g", "u1", LocalDate.of(1990, 1, 1)));
+      DirectorResponse director = createDirector(new CreateDirectorRequest("Suggestee Director"));
+      FilmResponse suggested = createFilm(new CreateFilmRequest("Suggested Film",
+                                                                "desc",
+                                                                LocalDate.of(2020, 1, 1),
+                                                                100L,
+                                                                Set.of(new Genre(1L, "Комедия")),
+                                                                new MpaIdDto(1L),
+                                                                null));
+      FilmResponse liked = createFilm(new CreateFilmRequest("Another Film",
+                                                            "desc",
+                                                            LocalDate.of(2021, 1, 1),
+                                                            110L,
+                                                            Set.of(new Genre(2L, "Драма")),
+                                                            new MpaIdDto(2L),
+                                                            Set.of(new DirectorIdDto(director.id()))));
+      like(liked, user);
+
+      ResponseEntity<FilmSuggestion[]> response = restTemplate.getForEntity(
+          "/films/search/suggest?prefix={prefix}&limit=5",
+          FilmSuggestion[].class,
+          "SUGGEST");
+
+      assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+      assertThat(response.getBody()).containsExactly(
+          new FilmSuggestion("suggestee director", FilmSuggestion.Type.DIRECTOR, liked.id(), 1),
+          new FilmSuggestion("suggested film", FilmSuggestion.Type.TITLE, suggested.id(), 0));
+      assertThat(restTemplate.getForEntity("/films/search/suggest?prefix=s&limit=0", String.class)
+                             .getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    @DisplayName("Should drop the likes of a deleted user from suggestions at once")
+    void shouldDropLikesOfDeletedUserFromSuggestions() {
+      UserResponse user = createUser(new CreateUserRequest("u2@suggest.com", "u2g", "u2", LocalDate.of(1990, 1, 1)));
+      FilmResponse film = createFilm(new CreateFilmRequest("Suggested Film",
+                                                           "desc",
+                                                           LocalDate.of(2020, 1, 1),
+                                                           100L,
+                                                           null,
+                                                           new MpaIdDto(1L),
+                                                           null));
+      like(film, user);
+
+      restTemplate.delete("/users/{id}", user.id());
+
+      ResponseEntity<FilmSuggestion[]> response = restTemplate.getForEntity(
+          "/films/search/suggest?prefix={prefix}&limit=5",
+          FilmSuggestion[].class,
+          "suggested");
+      assertThat(response.getBody()).containsExactly(
+          new FilmSuggestion("suggested film", FilmSuggestion.Type.TITLE, film.id(), 0));
+    }
   }
 
   @Nested
@@ -564,6 +639,49 @@ class FilmorateApplicationTest {
                                          .containsExactly(dir2.id());
     }
 
+    @Test
+    @DisplayName("Should return the same film from update as from a subsequent read when links partly change")
+    void shouldUpdateOverlappingGenresAndDirectors() {
+      DirectorResponse kept = createDirector(new CreateDirectorRequest("Kept Director"));
+      DirectorResponse dropped = createDirector(new CreateDirectorRequest("Dropped Director"));
+      DirectorResponse added = createDirector(new CreateDirectorRequest("Added Director"));
+      FilmResponse createdFilm = createFilm(new CreateFilmRequest("Linked Film",
+                                                                  "Desc",
+                                                                  LocalDate.of(2020, 1, 1),
+                                                                  120L,
+                                                                  Set.of(new Genre(1L, null), new Genre(2L, null)),
+                                                                  new MpaIdDto(1L),
+                                                                  Set.of(new DirectorIdDto(kept.id()),
+                                                                         new DirectorIdDto(dropped.id()))));
+
+      UpdateFilmRequest updateRequest = new UpdateFilmRequest(createdFilm.id(),
+                                                              "Linked Film",
+                                                              "Desc",
+                                                              LocalDate.of(2020, 1, 1),
+                                                              120L,
+                                                              Set.of(new Genre(2L, null), new Genre(3L, null)),
+                                                              new MpaIdDto(2L),
+                                                              Set.of(new DirectorIdDto(kept.id()),
+                                                                     new DirectorIdDto(added.id())));
+      ResponseEntity<FilmResponse> response = restTemplate.exchange("/films",
+                                                                    HttpMethod.PUT,
+                                                                    new HttpEntity<>(updateRequest),
+                                                                    FilmResponse.class);
+
+      assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+      FilmResponse updatedFilm = response.getBody();
+      assertThat(updatedFilm).isNotNull();
+      assertThat(updatedFilm.genres()).extracting(Genre::id)
+                                      .containsExactlyInAnyOrder(2L, 3L);
+      assertThat(updatedFilm.genres()).extracting(Genre::name)
+                                      .doesNotContainNull();
+      assertThat(updatedFilm.directors()).extracting(DirectorResponse::id)
+                                         .containsExactlyInAnyOrder(kept.id(), added.id());
+
+      FilmResponse readBack = restTemplate.getForObject("/films/{id}", FilmResponse.class, createdFilm.id());
+      assertThat(readBack).isEqualTo(updatedFilm);
+    }
+
     @Test
     @DisplayName("Should fail to create film with blank name")
     void shouldFailWithBlankName() {
@@ -752,6 +870,109 @@ class FilmorateApplicationTest {
                        .collect(Collectors.toList())).containsExactly(film2.id(), film1.id());
     }
 
+    @Test
+    @DisplayName("Should page through films with a keyset cursor")
+    void shouldPageThroughFilmsWithCursor() {
+      List<Long> ids = new ArrayList<>();
+      for (int i = 1; i <= 3; i++) {
+        ids.add(createFilm(new CreateFilmRequest("Paged Film " + i,
+                                                 "Description",
+                                                 LocalDate.of(2000 + i, 1, 1),
+                                                 90L,
+                                                 null,
+                                                 new MpaIdDto(1L),
+                                                 null)).id());
+      }
+
+      ResponseEntity<FilmResponse[]> firstPage = restTemplate.getForEntity("/films?limit=2", FilmResponse[].class);
+      assertThat(firstPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+      assertThat(Arrays.stream(Objects.requireNonNull(firstPage.getBody()))
+                       .map(FilmResponse::id)
+                       .toList()).containsExactly(ids.get(0), ids.get(1));
+
+      ResponseEntity<FilmResponse[]> secondPage = restTemplate.getForEntity("/films?after={after}&limit=2",
+                                                                            FilmResponse[].class,
+                                                                            ids.get(1));
+      assertThat(secondPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+      assertThat(Arrays.stream(Objects.requireNonNull(secondPage.getBody()))
+                       .map(FilmResponse::id)
+                       .toList()).containsExactly(ids.get(2));
+
+      ResponseEntity<ErrorResponse> invalid = restTemplate.getForEntity("/films?limit=0", ErrorResponse.class);
+      assertThat(invalid.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    @DisplayName("Should import a batch of films with genres and directors")
+    void shouldImportFilmsInBulk() {
+      DirectorResponse director = createDirector(new CreateDirectorRequest("Bulk Director"));
+      List<CreateFilmRequest> requests = List.of(
+          new CreateFilmRequest("Bulk Film One",
+                                "Description",
+                                LocalDate.of(2001, 1, 1),
+                                90L,
+                                Set.of(new Genre(2L, null), new Genre(1L, null)),
+                                new MpaIdDto(1L),
+                                Set.of(new DirectorIdDto(director.id()))),
+          new CreateFilmRequest("Bulk Film Two",
+                                "Description",
+                                LocalDate.of(2002, 1, 1),
+                                100L,
+                                null,
+                                new MpaIdDto(2L),
+                                null));
+
+      ResponseEntity<FilmImportResponse> response = restTemplate.postForEntity("/films/bulk",
+                                                                               requests,
+                                                                               FilmImportResponse.class);
+
+      assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+      FilmImportResponse body = Objects.requireNonNull(response.getBody());
+      assertThat(body.imported()).isEqualTo(2);
+
+      FilmResponse first = restTemplate.getForObject("/films/{id}", FilmResponse.class, body.ids()
+                                                                                             .get(0));
+      assertThat(first.name()).isEqualTo("Bulk Film One");
+      assertThat(first.genres()).extracting(Genre::id)
+                                .containsExactlyInAnyOrder(1L, 2L);
+      assertThat(first.directors()).extracting(DirectorResponse::id)
+                                   .containsExactly(director.id());
+
+      searchIndexingQueue.flush();
+      ResponseEntity<FilmResponse[]> found = restTemplate.getForEntity("/films/search?query={query}&by=director",
+                                                                       FilmResponse[].class,
+                                                                       "bulk director");
+      assertThat(Arrays.stream(Objects.requireNonNull(found.getBody()))
+                       .map(FilmResponse::id)
+                       .toList()).containsExactly(body.ids()
+                                                      .get(0));
+    }
+
+    @Test
+    @DisplayName("Should import nothing when one film of the batch references an unknown director")
+    void shouldRollBackBulkImportOnUnknownDirector() {
+      List<CreateFilmRequest> requests = List.of(
+          new CreateFilmRequest("Valid Film",
+                                "Description",
+                                LocalDate.of(2001, 1, 1),
+                                90L,
+                                null,
+                                new MpaIdDto(1L),
+                                null),
+          new CreateFilmRequest("Film With Unknown Director",
+                                "Description",
+                                LocalDate.of(2002, 1, 1),
+                                100L,
+                                null,
+                                new MpaIdDto(1L),
+                                Set.of(new DirectorIdDto(999L))));
+
+      ResponseEntity<ErrorResponse> response = restTemplate.postForEntity("/films/bulk", requests, ErrorResponse.class);
+
+      assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+      assertThat(restTemplate.getForObject("/films", FilmResponse[].class)).isEmpty();
+    }
+
     @Test
     @DisplayName("Film duration should be returned in minutes")
     void filmDurationShouldBeInMinutes() {
@@ -955,6 +1176,44 @@ class FilmorateApplicationTest {
                                                               FilmResponse[].class));
     }
 
+    @Test
+    @DisplayName("Should drop likes of a deleted user from the popularity ranking")
+    void shouldDropLikesOfDeletedUser() {
+      UserResponse fan1 = createUser(new CreateUserRequest("fan1@mail.com", "fan1", "fan", LocalDate.of(1990, 1, 1)));
+      UserResponse fan2 = createUser(new CreateUserRequest("fan2@mail.com", "fan2", "fan", LocalDate.of(1990, 1, 1)));
+      like(film2, fan1);
+      like(film2, fan2);
+
+      assertThat(popularFilmIds()).startsWith(film2.id(), film1.id());
+
+      restTemplate.delete("/users/{id}", fan1.id());
+      restTemplate.delete("/users/{id}", fan2.id());
+
+      assertThat(popularFilmIds()).startsWith(film1.id(), film2.id());
+    }
+
+    @Test
+    @DisplayName("Should rank by the remaining likes right after a liker is deleted")
+    void shouldRerankRightAfterLikerIsDeleted() {
+      UserResponse fan1 = createUser(new CreateUserRequest("fan1@mail.com", "fan1", "fan", LocalDate.of(1990, 1, 1)));
+      UserResponse fan2 = createUser(new CreateUserRequest("fan2@mail.com", "fan2", "fan", LocalDate.of(1990, 1, 1)));
+      like(film2, fan1);
+      like(film2, fan2);
+
+      restTemplate.delete("/users/{id}", fan1.id());
+
+      assertThat(popularFilmIds()).startsWith(film1.id(), film2.id());
+    }
+
+    private List<Long> popularFilmIds() {
+      ResponseEntity<FilmResponse[]> response = restTemplate.getForEntity("/films/popular?count=10",
+                                                                          FilmResponse[].class);
+      assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+      return Arrays.stream(Objects.requireNonNull(response.getBody()))
+                   .map(FilmResponse::id)
+                   .toList();
+    }
+
     @Test
     @DisplayName("Should return 200 with empty list for unknown genre")
     void shouldReturnEmptyListForUnknownGenre() {
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.search.domain.model.SearchableFilm;
+import ru.yandex.practicum.filmorate.search.domain.port.SearchRepository;
+import ru.yandex.practicum.filmorate.search.infrastructure.indexing.SearchIndexingQueue;
+import ru.yandex.practicum.filmorate.search.infrastructure.storage.H2FullTextSearchRepository;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ Checks the H2 full-text search selected by the {@code fulltext} profile.
+ */
+@SpringBootTest
+@ActiveProfiles({"test",
+                 "db",
+                 "fulltext"
+})
+@Import({TestDataCleaner.class,
+         TestFixtures.class
+})
+@DisplayName("H2 full-text search")
+class H2FullTextSearchTest {
+  @Autowired
+  private SearchRepository searchRepository;
+  @Autowired
+  private SearchIndexingQueue searchIndexingQueue;
+  @Autowired
+  private TestDataCleaner testDataCleaner;
+  @Autowired
+  private TestFixtures fixtures;
+
+  @BeforeEach
+  void setUp() {
+    testDataCleaner.clean();
+    searchIndexingQueue.flush();
+  }
+
+  @Test
+  @DisplayName("Is the active search backend")
+  void shouldBeSelectedByProfile() {
+    assertThat(searchRepository).isInstanceOf(H2FullTextSearchRepository.class);
+  }
+
+  @Test
+  @DisplayName("Finds whole words in the requested columns, ordered by likes")
+  void shouldFindWords() {
+    long matrix = createFilm(3);
+    long reloaded = createFilm(7);
+    long other = createFilm(10);
+    searchRepository.save(new SearchableFilm(matrix, "the matrix", "lana wachowski"));
+    searchRepository.save(new SearchableFilm(reloaded, "matrix reloaded", "lilly wachowski"));
+    searchRepository.save(new SearchableFilm(other, "heat", "michael mann"));
+
+    assertThat(searchRepository.search("matrix", Set.of("TITLE"))).containsExactly(reloaded, matrix);
+    assertThat(searchRepository.search("wachowski", Set.of("DIRECTOR"))).containsExactly(reloaded, matrix);
+    assertThat(searchRepository.search("wachowski", Set.of("TITLE"))).isEmpty();
+    assertThat(searchRepository.search("matrix reloaded", Set.of("TITLE", "DIRECTOR"))).containsExactly(reloaded);
+    assertThat(searchRepository.search("atri", Set.of("TITLE"))).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Follows updates of a row")
+  void shouldFollowUpdates() {
+    long film = createFilm(0);
+    searchRepository.save(new SearchableFilm(film, "old title", ""));
+    searchRepository.save(new SearchableFilm(film, "new title", ""));
+
+    assertThat(searchRepository.search("old", Set.of("TITLE"))).isEmpty();
+    assertThat(searchRepository.search("new", Set.of("TITLE"))).containsExactly(film);
+  }
+
+  /**
+   Creates a film and waits for its search row, so the row saved by the test is not overwritten afterwards.
+   */
+  private long createFilm(int likes) {
+    long filmId = fixtures.createFilm();
+    fixtures.addLikes(filmId, likes);
+    searchIndexingQueue.flush();
+    return filmId;
+  }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.likes.domain.port.LikeRepository;
+import ru.yandex.practicum.filmorate.likes.infrastructure.storage.counter.CountingLikeRepository;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ Checks the in-memory like counters against changes made through the repository and behind its back.
+ */
+@SpringBootTest
+@ActiveProfiles({"test",
+                 "db"
+})
+@Import({TestDataCleaner.class,
+         TestFixtures.class
+})
+@DisplayName("In-memory like counters")
+class LikeCounterTest {
+  @Autowired
+  private LikeRepository likeRepository;
+  @Autowired
+  private CountingLikeRepository counters;
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private TestDataCleaner testDataCleaner;
+  @Autowired
+  private TestFixtures fixtures;
+  private long filmId;
+
+  @BeforeEach
+  void setUp() {
+    testDataCleaner.clean();
+    filmId = fixtures.createFilm();
+  }
+
+  @Test
+  @DisplayName("Likes and unlikes move the counters")
+  void shouldCountLikesAndUnlikes() {
+    long first = fixtures.createUser();
+    long second = fixtures.createUser();
+
+    assertThat(likeRepository).isSameAs(counters);
+    assertThat(likeRepository.addLike(filmId, first)).isTrue();
+    assertThat(likeRepository.addLike(filmId, second)).isTrue();
+    assertThat(likeRepository.addLike(filmId, second)).isFalse();
+    assertThat(likeRepository.getLikeCountsForFilms(Set.of(filmId))).isEqualTo(Map.of(filmId, 2));
+
+    assertThat(likeRepository.removeLike(filmId, first)).isTrue();
+    assertThat(likeRepository.removeLike(filmId, first)).isFalse();
+    assertThat(likeRepository.getLikeCounts()).containsEntry(filmId, 1L);
+
+    likeRepository.deleteByUserId(second);
+    assertThat(likeRepository.getLikeCounts()).doesNotContainKey(filmId);
+  }
+
+  @Test
+  @DisplayName("Counts are served from memory and drift is repaired by the consistency check")
+  void shouldRepairDrift() {
+    likeRepository.addLike(filmId, fixtures.createUser());
+    jdbcTemplate.update("UPDATE film_stats SET like_count = 5 WHERE film_id = ?", filmId);
+
+    assertThat(likeRepository.getLikeCountsForFilms(Set.of(filmId))).isEqualTo(Map.of(filmId, 1));
+
+    assertThat(counters.checkConsistency()).isEqualTo(1);
+    assertThat(likeRepository.getLikeCountsForFilms(Set.of(filmId))).isEqualTo(Map.of(filmId, 5));
+    assertThat(counters.checkConsistency()).isZero();
+  }
+
+  @Test
+  @DisplayName("A rebuild reloads the counters from film_stats")
+  void shouldReloadOnRebuild() {
+    jdbcTemplate.update("UPDATE film_stats SET like_count = 3 WHERE film_id = ?", filmId);
+
+    counters.rebuild();
+
+    assertThat(likeRepository.getLikeCounts()).containsEntry(filmId, 3L);
+  }
+}
@@ -0,0 +1,163 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.likes.domain.port.LikeRepository;
+import ru.yandex.practicum.filmorate.likes.infrastructure.storage.buffer.WriteBehindLikeRepository;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ Checks the write-behind like buffer. The flush interval is long enough that nothing is written unless a test flushes
+ explicitly.
+ */
+@SpringBootTest(properties = {"filmorate.likes.write-behind.enabled=true",
+                              "filmorate.likes.write-behind.flush-interval=1h"
+})
+@ActiveProfiles({"test",
+                 "db"
+})
+@Import({TestDataCleaner.class,
+         TestFixtures.class
+})
+@DisplayName("Write-behind like buffer")
+class LikeWriteBehindTest {
+  @Autowired
+  private LikeRepository likeRepository;
+  @Autowired
+  private WriteBehindLikeRepository buffer;
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private TestDataCleaner testDataCleaner;
+  @Autowired
+  private TestFixtures fixtures;
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+  private long filmId;
+  private long userId;
+
+  @BeforeEach
+  void setUp() {
+    buffer.flush();
+    testDataCleaner.clean();
+    filmId = fixtures.createFilm();
+    userId = fixtures.createUser();
+  }
+
+  @Test
+  @DisplayName("Buffered likes are visible before they are written")
+  void shouldReadOwnWritesBeforeFlush() {
+    assertThat(likeRepository.addLike(filmId, userId)).isTrue();
+
+    assertThat(storedLikes()).isZero();
+    assertThat(likeRepository.hasLike(filmId, userId)).isTrue();
+    assertThat(likeRepository.contains(filmId)).isTrue();
+    assertThat(likeRepository.findUsersWhoLikedFilm(filmId)).containsExactly(userId);
+    assertThat(likeRepository.findLikedFilms(userId)).containsExactly(filmId);
+    assertThat(likeRepository.getLikeCountsForFilms(Set.of(filmId))).isEqualTo(Map.of(filmId, 1));
+  }
+
+  @Test
+  @DisplayName("A like removed before the flush is never written")
+  void shouldCancelLikeRemovedBeforeFlush() {
+    likeRepository.addLike(filmId, userId);
+    assertThat(buffer.bufferedChanges()).isEqualTo(1);
+
+    assertThat(likeRepository.removeLike(filmId, userId)).isTrue();
+
+    assertThat(buffer.bufferedChanges()).isEqualTo(1);
+    assertThat(likeRepository.hasLike(filmId, userId)).isFalse();
+    assertThat(likeRepository.getLikeCountsForFilms(Set.of(filmId))).isEmpty();
+
+    buffer.flush();
+    assertThat(storedLikes()).isZero();
+  }
+
+  @Test
+  @DisplayName("Flushing writes likes and like counts")
+  void shouldWriteLikesAndCountsOnFlush() {
+    likeRepository.addLike(filmId, userId);
+
+    buffer.flush();
+
+    assertThat(buffer.bufferedChanges()).isZero();
+    assertThat(storedLikes()).isEqualTo(1);
+    assertThat(jdbcTemplate.queryForObject("SELECT like_count FROM film_stats WHERE film_id = ?", Long.class, filmId))
+        .isEqualTo(1);
+
+    assertThat(likeRepository.removeLike(filmId, userId)).isTrue();
+    assertThat(storedLikes()).isEqualTo(1);
+    buffer.flush();
+    assertThat(storedLikes()).isZero();
+    assertThat(jdbcTemplate.queryForObject("SELECT like_count FROM film_stats WHERE film_id = ?", Long.class, filmId))
+        .isZero();
+  }
+
+  @Test
+  @DisplayName("Repeated likes are buffered once and counted once")
+  void shouldIgnoreRepeatedLike() {
+    assertThat(likeRepository.addLike(filmId, userId)).isTrue();
+    assertThat(likeRepository.addLike(filmId, userId)).isFalse();
+    buffer.flush();
+
+    likeRepository.addLike(filmId, userId);
+    buffer.flush();
+
+    assertThat(buffer.bufferedChanges()).isZero();
+    assertThat(storedLikes()).isEqualTo(1);
+    assertThat(jdbcTemplate.queryForObject("SELECT like_count FROM film_stats WHERE film_id = ?", Long.class, filmId))
+        .isEqualTo(1);
+    assertThat(likeRepository.getLikeCountsForFilms(Set.of(filmId))).isEqualTo(Map.of(filmId, 1));
+  }
+
+  @Test
+  @DisplayName("A flush inside a transaction that rolls back still writes the buffered likes")
+  void shouldKeepFlushedLikesWhenCallerRollsBack() {
+    likeRepository.addLike(filmId, userId);
+
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      buffer.flush();
+      status.setRollbackOnly();
+    });
+
+    assertThat(buffer.bufferedChanges()).isZero();
+    assertThat(storedLikes()).isEqualTo(1);
+    assertThat(jdbcTemplate.queryForObject("SELECT like_count FROM film_stats WHERE film_id = ?", Long.class, filmId))
+        .isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("A delete that rolls back puts the buffered likes it discarded back")
+  void shouldRestoreDiscardedLikesWhenDeleteRollsBack() {
+    long otherFilmId = fixtures.createFilm();
+    likeRepository.addLike(filmId, userId);
+    likeRepository.addLike(otherFilmId, userId);
+
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      assertThat(likeRepository.deleteByFilmId(filmId)).isTrue();
+      assertThat(buffer.bufferedChanges()).isEqualTo(1);
+      status.setRollbackOnly();
+    });
+
+    assertThat(buffer.bufferedChanges()).isEqualTo(2);
+    buffer.flush();
+    assertThat(storedLikes()).isEqualTo(1);
+  }
+
+  private long storedLikes() {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes WHERE film_id = ? AND user_id = ?",
+                                       Long.class, filmId, userId);
+  }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.likes.application.port.in.LikeUseCase;
+import ru.yandex.practicum.filmorate.likes.application.service.LikeMatrix;
+import ru.yandex.practicum.filmorate.likes.application.service.MinHashIndex;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ Checks that the MinHash index behind approximate recommendations follows likes, unlikes and rebuilds.
+ */
+@SpringBootTest(properties = "filmorate.recommendations.mode=approximate")
+@ActiveProfiles({"test",
+                 "db"
+})
+@Import({TestDataCleaner.class,
+         TestFixtures.class
+})
+@DisplayName("MinHash recommendation index")
+class MinHashIndexTest {
+  @Autowired
+  private LikeUseCase likeUseCase;
+  @Autowired
+  private LikeMatrix likeMatrix;
+  @Autowired
+  private MinHashIndex minHashIndex;
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private TestDataCleaner testDataCleaner;
+  @Autowired
+  private TestFixtures fixtures;
+
+  @BeforeEach
+  void cleanUp() {
+    testDataCleaner.clean();
+  }
+
+  @Test
+  @DisplayName("Users with the same likes become candidates and stop being candidates once the likes are gone")
+  void shouldFollowLikes() {
+    List<Long> films = IntStream.range(0, 4)
+                                .mapToObj(i -> fixtures.createFilm())
+                                .toList();
+    long user = fixtures.createUser();
+    long twin = fixtures.createUser();
+    films.forEach(filmId -> likeUseCase.addLike(filmId, user));
+    films.forEach(filmId -> likeUseCase.addLike(filmId, twin));
+
+    assertThat(minHashIndex.findCandidates(user)).containsExactly(twin);
+
+    films.forEach(filmId -> likeUseCase.removeLike(filmId, twin));
+
+    assertThat(minHashIndex.findCandidates(user)).isEmpty();
+    assertThat(minHashIndex.findCandidates(twin)).isEmpty();
+  }
+
+  @Test
+  @DisplayName("A rebuild recomputes the signatures from the likes table")
+  void shouldRebuildWithMatrix() {
+    long filmId = fixtures.createFilm();
+    long user = fixtures.createUser();
+    long other = fixtures.createUser();
+    jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?), (?, ?)", filmId, user, filmId, other);
+
+    assertThat(minHashIndex.findCandidates(user)).isEmpty();
+
+    likeMatrix.rebuild();
+
+    assertThat(minHashIndex.findCandidates(user)).containsExactly(other);
+  }
+}
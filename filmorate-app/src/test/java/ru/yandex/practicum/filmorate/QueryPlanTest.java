@@ -0,0 +1,351 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.common.enums.SortBy;
+import ru.yandex.practicum.filmorate.common.infrastructure.storage.jdbc.IdArrayParameter;
+import ru.yandex.practicum.filmorate.directors.infrastructure.storage.jdbc.JdbcDirectorRepository;
+import ru.yandex.practicum.filmorate.events.infrastructure.storage.jdbc.JdbcEventRepository;
+import ru.yandex.practicum.filmorate.films.domain.model.value.Genre;
+import ru.yandex.practicum.filmorate.films.domain.port.UpdateFilmCommand;
+import ru.yandex.practicum.filmorate.films.infrastructure.storage.jdbc.JdbcFilmRepository;
+import ru.yandex.practicum.filmorate.films.infrastructure.storage.jdbc.JdbcGenreRepository;
+import ru.yandex.practicum.filmorate.friendships.infrastructure.storage.jdbc.JdbcFriendshipRepository;
+import ru.yandex.practicum.filmorate.likes.infrastructure.storage.jdbc.JdbcLikeRepository;
+import ru.yandex.practicum.filmorate.reaction.infrastructure.storage.jdbc.JdbcReactionRepository;
+import ru.yandex.practicum.filmorate.reviews.domain.port.CreateReviewCommand;
+import ru.yandex.practicum.filmorate.reviews.infrastructure.storage.jdbc.JdbcReviewRepository;
+import ru.yandex.practicum.filmorate.users.infrastructure.storage.jdbc.JdbcUserRepository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ Checks that the queries issued by the JDBC repositories are answered through indexes. The statements are taken from
+ H2's query statistics while the repositories run them, so the checks follow the SQL that is actually sent, and each
+ one is run through {@code EXPLAIN} against tables seeded well above {@link #SCAN_THRESHOLD} rows.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:filmorate_query_plan_db;DB_CLOSE_DELAY=-1")
+@ActiveProfiles({"test",
+                 "db"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("Query plan checks")
+class QueryPlanTest {
+  private static final int FILMS = 5_000;
+  private static final int USERS = 2_000;
+  private static final int DIRECTORS = 200;
+  /**
+   Tables with more rows than this must not be scanned by a filtered statement.
+   */
+  private static final long SCAN_THRESHOLD = 1_000;
+  private static final Pattern TABLE_SCAN = Pattern.compile("PUBLIC\\.(\\w+)\\.tableScan");
+  private static final Pattern ARRAY_PARAMETER = Pattern.compile("ANY\\s*\\(\\s*$", Pattern.CASE_INSENSITIVE);
+  /**
+   Statements that read a whole table by design, such as the substring search and the bulk loads behind the
+   in-memory indexes, and therefore may scan.
+   */
+  private static final List<String> FULL_READS = List.of("FROM search_index", "WHERE like_count > 0");
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private JdbcFilmRepository filmRepository;
+
+  @Autowired
+  private JdbcGenreRepository genreRepository;
+
+  @Autowired
+  private JdbcUserRepository userRepository;
+
+  @Autowired
+  private JdbcLikeRepository likeRepository;
+
+  @Autowired
+  private JdbcFriendshipRepository friendshipRepository;
+
+  @Autowired
+  private JdbcEventRepository eventRepository;
+
+  @Autowired
+  private JdbcReviewRepository reviewRepository;
+
+  @Autowired
+  private JdbcReactionRepository reactionRepository;
+
+  @Autowired
+  private JdbcDirectorRepository directorRepository;
+
+  @BeforeAll
+  void seed() {
+    List<Object[]> films = new ArrayList<>(FILMS);
+    for (int i = 1; i <= FILMS; i++) {
+      films.add(new Object[] {"Film " + i,
+                              "Description " + i,
+                              Date.valueOf(LocalDate.of(1950 + i % 70, 1 + i % 12, 1)),
+                              90,
+                              1 + i % 5
+      });
+    }
+    jdbcTemplate.batchUpdate("INSERT INTO films (name, description, release_date, duration, mpa_id) VALUES (?, ?, ?, ?, ?)",
+                             films);
+    jdbcTemplate.update("INSERT INTO film_stats (film_id, like_count) SELECT film_id, MOD(film_id, 97) FROM films");
+    jdbcTemplate.update("INSERT INTO film_genres (film_id, genre_id) SELECT film_id, 1 + MOD(film_id, 6) FROM films");
+    jdbcTemplate.update("INSERT INTO search_index (film_id, title) SELECT film_id, name FROM films");
+
+    List<Object[]> users = new ArrayList<>(USERS);
+    for (int i = 1; i <= USERS; i++) {
+      users.add(new Object[] {"user" + i + "@mail.com", "user" + i, "User " + i});
+    }
+    jdbcTemplate.batchUpdate("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, DATE '1990-01-01')",
+                             users);
+    for (int i = 1; i <= DIRECTORS; i++) {
+      jdbcTemplate.update("INSERT INTO directors (name) VALUES (?)", "Director " + i);
+    }
+
+    jdbcTemplate.update("INSERT INTO likes (film_id, user_id) " +
+                        "SELECT f.film_id, u.user_id FROM films f JOIN users u ON MOD(f.film_id + u.user_id, 400) = 0");
+    jdbcTemplate.update("INSERT INTO friendships (user_id, friend_id, status) " +
+                        "SELECT u.user_id, MOD(u.user_id + k.x * 7, " + USERS + ") + 1, 'CONFIRMED' " +
+                        "FROM users u CROSS JOIN SYSTEM_RANGE(1, 3) k " +
+                        "WHERE MOD(u.user_id + k.x * 7, " + USERS + ") + 1 <> u.user_id");
+    jdbcTemplate.update("INSERT INTO events (timestamp, user_id, event_type, operation, entity_id) " +
+                        "SELECT k.x, MOD(k.x, " + USERS + ") + 1, 'LIKE', 'ADD', MOD(k.x, " + FILMS + ") + 1 " +
+                        "FROM SYSTEM_RANGE(1, 10000) k");
+    jdbcTemplate.update("INSERT INTO reviews (content, is_positive, film_id, user_id) " +
+                        "SELECT 'Review ' || user_id, TRUE, MOD(user_id * 13, " + FILMS + ") + 1, user_id FROM users");
+    jdbcTemplate.update("INSERT INTO reactions (review_id, user_id, reaction) " +
+                        "SELECT review_id, MOD(review_id, " + USERS + ") + 1, 'LIKE' FROM reviews");
+    jdbcTemplate.update("INSERT INTO film_directors (film_id, director_id) " +
+                        "SELECT film_id, MOD(film_id, " + DIRECTORS + ") + 1 FROM films");
+    jdbcTemplate.execute("ANALYZE");
+  }
+
+  @Test
+  @DisplayName("Year filter uses the release_year index")
+  void yearFilterUsesReleaseYearIndex() {
+    Collection<String> plans = plansOf(() -> filmRepository.findFilmIdsByFilters(null, 2000)).values();
+
+    assertThat(plans).singleElement()
+                     .asString()
+                     .containsIgnoringCase("IDX_FILMS_RELEASE_YEAR");
+  }
+
+  @Test
+  @DisplayName("Genre filter looks films up by genre")
+  void genreFilterUsesGenreIndex() {
+    Collection<String> plans = plansOf(() -> filmRepository.findFilmIdsByFilters(3L, null)).values();
+
+    assertThat(plans).singleElement()
+                     .satisfies(plan -> assertIndexLookup(plan, "FILM_GENRES", "GENRE_ID"));
+  }
+
+  @Test
+  @DisplayName("Popular films by year never scan the films table")
+  void popularByYearUsesReleaseYearIndex() {
+    Collection<String> plans = plansOf(() -> filmRepository.findPopularFilmIds(null, 2000, null, 10)).values();
+
+    assertThat(plans).singleElement()
+                     .asString()
+                     .containsIgnoringCase("IDX_FILMS_RELEASE_YEAR")
+                     .doesNotContainIgnoringCase("PUBLIC.FILMS.tableScan");
+  }
+
+  @Test
+  @DisplayName("Popular films by genre and year use an index on each filter")
+  void popularByGenreAndYearUsesIndexes() {
+    Collection<String> plans = plansOf(() -> filmRepository.findPopularFilmIds(3L, 2000, null, 10)).values();
+
+    assertThat(plans).singleElement()
+                     .asString()
+                     .doesNotContainIgnoringCase("tableScan")
+                     .containsIgnoringCase("IDX_FILMS_RELEASE_YEAR");
+  }
+
+  @Test
+  @DisplayName("Foreign-key access paths are index lookups")
+  void foreignKeyLookupsUseIndexes() {
+    assertThat(plansOf(() -> likeRepository.findLikedFilms(7)).values())
+        .singleElement()
+        .satisfies(plan -> assertIndexLookup(plan, "LIKES", "USER_ID"));
+    assertThat(plansOf(() -> friendshipRepository.finedEdgesByVertexId(7)).values())
+        .singleElement()
+        .satisfies(plan -> assertIndexLookup(plan, "FRIENDSHIPS", "FRIEND_ID"));
+    assertThat(plansOf(() -> eventRepository.findByUserId(7)).values())
+        .singleElement()
+        .satisfies(plan -> assertIndexLookup(plan, "EVENTS", "USER_ID"));
+    assertThat(plansOf(() -> reviewRepository.getReviewsByFilmId(7)).values())
+        .singleElement()
+        .satisfies(plan -> assertIndexLookup(plan, "REVIEWS", "FILM_ID"));
+    assertThat(plansOf(() -> directorRepository.findFilmIdsByDirectorId(7, SortBy.YEAR)).values())
+        .singleElement()
+        .satisfies(plan -> assertIndexLookup(plan, "FILM_DIRECTORS", "DIRECTOR_ID"));
+  }
+
+  @Test
+  @DisplayName("No repository statement scans a large table")
+  void noRepositoryStatementScansLargeTables() {
+    Map<String, String> plans = plansOf(this::runRepositoryWorkload);
+
+    Map<String, Set<String>> offenders = new LinkedHashMap<>();
+    plans.forEach((sql, plan) -> {
+      if (FULL_READS.stream()
+                    .anyMatch(sql::contains)) {
+        return;
+      }
+      Matcher matcher = TABLE_SCAN.matcher(plan);
+      while (matcher.find()) {
+        String table = matcher.group(1);
+        if (rowCount(table) > SCAN_THRESHOLD) {
+          offenders.computeIfAbsent(sql, k -> new TreeSet<>())
+                   .add(table);
+        }
+      }
+    });
+
+    assertThat(plans).hasSizeGreaterThan(30);
+    assertThat(offenders).as("statements scanning tables above %d rows", SCAN_THRESHOLD)
+                         .isEmpty();
+  }
+
+  /**
+   Calls every filtered read and the keyed writes of the JDBC repositories. Whole-table reads such as
+   {@code findAll} are left out; they scan by definition.
+   */
+  private void runRepositoryWorkload() {
+    filmRepository.findById(42);
+    filmRepository.existsById(42);
+    filmRepository.getByIds(List.of(1L, 2L, 3L));
+    filmRepository.findPage(100L, 20);
+    filmRepository.findFilmIdsByFilters(3L, 2000);
+    filmRepository.findPopularFilmIds(null, null, null, 10);
+    filmRepository.findPopularFilmIds(3L, null, null, 10);
+    filmRepository.findPopularFilmIds(null, null, 7L, 10);
+    filmRepository.findPopularFilmIds(3L, 2000, 7L, 10);
+    filmRepository.update(UpdateFilmCommand.builder()
+                                           .id(43L)
+                                           .name("Film 43")
+                                           .description("Updated")
+                                           .releaseDate(LocalDate.of(1993, 8, 1))
+                                           .duration(95)
+                                           .genres(Set.of(new Genre(1L, null), new Genre(2L, null)))
+                                           .mpa(1L)
+                                           .build());
+    genreRepository.findById(1);
+    genreRepository.findMissingIds(List.of(1L, 2L, 99L));
+
+    userRepository.findById(11);
+    userRepository.existsById(11);
+    userRepository.findByIds(Set.of(11L, 12L));
+
+    likeRepository.addLike(44, 13);
+    likeRepository.removeLike(44, 13);
+    likeRepository.findUsersWhoLikedFilm(45);
+    likeRepository.contains(45);
+    likeRepository.findLikedFilms(14);
+    likeRepository.getLikeCountsForFilms(Set.of(45L, 46L));
+    likeRepository.getPopularFilmIds(10);
+
+    friendshipRepository.finedEdgesByVertexId(15);
+    friendshipRepository.getEdge(15, 16);
+    friendshipRepository.removeEdge(15, 22);
+
+    eventRepository.findByUserId(17);
+    eventRepository.findFriendsEvents(17);
+
+    reviewRepository.getReviewById(18);
+    reviewRepository.getReviewsByFilmId(47);
+    reviewRepository.checkReviewForFilmExists(CreateReviewCommand.builder()
+                                                                 .userId(18)
+                                                                 .filmId(47)
+                                                                 .build());
+    reviewRepository.changeUseful(18, 1);
+    reactionRepository.findReaction(19, 20);
+    reactionRepository.removeReaction(19, 20);
+
+    directorRepository.findById(5);
+    directorRepository.findByIds(Set.of(5L, 6L));
+    directorRepository.existsById(5);
+    directorRepository.findFilmIdsByDirectorId(5, SortBy.YEAR);
+    directorRepository.findFilmIdsByDirectorId(5, SortBy.LIKES);
+    directorRepository.findDirectorsForFilmIds(Set.of(48L, 49L));
+    directorRepository.updateFilmDirectors(48, Set.of(5L, 6L));
+
+    likeRepository.deleteByUserId(21);
+    userRepository.deleteById(21);
+    reviewRepository.removeReview(23);
+    likeRepository.deleteByFilmId(50);
+    filmRepository.deleteById(50);
+  }
+
+  /**
+   Runs the action with H2 query statistics enabled and returns the plan of every filtered statement it issued,
+   keyed by the statement. Switching the statistics off clears them, so every call starts from an empty list.
+   */
+  private Map<String, String> plansOf(Runnable action) {
+    jdbcTemplate.execute("SET QUERY_STATISTICS_MAX_ENTRIES 1000");
+    jdbcTemplate.execute("SET QUERY_STATISTICS TRUE");
+    List<String> statements;
+    try {
+      action.run();
+      statements = jdbcTemplate.queryForList("SELECT SQL_STATEMENT FROM INFORMATION_SCHEMA.QUERY_STATISTICS " +
+                                             "WHERE SQL_STATEMENT NOT LIKE '%INFORMATION_SCHEMA%'",
+                                             String.class);
+    } finally {
+      jdbcTemplate.execute("SET QUERY_STATISTICS FALSE");
+    }
+    Map<String, String> plans = new LinkedHashMap<>();
+    statements.stream()
+              .filter(QueryPlanTest::isFilteredStatement)
+              .forEach(sql -> plans.put(sql, explain(sql)));
+    return plans;
+  }
+
+  private static boolean isFilteredStatement(String sql) {
+    String normalized = sql.stripLeading()
+                           .replaceFirst("^\\(+", "")
+                           .toUpperCase(Locale.ROOT);
+    return (normalized.startsWith("SELECT") || normalized.startsWith("UPDATE") || normalized.startsWith("DELETE"))
+           && normalized.contains("WHERE");
+  }
+
+  /**
+   Explains a captured statement, binding a placeholder value to each parameter: a one-element array for
+   {@code ANY(?)}, the number 1 everywhere else.
+   */
+  private String explain(String sql) {
+    List<Object> parameters = new ArrayList<>();
+    for (int i = sql.indexOf('?'); i >= 0; i = sql.indexOf('?', i + 1)) {
+      boolean array = ARRAY_PARAMETER.matcher(sql.substring(0, i))
+                                     .find();
+      parameters.add(array ? IdArrayParameter.of(List.of(1L)) : 1L);
+    }
+    return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parameters.toArray());
+  }
+
+  /**
+   Asserts that the plan reads the table through an index condition on the column rather than by scanning it. The
+   index itself is not pinned: H2 also indexes every foreign-key column on its own and picks either one.
+   */
+  private static void assertIndexLookup(String plan, String table, String column) {
+    assertThat(plan).doesNotContainIgnoringCase("PUBLIC." + table + ".tableScan")
+                    .containsPattern("/\\* PUBLIC\\.\\w+: " + column + " = \\?\\d");
+  }
+
+  private long rowCount(String table) {
+    Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    return count == null ? 0 : count;
+  }
+}
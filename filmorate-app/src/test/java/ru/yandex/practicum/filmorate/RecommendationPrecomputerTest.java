@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.films.application.port.in.RecommendationQuery;
+import ru.yandex.practicum.filmorate.films.domain.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmCompositionService;
+import ru.yandex.practicum.filmorate.service.recommendation.RecommendationPrecomputer;
+import ru.yandex.practicum.filmorate.service.recommendation.RecommendedFilms;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ Checks that precomputed recommendations are reused until a like touches the user and are recomputed by the job.
+ The job interval is long enough that it only runs when a test calls it.
+ */
+@SpringBootTest(properties = "filmorate.recommendations.precompute.interval=PT1H")
+@ActiveProfiles({"test",
+                 "db"
+})
+@Import({TestDataCleaner.class,
+         TestFixtures.class
+})
+@DisplayName("Precomputed recommendations")
+class RecommendationPrecomputerTest {
+  @Autowired
+  private FilmCompositionService filmCompositionService;
+  @Autowired
+  private RecommendationPrecomputer precomputer;
+  @Autowired
+  private TestDataCleaner testDataCleaner;
+  @Autowired
+  private TestFixtures fixtures;
+  private long shared;
+  private long user;
+  private long similar;
+
+  @BeforeEach
+  void setUp() {
+    testDataCleaner.clean();
+    precomputer.rebuild();
+    shared = fixtures.createFilm();
+    user = fixtures.createUser();
+    similar = fixtures.createUser();
+    filmCompositionService.addLike(shared, user);
+    filmCompositionService.addLike(shared, similar);
+  }
+
+  @Test
+  @DisplayName("A result is reused until a like of a similar user marks it and the job recomputes it")
+  void shouldRecomputeMarkedUsers() {
+    RecommendedFilms first = precomputer.getRecommendations(RecommendationQuery.of(user));
+    assertThat(first.films()).isEmpty();
+    assertThat(precomputer.getRecommendations(RecommendationQuery.of(user))
+                          .computedAt()).isEqualTo(first.computedAt());
+
+    long recommended = fixtures.createFilm();
+    filmCompositionService.addLike(recommended, similar);
+
+    assertThat(precomputer.precomputeDirty()).isPositive();
+    RecommendedFilms second = precomputer.getRecommendations(RecommendationQuery.of(user));
+    assertThat(second.films()).extracting(Film::id)
+                              .containsExactly(recommended);
+    assertThat(second.computedAt()).isAfterOrEqualTo(first.computedAt());
+    assertThat(precomputer.precomputeDirty()).isZero();
+  }
+
+  @Test
+  @DisplayName("A request for a marked user computes the result on the spot")
+  void shouldNotServeMarkedResult() {
+    precomputer.getRecommendations(RecommendationQuery.of(user));
+    long recommended = fixtures.createFilm();
+
+    filmCompositionService.addLike(recommended, similar);
+
+    assertThat(precomputer.getRecommendations(RecommendationQuery.of(user))
+                          .films()).extracting(Film::id)
+                                   .containsExactly(recommended);
+  }
+
+  @Test
+  @DisplayName("A like of a new fan marks the film's other fans when the job runs")
+  void shouldMarkOtherFansInJob() {
+    long film = fixtures.createFilm();
+    long lonely = fixtures.createUser();
+    filmCompositionService.addLike(film, lonely);
+    assertThat(precomputer.getRecommendations(RecommendationQuery.of(lonely))
+                          .films()).isEmpty();
+
+    long fan = fixtures.createUser();
+    long recommended = fixtures.createFilm();
+    filmCompositionService.addLike(recommended, fan);
+    filmCompositionService.addLike(film, fan);
+
+    assertThat(precomputer.precomputeDirty()).isPositive();
+    assertThat(precomputer.getRecommendations(RecommendationQuery.of(lonely))
+                          .films()).extracting(Film::id)
+                                   .containsExactly(recommended);
+  }
+
+  @Test
+  @DisplayName("A filtered result is not reused after the similar user likes another film")
+  void shouldRefreshFilteredResultAfterLike() {
+    long first = fixtures.createFilm();
+    filmCompositionService.addLike(first, similar);
+    RecommendationQuery query = new RecommendationQuery(user, 5, null, 2000);
+    assertThat(precomputer.getRecommendations(query)
+                          .films()).extracting(Film::id)
+                                   .containsExactly(first);
+
+    long second = fixtures.createFilm();
+    filmCompositionService.addLike(second, similar);
+
+    assertThat(precomputer.getRecommendations(query)
+                          .films()).extracting(Film::id)
+                                   .containsExactly(first, second);
+    assertThat(precomputer.getRecommendations(new RecommendationQuery(user, 5, null, 2001))
+                          .films()).isEmpty();
+  }
+}
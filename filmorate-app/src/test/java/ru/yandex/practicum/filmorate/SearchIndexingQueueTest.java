@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import ru.yandex.practicum.filmorate.search.domain.model.SearchableFilm;
+import ru.yandex.practicum.filmorate.search.domain.port.SearchRepository;
+import ru.yandex.practicum.filmorate.search.infrastructure.indexing.SearchIndexOverflowedEvent;
+import ru.yandex.practicum.filmorate.search.infrastructure.indexing.SearchIndexingProperties;
+import ru.yandex.practicum.filmorate.search.infrastructure.indexing.SearchIndexingQueue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ Checks batching, deduplication, per-row backoff, overflow and dropping of rows in the search indexing queue. The writer thread is not started, so rows
+ are only written by explicit flushes.
+ */
+@DisplayName("Search indexing queue")
+class SearchIndexingQueueTest {
+  private SearchRepository searchRepository;
+  private ApplicationEventPublisher eventPublisher;
+  private SearchIndexingQueue queue;
+
+  @BeforeEach
+  void setUp() {
+    searchRepository = mock(SearchRepository.class);
+    eventPublisher = mock(ApplicationEventPublisher.class);
+    queue = queue(Duration.ofSeconds(1));
+  }
+
+  @Test
+  @DisplayName("Writes only the newest row of a film, in batches")
+  void shouldDeduplicateAndBatch() {
+    queue.enqueue(List.of(film(1, "old"), film(2, "second")));
+    queue.enqueue(List.of(film(1, "new"), film(3, "third")));
+
+    assertThat(queue.depth()).isEqualTo(3);
+    assertThat(queue.flush()).isTrue();
+
+    verify(searchRepository).saveAll(List.of(film(1, "new"), film(2, "second")));
+    verify(searchRepository).saveAll(List.of(film(3, "third")));
+    assertThat(queue.depth()).isZero();
+  }
+
+  @Test
+  @DisplayName("Drops a row of a deleted film at once and writes the rest of the batch")
+  void shouldDropDeletedFilm() {
+    SearchableFilm deleted = film(1, "deleted");
+    doThrow(new DataIntegrityViolationException("batch")).when(searchRepository)
+                                                         .saveAll(any());
+    doThrow(new DataIntegrityViolationException("row")).when(searchRepository)
+                                                       .save(deleted);
+    queue.enqueue(List.of(deleted, film(2, "fine")));
+
+    assertThat(queue.flush()).isFalse();
+    assertThat(queue.depth()).isZero();
+    verify(searchRepository).save(film(2, "fine"));
+
+    queue.enqueue(List.of(film(3, "next")));
+    assertThat(queue.flush()).isTrue();
+    verify(searchRepository).saveAll(List.of(film(3, "next")));
+    verify(searchRepository).save(deleted);
+  }
+
+  @Test
+  @DisplayName("Backs off a failing row without holding up the rows queued after it")
+  void shouldBackOffPerRow() {
+    SearchableFilm failing = film(1, "failing");
+    doThrow(new TransientDataAccessResourceException("batch")).when(searchRepository)
+                                                              .saveAll(List.of(failing, film(2, "fine")));
+    doThrow(new TransientDataAccessResourceException("row")).when(searchRepository)
+                                                            .save(failing);
+    queue.enqueue(List.of(failing, film(2, "fine")));
+
+    assertThat(queue.flush()).isFalse();
+    assertThat(queue.depth()).isEqualTo(1);
+
+    queue.enqueue(List.of(film(3, "next")));
+    assertThat(queue.flush()).isTrue();
+    verify(searchRepository).saveAll(List.of(film(3, "next")));
+    verify(searchRepository).save(failing);
+    assertThat(queue.depth()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Retries a failing row and drops it after the last attempt")
+  void shouldRetryAndDrop() {
+    queue = queue(Duration.ZERO);
+    SearchableFilm failing = film(1, "failing");
+    doThrow(new TransientDataAccessResourceException("batch")).when(searchRepository)
+                                                              .saveAll(any());
+    doThrow(new TransientDataAccessResourceException("row")).when(searchRepository)
+                                                            .save(failing);
+    queue.enqueue(List.of(failing, film(2, "fine")));
+
+    assertThat(queue.flush()).isFalse();
+    assertThat(queue.depth()).isEqualTo(1);
+    verify(searchRepository).save(film(2, "fine"));
+
+    assertThat(queue.flush()).isFalse();
+    assertThat(queue.flush()).isFalse();
+
+    assertThat(queue.depth()).isZero();
+    verify(searchRepository, times(3)).save(failing);
+  }
+
+  @Test
+  @DisplayName("Leaves changes that do not fit to a reindex instead of waiting for room")
+  void shouldOverflowWithoutWaiting() {
+    List<SearchableFilm> films = LongStream.rangeClosed(1, 150)
+                                           .mapToObj(filmId -> film(filmId, "film " + filmId))
+                                           .toList();
+
+    assertTimeoutPreemptively(Duration.ofSeconds(5), () -> queue.enqueue(films));
+    queue.enqueue(List.of(film(1, "queued")));
+
+    assertThat(queue.depth()).isEqualTo(100);
+    assertThat(queue.isOverflowed()).isTrue();
+    assertThat(queue.flush()).isTrue();
+    verify(eventPublisher).publishEvent(isA(SearchIndexOverflowedEvent.class));
+
+    queue.startRecording();
+    assertThat(queue.isOverflowed()).isFalse();
+    queue.enqueue(List.of(film(151, "recorded")));
+    assertThat(queue.stopRecording()).containsExactly(film(151, "recorded"));
+  }
+
+  @Test
+  @DisplayName("Does not ask for a reindex while every change fits")
+  void shouldNotReindexWithoutOverflow() {
+    queue.enqueue(List.of(film(1, "fits")));
+
+    assertThat(queue.flush()).isTrue();
+    verifyNoInteractions(eventPublisher);
+  }
+
+  private SearchIndexingQueue queue(Duration initialBackoff) {
+    return new SearchIndexingQueue(searchRepository,
+                                   new SearchIndexingProperties(100,
+                                                                2,
+                                                                Duration.ofMillis(50),
+                                                                initialBackoff,
+                                                                Duration.ofSeconds(1),
+                                                                3),
+                                   eventPublisher,
+                                   new SimpleMeterRegistry());
+  }
+
+  private static SearchableFilm film(long filmId, String title) {
+    return new SearchableFilm(filmId, title, "");
+  }
+}
@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.search.infrastructure.indexing.ReindexProgress;
+import ru.yandex.practicum.filmorate.search.infrastructure.indexing.SearchIndexingQueue;
+import ru.yandex.practicum.filmorate.search.infrastructure.indexing.SearchReindexJob;
+import ru.yandex.practicum.filmorate.search.infrastructure.storage.TrigramSearchRepository;
+import ru.yandex.practicum.filmorate.service.FilmCompositionService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ Checks that a full reindex rebuilds {@code search_index} from the films and their directors, in several chunks, and
+ that search answers from the new table afterwards.
+ */
+@SpringBootTest(properties = {"filmorate.search.reindex.chunk-size=2",
+                              "filmorate.search.reindex.parallelism=2"})
+@ActiveProfiles({"test",
+                 "db"
+})
+@Import({TestDataCleaner.class,
+         TestFixtures.class
+})
+@DisplayName("Search reindex")
+class SearchReindexTest {
+  @Autowired
+  private SearchReindexJob searchReindexJob;
+  @Autowired
+  private TrigramSearchRepository searchRepository;
+  @Autowired
+  private SearchIndexingQueue searchIndexingQueue;
+  @Autowired
+  private FilmCompositionService filmCompositionService;
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private TestDataCleaner testDataCleaner;
+  @Autowired
+  private TestFixtures fixtures;
+
+  @BeforeEach
+  void cleanUp() {
+    testDataCleaner.clean();
+  }
+
+  @Test
+  @DisplayName("Replaces stale rows with rows built from films and directors")
+  void shouldRebuildIndex() {
+    long lana = fixtures.createDirector("Lana Wachowski");
+    long lilly = fixtures.createDirector("Lilly Wachowski");
+    long matrix = fixtures.createFilm("The Matrix", Set.of(lilly, lana));
+    long heat = fixtures.createFilm("Heat");
+    long alien = fixtures.createFilm("Alien");
+    searchIndexingQueue.flush();
+    jdbcTemplate.update("UPDATE search_index SET title = 'stale', directors_names = '' WHERE film_id = ?", heat);
+
+    ReindexProgress progress = searchReindexJob.run();
+
+    assertThat(progress.status()).isEqualTo(ReindexProgress.Status.COMPLETED);
+    assertThat(progress.indexedFilms()).isEqualTo(progress.totalFilms())
+                                       .isEqualTo(3);
+    assertThat(progress.finishedAt()).isNotNull();
+    assertThat(progress.etaSeconds()).isNull();
+    List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT film_id, title, directors_names " +
+                                                               "FROM search_index ORDER BY film_id");
+    assertThat(rows).extracting(row -> row.get("TITLE"))
+                    .containsExactly("the matrix", "heat", "alien");
+    assertThat(rows.getFirst()
+                   .get("DIRECTORS_NAMES")).isEqualTo("lana wachowski lilly wachowski");
+    assertThat(searchRepository.search("wachow", Set.of("DIRECTOR"))).containsExactly(matrix);
+    assertThat(searchRepository.search("stale", Set.of("TITLE"))).isEmpty();
+    assertThat(searchRepository.search("lie", Set.of("TITLE"))).containsExactly(alien);
+  }
+
+  @Test
+  @DisplayName("The rebuilt table keeps the key, NOT NULL and foreign key of search_index")
+  void shouldKeepConstraints() {
+    long film = fixtures.createFilm("Heat");
+    searchIndexingQueue.flush();
+
+    assertThat(searchReindexJob.run()
+                               .status()).isEqualTo(ReindexProgress.Status.COMPLETED);
+
+    assertThatThrownBy(() -> jdbcTemplate.update("INSERT INTO search_index (film_id, title) VALUES (?, 'heat')",
+                                                 film)).isInstanceOf(DuplicateKeyException.class);
+    assertThatThrownBy(() -> jdbcTemplate.update("INSERT INTO search_index (film_id, title) VALUES (?, 'x')",
+                                                 film + 1_000)).isInstanceOf(DataIntegrityViolationException.class);
+    assertThatThrownBy(() -> jdbcTemplate.update("UPDATE search_index SET title = NULL WHERE film_id = ?",
+                                                 film)).isInstanceOf(DataIntegrityViolationException.class);
+    filmCompositionService.deleteFilmById(film);
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM search_index WHERE film_id = ?",
+                                           Integer.class,
+                                           film)).isZero();
+  }
+}
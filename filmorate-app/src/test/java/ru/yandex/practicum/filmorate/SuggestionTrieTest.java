@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.service.suggestion.FilmSuggestion;
+import ru.yandex.practicum.filmorate.service.suggestion.SuggestionTrie;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ Checks ranking and incremental updates of the suggestion trie, and compares it with a plain scan on a catalogue large
+ enough to split many nodes.
+ */
+@DisplayName("Suggestion trie")
+class SuggestionTrieTest {
+  private static final String[] WORDS = {"the", "matrix", "man", "mad", "max", "mask", "master", "heat", "her", "hero"};
+
+  @Test
+  @DisplayName("Suggests titles and directors by prefix and word start, most liked first")
+  void shouldSuggestByLikes() {
+    SuggestionTrie trie = new SuggestionTrie(10);
+    trie.putFilm(1, "The Matrix", List.of("Lana Wachowski", "Lilly Wachowski"), 5);
+    trie.putFilm(2, "Mad Max", List.of("George Miller"), 7);
+    trie.putFilm(3, "Heat", List.of("Michael Mann"), 3);
+
+    assertThat(trie.find("ma", 10)).containsExactly(
+        new FilmSuggestion("mad max", FilmSuggestion.Type.TITLE, 2, 7),
+        new FilmSuggestion("the matrix", FilmSuggestion.Type.TITLE, 1, 5),
+        new FilmSuggestion("michael mann", FilmSuggestion.Type.DIRECTOR, 3, 3));
+    assertThat(trie.find("ma", 1)).extracting(FilmSuggestion::text)
+                                  .containsExactly("mad max");
+    assertThat(trie.find("wach", 10)).extracting(FilmSuggestion::text)
+                                     .containsExactly("lana wachowski", "lilly wachowski");
+    assertThat(trie.find("atrix", 10)).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Follows likes, renames and deletions")
+  void shouldFollowChanges() {
+    SuggestionTrie trie = new SuggestionTrie(10);
+    trie.putFilm(1, "Heat", List.of("Michael Mann"), 3);
+    trie.putFilm(2, "Heat", List.of(), 1);
+    trie.putFilm(3, "Hero", List.of(), 2);
+
+    assertThat(trie.find("he", 10)).containsExactly(new FilmSuggestion("heat", FilmSuggestion.Type.TITLE, 1, 3),
+                                                    new FilmSuggestion("hero", FilmSuggestion.Type.TITLE, 3, 2));
+
+    trie.setLikes(3, 4);
+    trie.setLikes(2, 6);
+    assertThat(trie.find("he", 10)).containsExactly(new FilmSuggestion("heat", FilmSuggestion.Type.TITLE, 2, 6),
+                                                    new FilmSuggestion("hero", FilmSuggestion.Type.TITLE, 3, 4));
+
+    trie.putFilm(2, "Collateral", List.of("Michael Mann"));
+    trie.removeFilm(3);
+    assertThat(trie.find("he", 10)).containsExactly(new FilmSuggestion("heat", FilmSuggestion.Type.TITLE, 1, 3));
+    assertThat(trie.find("mich", 10)).containsExactly(
+        new FilmSuggestion("michael mann", FilmSuggestion.Type.DIRECTOR, 2, 6));
+    assertThat(trie.find("co", 10)).extracting(FilmSuggestion::likes)
+                                   .containsExactly(6L);
+  }
+
+  @Test
+  @DisplayName("Returns the same suggestions as a scan of every title after many changes, and as a bulk load")
+  void shouldMatchScan() {
+    Random random = new Random(7);
+    SuggestionTrie trie = new SuggestionTrie(20);
+    Map<Long, String> titles = new HashMap<>();
+    Map<Long, Long> likes = new HashMap<>();
+    for (long filmId = 1; filmId <= 3_000; filmId++) {
+      String title = title(random);
+      long filmLikes = random.nextInt(100);
+      trie.putFilm(filmId, title, List.of(), filmLikes);
+      titles.put(filmId, title);
+      likes.put(filmId, filmLikes);
+    }
+    for (int i = 0; i < 3_000; i++) {
+      long filmId = 1 + random.nextInt(3_000);
+      switch (random.nextInt(3)) {
+        case 0 -> {
+          long filmLikes = random.nextInt(100);
+          trie.setLikes(filmId, filmLikes);
+          likes.computeIfPresent(filmId, (id, previous) -> filmLikes);
+        }
+        case 1 -> {
+          String title = title(random);
+          trie.putFilm(filmId, title, List.of());
+          titles.computeIfPresent(filmId, (id, previous) -> title);
+        }
+        default -> {
+          trie.removeFilm(filmId);
+          titles.remove(filmId);
+          likes.remove(filmId);
+        }
+      }
+    }
+
+    SuggestionTrie.Builder builder = new SuggestionTrie.Builder(20);
+    titles.forEach((filmId, title) -> builder.add(filmId, title, List.of(), likes.get(filmId)));
+    SuggestionTrie loaded = builder.build();
+
+    for (String prefix : List.of("", "m", "ma", "mas", "the m", "her", "max the", "hero hero")) {
+      List<FilmSuggestion> expected = scan(titles, likes, prefix, 20);
+      assertThat(trie.find(prefix, 20)).as(prefix)
+                                       .isEqualTo(expected);
+      assertThat(loaded.find(prefix, 20)).as(prefix)
+                                         .isEqualTo(expected);
+    }
+  }
+
+  private static List<FilmSuggestion> scan(Map<Long, String> titles, Map<Long, Long> likes, String prefix, int limit) {
+    Map<String, FilmSuggestion> best = new HashMap<>();
+    titles.forEach((filmId, title) -> {
+      if (!(" " + title).contains(" " + prefix)) {
+        return;
+      }
+      FilmSuggestion candidate = new FilmSuggestion(title, FilmSuggestion.Type.TITLE, filmId, likes.get(filmId));
+      best.merge(title, candidate, (a, b) -> a.likes() > b.likes() || a.likes() == b.likes() && a.filmId() < b.filmId()
+          ? a
+          : b);
+    });
+    List<FilmSuggestion> suggestions = new ArrayList<>(best.values());
+    suggestions.sort(Comparator.comparingLong((FilmSuggestion suggestion) -> -suggestion.likes())
+                               .thenComparing(FilmSuggestion::text));
+    return suggestions.subList(0, Math.min(limit, suggestions.size()));
+  }
+
+  private static String title(Random random) {
+    StringBuilder title = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+    for (int i = random.nextInt(3); i > 0; i--) {
+      title.append(' ')
+           .append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    return title.toString();
+  }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate;
+
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.directors.application.port.in.DirectorUseCase;
+import ru.yandex.practicum.filmorate.directors.domain.model.Director;
+import ru.yandex.practicum.filmorate.service.FilmCompositionService;
+import ru.yandex.practicum.filmorate.users.application.port.in.UserUseCase;
+import ru.yandex.practicum.filmorate.users.domain.model.User;
+
+import javax.sql.DataSource;
+
+/**
+ Empties the database between tests through the application services, so caches and in-memory indexes follow the
+ deletes the same way they follow any other request. {@code cleanup.sql} then clears what no service deletes and
+ restarts the ID sequences. */
+@TestComponent
+class TestDataCleaner {
+  private final FilmCompositionService filmCompositionService;
+  private final UserUseCase userUseCase;
+  private final DirectorUseCase directorUseCase;
+  private final DataSource dataSource;
+
+  TestDataCleaner(FilmCompositionService filmCompositionService,
+                  UserUseCase userUseCase,
+                  DirectorUseCase directorUseCase,
+                  DataSource dataSource) {
+    this.filmCompositionService = filmCompositionService;
+    this.userUseCase = userUseCase;
+    this.directorUseCase = directorUseCase;
+    this.dataSource = dataSource;
+  }
+
+  void clean() {
+    filmCompositionService.getAllFilms()
+                          .forEach(film -> filmCompositionService.deleteFilmById(film.film()
+                                                                                     .id()));
+    userUseCase.getAllUsers()
+               .stream()
+               .map(User::id)
+               .forEach(userUseCase::deleteUserById);
+    directorUseCase.findAll()
+                   .stream()
+                   .map(Director::id)
+                   .forEach(directorUseCase::deleteDirectorById);
+    new ResourceDatabasePopulator(new ClassPathResource("cleanup.sql")).execute(dataSource);
+  }
+}
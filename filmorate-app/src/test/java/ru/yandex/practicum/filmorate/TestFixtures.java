@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate;
+
+import org.springframework.boot.test.context.TestComponent;
+import ru.yandex.practicum.filmorate.directors.application.port.in.DirectorUseCase;
+import ru.yandex.practicum.filmorate.directors.domain.port.CreateDirectorCommand;
+import ru.yandex.practicum.filmorate.films.domain.port.CreateFilmCommand;
+import ru.yandex.practicum.filmorate.service.FilmCompositionService;
+import ru.yandex.practicum.filmorate.users.application.port.in.UserUseCase;
+import ru.yandex.practicum.filmorate.users.domain.port.CreateUserCommand;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ Creates films, users and directors through the application services, so caches and in-memory indexes learn about
+ them the same way they learn about any other request. Pairs with {@link TestDataCleaner}. */
+@TestComponent
+class TestFixtures {
+  private final FilmCompositionService filmCompositionService;
+  private final UserUseCase userUseCase;
+  private final DirectorUseCase directorUseCase;
+  private final AtomicLong users = new AtomicLong();
+
+  TestFixtures(FilmCompositionService filmCompositionService,
+               UserUseCase userUseCase,
+               DirectorUseCase directorUseCase) {
+    this.filmCompositionService = filmCompositionService;
+    this.userUseCase = userUseCase;
+    this.directorUseCase = directorUseCase;
+  }
+
+  long createFilm() {
+    return createFilm("Film", Set.of());
+  }
+
+  long createFilm(String name) {
+    return createFilm(name, Set.of());
+  }
+
+  long createFilm(String name, Set<Long> directorIds) {
+    return filmCompositionService.createFilm(new CreateFilmCommand(name,
+                                                                   "Description",
+                                                                   LocalDate.of(2000, 1, 1),
+                                                                   100L,
+                                                                   Set.of(),
+                                                                   1L,
+                                                                   directorIds))
+                                 .film()
+                                 .id();
+  }
+
+  long createUser() {
+    long number = users.incrementAndGet();
+    return userUseCase.addUser(new CreateUserCommand("user" + number + "@mail.ru",
+                                                     "user" + number,
+                                                     "User",
+                                                     LocalDate.of(1990, 1, 1)))
+                      .id();
+  }
+
+  /**
+   Likes the film by as many new users.
+   */
+  void addLikes(long filmId, int likes) {
+    for (int i = 0; i < likes; i++) {
+      filmCompositionService.addLike(filmId, createUser());
+    }
+  }
+
+  long createDirector(String name) {
+    return directorUseCase.createDirector(new CreateDirectorCommand(name))
+                          .id();
+  }
+}
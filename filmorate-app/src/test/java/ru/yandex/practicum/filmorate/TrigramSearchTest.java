@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.search.domain.model.SearchableFilm;
+import ru.yandex.practicum.filmorate.search.infrastructure.indexing.SearchIndexingQueue;
+import ru.yandex.practicum.filmorate.search.infrastructure.storage.TrigramSearchRepository;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ Checks that the trigram search matches substrings like the former {@code LIKE '%q%'} scan and keeps up with updates.
+ */
+@SpringBootTest
+@ActiveProfiles({"test",
+                 "db"
+})
+@Import({TestDataCleaner.class,
+         TestFixtures.class
+})
+@DisplayName("Trigram search")
+class TrigramSearchTest {
+  @Autowired
+  private TrigramSearchRepository searchRepository;
+  @Autowired
+  private SearchIndexingQueue searchIndexingQueue;
+  @Autowired
+  private TestDataCleaner testDataCleaner;
+  @Autowired
+  private TestFixtures fixtures;
+
+  @BeforeEach
+  void setUp() {
+    testDataCleaner.clean();
+    searchIndexingQueue.flush();
+    searchRepository.rebuild();
+  }
+
+  @Test
+  @DisplayName("Finds substrings of titles and directors, ordered by likes")
+  void shouldFindSubstrings() {
+    long matrix = createFilm(3);
+    long reloaded = createFilm(7);
+    long other = createFilm(10);
+    searchRepository.save(new SearchableFilm(matrix, "the matrix", "lana wachowski"));
+    searchRepository.save(new SearchableFilm(reloaded, "matrix reloaded", "lilly wachowski"));
+    searchRepository.save(new SearchableFilm(other, "heat", "michael mann"));
+
+    assertThat(searchRepository.search("atri", Set.of("TITLE"))).containsExactly(reloaded, matrix);
+    assertThat(searchRepository.search("wachowski", Set.of("DIRECTOR"))).containsExactly(reloaded, matrix);
+    assertThat(searchRepository.search("an", Set.of("DIRECTOR"))).containsExactly(other, matrix);
+    assertThat(searchRepository.search("matrix", Set.of("DIRECTOR"))).isEmpty();
+    assertThat(searchRepository.search("rix rel", Set.of("TITLE", "DIRECTOR"))).containsExactly(reloaded);
+  }
+
+  @Test
+  @DisplayName("An update replaces the old text and the index survives a reload from the table")
+  void shouldFollowUpdatesAndReload() {
+    long film = createFilm(0);
+    searchRepository.save(new SearchableFilm(film, "old title", ""));
+    searchRepository.save(new SearchableFilm(film, "new title", ""));
+
+    assertThat(searchRepository.search("old", Set.of("TITLE"))).isEmpty();
+    assertThat(searchRepository.search("new", Set.of("TITLE"))).containsExactly(film);
+
+    searchRepository.rebuild();
+
+    assertThat(searchRepository.search("new tit", Set.of("TITLE"))).containsExactly(film);
+  }
+
+  @Test
+  @DisplayName("A batch save merges every film into the index and replaces the old text of existing ones")
+  void shouldIndexBatch() {
+    long updated = createFilm(1);
+    long added = createFilm(2);
+    long other = createFilm(3);
+    searchRepository.save(new SearchableFilm(updated, "old title", "someone"));
+
+    searchRepository.saveAll(List.of(new SearchableFilm(updated, "new title", "someone else"),
+                                     new SearchableFilm(added, "another title", "someone"),
+                                     new SearchableFilm(other, "heat", "michael mann")));
+
+    assertThat(searchRepository.search("old", Set.of("TITLE"))).isEmpty();
+    assertThat(searchRepository.search("title", Set.of("TITLE"))).containsExactly(added, updated);
+    assertThat(searchRepository.search("someone", Set.of("DIRECTOR"))).containsExactly(added, updated);
+    assertThat(searchRepository.search("else", Set.of("DIRECTOR"))).containsExactly(updated);
+    assertThat(searchRepository.search("hea", Set.of("TITLE"))).containsExactly(other);
+  }
+
+  /**
+   Creates a film and waits for its search row, so the row saved by the test is not overwritten afterwards.
+   */
+  private long createFilm(int likes) {
+    long filmId = fixtures.createFilm();
+    fixtures.addLikes(filmId, likes);
+    searchIndexingQueue.flush();
+    return filmId;
+  }
+}
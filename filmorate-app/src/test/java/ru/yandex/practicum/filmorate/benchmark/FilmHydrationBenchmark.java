@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.films.domain.port.FilmRepository;
+import ru.yandex.practicum.filmorate.service.FilmCompositionService;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+/**
+ Measures round trips and allocations of film hydration for {@code findAll} and {@code getByIds}.
+ */
+@Slf4j
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:filmorate_benchmark_db;DB_CLOSE_DELAY=-1",
+                              "logging.level.ru.yandex.practicum.filmorate.benchmark=INFO"
+})
+@ActiveProfiles({"test",
+                 "db"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class FilmHydrationBenchmark {
+  private static final int FILMS = Integer.getInteger("benchmark.films", 5_000);
+  private static final int BY_IDS = 500;
+  private static final int ITERATIONS = 20;
+  private static final LongAdder STATEMENTS = new LongAdder();
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private FilmRepository filmRepository;
+
+  @Autowired
+  private FilmCompositionService filmCompositionService;
+
+  private List<Long> sampleIds;
+
+  @BeforeAll
+  void seed() {
+    jdbcTemplate.batchUpdate("INSERT INTO directors (name) VALUES (?)",
+                             LongStream.rangeClosed(1, 50)
+                                       .mapToObj(i -> new Object[] {"Director " + i})
+                                       .toList());
+    List<Object[]> films = new ArrayList<>();
+    for (int i = 1; i <= FILMS; i++) {
+      films.add(new Object[] {"Film " + i,
+                              "Description " + i,
+                              Date.valueOf(LocalDate.of(1950 + i % 70, 1 + i % 12, 1)),
+                              90 + i % 60,
+                              1 + i % 5
+      });
+    }
+    jdbcTemplate.batchUpdate("INSERT INTO films (name, description, release_date, duration, mpa_id) VALUES (?, ?, ?, ?, ?)",
+                             films);
+    List<Long> ids = jdbcTemplate.queryForList("SELECT film_id FROM films ORDER BY film_id", Long.class);
+    jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)",
+                             ids.stream()
+                                .flatMap(id -> LongStream.of(1 + id % 6, 1 + (id + 3) % 6)
+                                                         .mapToObj(genre -> new Object[] {id,
+                                                                                          genre
+                                                         }))
+                                .toList());
+    List<Long> directorIds = jdbcTemplate.queryForList("SELECT director_id FROM directors", Long.class);
+    jdbcTemplate.batchUpdate("INSERT INTO film_directors (film_id, director_id) VALUES (?, ?)",
+                             ids.stream()
+                                .map(id -> new Object[] {id,
+                                                         directorIds.get((int) (id % directorIds.size()))
+                                })
+                                .toList());
+    sampleIds = ids.stream()
+                   .filter(id -> id % (FILMS / BY_IDS) == 0)
+                   .toList();
+  }
+
+  @Test
+  void hydration() {
+    report("FilmRepository.findAll", FILMS, () -> filmRepository.findAll());
+    report("FilmRepository.getByIds", sampleIds.size(), () -> filmRepository.getByIds(sampleIds));
+    report("FilmCompositionService.getAllFilms", FILMS, () -> filmCompositionService.getAllFilms());
+    report("FilmCompositionService.getFilmByIds+directors",
+           sampleIds.size(),
+           () -> filmCompositionService.enrichFilmsWithDirectors(filmCompositionService.getFilmByIds(sampleIds)));
+  }
+
+  private void report(String name, int films, Supplier<List<?>> call) {
+    for (int i = 0; i < 5; i++) {
+      call.get();
+    }
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long statementsBefore = executedStatements();
+    long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+    long started = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      if (call.get()
+              .size() != films) {
+        throw new IllegalStateException(name + " returned an unexpected number of films");
+      }
+    }
+    long elapsed = System.nanoTime() - started;
+    long bytes = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+    long statements = executedStatements() - statementsBefore;
+    log.info(String.format("%-48s films=%6d round-trips/call=%5.1f bytes/film=%8d ms/call=%7.2f",
+                           name,
+                           films,
+                           (double) statements / ITERATIONS,
+                           bytes / ((long) films * ITERATIONS),
+                           elapsed / 1e6 / ITERATIONS));
+  }
+
+  private long executedStatements() {
+    return STATEMENTS.sum();
+  }
+
+  @TestConfiguration
+  static class StatementCountingConfiguration {
+    @Bean
+    static BeanPostProcessor statementCountingDataSource() {
+      return new BeanPostProcessor() {
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+          if (bean instanceof DataSource dataSource) {
+            return proxy(DataSource.class, dataSource);
+          }
+          return bean;
+        }
+      };
+    }
+
+    private static <T> T proxy(Class<T> type, T target) {
+      return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+        try {
+          Object result = method.invoke(target, args);
+          if (result instanceof Connection connection) {
+            return proxy(Connection.class, connection);
+          }
+          if (method.getName()
+                    .startsWith("prepare") || method.getName()
+                                                    .equals("createStatement")) {
+            STATEMENTS.increment();
+          }
+          return result;
+        } catch (InvocationTargetException e) {
+          throw e.getCause();
+        }
+      }));
+    }
+  }
+}
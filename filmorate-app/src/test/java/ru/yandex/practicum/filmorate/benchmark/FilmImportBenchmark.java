@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.films.domain.model.value.Genre;
+import ru.yandex.practicum.filmorate.films.domain.port.CreateFilmCommand;
+import ru.yandex.practicum.filmorate.service.FilmCompositionService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ Compares importing films one by one through {@code createFilm} with the batched {@code importFilms} path.
+ */
+@Slf4j
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:filmorate_import_benchmark_db;DB_CLOSE_DELAY=-1",
+                              "logging.level.ru.yandex.practicum.filmorate.benchmark=INFO"
+})
+@ActiveProfiles({"test",
+                 "db"
+})
+class FilmImportBenchmark {
+  private static final int FILMS = Integer.getInteger("benchmark.films", 5_000);
+
+  @Autowired
+  private FilmCompositionService filmCompositionService;
+
+  @Test
+  void importFilms() {
+    List<CreateFilmCommand> singles = commands("Single");
+    long started = System.nanoTime();
+    singles.forEach(filmCompositionService::createFilm);
+    report("FilmCompositionService.createFilm x" + FILMS, System.nanoTime() - started);
+
+    List<CreateFilmCommand> batch = commands("Bulk");
+    started = System.nanoTime();
+    if (filmCompositionService.importFilms(batch)
+                              .size() != FILMS) {
+      throw new IllegalStateException("importFilms returned an unexpected number of ids");
+    }
+    report("FilmCompositionService.importFilms", System.nanoTime() - started);
+  }
+
+  private static List<CreateFilmCommand> commands(String prefix) {
+    List<CreateFilmCommand> commands = new ArrayList<>(FILMS);
+    for (int i = 1; i <= FILMS; i++) {
+      commands.add(new CreateFilmCommand(prefix + " film " + i,
+                                         "Description " + i,
+                                         LocalDate.of(1950 + i % 70, 1 + i % 12, 1),
+                                         90L + i % 60,
+                                         Set.of(new Genre(1L + i % 6, null), new Genre(1L + (i + 3) % 6, null)),
+                                         1L + i % 5,
+                                         Set.of()));
+    }
+    return commands;
+  }
+
+  private static void report(String name, long elapsedNanos) {
+    log.info(String.format("%-48s films=%6d total ms=%8.1f films/s=%9.0f",
+                           name,
+                           FILMS,
+                           elapsedNanos / 1e6,
+                           FILMS / (elapsedNanos / 1e9)));
+  }
+}
@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.common.infrastructure.storage.jdbc.IdArrayParameter;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ Compares ID lookups bound as an {@code IN (?, ?, ...)} list with a single {@code = ANY(?)} array parameter for
+ list sizes from 1 to 50,000.
+ */
+@Slf4j
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:filmorate_id_lookup_benchmark_db;DB_CLOSE_DELAY=-1",
+                              "logging.level.ru.yandex.practicum.filmorate.benchmark=INFO"
+})
+@ActiveProfiles({"test",
+                 "db"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class IdLookupBenchmark {
+  private static final int FILMS = 100_000;
+  private static final int[] SIZES = {1, 10, 100, 1_000, 10_000, 50_000};
+  private static final long BUDGET_NANOS = 500_000_000L;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  private List<Long> filmIds;
+
+  @BeforeAll
+  void seed() {
+    List<Object[]> films = new ArrayList<>();
+    for (int i = 1; i <= FILMS; i++) {
+      films.add(new Object[] {"Film " + i, "Description " + i, Date.valueOf(LocalDate.of(2000, 1, 1)), 90, 1});
+    }
+    jdbcTemplate.batchUpdate("INSERT INTO films (name, description, release_date, duration, mpa_id) VALUES (?, ?, ?, ?, ?)",
+                             films);
+    filmIds = new ArrayList<>(jdbcTemplate.queryForList("SELECT film_id FROM films", Long.class));
+    Collections.shuffle(filmIds);
+  }
+
+  @Test
+  void lookups() {
+    log.info("Plan of = ANY(?): {}",
+             jdbcTemplate.queryForObject("EXPLAIN SELECT film_id FROM films WHERE film_id = ANY(?)",
+                                         String.class,
+                                         IdArrayParameter.of(filmIds.subList(0, 10))));
+    for (int size : SIZES) {
+      List<Long> ids = filmIds.subList(0, size);
+      String inList = "SELECT film_id FROM films WHERE film_id IN (" +
+                      String.join(",", Collections.nCopies(size, "?")) + ")";
+      report("IN (?, ...)", size, () -> jdbcTemplate.queryForList(inList, Long.class, ids.toArray()));
+      report("= ANY(?)", size, () -> jdbcTemplate.queryForList("SELECT film_id FROM films WHERE film_id = ANY(?)",
+                                                               Long.class,
+                                                               IdArrayParameter.of(ids)));
+    }
+  }
+
+  private static void report(String name, int size, Supplier<List<Long>> call) {
+    for (int i = 0; i < 3; i++) {
+      call.get();
+    }
+    int iterations = 0;
+    long started = System.nanoTime();
+    long elapsed;
+    do {
+      if (call.get()
+              .size() != size) {
+        throw new IllegalStateException(name + " returned an unexpected number of rows");
+      }
+      iterations++;
+      elapsed = System.nanoTime() - started;
+    } while (elapsed < BUDGET_NANOS);
+    log.info(String.format("%-12s ids=%6d ms/call=%9.3f us/id=%8.3f",
+                           name,
+                           size,
+                           elapsed / 1e6 / iterations,
+                           elapsed / 1e3 / iterations / size));
+  }
+}
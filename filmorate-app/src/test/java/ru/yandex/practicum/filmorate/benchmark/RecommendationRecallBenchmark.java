@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.likes.application.service.LikeMatrix;
+import ru.yandex.practicum.filmorate.likes.application.service.MinHashIndex;
+import ru.yandex.practicum.filmorate.likes.application.service.MinHashProperties;
+import ru.yandex.practicum.filmorate.likes.domain.model.CoLikes;
+import ru.yandex.practicum.filmorate.likes.domain.port.LikeRepository;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ Offline recall@k report for approximate recommendations: ranks the most similar users once exactly, by the Jaccard
+ index of every co-liker, and once among the {@link MinHashIndex} candidates only, and reports how many of the exact
+ top k the approximate ranking finds. Likes are synthetic: every user takes most of their likes from the films of one
+ taste cluster and the rest from the whole catalogue, skewed towards popular films. Sizes and index settings are read
+ from {@code benchmark.users}, {@code benchmark.films}, {@code benchmark.k} and {@code benchmark.hashes}; every
+ band count that divides the hash count is tried.
+ */
+@Slf4j
+class RecommendationRecallBenchmark {
+  private static final int USERS = Integer.getInteger("benchmark.users", 20_000);
+  private static final int FILMS = Integer.getInteger("benchmark.films", 5_000);
+  private static final int K = Integer.getInteger("benchmark.k", 10);
+  private static final int CLUSTERS = 200;
+  private static final int SAMPLE = 1_000;
+
+  @Test
+  void recall() {
+    LikeRepository likeRepository = mock(LikeRepository.class);
+    doAnswer(invocation -> {
+      seed(invocation.getArgument(0));
+      return null;
+    }).when(likeRepository)
+      .forEachLike(any());
+    LikeMatrix likeMatrix = new LikeMatrix(likeRepository);
+    likeMatrix.rebuild();
+
+    int hashes = Integer.getInteger("benchmark.hashes", 128);
+    for (int bands : new int[] {16, 32, 64}) {
+      if (hashes % bands != 0) {
+        continue;
+      }
+      long started = System.nanoTime();
+      MinHashIndex index = new MinHashIndex(likeMatrix, new MinHashProperties(hashes, bands));
+      long buildMillis = (System.nanoTime() - started) / 1_000_000;
+      report(likeMatrix, index, hashes, bands, buildMillis);
+    }
+  }
+
+  private static void report(LikeMatrix likeMatrix, MinHashIndex index, int hashes, int bands, long buildMillis) {
+    Random random = new Random(7);
+    double recallSum = 0;
+    int topOneHits = 0;
+    long exactCandidates = 0;
+    long approximateCandidates = 0;
+    long exactNanos = 0;
+    long approximateNanos = 0;
+    int measured = 0;
+    for (int i = 0; i < SAMPLE; i++) {
+      long userId = 1 + random.nextInt(USERS);
+      long started = System.nanoTime();
+      CoLikes coLikes = likeMatrix.findCoLikedUsers(userId);
+      long[] exact = topK(likeMatrix, userId, coLikes.userIds());
+      long afterExact = System.nanoTime();
+      long[] candidates = index.findCandidates(userId);
+      long[] approximate = topK(likeMatrix, userId, candidates);
+      long afterApproximate = System.nanoTime();
+      if (exact.length == 0) {
+        continue;
+      }
+      measured++;
+      exactNanos += afterExact - started;
+      approximateNanos += afterApproximate - afterExact;
+      exactCandidates += coLikes.userIds().length;
+      approximateCandidates += candidates.length;
+      long found = Arrays.stream(approximate)
+                         .filter(id -> Arrays.stream(exact)
+                                             .anyMatch(exactId -> exactId == id))
+                         .count();
+      recallSum += (double) found / exact.length;
+      if (approximate.length > 0 && approximate[0] == exact[0]) {
+        topOneHits++;
+      }
+    }
+    log.info(String.format("%d hashes, %2d bands: recall@%d %.3f, recall@1 %.3f, candidates %6.0f exact / %6.0f approximate, " +
+                           "%5.0f / %5.0f us per query, index built in %d ms",
+                           hashes, bands, K, recallSum / measured, (double) topOneHits / measured,
+                           (double) exactCandidates / measured, (double) approximateCandidates / measured,
+                           exactNanos / 1_000.0 / measured, approximateNanos / 1_000.0 / measured, buildMillis));
+  }
+
+  /**
+   Ranks the candidates by exact Jaccard index, ties by lower user ID, the same order recommendations use.
+   */
+  private static long[] topK(LikeMatrix likeMatrix, long userId, long[] candidates) {
+    int likedCount = likeMatrix.countLikedFilms(userId);
+    double[] similarities = new double[candidates.length];
+    for (int i = 0; i < candidates.length; i++) {
+      int common = likeMatrix.countCommonLikes(userId, candidates[i]);
+      similarities[i] = (double) common / (likedCount + likeMatrix.countLikedFilms(candidates[i]) - common);
+    }
+    return IntStream.range(0, candidates.length)
+                    .filter(i -> similarities[i] > 0)
+                    .boxed()
+                    .sorted(Comparator.<Integer>comparingDouble(i -> -similarities[i])
+                                      .thenComparingLong(i -> candidates[i]))
+                    .limit(K)
+                    .mapToLong(i -> candidates[i])
+                    .toArray();
+  }
+
+  private static void seed(LikeRepository.LikeConsumer consumer) {
+    Random random = new Random(42);
+    int clusterSize = Math.max(1, FILMS / CLUSTERS);
+    for (long userId = 1; userId <= USERS; userId++) {
+      int cluster = random.nextInt(CLUSTERS);
+      int likes = 10 + random.nextInt(40);
+      for (int i = 0; i < likes; i++) {
+        long filmId = random.nextInt(10) < 8
+            ? 1 + (long) cluster * clusterSize + random.nextInt(clusterSize)
+            : 1 + (long) (FILMS * Math.pow(random.nextDouble(), 3));
+        consumer.accept(filmId, userId);
+      }
+    }
+  }
+}
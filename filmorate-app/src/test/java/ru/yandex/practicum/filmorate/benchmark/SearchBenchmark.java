@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.search.domain.port.SearchRepository;
+import ru.yandex.practicum.filmorate.search.infrastructure.storage.H2FullTextSearchRepository;
+import ru.yandex.practicum.filmorate.search.infrastructure.storage.JdbcSearchRepository;
+import ru.yandex.practicum.filmorate.search.infrastructure.storage.TrigramSearchRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ Compares the {@code LIKE '%q%'} scan of {@link JdbcSearchRepository}, the H2 full-text index of
+ {@link H2FullTextSearchRepository} and the in-memory {@link TrigramSearchRepository} on catalogues of 10,000, 100,000
+ and 1,000,000 films with random multi-word titles and director names. Every query is a whole word of the vocabulary,
+ so all three return results; the reported count is the average number of matches. The sizes can be overridden with
+ {@code -Dsearch.benchmark.sizes=10000,100000}; a million films need a larger heap, such as {@code -DargLine=-Xmx4g}.
+ */
+@Slf4j
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:filmorate_search_benchmark_db;DB_CLOSE_DELAY=-1",
+                              "logging.level.ru.yandex.practicum.filmorate.benchmark=INFO"
+})
+@ActiveProfiles({"test",
+                 "db"
+})
+class SearchBenchmark {
+  private static final int VOCABULARY = 5_000;
+  private static final int QUERIES = 50;
+  private static final int BATCH = 10_000;
+  private static final long BUDGET_NANOS = 2_000_000_000L;
+  private static final Set<String> BY = Set.of("TITLE", "DIRECTOR");
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JdbcSearchRepository jdbcSearchRepository;
+  @Autowired
+  private TrigramSearchRepository trigramSearchRepository;
+
+  @Test
+  void search() {
+    H2FullTextSearchRepository fullTextSearchRepository = new H2FullTextSearchRepository(jdbcSearchRepository,
+                                                                                         jdbcTemplate);
+    fullTextSearchRepository.createIndex();
+    Random random = new Random(42);
+    String[] words = new String[VOCABULARY];
+    for (int i = 0; i < words.length; i++) {
+      words[i] = word(random);
+    }
+    List<String> queries = new ArrayList<>();
+    for (int i = 0; i < QUERIES; i++) {
+      queries.add(words[random.nextInt(words.length)]);
+    }
+
+    int seeded = 0;
+    for (int size : sizes()) {
+      long started = System.nanoTime();
+      seeded = seed(seeded, size, words, random);
+      log.info(String.format("seeded %d films in %.1f s", size, (System.nanoTime() - started) / 1e9));
+      started = System.nanoTime();
+      trigramSearchRepository.rebuild();
+      log.info(String.format("trigram index loaded in %.1f s", (System.nanoTime() - started) / 1e9));
+
+      report("LIKE scan", size, jdbcSearchRepository, queries);
+      report("H2 full-text", size, fullTextSearchRepository, queries);
+      report("trigram", size, trigramSearchRepository, queries);
+    }
+  }
+
+  private int seed(int from, int to, String[] words, Random random) {
+    for (int start = from; start < to; start += BATCH) {
+      int end = Math.min(start + BATCH, to);
+      jdbcTemplate.update("INSERT INTO films (name, description, release_date, duration, mpa_id) " +
+                          "SELECT 'Film', 'Description', DATE '2000-01-01', 90, 1 FROM SYSTEM_RANGE(1, ?)",
+                          end - start);
+      List<Object[]> rows = new ArrayList<>(end - start);
+      long firstId = jdbcTemplate.queryForObject("SELECT MAX(film_id) FROM films", Long.class) - (end - start) + 1;
+      for (int i = 0; i < end - start; i++) {
+        rows.add(new Object[] {firstId + i, phrase(words, random, 2 + random.nextInt(3)), phrase(words, random, 2)});
+      }
+      jdbcTemplate.batchUpdate("INSERT INTO search_index (film_id, title, directors_names) VALUES (?, ?, ?)", rows);
+      jdbcTemplate.update("INSERT INTO film_stats (film_id, like_count) " +
+                          "SELECT film_id, MOD(film_id * 7919, 1000) FROM films WHERE film_id >= ?",
+                          firstId);
+    }
+    return to;
+  }
+
+  private static void report(String name, int size, SearchRepository repository, List<String> queries) {
+    for (String query : queries.subList(0, 5)) {
+      repository.search(query, BY);
+    }
+    long calls = 0;
+    long matches = 0;
+    long started = System.nanoTime();
+    long elapsed;
+    do {
+      matches += repository.search(queries.get((int) (calls % queries.size())), BY)
+                           .size();
+      calls++;
+      elapsed = System.nanoTime() - started;
+    } while (elapsed < BUDGET_NANOS || calls < queries.size() && elapsed < BUDGET_NANOS * 10);
+    log.info(String.format("%-13s films=%8d ms/query=%9.3f matches/query=%7.1f",
+                           name,
+                           size,
+                           elapsed / 1e6 / calls,
+                           (double) matches / calls));
+  }
+
+  private static int[] sizes() {
+    return Arrays.stream(System.getProperty("search.benchmark.sizes", "10000,100000,1000000")
+                               .split(","))
+                 .mapToInt(size -> Integer.parseInt(size.trim()))
+                 .toArray();
+  }
+
+  private static String phrase(String[] words, Random random, int length) {
+    StringBuilder phrase = new StringBuilder(words[random.nextInt(words.length)]);
+    for (int i = 1; i < length; i++) {
+      phrase.append(' ')
+            .append(words[random.nextInt(words.length)]);
+    }
+    return phrase.toString();
+  }
+
+  private static String word(Random random) {
+    char[] letters = new char[5 + random.nextInt(5)];
+    for (int i = 0; i < letters.length; i++) {
+      letters[i] = (char) ('a' + random.nextInt(26));
+    }
+    return new String(letters);
+  }
+}
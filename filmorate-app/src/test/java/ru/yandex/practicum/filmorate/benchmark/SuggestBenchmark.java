@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.service.suggestion.FilmSuggestionIndex;
+import ru.yandex.practicum.filmorate.service.suggestion.SuggestionTrie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ Measures the {@link SuggestionTrie} behind {@code /films/search/suggest} on catalogues of 100,000 and 1,000,000 films
+ with random multi-word titles and one or two directors each: build time, heap growth, the time to answer a typed
+ prefix of one to six characters and the time to apply a like. The sizes can be overridden with
+ {@code -Dsuggest.benchmark.sizes=100000}; a million films need a larger heap, such as {@code -DargLine=-Xmx4g}.
+ */
+@Slf4j
+class SuggestBenchmark {
+  private static final int VOCABULARY = 5_000;
+  private static final int DIRECTORS = 20_000;
+  private static final int QUERIES = 10_000;
+  private static final int ROUNDS = 20;
+
+  @Test
+  void suggest() {
+    Random random = new Random(42);
+    String[] words = new String[VOCABULARY];
+    for (int i = 0; i < words.length; i++) {
+      words[i] = word(random);
+    }
+    String[] directors = new String[DIRECTORS];
+    for (int i = 0; i < directors.length; i++) {
+      directors[i] = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+    }
+
+    for (int size : sizes()) {
+      System.gc();
+      long heapBefore = usedHeap();
+      long started = System.nanoTime();
+      SuggestionTrie trie = new SuggestionTrie(FilmSuggestionIndex.MAX_LIMIT);
+      for (int filmId = 1; filmId <= size; filmId++) {
+        trie.putFilm(filmId,
+                     phrase(words, random, 1 + random.nextInt(4)),
+                     random.nextInt(3) == 0
+                         ? List.of(directors[random.nextInt(directors.length)],
+                                   directors[random.nextInt(directors.length)])
+                         : List.of(directors[random.nextInt(directors.length)]),
+                     random.nextInt(1_000));
+      }
+      double buildSeconds = (System.nanoTime() - started) / 1e9;
+      System.gc();
+      log.info(String.format("films=%8d terms=%8d built in %.1f s, heap +%d MB",
+                             size,
+                             trie.size(),
+                             buildSeconds,
+                             (usedHeap() - heapBefore) / (1024 * 1024)));
+
+      for (int length = 1; length <= 6; length++) {
+        List<String> prefixes = new ArrayList<>(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+          String word = words[random.nextInt(words.length)];
+          prefixes.add(word.substring(0, Math.min(length, word.length())));
+        }
+        long matches = 0;
+        long elapsed = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+          long roundStarted = System.nanoTime();
+          for (String prefix : prefixes) {
+            matches += trie.find(prefix, 10)
+                           .size();
+          }
+          if (round >= ROUNDS / 2) {
+            elapsed += System.nanoTime() - roundStarted;
+          }
+        }
+        log.info(String.format("prefix length=%d us/query=%7.2f suggestions/query=%5.1f",
+                               length,
+                               elapsed / 1e3 / (QUERIES * (ROUNDS - ROUNDS / 2)),
+                               (double) matches / (QUERIES * ROUNDS)));
+      }
+
+      started = System.nanoTime();
+      for (int i = 0; i < QUERIES; i++) {
+        trie.setLikes(1 + random.nextInt(size), random.nextInt(1_000));
+      }
+      log.info(String.format("like update  us/update=%7.2f", (System.nanoTime() - started) / 1e3 / QUERIES));
+    }
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static int[] sizes() {
+    return Arrays.stream(System.getProperty("suggest.benchmark.sizes", "100000,1000000")
+                               .split(","))
+                 .mapToInt(size -> Integer.parseInt(size.trim()))
+                 .toArray();
+  }
+
+  private static String phrase(String[] words, Random random, int length) {
+    StringBuilder phrase = new StringBuilder(words[random.nextInt(words.length)]);
+    for (int i = 1; i < length; i++) {
+      phrase.append(' ')
+            .append(words[random.nextInt(words.length)]);
+    }
+    return phrase.toString();
+  }
+
+  private static String word(Random random) {
+    char[] letters = new char[3 + random.nextInt(7)];
+    for (int i = 0; i < letters.length; i++) {
+      letters[i] = (char) ('a' + random.nextInt(26));
+    }
+    return new String(letters);
+  }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.films.application.port.in;
+
+import java.util.Optional;
+
+/**
+ * Query object for keyset (cursor) pagination over films ordered by ID.
+ * The cursor is the ID of the last film of the previous page.
+ */
+public record FilmPageQuery(
+        Optional<Long> after,
+        int limit
+) {
+
+    /** Page size used when the client supplies a cursor without a limit. */
+    public static final int DEFAULT_LIMIT = 100;
+
+    /** Upper bound for a single page. */
+    public static final int MAX_LIMIT = 1000;
+
+    /**
+     * Factory method for safely constructing a page query.
+     *
+     * @param after ID of the last film of the previous page, or null for the first page
+     * @param limit page size, defaults to {@link #DEFAULT_LIMIT} if null
+     * @return FilmPageQuery
+     */
+    public static FilmPageQuery of(Long after, Integer limit) {
+        int pageSize = limit != null ? limit : DEFAULT_LIMIT;
+        if (pageSize <= 0 || pageSize > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT + ".");
+        }
+
+        if (after != null && after < 0) {
+            throw new IllegalArgumentException("Cursor must not be negative.");
+        }
+
+        return new FilmPageQuery(Optional.ofNullable(after), pageSize);
+    }
+}
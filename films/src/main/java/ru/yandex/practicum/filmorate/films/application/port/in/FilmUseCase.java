@@ -12,12 +12,24 @@ import java.util.Optional;
 public interface FilmUseCase {
   Film addFilm(CreateFilmCommand command);
 
+  /**
+   Validates and stores a batch of new films. Genres and MPA ratings are checked once for the whole batch, and the
+   returned films are assembled from the commands instead of being read back.
+   @param commands Films to create
+   @return Created films, in the order of the commands
+   */
+  List<Film> addFilms(List<CreateFilmCommand> commands);
+
   Film updateFilm(UpdateFilmCommand command);
 
   Optional<Film> findFilmById(long filmId);
 
+  boolean existsById(long filmId);
+
   List<Film> getAllFilms();
 
+  List<Film> getFilmsPage(FilmPageQuery query);
+
   List<Film> getFilmsByIds(List<Long> ids);
 
   List<Genre> getGenres();
@@ -30,9 +42,20 @@ public interface FilmUseCase {
 
   List<Film> findPopularFilms(FilmRatingQuery query);
 
+  List<Long> getPopularFilmIds(FilmRatingQuery query);
+
   List<Film> getRecommendations(RecommendationQuery query);
 
   List<Long> getFilmIdsByFilters(Long genreId, Integer year);
 
+  /**
+   Keeps the IDs of existing films released in the given year and having the given genre.
+   @param filmIds Candidate film IDs
+   @param genreId Optional genre filter, {@code null} for any genre
+   @param year Optional release year filter, {@code null} for any year
+   @return Matching IDs, in the order of {@code filmIds}
+   */
+  List<Long> filterFilmIds(List<Long> filmIds, Long genreId, Integer year);
+
   void deleteFilmById(long filmId);
 }
\ No newline at end of file
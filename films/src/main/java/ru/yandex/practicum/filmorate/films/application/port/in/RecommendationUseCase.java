@@ -13,4 +13,23 @@ public interface RecommendationUseCase {
      * @return list of recommended films
      */
     List<Film> getRecommendations(RecommendationQuery query);
-}
\ No newline at end of file
+
+    /**
+     * Computes the similar users and recommended film IDs of a user without loading or filtering any film, so the
+     * result can be stored and served later.
+     *
+     * @param userId     the ID of the user
+     * @param neighbours how many similar users to keep
+     * @return the unfiltered result
+     */
+    UserRecommendations computeRecommendations(long userId, int neighbours);
+
+    /**
+     * Loads the films of a computed result and applies the genre, year and limit filters of a query.
+     *
+     * @param query           recommendation parameters; the user ID is taken from {@code recommendations}
+     * @param recommendations a result of {@link #computeRecommendations(long, int)}
+     * @return list of recommended films
+     */
+    List<Film> getRecommendations(RecommendationQuery query, UserRecommendations recommendations);
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.films.application.port.in;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Unfiltered recommendation result for one user, as computed from the likes at one point in time.
+ *
+ * @param userId         the ID of the user the result is for
+ * @param similarUserIds the most similar users, most similar first; films are recommended from the first one
+ * @param filmIds        IDs of the recommended films in recommendation order
+ * @param sourceUserId   the user whose likes the films were taken from, or {@code null} if they were not taken from a
+ *                       single user
+ * @param likeVersion    the later of the like versions of the user and the source user before the result was computed
+ * @param computedAt     when the result was computed
+ */
+public record UserRecommendations(
+        long userId,
+        List<Long> similarUserIds,
+        List<Long> filmIds,
+        Long sourceUserId,
+        long likeVersion,
+        Instant computedAt
+) {
+    public UserRecommendations {
+        similarUserIds = List.copyOf(similarUserIds);
+        filmIds = List.copyOf(filmIds);
+    }
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.films.application.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.common.cache.IdExistenceIndex;
+import ru.yandex.practicum.filmorate.films.domain.port.FilmRepository;
+
+import java.util.Collection;
+
+/**
+ Existence index over {@code films.film_id}, maintained by {@link FilmService}. */
+@Component
+@RequiredArgsConstructor
+class FilmIdIndex
+    extends IdExistenceIndex {
+  private final FilmRepository filmRepository;
+
+  @Override
+  protected Collection<Long> loadIds() {
+    return filmRepository.findAllIds();
+  }
+}
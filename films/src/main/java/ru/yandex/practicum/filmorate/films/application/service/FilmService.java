@@ -3,20 +3,22 @@ package ru.yandex.practicum.filmorate.films.application.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.common.exception.InvalidFilmDataException;
 import ru.yandex.practicum.filmorate.common.exception.ResourceNotFoundException;
+import ru.yandex.practicum.filmorate.films.application.port.in.FilmPageQuery;
 import ru.yandex.practicum.filmorate.films.application.port.in.FilmRatingQuery;
 import ru.yandex.practicum.filmorate.films.application.port.in.FilmUseCase;
 import ru.yandex.practicum.filmorate.films.application.port.in.RecommendationQuery;
+import ru.yandex.practicum.filmorate.films.domain.factory.FilmFactory;
 import ru.yandex.practicum.filmorate.films.domain.model.Film;
 import ru.yandex.practicum.filmorate.films.domain.model.value.Genre;
 import ru.yandex.practicum.filmorate.films.domain.model.value.Mpa;
 import ru.yandex.practicum.filmorate.films.domain.port.*;
 import ru.yandex.practicum.filmorate.films.domain.service.FilmValidationService;
-import ru.yandex.practicum.filmorate.likes.application.port.in.LikeUseCase;
 
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -27,13 +29,60 @@ public class FilmService
   private final GenreRepository genreRepository;
   private final MpaRepository mpaRepository;
   private final FilmValidationService filmValidationService;
-  private final LikeUseCase likeUseCase;
+  private final FilmIdIndex filmIds;
+  private final FilmFactory filmFactory;
 
   @Override
   public Film addFilm(CreateFilmCommand command) {
     validateFilmDependencies(command.genres(), command.mpa());
     filmValidationService.validate(command);
-    return filmRepository.save(command);
+    Film film = filmRepository.save(command);
+    filmIds.markPresent(film.id());
+    return film;
+  }
+
+  @Override
+  public List<Film> addFilms(List<CreateFilmCommand> commands) {
+    if (commands.isEmpty()) {
+      return List.of();
+    }
+    commands.forEach(command -> {
+      if (command.mpa() == null) {
+        throw new InvalidFilmDataException("MPA rating must not be null");
+      }
+      filmValidationService.validate(command);
+    });
+    validateFilmDependencies(commands.stream()
+                                     .map(CreateFilmCommand::genres)
+                                     .filter(Objects::nonNull)
+                                     .flatMap(Set::stream)
+                                     .collect(Collectors.toSet()),
+                             commands.stream()
+                                     .map(CreateFilmCommand::mpa)
+                                     .collect(Collectors.toSet()));
+
+    Map<Long, Genre> genresById = genreRepository.findAll()
+                                                 .stream()
+                                                 .collect(Collectors.toMap(Genre::id, Function.identity()));
+    Map<Long, Mpa> mpasById = mpaRepository.findAll()
+                                           .stream()
+                                           .collect(Collectors.toMap(Mpa::id, Function.identity()));
+    List<Long> ids = filmRepository.saveAll(commands);
+
+    List<Film> films = new ArrayList<>(commands.size());
+    for (int i = 0; i < commands.size(); i++) {
+      CreateFilmCommand command = commands.get(i);
+      Set<Genre> genres = command.genres() == null
+                          ? Set.of()
+                          : command.genres()
+                                   .stream()
+                                   .map(genre -> genresById.get(genre.id()))
+                                   .sorted(Comparator.comparing(Genre::id))
+                                   .collect(Collectors.toCollection(LinkedHashSet::new));
+      films.add(filmFactory.create(ids.get(i), command, genres, mpasById.get(command.mpa())));
+      filmIds.markPresent(ids.get(i));
+    }
+    return films;
   }
 
   @Override
@@ -48,11 +97,22 @@ public class FilmService
     return filmRepository.findById(filmId);
   }
 
+  @Override
+  public boolean existsById(long filmId) {
+    return filmIds.contains(filmId, filmRepository::existsById);
+  }
+
   @Override
   public List<Film> getAllFilms() {
     return filmRepository.findAll();
   }
 
+  @Override
+  public List<Film> getFilmsPage(FilmPageQuery query) {
+    return filmRepository.findPage(query.after()
+                                        .orElse(null), query.limit());
+  }
+
   @Override
   public List<Film> getFilmsByIds(List<Long> ids) {
     return filmRepository.getByIds(ids);
@@ -80,20 +140,21 @@ public class FilmService
 
   @Override
   public List<Film> findPopularFilms(FilmRatingQuery query) {
-    if (query.sortBy() == FilmRatingQuery.SortBy.LIKES) {
-      Set<Long> topIds = likeUseCase.getPopularFilmIds(query.limit());
-      return getFilmsByIds(topIds.stream()
-                                 .toList()).stream()
-                                           .filter(film -> query.genreId()
-                                                                .map(id -> film.hasGenre(id))
-                                                                .orElse(true))
-                                           .filter(film -> query.year()
-                                                                .map(year -> film.releaseDate()
-                                                                                 .getYear() == year)
-                                                                .orElse(true))
-                                           .toList();
+    if (query.sortBy() != FilmRatingQuery.SortBy.LIKES) {
+      return List.of();
     }
-    return List.of();
+    return getFilmsByIds(getPopularFilmIds(query));
+  }
+
+  @Override
+  public List<Long> getPopularFilmIds(FilmRatingQuery query) {
+    return filmRepository.findPopularFilmIds(query.genreId()
+                                                  .orElse(null),
+                                             query.year()
+                                                  .orElse(null),
+                                             query.directorId()
+                                                  .orElse(null),
+                                             query.limit());
   }
 
   @Override
@@ -106,26 +167,44 @@ public class FilmService
     return filmRepository.findFilmIdsByFilters(genreId, year);
   }
 
+  @Override
+  public List<Long> filterFilmIds(List<Long> filmIds, Long genreId, Integer year) {
+    if (filmIds.isEmpty()) {
+      return List.of();
+    }
+    return filmRepository.filterFilmIds(filmIds, genreId, year);
+  }
+
   @Override
   public void deleteFilmById(long filmId) {
     if (!filmRepository.deleteById(filmId)) {
       throw new ResourceNotFoundException("Film with id " + filmId + " not found.");
     }
+    filmIds.markAbsent(filmId);
   }
 
   private void validateFilmDependencies(Set<Genre> genres, Long mpaId) {
-    if (mpaId != null && mpaRepository.findById(mpaId)
-                                      .isEmpty()) {
-      throw new ResourceNotFoundException("Mpa with id " + mpaId + " not found");
-    }
+    validateFilmDependencies(genres, mpaId == null ? Set.of() : Set.of(mpaId));
+  }
 
-    if (genres != null) {
-      for (Genre genre : genres) {
-        if (genreRepository.findById(genre.id())
-                           .isEmpty()) {
-          throw new ResourceNotFoundException("Genre with id " + genre.id() + " not found");
-        }
-      }
+  private void validateFilmDependencies(Set<Genre> genres, Set<Long> mpaIds) {
+    mpaIds.stream()
+          .filter(mpaId -> mpaRepository.findById(mpaId)
+                                        .isEmpty())
+          .findFirst()
+          .ifPresent(mpaId -> {
+            throw new ResourceNotFoundException("Mpa with id " + mpaId + " not found");
+          });
+
+    if (genres != null && !genres.isEmpty()) {
+      genreRepository.findMissingIds(genres.stream()
+                                           .map(Genre::id)
+                                           .toList())
+                     .stream()
+                     .findFirst()
+                     .ifPresent(id -> {
+                       throw new ResourceNotFoundException("Genre with id " + id + " not found");
+                     });
     }
   }
-}
+}
\ No newline at end of file
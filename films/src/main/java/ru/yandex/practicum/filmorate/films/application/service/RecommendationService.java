@@ -1,72 +1,231 @@
 package ru.yandex.practicum.filmorate.films.application.service;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.common.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.common.cache.Rebuildable;
+import ru.yandex.practicum.filmorate.common.events.FilmSearchDataUpdatedEvent;
 import ru.yandex.practicum.filmorate.films.application.port.in.FilmUseCase;
 import ru.yandex.practicum.filmorate.films.application.port.in.RecommendationQuery;
 import ru.yandex.practicum.filmorate.films.application.port.in.RecommendationUseCase;
+import ru.yandex.practicum.filmorate.films.application.port.in.UserRecommendations;
 import ru.yandex.practicum.filmorate.films.domain.model.Film;
 import ru.yandex.practicum.filmorate.likes.application.port.in.LikeUseCase;
+import ru.yandex.practicum.filmorate.likes.domain.model.CoLikes;
 
+import java.time.Instant;
 import java.util.*;
 
+/**
+ Computes collaborative-filtering recommendations from the in-memory like queries of {@link LikeUseCase} and loads
+ the recommended films.
+ <p>
+ The genre and year filters are applied to the recommended film IDs before any film is loaded, and only the first
+ {@code limit} matching films are loaded. The matching IDs are cached per user and filter; an entry is reused while
+ the result it was built from has the same source user and like version, so a like of the user or of the user the
+ films were taken from makes it stale. Updating a film drops the whole cache, since its genres or year may have
+ changed. */
 @Service
-@RequiredArgsConstructor
 public class RecommendationService
-    implements RecommendationUseCase {
+    implements RecommendationUseCase, Rebuildable {
+  /**
+   Number of recommended IDs checked against the filters at a time. */
+  private static final int FILTER_BATCH_SIZE = 1000;
 
   private final LikeUseCase likeUseCase;
   private final FilmUseCase filmUseCase;
+  private final BoundedCache<ResultKey, CachedResult> results;
+
+  /**
+   @param cacheSize maximum number of cached filtered results */
+  public RecommendationService(LikeUseCase likeUseCase,
+                               FilmUseCase filmUseCase,
+                               @Value("${filmorate.cache.recommendations.max-size:10000}") int cacheSize) {
+    this.likeUseCase = likeUseCase;
+    this.filmUseCase = filmUseCase;
+    this.results = new BoundedCache<>(cacheSize);
+  }
 
   @Override
   public List<Film> getRecommendations(RecommendationQuery query) {
-    Set<Long> targetLikes = likeUseCase.findLikedFilms(query.userId());
-    if (targetLikes.isEmpty()) {
-      return List.of();
+    return getRecommendations(query, computeRecommendations(query.userId(), 1));
+  }
+
+  /**
+   Ranks the other users by the Jaccard index of their liked films with the user's, ties by lower user ID, and
+   recommends the films liked by the most similar one that the user has not liked yet.
+   <p>
+   In exact mode every user who shares at least one liked film is scored: they are collected from the like matrix
+   together with their shared-film counts, and the union size follows from the two like counts. In approximate mode
+   only the candidates of the MinHash index are scored, which may miss the most similar user but does not grow with
+   the popularity of the user's films; if the index finds no candidate the exact scoring is used.
+   <p>
+   If the most similar user has no film the user has not liked, the films are taken from the co-like index instead,
+   ranked by the summed co-like counts of the user's films. */
+  @Override
+  public UserRecommendations computeRecommendations(long userId, int neighbours) {
+    Instant computedAt = Instant.now();
+    long userVersion = likeUseCase.likeVersion(userId);
+    int likedCount = likeUseCase.countLikedFilms(userId);
+    if (likedCount == 0) {
+      return new UserRecommendations(userId, List.of(), List.of(), null, userVersion, computedAt);
     }
 
-    Map<Long, Set<Long>> allUserLikes = likeUseCase.findAllUserFilmLikes();
-    allUserLikes.remove(query.userId());
+    long[] candidates = likeUseCase.findSimilarUserCandidates(userId);
+    TopUsers topUsers = new TopUsers(neighbours);
+    if (candidates.length > 0) {
+      for (long otherUserId : candidates) {
+        topUsers.offer(otherUserId, likedCount, likeUseCase.countCommonLikes(userId, otherUserId));
+      }
+    } else {
+      CoLikes coLikes = likeUseCase.findCoLikedUsers(userId);
+      for (int i = 0; i < coLikes.userIds().length; i++) {
+        topUsers.offer(coLikes.userIds()[i], likedCount, coLikes.commonCounts()[i]);
+      }
+    }
 
-    Optional<Long> mostSimilarUserId = allUserLikes.entrySet()
-                                                   .stream()
-                                                   .map(entry -> Map.entry(entry.getKey(),
-                                                                           jaccard(targetLikes, entry.getValue())))
-                                                   .filter(entry -> entry.getValue() > 0.0)
-                                                   .max(Map.Entry.comparingByValue())
-                                                   .map(Map.Entry::getKey);
+    List<Long> similarUserIds = topUsers.userIds();
+    Long sourceUserId = similarUserIds.isEmpty() ? null : similarUserIds.get(0);
+    long likeVersion = sourceUserId == null
+        ? userVersion
+        : Math.max(userVersion, likeUseCase.likeVersion(sourceUserId));
+    long[] filmIds = sourceUserId == null ? new long[0] : likeUseCase.findFilmsLikedOnlyBy(sourceUserId, userId);
+    if (filmIds.length == 0) {
+      sourceUserId = null;
+      filmIds = likeUseCase.recommendCoLikedFilms(userId);
+    }
+    return new UserRecommendations(userId,
+                                   similarUserIds,
+                                   Arrays.stream(filmIds)
+                                         .boxed()
+                                         .toList(),
+                                   sourceUserId,
+                                   likeVersion,
+                                   computedAt);
+  }
 
-    if (mostSimilarUserId.isEmpty()) {
+  /**
+   Results taken from the {@link FilmCooccurrenceIndex} depend on the likes of every user and are not cached. */
+  @Override
+  public List<Film> getRecommendations(RecommendationQuery query, UserRecommendations recommendations) {
+    List<Long> candidateIds = recommendations.filmIds();
+    if (candidateIds.isEmpty()) {
       return List.of();
     }
+    int limit = query.limit() == null ? candidateIds.size() : query.limit();
+    ResultKey key = new ResultKey(recommendations.userId(), query.genreId(), query.year(), limit);
+    if (recommendations.sourceUserId() != null) {
+      Optional<CachedResult> cached = results.get(key)
+                                             .filter(result -> result.isBuiltFrom(recommendations));
+      if (cached.isPresent()) {
+        List<Film> films = filmUseCase.getFilmsByIds(cached.get()
+                                                           .filmIds());
+        if (films.size() == cached.get()
+                                  .filmIds()
+                                  .size()) {
+          return films;
+        }
+      }
+    }
 
-    Set<Long> similarUserLikes = allUserLikes.getOrDefault(mostSimilarUserId.get(), Set.of());
-    Set<Long> recommendedIds = new HashSet<>(similarUserLikes);
-    recommendedIds.removeAll(targetLikes);
+    long epoch = results.epoch();
+    List<Film> films = loadFilms(candidateIds, query.genreId(), query.year(), limit);
+    if (recommendations.sourceUserId() != null) {
+      results.putIfNotInvalidatedSince(key,
+                                       new CachedResult(recommendations.sourceUserId(),
+                                                        recommendations.likeVersion(),
+                                                        films.stream()
+                                                             .map(Film::id)
+                                                             .toList()),
+                                       epoch);
+    }
+    return films;
+  }
 
-    List<Film> candidates = filmUseCase.getFilmsByIds(recommendedIds.stream()
-                                                                    .toList());
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onFilmUpdated(FilmSearchDataUpdatedEvent event) {
+    results.invalidateAll();
+  }
 
-    return candidates.stream()
-            .filter(film -> query.genreId() == null
-                    || film.genres().stream().anyMatch(g -> Objects.equals(g.id(), query.genreId())))
-            .filter(film -> query.year() == null
-                    || film.releaseDate().getYear() == query.year())
-            .limit(query.limit() == null ? candidates.size() : query.limit())
-            .toList();
+  /**
+   Drops every cached result. */
+  @Override
+  public void rebuild() {
+    results.invalidateAll();
+  }
 
+  /**
+   Walks the candidates in recommendation order, keeps those matching the filters by ID and loads only as many films
+   as the limit still needs. Deleted films are skipped by the load, so a short load continues with the next IDs. */
+  private List<Film> loadFilms(List<Long> candidateIds, Long genreId, Integer year, int limit) {
+    boolean filtered = genreId != null || year != null;
+    List<Film> films = new ArrayList<>();
+    int from = 0;
+    while (films.size() < limit && from < candidateIds.size()) {
+      int batchSize = filtered ? Math.max(FILTER_BATCH_SIZE, limit) : limit - films.size();
+      List<Long> ids = candidateIds.subList(from, Math.min(from + batchSize, candidateIds.size()));
+      from += ids.size();
+      if (filtered) {
+        ids = filmUseCase.filterFilmIds(ids, genreId, year);
+      }
+      ids = ids.subList(0, Math.min(ids.size(), limit - films.size()));
+      if (!ids.isEmpty()) {
+        films.addAll(filmUseCase.getFilmsByIds(ids));
+      }
+    }
+    return films;
   }
 
-  private double jaccard(Set<Long> a, Set<Long> b) {
-    if (a.isEmpty() && b.isEmpty())
-      return 0.0;
+  /**
+   Keeps the {@code capacity} users with the highest similarity seen so far, in ranking order. */
+  private final class TopUsers {
+    private final long[] userIds;
+    private final double[] similarities;
+    private int size;
+
+    TopUsers(int capacity) {
+      userIds = new long[Math.max(1, capacity)];
+      similarities = new double[userIds.length];
+    }
+
+    void offer(long otherUserId, int likedCount, int common) {
+      if (common == 0) {
+        return;
+      }
+      double similarity = (double) common / (likedCount + likeUseCase.countLikedFilms(otherUserId) - common);
+      int position = size;
+      while (position > 0 && ranksBefore(similarity, otherUserId, position - 1)) {
+        position--;
+      }
+      if (position == userIds.length) {
+        return;
+      }
+      int moved = Math.min(size, userIds.length - 1) - position;
+      System.arraycopy(userIds, position, userIds, position + 1, moved);
+      System.arraycopy(similarities, position, similarities, position + 1, moved);
+      userIds[position] = otherUserId;
+      similarities[position] = similarity;
+      size = Math.min(size + 1, userIds.length);
+    }
+
+    List<Long> userIds() {
+      return Arrays.stream(userIds, 0, size)
+                   .boxed()
+                   .toList();
+    }
 
-    Set<Long> intersection = new HashSet<>(a);
-    intersection.retainAll(b);
+    private boolean ranksBefore(double similarity, long otherUserId, int index) {
+      return similarity > similarities[index] || similarity == similarities[index] && otherUserId < userIds[index];
+    }
+  }
 
-    Set<Long> union = new HashSet<>(a);
-    union.addAll(b);
+  private record ResultKey(long userId, Long genreId, Integer year, int limit) {}
 
-    return (double) intersection.size() / union.size();
+  private record CachedResult(long sourceUserId, long likeVersion, List<Long> filmIds) {
+    boolean isBuiltFrom(UserRecommendations recommendations) {
+      return Objects.equals(recommendations.sourceUserId(), sourceUserId)
+          && recommendations.likeVersion() == likeVersion;
+    }
   }
-}
\ No newline at end of file
+}
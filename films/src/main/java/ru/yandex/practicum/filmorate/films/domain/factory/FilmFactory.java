@@ -2,33 +2,41 @@ package ru.yandex.practicum.filmorate.films.domain.factory;
 
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.films.domain.model.Film;
+import ru.yandex.practicum.filmorate.films.domain.model.value.Genre;
+import ru.yandex.practicum.filmorate.films.domain.model.value.Mpa;
 import ru.yandex.practicum.filmorate.films.domain.port.CreateFilmCommand;
 import ru.yandex.practicum.filmorate.films.domain.port.UpdateFilmCommand;
 
 import java.time.Duration;
+import java.util.Set;
 
+/**
+ Assembles {@link Film} objects from write commands, so that a freshly written film does not have to be read back.
+ Genres and the MPA rating are passed in resolved form, since commands only carry their IDs. */
 @Component
 public class FilmFactory {
 
-  public Film create(long id, CreateFilmCommand command) {
+  public Film create(long id, CreateFilmCommand command, Set<Genre> genres, Mpa mpa) {
     return Film.builder()
                .id(id)
                .name(command.name())
                .description(command.description())
                .releaseDate(command.releaseDate())
                .duration(Duration.ofMinutes(command.duration()))
-               .genres(command.genres())
+               .genres(genres)
+               .mpa(mpa)
                .build();
   }
 
-  public Film update(UpdateFilmCommand command) {
+  public Film update(UpdateFilmCommand command, Set<Genre> genres, Mpa mpa) {
     return Film.builder()
                .id(command.id())
                .name(command.name())
                .description(command.description())
                .releaseDate(command.releaseDate())
                .duration(Duration.ofMinutes(command.duration()))
-               .genres(command.genres())
+               .genres(genres)
+               .mpa(mpa)
                .build();
   }
 }
@@ -18,6 +18,13 @@ public interface FilmRepository {
    */
   Film save(CreateFilmCommand createFilmCommand);
 
+  /**
+   Saves a batch of new films with their genres using JDBC batch inserts. The saved rows are not read back.
+   @param commands Commands containing the data of the films to create
+   @return Generated film IDs, in the order of the commands
+   */
+  List<Long> saveAll(List<CreateFilmCommand> commands);
+
   /**
    Updates an existing film based on the provided update command.
    @param updateCommand Command containing updated film data
@@ -32,6 +39,15 @@ public interface FilmRepository {
    */
   List<Film> findAll();
 
+  /**
+   Retrieves a page of films ordered by ID, starting strictly after the given cursor.
+   Only the films of the requested page are read, so the cost does not grow with the catalogue size.
+   @param afterId ID of the last film of the previous page, or {@code null} for the first page
+   @param limit Maximum number of films to return
+   @return Films with ID greater than {@code afterId}, in ascending ID order
+   */
+  List<Film> findPage(Long afterId, int limit);
+
   /**
    Finds film by ID.
    @param id Film ID to find
@@ -39,6 +55,19 @@ public interface FilmRepository {
    */
   Optional<Film> findById(long id);
 
+  /**
+   Checks whether a film exists without loading its genres and rating.
+   @param id Film ID to check
+   @return true if the film exists, false otherwise
+   */
+  boolean existsById(long id);
+
+  /**
+   Retrieves the IDs of all films.
+   @return IDs of all stored films
+   */
+  List<Long> findAllIds();
+
   /**
    Retrieves films by their IDs.
    @param ids Set of film IDs to retrieve
@@ -48,5 +77,24 @@ public interface FilmRepository {
 
   List<Long> findFilmIdsByFilters(Long genreId, Integer year);
 
+  /**
+   Keeps the IDs of existing films that match the filters, reading only the film IDs and never the films.
+   @param ids Candidate film IDs
+   @param genreId Optional genre filter, {@code null} for any genre
+   @param year Optional release year filter, {@code null} for any year
+   @return Matching IDs, in the order of {@code ids}
+   */
+  List<Long> filterFilmIds(List<Long> ids, Long genreId, Integer year);
+
+  /**
+   Retrieves the IDs of the most liked films, read from the {@code film_stats} read model.
+   @param genreId Optional genre filter, {@code null} for any genre
+   @param year Optional release year filter, {@code null} for any year
+   @param directorId Optional director filter, {@code null} for any director
+   @param limit Maximum number of IDs to return
+   @return Film IDs ordered by like count (descending), then by ID
+   */
+  List<Long> findPopularFilmIds(Long genreId, Integer year, Long directorId, int limit);
+
   boolean deleteById(long filmId);
 }
\ No newline at end of file
@@ -2,8 +2,10 @@ package ru.yandex.practicum.filmorate.films.domain.port;
 
 import ru.yandex.practicum.filmorate.films.domain.model.value.Genre;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface GenreRepository {
   Genre save(CreateGenreCommand command);
@@ -13,4 +15,11 @@ public interface GenreRepository {
   List<Genre> findAll();
 
   Optional<Genre> findById(long id);
+
+  /**
+   Checks a set of genre IDs in one lookup.
+   @param ids Genre IDs to check
+   @return IDs from {@code ids} that do not exist, in iteration order of {@code ids}
+   */
+  Set<Long> findMissingIds(Collection<Long> ids);
 }
\ No newline at end of file
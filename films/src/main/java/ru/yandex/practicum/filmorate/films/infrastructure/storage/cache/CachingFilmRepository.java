@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.films.infrastructure.storage.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.common.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.common.cache.Rebuildable;
+import ru.yandex.practicum.filmorate.common.cache.TransactionCallbacks;
+import ru.yandex.practicum.filmorate.films.domain.model.Film;
+import ru.yandex.practicum.filmorate.films.domain.port.CreateFilmCommand;
+import ru.yandex.practicum.filmorate.films.domain.port.FilmRepository;
+import ru.yandex.practicum.filmorate.films.domain.port.UpdateFilmCommand;
+import ru.yandex.practicum.filmorate.films.infrastructure.storage.jdbc.JdbcFilmRepository;
+
+import java.util.*;
+
+/**
+ Read-through cache of hydrated films in front of {@link JdbcFilmRepository}. Single and batch lookups by ID are served
+ from a size-bounded LRU cache; only the missing films are loaded. Writes invalidate the affected film immediately and
+ once more after commit, and nothing read inside a read-write transaction is cached, so uncommitted or rolled-back
+ state never becomes visible to other requests. Listings, pages and rankings are not cached. */
+@Primary
+@Repository
+@Profile("db")
+public class CachingFilmRepository
+    implements FilmRepository, Rebuildable {
+  private final JdbcFilmRepository delegate;
+  private final BoundedCache<Long, Film> films;
+
+  public CachingFilmRepository(JdbcFilmRepository delegate,
+                               @Value("${filmorate.cache.films.max-size:10000}") int maxSize) {
+    this.delegate = delegate;
+    this.films = new BoundedCache<>(maxSize);
+  }
+
+  @Override
+  public Film save(CreateFilmCommand createFilmCommand) {
+    return delegate.save(createFilmCommand);
+  }
+
+  @Override
+  public List<Long> saveAll(List<CreateFilmCommand> commands) {
+    return delegate.saveAll(commands);
+  }
+
+  @Override
+  public Film update(UpdateFilmCommand updateCommand) {
+    invalidate(updateCommand.id());
+    return delegate.update(updateCommand);
+  }
+
+  @Override
+  public List<Film> findAll() {
+    return delegate.findAll();
+  }
+
+  @Override
+  public List<Film> findPage(Long afterId, int limit) {
+    return delegate.findPage(afterId, limit);
+  }
+
+  @Override
+  public Optional<Film> findById(long id) {
+    Optional<Film> cached = films.get(id);
+    if (cached.isPresent()) {
+      return cached;
+    }
+    long epoch = films.epoch();
+    Optional<Film> loaded = delegate.findById(id);
+    if (loaded.isPresent() && mayPopulate()) {
+      films.putIfNotInvalidatedSince(id, loaded.get(), epoch);
+    }
+    return loaded;
+  }
+
+  @Override
+  public boolean existsById(long id) {
+    return films.containsKey(id) || delegate.existsById(id);
+  }
+
+  @Override
+  public List<Long> findAllIds() {
+    return delegate.findAllIds();
+  }
+
+  @Override
+  public List<Film> getByIds(List<Long> ids) {
+    if (ids == null || ids.isEmpty()) {
+      return List.of();
+    }
+    Map<Long, Film> found = films.getAll(ids);
+    if (found.size() < ids.size()) {
+      List<Long> missing = ids.stream()
+                              .filter(id -> !found.containsKey(id))
+                              .distinct()
+                              .toList();
+      long epoch = films.epoch();
+      List<Film> loaded = delegate.getByIds(missing);
+      if (mayPopulate()) {
+        films.putAllIfNotInvalidatedSince(loaded, Film::id, epoch);
+      }
+      loaded.forEach(film -> found.put(film.id(), film));
+    }
+    return ids.stream()
+              .map(found::get)
+              .filter(Objects::nonNull)
+              .toList();
+  }
+
+  @Override
+  public List<Long> findFilmIdsByFilters(Long genreId, Integer year) {
+    return delegate.findFilmIdsByFilters(genreId, year);
+  }
+
+  @Override
+  public List<Long> filterFilmIds(List<Long> ids, Long genreId, Integer year) {
+    return delegate.filterFilmIds(ids, genreId, year);
+  }
+
+  @Override
+  public List<Long> findPopularFilmIds(Long genreId, Integer year, Long directorId, int limit) {
+    return delegate.findPopularFilmIds(genreId, year, directorId, limit);
+  }
+
+  @Override
+  public boolean deleteById(long filmId) {
+    invalidate(filmId);
+    return delegate.deleteById(filmId);
+  }
+
+  /**
+   Drops every cached film.
+   */
+  @Override
+  public void rebuild() {
+    films.invalidateAll();
+  }
+
+  private void invalidate(long filmId) {
+    films.invalidate(filmId);
+    TransactionCallbacks.afterCompletion(() -> films.invalidate(filmId));
+  }
+
+  private static boolean mayPopulate() {
+    return !TransactionSynchronizationManager.isActualTransactionActive()
+           || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+}
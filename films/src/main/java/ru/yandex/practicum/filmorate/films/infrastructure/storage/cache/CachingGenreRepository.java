@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.films.infrastructure.storage.cache;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.films.domain.model.value.Genre;
+import ru.yandex.practicum.filmorate.films.domain.port.CreateGenreCommand;
+import ru.yandex.practicum.filmorate.films.domain.port.GenreRepository;
+import ru.yandex.practicum.filmorate.films.domain.port.UpdateGenreCommand;
+import ru.yandex.practicum.filmorate.films.infrastructure.storage.jdbc.JdbcGenreRepository;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ Serves genres from an immutable in-memory snapshot. The snapshot is loaded once at startup and replaced as a whole
+ after every write, so readers never see a partially updated catalogue and never touch the database. */
+@Primary
+@Repository
+@Profile("db")
+public class CachingGenreRepository
+    implements GenreRepository {
+  private final JdbcGenreRepository delegate;
+  private volatile Snapshot snapshot;
+
+  public CachingGenreRepository(JdbcGenreRepository delegate) {
+    this.delegate = delegate;
+    this.snapshot = Snapshot.of(delegate.findAll());
+  }
+
+  @Override
+  public synchronized Genre save(CreateGenreCommand command) {
+    Genre genre = delegate.save(command);
+    snapshot = Snapshot.of(delegate.findAll());
+    return genre;
+  }
+
+  @Override
+  public synchronized Genre update(UpdateGenreCommand command) {
+    Genre genre = delegate.update(command);
+    snapshot = Snapshot.of(delegate.findAll());
+    return genre;
+  }
+
+  @Override
+  public List<Genre> findAll() {
+    return snapshot.genres();
+  }
+
+  @Override
+  public Optional<Genre> findById(long id) {
+    return Optional.ofNullable(snapshot.byId()
+                                       .get(id));
+  }
+
+  @Override
+  public Set<Long> findMissingIds(Collection<Long> ids) {
+    Map<Long, Genre> byId = snapshot.byId();
+    return ids.stream()
+              .filter(id -> !byId.containsKey(id))
+              .collect(Collectors.toCollection(LinkedHashSet::new));
+  }
+
+  private record Snapshot(List<Genre> genres, Map<Long, Genre> byId) {
+    static Snapshot of(List<Genre> genres) {
+      return new Snapshot(List.copyOf(genres),
+                          genres.stream()
+                                .collect(Collectors.toUnmodifiableMap(Genre::id, Function.identity())));
+    }
+  }
+}
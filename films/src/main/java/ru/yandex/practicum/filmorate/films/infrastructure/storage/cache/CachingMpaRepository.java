@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.films.infrastructure.storage.cache;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.films.domain.model.value.Mpa;
+import ru.yandex.practicum.filmorate.films.domain.port.CreateMpaCommand;
+import ru.yandex.practicum.filmorate.films.domain.port.MpaRepository;
+import ru.yandex.practicum.filmorate.films.domain.port.UpdateMpaCommand;
+import ru.yandex.practicum.filmorate.films.infrastructure.storage.jdbc.JdbcMpaRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ Serves MPA ratings from an immutable in-memory snapshot that is replaced as a whole after every write. */
+@Primary
+@Repository
+@Profile("db")
+public class CachingMpaRepository
+    implements MpaRepository {
+  private final JdbcMpaRepository delegate;
+  private volatile Snapshot snapshot;
+
+  public CachingMpaRepository(JdbcMpaRepository delegate) {
+    this.delegate = delegate;
+    this.snapshot = Snapshot.of(delegate.findAll());
+  }
+
+  @Override
+  public synchronized Mpa save(CreateMpaCommand command) {
+    Mpa mpa = delegate.save(command);
+    snapshot = Snapshot.of(delegate.findAll());
+    return mpa;
+  }
+
+  @Override
+  public synchronized Mpa update(UpdateMpaCommand command) {
+    Mpa mpa = delegate.update(command);
+    snapshot = Snapshot.of(delegate.findAll());
+    return mpa;
+  }
+
+  @Override
+  public List<Mpa> findAll() {
+    return snapshot.mpas();
+  }
+
+  @Override
+  public Optional<Mpa> findById(long id) {
+    return Optional.ofNullable(snapshot.byId()
+                                       .get(id));
+  }
+
+  private record Snapshot(List<Mpa> mpas, Map<Long, Mpa> byId) {
+    static Snapshot of(List<Mpa> mpas) {
+      return new Snapshot(List.copyOf(mpas),
+                          mpas.stream()
+                              .collect(Collectors.toUnmodifiableMap(Mpa::id, Function.identity())));
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.films.infrastructure.storage.jdbc;
+
+import org.springframework.jdbc.core.ResultSetExtractor;
+import ru.yandex.practicum.filmorate.films.domain.model.Film;
+import ru.yandex.practicum.filmorate.films.domain.model.value.Genre;
+import ru.yandex.practicum.filmorate.films.domain.model.value.Mpa;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ Builds {@link Film} instances in a single pass over {@link #FILM_QUERY}. Each row carries one film together with its
+ MPA rating and its genres aggregated into two parallel arrays, so no follow-up query and no intermediate row maps are
+ needed. */
+final class FilmResultSetExtractor
+    implements ResultSetExtractor<List<Film>> {
+
+  static final String FILM_QUERY =
+      "SELECT f.film_id, f.name, f.description, f.release_date, f.duration, m.mpa_id, m.name AS mpa_name, " +
+      "(SELECT ARRAY_AGG(fg.genre_id ORDER BY fg.genre_id) FROM film_genres AS fg " +
+      "WHERE fg.film_id = f.film_id) AS genre_ids, " +
+      "(SELECT ARRAY_AGG(g.name ORDER BY g.genre_id) FROM film_genres AS fg " +
+      "JOIN genres AS g ON fg.genre_id = g.genre_id WHERE fg.film_id = f.film_id) AS genre_names " +
+      "FROM films AS f JOIN mpa_ratings AS m ON f.mpa_id = m.mpa_id";
+
+  static final FilmResultSetExtractor INSTANCE = new FilmResultSetExtractor();
+
+  private FilmResultSetExtractor() {
+  }
+
+  @Override
+  public List<Film> extractData(ResultSet rs) throws SQLException {
+    List<Film> films = new ArrayList<>();
+    while (rs.next()) {
+      films.add(Film.builder()
+                    .id(rs.getLong("film_id"))
+                    .name(rs.getString("name"))
+                    .description(rs.getString("description"))
+                    .releaseDate(rs.getDate("release_date")
+                                   .toLocalDate())
+                    .duration(Duration.ofMinutes(rs.getInt("duration")))
+                    .genres(readGenres(rs.getArray("genre_ids"), rs.getArray("genre_names")))
+                    .mpa(new Mpa(rs.getLong("mpa_id"), rs.getString("mpa_name")))
+                    .build());
+    }
+    return films;
+  }
+
+  private static Set<Genre> readGenres(Array ids, Array names) throws SQLException {
+    if (ids == null || names == null) {
+      return Collections.emptySet();
+    }
+    Object[] genreIds = (Object[]) ids.getArray();
+    Object[] genreNames = (Object[]) names.getArray();
+    Set<Genre> genres = new LinkedHashSet<>(genreIds.length * 2);
+    for (int i = 0; i < genreIds.length; i++) {
+      genres.add(new Genre(((Number) genreIds[i]).longValue(), (String) genreNames[i]));
+    }
+    return genres;
+  }
+}
@@ -1,58 +1,125 @@
 package ru.yandex.practicum.filmorate.films.infrastructure.storage.jdbc;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.common.exception.ResourceNotFoundException;
+import ru.yandex.practicum.filmorate.common.infrastructure.storage.jdbc.IdArrayParameter;
 import ru.yandex.practicum.filmorate.films.domain.factory.FilmFactory;
 import ru.yandex.practicum.filmorate.films.domain.model.Film;
 import ru.yandex.practicum.filmorate.films.domain.model.value.Genre;
 import ru.yandex.practicum.filmorate.films.domain.model.value.Mpa;
 import ru.yandex.practicum.filmorate.films.domain.port.CreateFilmCommand;
 import ru.yandex.practicum.filmorate.films.domain.port.FilmRepository;
+import ru.yandex.practicum.filmorate.films.domain.port.GenreRepository;
+import ru.yandex.practicum.filmorate.films.domain.port.MpaRepository;
 import ru.yandex.practicum.filmorate.films.domain.port.UpdateFilmCommand;
 
-import java.time.Duration;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.*;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Repository
 @Profile("db")
-@RequiredArgsConstructor
 public class JdbcFilmRepository
     implements FilmRepository {
 
-  private static final String BASE_FILM_QUERY =
-      "SELECT f.film_id, f.name, f.description, f.release_date, f.duration, m.mpa_id, m.name as mpa_name " +
-      "FROM films AS f JOIN mpa_ratings AS m ON f.mpa_id = m.mpa_id";
+  private static final int BATCH_SIZE = 1000;
+  private static final String INSERT_FILM_SQL =
+      "INSERT INTO films (name, description, release_date, duration, mpa_id) VALUES (?, ?, ?, ?, ?)";
+  private static final String[] GENERATED_KEY_COLUMNS = {"film_id"};
+  private static final String INSERT_FILM_STATS_SQL = "INSERT INTO film_stats (film_id) VALUES (?)";
+  private static final String INSERT_FILM_GENRE_SQL = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
 
   private final JdbcTemplate jdbcTemplate;
   private final FilmFactory filmFactory;
+  private final GenreRepository genreRepository;
+  private final MpaRepository mpaRepository;
+  private final DistributionSummary genreRowsWritten;
+
+  public JdbcFilmRepository(JdbcTemplate jdbcTemplate,
+                            FilmFactory filmFactory,
+                            GenreRepository genreRepository,
+                            MpaRepository mpaRepository,
+                            MeterRegistry meterRegistry) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.filmFactory = filmFactory;
+    this.genreRepository = genreRepository;
+    this.mpaRepository = mpaRepository;
+    this.genreRowsWritten = DistributionSummary.builder("filmorate.film.update.rows.written")
+                                               .tag("table", "film_genres")
+                                               .description("Link rows inserted or deleted by a single film update")
+                                               .register(meterRegistry);
+  }
 
   @Override
   public Film save(CreateFilmCommand command) {
-    SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate).withTableName("films")
-                                            .usingGeneratedKeyColumns("film_id");
-
-    Map<String, Object> params = Map.of("name",
-                                        command.name(),
-                                        "description",
-                                        command.description(),
-                                        "release_date",
-                                        command.releaseDate(),
-                                        "duration",
-                                        command.duration(),
-                                        "mpa_id",
-                                        command.mpa());
+    KeyHolder keyHolder = new GeneratedKeyHolder();
+    jdbcTemplate.update(connection -> {
+      PreparedStatement ps = connection.prepareStatement(INSERT_FILM_SQL, GENERATED_KEY_COLUMNS);
+      setFilmParameters(ps, command);
+      return ps;
+    }, keyHolder);
+    long filmId = generatedId(keyHolder.getKeys());
+    jdbcTemplate.update(INSERT_FILM_STATS_SQL, filmId);
+    insertFilmGenres(filmId, genreIds(command.genres()));
+
+    return filmFactory.create(filmId, command, resolveGenres(command.genres()), resolveMpa(command.mpa()));
+  }
 
-    long filmId = simpleJdbcInsert.executeAndReturnKey(params)
-                                  .longValue();
-    updateFilmGenres(filmId, command.genres());
+  @Override
+  public List<Long> saveAll(List<CreateFilmCommand> commands) {
+    List<Long> filmIds = new ArrayList<>(commands.size());
+    for (int from = 0; from < commands.size(); from += BATCH_SIZE) {
+      List<CreateFilmCommand> chunk = commands.subList(from, Math.min(from + BATCH_SIZE, commands.size()));
+      KeyHolder keyHolder = new GeneratedKeyHolder();
+      jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_FILM_SQL, GENERATED_KEY_COLUMNS),
+                               new BatchPreparedStatementSetter() {
+                                 @Override
+                                 public void setValues(PreparedStatement ps, int i) throws SQLException {
+                                   setFilmParameters(ps, chunk.get(i));
+                                 }
+
+                                 @Override
+                                 public int getBatchSize() {
+                                   return chunk.size();
+                                 }
+                               },
+                               keyHolder);
+      keyHolder.getKeyList()
+               .forEach(keys -> filmIds.add(generatedId(keys)));
+    }
+    if (filmIds.size() != commands.size()) {
+      throw new IllegalStateException("Expected " + commands.size() + " generated film ids, got " + filmIds.size());
+    }
 
-    return findById(filmId).orElseThrow(() -> new IllegalStateException(
-        "Film with id " + filmId + " not found after save"));
+    jdbcTemplate.batchUpdate(INSERT_FILM_STATS_SQL, filmIds, BATCH_SIZE, (ps, filmId) -> ps.setLong(1, filmId));
+
+    List<long[]> filmGenres = new ArrayList<>();
+    for (int i = 0; i < commands.size(); i++) {
+      Set<Genre> genres = commands.get(i)
+                                  .genres();
+      if (genres != null) {
+        long filmId = filmIds.get(i);
+        genres.stream()
+              .map(Genre::id)
+              .distinct()
+              .forEach(genreId -> filmGenres.add(new long[] {filmId, genreId}));
+      }
+    }
+    jdbcTemplate.batchUpdate(INSERT_FILM_GENRE_SQL, filmGenres, BATCH_SIZE, (ps, pair) -> {
+      ps.setLong(1, pair[0]);
+      ps.setLong(2, pair[1]);
+    });
+    return filmIds;
   }
 
   @Override
@@ -71,32 +138,50 @@ public class JdbcFilmRepository
       throw new ResourceNotFoundException("Film with id " + command.id() + " not found.");
     }
 
-    updateFilmGenres(command.id(), command.genres());
-    return findById(command.id()).orElseThrow(() -> new IllegalStateException(
-        "Film with id " + command.id() + " not found after update"));
+    int linkRows = syncFilmGenres(command.id(), genreIds(command.genres()));
+    genreRowsWritten.record(linkRows);
+    log.debug("Film {} updated: 1 film row and {} genre link rows written", command.id(), linkRows);
+    return filmFactory.update(command, resolveGenres(command.genres()), resolveMpa(command.mpa()));
   }
 
   @Override
   public List<Film> findAll() {
-    return mapRowsToFilms(jdbcTemplate.queryForList(BASE_FILM_QUERY));
+    return jdbcTemplate.query(FilmResultSetExtractor.FILM_QUERY, FilmResultSetExtractor.INSTANCE);
+  }
+
+  @Override
+  public List<Film> findPage(Long afterId, int limit) {
+    String sql = FilmResultSetExtractor.FILM_QUERY + " WHERE f.film_id > ? ORDER BY f.film_id LIMIT ?";
+    return jdbcTemplate.query(sql, FilmResultSetExtractor.INSTANCE, afterId != null ? afterId : 0L, limit);
   }
 
   @Override
   public Optional<Film> findById(long id) {
-    String sql = BASE_FILM_QUERY + " WHERE f.film_id = ?";
-    List<Film> films = mapRowsToFilms(jdbcTemplate.queryForList(sql, id));
+    String sql = FilmResultSetExtractor.FILM_QUERY + " WHERE f.film_id = ?";
+    List<Film> films = jdbcTemplate.query(sql, FilmResultSetExtractor.INSTANCE, id);
     return films.stream()
                 .findFirst();
   }
 
+  @Override
+  public boolean existsById(long id) {
+    return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM films WHERE film_id = ?)",
+                                                           Boolean.class,
+                                                           id));
+  }
+
+  @Override
+  public List<Long> findAllIds() {
+    return jdbcTemplate.queryForList("SELECT film_id FROM films", Long.class);
+  }
+
   @Override
   public List<Film> getByIds(List<Long> ids) {
     if (ids == null || ids.isEmpty()) {
       return List.of();
     }
-    String inSql = String.join(",", Collections.nCopies(ids.size(), "?"));
-    String sql = String.format(BASE_FILM_QUERY + " WHERE f.film_id IN (%s)", inSql);
-    List<Film> unsortedFilms = mapRowsToFilms(jdbcTemplate.queryForList(sql, ids.toArray()));
+    String sql = FilmResultSetExtractor.FILM_QUERY + " WHERE f.film_id = ANY(?)";
+    List<Film> unsortedFilms = jdbcTemplate.query(sql, FilmResultSetExtractor.INSTANCE, IdArrayParameter.of(ids));
 
     Map<Long, Film> filmMap = unsortedFilms.stream()
                                            .collect(Collectors.toMap(Film::id, film -> film));
@@ -119,7 +204,7 @@ public class JdbcFilmRepository
 
     if (year != null) {
       sqlBuilder.append(genreId == null ? "WHERE " : "AND ");
-      sqlBuilder.append("EXTRACT(YEAR FROM f.release_date) = ?");
+      sqlBuilder.append("f.release_year = ?");
       params.add(year);
     }
 
@@ -127,94 +212,138 @@ public class JdbcFilmRepository
   }
 
   @Override
-  public boolean deleteById(long filmId) {
-    String sql = "DELETE FROM films WHERE film_id = ?";
-    return jdbcTemplate.update(sql, filmId) > 0;
-  }
+  public List<Long> filterFilmIds(List<Long> ids, Long genreId, Integer year) {
+    StringBuilder sqlBuilder = new StringBuilder("SELECT f.film_id FROM films AS f WHERE f.film_id = ANY(?)");
+    List<Object> params = new ArrayList<>();
+    params.add(IdArrayParameter.of(ids));
 
-  private void updateFilmGenres(long filmId, Set<Genre> genres) {
-    jdbcTemplate.update("DELETE FROM film_genres WHERE film_id = ?", filmId);
-    if (genres != null && !genres.isEmpty()) {
-      List<Object[]> batchArgs = genres.stream()
-                                       .map(genre -> new Object[] {filmId,
-                                                                   genre.id()
-                                       })
-                                       .toList();
-      jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", batchArgs);
+    if (year != null) {
+      sqlBuilder.append(" AND f.release_year = ?");
+      params.add(year);
     }
-  }
-
-  private List<Film> mapRowsToFilms(List<Map<String, Object>> rows) {
-    if (rows.isEmpty()) {
-      return List.of();
+    if (genreId != null) {
+      sqlBuilder.append(" AND EXISTS (SELECT 1 FROM film_genres AS fg")
+                .append(" WHERE fg.film_id = f.film_id AND fg.genre_id = ?)");
+      params.add(genreId);
     }
 
-    Set<Long> filmIds = rows.stream()
-                            .map(row -> (Long) row.get("film_id"))
-                            .collect(Collectors.toSet());
+    Set<Long> matching = new HashSet<>(jdbcTemplate.queryForList(sqlBuilder.toString(), Long.class, params.toArray()));
+    return ids.stream()
+              .filter(matching::contains)
+              .toList();
+  }
+
+  @Override
+  public List<Long> findPopularFilmIds(Long genreId, Integer year, Long directorId, int limit) {
+    StringBuilder sqlBuilder = new StringBuilder("SELECT s.film_id FROM film_stats AS s ");
+    List<Object> params = new ArrayList<>();
+    List<String> conditions = new ArrayList<>();
 
-    Map<Long, Set<Genre>> genresByFilmId = getGenresForFilmIds(filmIds);
+    if (year != null) {
+      sqlBuilder.append("JOIN films AS f ON f.film_id = s.film_id ");
+      conditions.add("f.release_year = ?");
+      params.add(year);
+    }
+    if (genreId != null) {
+      conditions.add("EXISTS (SELECT 1 FROM film_genres AS fg WHERE fg.film_id = s.film_id AND fg.genre_id = ?)");
+      params.add(genreId);
+    }
+    if (directorId != null) {
+      conditions.add(
+          "EXISTS (SELECT 1 FROM film_directors AS fd WHERE fd.film_id = s.film_id AND fd.director_id = ?)");
+      params.add(directorId);
+    }
+    if (!conditions.isEmpty()) {
+      sqlBuilder.append("WHERE ")
+                .append(String.join(" AND ", conditions))
+                .append(' ');
+    }
+    sqlBuilder.append("ORDER BY s.like_count DESC, s.film_id LIMIT ?");
+    params.add(limit);
 
-    return rows.stream()
-               .map(row -> {
-                 long filmId = (Long) row.get("film_id");
-                 Set<Genre> genres = genresByFilmId.getOrDefault(filmId, Set.of());
+    return jdbcTemplate.queryForList(sqlBuilder.toString(), Long.class, params.toArray());
+  }
 
-                 return Film.builder()
-                            .id(filmId)
-                            .name((String) row.get("name"))
-                            .description((String) row.get("description"))
-                            .releaseDate(((java.sql.Date) row.get("release_date")).toLocalDate())
-                            .duration(Duration.ofMinutes((Integer) row.get("duration")))
-                            .genres(genres)
-                            .mpa(new Mpa((Long) row.get("mpa_id"), (String) row.get("mpa_name")))
-                            .build();
-               })
-               .toList();
+  @Override
+  public boolean deleteById(long filmId) {
+    String sql = "DELETE FROM films WHERE film_id = ?";
+    return jdbcTemplate.update(sql, filmId) > 0;
   }
 
-  private Map<Long, Set<Genre>> getGenresForFilmIds(Set<Long> filmIds) {
-    if (filmIds.isEmpty()) {
-      return Map.of();
+  /**
+   Brings the genre links of a film in line with the requested genres, touching only the rows that differ.
+   @return Number of link rows inserted or deleted
+   */
+  private int syncFilmGenres(long filmId, Set<Long> genreIds) {
+    Set<Long> current = new HashSet<>(jdbcTemplate.queryForList("SELECT genre_id FROM film_genres WHERE film_id = ?",
+                                                                Long.class,
+                                                                filmId));
+    List<Long> removed = current.stream()
+                                .filter(genreId -> !genreIds.contains(genreId))
+                                .toList();
+    List<Long> added = genreIds.stream()
+                               .filter(genreId -> !current.contains(genreId))
+                               .toList();
+    int written = 0;
+    if (!removed.isEmpty()) {
+      written += jdbcTemplate.update("DELETE FROM film_genres WHERE film_id = ? AND genre_id = ANY(?)",
+                                     filmId,
+                                     IdArrayParameter.of(removed));
     }
-    Map<Long, Set<Genre>> genresByFilmId = new HashMap<>();
-    String inSql = String.join(",", Collections.nCopies(filmIds.size(), "?"));
-    String sql = "SELECT fg.film_id, g.genre_id, g.name " +
-                 "FROM film_genres AS fg JOIN genres AS g ON fg.genre_id = g.genre_id " + "WHERE fg.film_id IN (" +
-                 inSql + ") ORDER BY g.genre_id ASC";
-
-    jdbcTemplate.query(sql, rs -> {
-      long filmId = rs.getLong("film_id");
-      Genre genre = new Genre(rs.getLong("genre_id"), rs.getString("name"));
-      genresByFilmId.computeIfAbsent(filmId, k -> new LinkedHashSet<>())
-                    .add(genre);
-    }, filmIds.toArray());
+    return written + insertFilmGenres(filmId, added);
+  }
 
-    return genresByFilmId;
+  private int insertFilmGenres(long filmId, Collection<Long> genreIds) {
+    if (genreIds.isEmpty()) {
+      return 0;
+    }
+    jdbcTemplate.batchUpdate(INSERT_FILM_GENRE_SQL, genreIds, BATCH_SIZE, (ps, genreId) -> {
+      ps.setLong(1, filmId);
+      ps.setLong(2, genreId);
+    });
+    return genreIds.size();
   }
 
-  public List<Film> findFilmsByGenreIdAndYear(Long genreId, Integer year, Integer count) {
-    List<Film> filmsList = new ArrayList<>();
+  private static Set<Long> genreIds(Set<Genre> genres) {
+    if (genres == null) {
+      return Set.of();
+    }
+    return genres.stream()
+                 .map(Genre::id)
+                 .collect(Collectors.toCollection(LinkedHashSet::new));
+  }
 
-    String sqlFirstPart = "SELECT f.* " + "FROM likes l " + "JOIN films f ON l.film_id = f.film_id " +
-                          "JOIN film_genres fg ON f.film_id = fg.film_id " +
-                          "JOIN genres g ON g.genre_id = fg.genre_id\n";
+  private Set<Genre> resolveGenres(Set<Genre> genres) {
+    return genreIds(genres).stream()
+                           .sorted()
+                           .map(genreId -> genreRepository.findById(genreId)
+                                                          .orElseThrow(() -> new ResourceNotFoundException(
+                                                              "Genre with id " + genreId + " not found")))
+                           .collect(Collectors.toCollection(LinkedHashSet::new));
+  }
 
-    String sqlSecondPart = "GROUP BY l.film_id " + "ORDER BY COUNT(l.user_id) DESC LIMIT ?";
+  private Mpa resolveMpa(Long mpaId) {
+    if (mpaId == null) {
+      return null;
+    }
+    return mpaRepository.findById(mpaId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Mpa with id " + mpaId + " not found"));
+  }
 
-    String sql = "";
+  private static void setFilmParameters(PreparedStatement ps, CreateFilmCommand command) throws SQLException {
+    ps.setString(1, command.name());
+    ps.setString(2, command.description());
+    ps.setObject(3, command.releaseDate());
+    ps.setObject(4, command.duration());
+    ps.setObject(5, command.mpa());
+  }
 
-    if (genreId != null && year != null) {
-      sql = sqlFirstPart + "WHERE g.genre_id = ? AND EXTRACT(YEAR FROM f.release_date) = ? \n" + sqlSecondPart;
-      filmsList = mapRowsToFilms(jdbcTemplate.queryForList(sql, genreId, year, count));
-    } else if (genreId != null) {
-      sql = sqlFirstPart + "WHERE g.genre_id = ? \n" + sqlSecondPart;
-      filmsList = mapRowsToFilms(jdbcTemplate.queryForList(sql, genreId, count));
-    } else if (year != null) {
-      sql = sqlFirstPart + "WHERE EXTRACT(YEAR FROM f.release_date) = ? \n" + sqlSecondPart;
-      filmsList = mapRowsToFilms(jdbcTemplate.queryForList(sql, year, count));
+  private static long generatedId(Map<String, Object> keys) {
+    if (keys == null || keys.isEmpty()) {
+      throw new IllegalStateException("Film id was not generated");
     }
-
-    return filmsList;
+    return ((Number) keys.values()
+                         .iterator()
+                         .next()).longValue();
   }
 }
\ No newline at end of file
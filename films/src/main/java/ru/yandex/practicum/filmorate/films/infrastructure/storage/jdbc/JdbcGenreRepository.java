@@ -6,13 +6,14 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.common.exception.ResourceNotFoundException;
+import ru.yandex.practicum.filmorate.common.infrastructure.storage.jdbc.IdArrayParameter;
 import ru.yandex.practicum.filmorate.films.domain.model.value.Genre;
 import ru.yandex.practicum.filmorate.films.domain.port.CreateGenreCommand;
 import ru.yandex.practicum.filmorate.films.domain.port.GenreRepository;
 import ru.yandex.practicum.filmorate.films.domain.port.UpdateGenreCommand;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Repository
 @Profile("db")
@@ -59,4 +60,17 @@ public class JdbcGenreRepository implements GenreRepository {
                                              id);
     return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
   }
+
+  @Override
+  public Set<Long> findMissingIds(Collection<Long> ids) {
+    if (ids.isEmpty()) {
+      return Set.of();
+    }
+    Set<Long> existing = new HashSet<>(jdbcTemplate.queryForList("SELECT genre_id FROM genres WHERE genre_id = ANY(?)",
+                                                                 Long.class,
+                                                                 IdArrayParameter.of(ids)));
+    return ids.stream()
+              .filter(id -> !existing.contains(id))
+              .collect(Collectors.toCollection(LinkedHashSet::new));
+  }
 }
\ No newline at end of file
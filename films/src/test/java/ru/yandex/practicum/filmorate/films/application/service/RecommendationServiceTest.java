@@ -8,33 +8,60 @@ import ru.yandex.practicum.filmorate.films.application.port.in.RecommendationQue
 import ru.yandex.practicum.filmorate.films.domain.model.Film;
 import ru.yandex.practicum.filmorate.films.domain.model.value.Genre;
 import ru.yandex.practicum.filmorate.films.domain.model.value.Mpa;
-import ru.yandex.practicum.filmorate.likes.application.port.in.LikeUseCase;
+import ru.yandex.practicum.filmorate.likes.application.service.FilmCooccurrenceIndex;
+import ru.yandex.practicum.filmorate.likes.application.service.FilmCooccurrenceProperties;
+import ru.yandex.practicum.filmorate.likes.application.service.LikeMatrix;
+import ru.yandex.practicum.filmorate.likes.application.service.LikeService;
+import ru.yandex.practicum.filmorate.likes.application.service.MinHashIndex;
+import ru.yandex.practicum.filmorate.likes.application.service.MinHashProperties;
+import ru.yandex.practicum.filmorate.likes.domain.port.LikeRepository;
 
 import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class RecommendationServiceTest {
 
-  private LikeUseCase likeUseCase;
+  private LikeRepository likeRepository;
+  private LikeMatrix likeMatrix;
   private FilmUseCase filmUseCase;
+  private FilmCooccurrenceIndex filmCooccurrenceIndex;
   private RecommendationService service;
 
   @BeforeEach
   void setup() {
-    likeUseCase = mock(LikeUseCase.class);
+    likeRepository = mock(LikeRepository.class);
+    likeMatrix = new LikeMatrix(likeRepository);
     filmUseCase = mock(FilmUseCase.class);
-    service = new RecommendationService(likeUseCase, filmUseCase);
+    filmCooccurrenceIndex = new FilmCooccurrenceIndex(likeMatrix, new FilmCooccurrenceProperties(50, null, null));
+    service = new RecommendationService(new LikeService(likeRepository, likeMatrix, filmCooccurrenceIndex, Optional.empty()),
+                                        filmUseCase,
+                                        100);
+  }
+
+  private void givenLikes(Map<Long, Set<Long>> filmsByUser) {
+    doAnswer(invocation -> {
+      LikeRepository.LikeConsumer consumer = invocation.getArgument(0);
+      filmsByUser.forEach((userId, filmIds) -> filmIds.forEach(filmId -> consumer.accept(filmId, userId)));
+      return null;
+    }).when(likeRepository)
+      .forEachLike(any());
+    likeMatrix.rebuild();
   }
 
   @Test
   @DisplayName("Should return empty list when user has no liked films")
   void shouldReturnEmptyWhenNoLikes() {
-    when(likeUseCase.findLikedFilms(1L)).thenReturn(Set.of());
+    givenLikes(Map.of(2L, Set.of(1L)));
 
     var result = service.getRecommendations(RecommendationQuery.of(1L));
 
@@ -44,8 +71,7 @@ class RecommendationServiceTest {
   @Test
   @DisplayName("Should return empty list when no similar user found")
   void shouldReturnEmptyWhenNoSimilarUser() {
-    when(likeUseCase.findLikedFilms(1L)).thenReturn(Set.of(1L, 2L));
-    when(likeUseCase.findAllUserFilmLikes()).thenReturn(new HashMap<>());
+    givenLikes(Map.of(1L, Set.of(1L, 2L), 2L, Set.of(3L)));
 
     var result = service.getRecommendations(RecommendationQuery.of(1L));
 
@@ -55,11 +81,7 @@ class RecommendationServiceTest {
   @Test
   @DisplayName("Should return recommended films excluding already liked")
   void shouldReturnRecommendedFilms() {
-    when(likeUseCase.findLikedFilms(1L)).thenReturn(Set.of(1L, 2L));
-
-    Map<Long, Set<Long>> userLikesMap = new HashMap<>();
-    userLikesMap.put(2L, new HashSet<>(Set.of(2L, 3L, 4L)));
-    when(likeUseCase.findAllUserFilmLikes()).thenReturn(userLikesMap);
+    givenLikes(Map.of(1L, Set.of(1L, 2L), 2L, Set.of(2L, 3L, 4L)));
 
     Film f3 = film(3L);
     Film f4 = film(4L);
@@ -89,21 +111,12 @@ class RecommendationServiceTest {
   @Test
   @DisplayName("Should filter by genre, year, limit")
   void shouldApplyFiltersCorrectly() {
-    Set<Long> userLikes = Set.of(1L, 99L);
-    Set<Long> similarLikes = Set.of(2L, 3L, 4L, 5L, 99L);
-    when(likeUseCase.findLikedFilms(1L)).thenReturn(userLikes);
-
-    Map<Long, Set<Long>> similarMap = new HashMap<>();
-    similarMap.put(2L, new HashSet<>(similarLikes));
-    when(likeUseCase.findAllUserFilmLikes()).thenReturn(similarMap);
+    givenLikes(Map.of(1L, Set.of(1L, 99L), 2L, Set.of(2L, 3L, 4L, 5L, 99L)));
 
     Film matching = filmWith(2L, 2020, 1L, "Комедия");
-    Film wrongGenre = filmWith(3L, 2020, 2L, "Драма");
-    Film wrongYear = filmWith(4L, 2010, 1L, "Комедия");
-    Film other = filmWith(5L, 2021, 1L, "Комедия");
 
-    when(filmUseCase.getFilmsByIds(List.of(2L, 3L, 4L, 5L)))
-        .thenReturn(List.of(matching, wrongGenre, wrongYear, other));
+    when(filmUseCase.filterFilmIds(List.of(2L, 3L, 4L, 5L), 1L, 2020)).thenReturn(List.of(2L));
+    when(filmUseCase.getFilmsByIds(List.of(2L))).thenReturn(List.of(matching));
 
     RecommendationQuery query = new RecommendationQuery(
             1L,
@@ -117,4 +130,122 @@ class RecommendationServiceTest {
     assertThat(result).extracting(Film::id)
                       .containsExactly(2L);
   }
-}
\ No newline at end of file
+
+  @Test
+  @DisplayName("Should load only the films within the limit")
+  void shouldLoadOnlyLimitedFilms() {
+    givenLikes(Map.of(1L, Set.of(1L), 2L, Set.of(1L, 2L, 3L, 4L, 5L, 6L)));
+    when(filmUseCase.filterFilmIds(List.of(2L, 3L, 4L, 5L, 6L), 1L, null)).thenReturn(List.of(3L, 4L, 6L));
+    when(filmUseCase.getFilmsByIds(List.of(3L, 4L))).thenReturn(List.of(film(3L), film(4L)));
+
+    var result = service.getRecommendations(new RecommendationQuery(1L, 2, 1L, null));
+
+    assertThat(result).extracting(Film::id)
+                      .containsExactly(3L, 4L);
+    verify(filmUseCase, never()).getFilmsByIds(List.of(3L, 4L, 6L));
+  }
+
+  @Test
+  @DisplayName("Should reuse a filtered result until a like changes it")
+  void shouldCacheFilteredResult() {
+    givenLikes(Map.of(1L, Set.of(1L), 2L, Set.of(1L, 2L, 3L)));
+    when(filmUseCase.filterFilmIds(List.of(2L, 3L), 1L, null)).thenReturn(List.of(3L));
+    when(filmUseCase.getFilmsByIds(List.of(3L))).thenReturn(List.of(film(3L)));
+    RecommendationQuery query = new RecommendationQuery(1L, 10, 1L, null);
+
+    service.getRecommendations(query);
+    var cached = service.getRecommendations(query);
+
+    assertThat(cached).extracting(Film::id)
+                      .containsExactly(3L);
+    verify(filmUseCase, times(1)).filterFilmIds(List.of(2L, 3L), 1L, null);
+
+    givenLikes(Map.of(1L, Set.of(1L), 2L, Set.of(1L, 2L, 3L, 4L)));
+    when(filmUseCase.filterFilmIds(List.of(2L, 3L, 4L), 1L, null)).thenReturn(List.of(3L, 4L));
+    when(filmUseCase.getFilmsByIds(List.of(3L, 4L))).thenReturn(List.of(film(3L), film(4L)));
+
+    assertThat(service.getRecommendations(query)).extracting(Film::id)
+                                                 .containsExactly(3L, 4L);
+  }
+
+  @Test
+  @DisplayName("Should recommend from the user with the highest Jaccard similarity")
+  void shouldPickMostSimilarUser() {
+    givenLikes(Map.of(1L, Set.of(1L, 2L, 3L),
+                      2L, Set.of(1L, 10L, 11L, 12L, 13L),
+                      3L, Set.of(1L, 2L, 20L)));
+    Film f20 = film(20L);
+    when(filmUseCase.getFilmsByIds(List.of(20L))).thenReturn(List.of(f20));
+
+    var result = service.getRecommendations(RecommendationQuery.of(1L));
+
+    assertThat(result).containsExactly(f20);
+  }
+
+  @Test
+  @DisplayName("Should prefer the lower user ID when similarities are equal")
+  void shouldBreakTiesByUserId() {
+    givenLikes(Map.of(1L, Set.of(1L, 2L),
+                      7L, Set.of(2L, 40L),
+                      3L, Set.of(1L, 30L),
+                      5L, Set.of(50L, 51L)));
+    Film f30 = film(30L);
+    when(filmUseCase.getFilmsByIds(List.of(30L))).thenReturn(List.of(f30));
+
+    var result = service.getRecommendations(RecommendationQuery.of(1L));
+
+    assertThat(result).containsExactly(f30);
+  }
+
+  @Test
+  @DisplayName("Should recommend from the LSH candidates in approximate mode")
+  void shouldRecommendFromMinHashCandidates() {
+    MinHashIndex minHashIndex = new MinHashIndex(likeMatrix, new MinHashProperties(128, 64));
+    service = new RecommendationService(new LikeService(likeRepository,
+                                                        likeMatrix,
+                                                        filmCooccurrenceIndex,
+                                                        Optional.of(minHashIndex)),
+                                        filmUseCase,
+                                        100);
+    givenLikes(Map.of(1L, Set.of(1L, 2L, 3L, 4L),
+                      2L, Set.of(1L, 2L, 3L, 4L, 5L),
+                      3L, Set.of(1L, 60L, 61L, 62L, 63L, 64L, 65L, 66L)));
+    Film f5 = film(5L);
+    when(filmUseCase.getFilmsByIds(List.of(5L))).thenReturn(List.of(f5));
+
+    var result = service.getRecommendations(RecommendationQuery.of(1L));
+
+    assertThat(minHashIndex.findCandidates(1L)).contains(2L)
+                                               .doesNotContain(1L);
+    assertThat(result).containsExactly(f5);
+  }
+
+  @Test
+  @DisplayName("Should rank similar users and recommend from the first one")
+  void shouldComputeRankedSimilarUsers() {
+    givenLikes(Map.of(1L, Set.of(1L, 2L, 3L),
+                      2L, Set.of(1L, 10L, 11L, 12L, 13L),
+                      3L, Set.of(1L, 2L, 20L),
+                      4L, Set.of(1L, 2L, 30L),
+                      5L, Set.of(40L)));
+
+    var result = service.computeRecommendations(1L, 2);
+
+    assertThat(result.similarUserIds()).containsExactly(3L, 4L);
+    assertThat(result.filmIds()).containsExactly(20L);
+  }
+
+  @Test
+  @DisplayName("Should fall back to co-liked films when the most similar user has nothing new")
+  void shouldFallBackToCoLikedFilms() {
+    givenLikes(Map.of(1L, Set.of(1L, 2L),
+                      2L, Set.of(1L, 2L),
+                      3L, Set.of(2L, 5L)));
+    Film f5 = film(5L);
+    when(filmUseCase.getFilmsByIds(List.of(5L))).thenReturn(List.of(f5));
+
+    var result = service.getRecommendations(RecommendationQuery.of(1L));
+
+    assertThat(result).containsExactly(f5);
+  }
+}
@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.films.infrastructure.storage.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.films.domain.model.Film;
+import ru.yandex.practicum.filmorate.films.domain.model.value.Genre;
+import ru.yandex.practicum.filmorate.films.domain.model.value.Mpa;
+import ru.yandex.practicum.filmorate.films.domain.port.UpdateFilmCommand;
+import ru.yandex.practicum.filmorate.films.infrastructure.storage.jdbc.JdbcFilmRepository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CachingFilmRepositoryTest {
+
+  private JdbcFilmRepository delegate;
+  private CachingFilmRepository repository;
+
+  private static Film film(long id, String name) {
+    return Film.builder()
+               .id(id)
+               .name(name)
+               .description("Описание")
+               .releaseDate(LocalDate.of(2000, 1, 1))
+               .duration(Duration.ofMinutes(100))
+               .genres(Set.of(new Genre(1L, "Комедия")))
+               .mpa(new Mpa(1L, "G"))
+               .build();
+  }
+
+  @BeforeEach
+  void setup() {
+    delegate = mock(JdbcFilmRepository.class);
+    repository = new CachingFilmRepository(delegate, 2);
+  }
+
+  @Test
+  @DisplayName("Should load a film once and answer existence checks from the cache")
+  void shouldServeRepeatedReadsFromCache() {
+    when(delegate.findById(1L)).thenReturn(Optional.of(film(1L, "Фильм")));
+
+    assertThat(repository.findById(1L)).isPresent();
+    assertThat(repository.findById(1L)).isPresent();
+    assertThat(repository.existsById(1L)).isTrue();
+
+    verify(delegate, times(1)).findById(1L);
+    verify(delegate, never()).existsById(anyLong());
+  }
+
+  @Test
+  @DisplayName("Should load only the missing films of a batch and keep the requested order")
+  void shouldLoadOnlyMissingFilms() {
+    when(delegate.findById(2L)).thenReturn(Optional.of(film(2L, "Второй")));
+    when(delegate.getByIds(List.of(1L))).thenReturn(List.of(film(1L, "Первый")));
+    repository.findById(2L);
+
+    assertThat(repository.getByIds(List.of(2L, 1L))).extracting(Film::id)
+                                                    .containsExactly(2L, 1L);
+    verify(delegate).getByIds(List.of(1L));
+  }
+
+  @Test
+  @DisplayName("Should reload a film after it was updated")
+  void shouldInvalidateOnUpdate() {
+    when(delegate.findById(1L)).thenReturn(Optional.of(film(1L, "Старое")), Optional.of(film(1L, "Новое")));
+    when(delegate.update(any())).thenReturn(film(1L, "Новое"));
+    repository.findById(1L);
+
+    repository.update(new UpdateFilmCommand(1L, "Новое", "Описание", LocalDate.of(2000, 1, 1),
+                                            100L, Set.of(), 1L, Set.of()));
+
+    assertThat(repository.findById(1L)).get()
+                                       .extracting(Film::name)
+                                       .isEqualTo("Новое");
+  }
+
+  @Test
+  @DisplayName("Should evict the least recently used film when full")
+  void shouldEvictLeastRecentlyUsed() {
+    for (long id = 1; id <= 3; id++) {
+      when(delegate.findById(id)).thenReturn(Optional.of(film(id, "Фильм " + id)));
+      repository.findById(id);
+    }
+
+    repository.findById(1L);
+
+    verify(delegate, times(2)).findById(1L);
+  }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.films.infrastructure.storage.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.films.domain.model.value.Genre;
+import ru.yandex.practicum.filmorate.films.domain.port.CreateGenreCommand;
+import ru.yandex.practicum.filmorate.films.infrastructure.storage.jdbc.JdbcGenreRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class CachingGenreRepositoryTest {
+
+  private JdbcGenreRepository delegate;
+  private CachingGenreRepository repository;
+
+  @BeforeEach
+  void setup() {
+    delegate = mock(JdbcGenreRepository.class);
+    when(delegate.findAll()).thenReturn(List.of(new Genre(1L, "Комедия"), new Genre(2L, "Драма")));
+    repository = new CachingGenreRepository(delegate);
+  }
+
+  @Test
+  @DisplayName("Should serve reads from the snapshot loaded at startup")
+  void shouldServeReadsFromSnapshot() {
+    assertThat(repository.findAll()).extracting(Genre::id)
+                                    .containsExactly(1L, 2L);
+    assertThat(repository.findById(2L)).contains(new Genre(2L, "Драма"));
+    assertThat(repository.findById(3L)).isEmpty();
+    assertThat(repository.findMissingIds(List.of(1L, 3L, 2L, 4L))).containsExactly(3L, 4L);
+
+    verify(delegate, times(1)).findAll();
+    verifyNoMoreInteractions(delegate);
+  }
+
+  @Test
+  @DisplayName("Should replace the snapshot after a write")
+  void shouldReplaceSnapshotAfterWrite() {
+    CreateGenreCommand command = new CreateGenreCommand("Триллер");
+    when(delegate.save(command)).thenReturn(new Genre(3L, "Триллер"));
+    when(delegate.findAll()).thenReturn(List.of(new Genre(1L, "Комедия"),
+                                                new Genre(2L, "Драма"),
+                                                new Genre(3L, "Триллер")));
+
+    repository.save(command);
+
+    assertThat(repository.findById(3L)).contains(new Genre(3L, "Триллер"));
+    assertThat(repository.findMissingIds(List.of(3L))).isEmpty();
+  }
+}
@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate.likes.application.port.in;
 
+import ru.yandex.practicum.filmorate.likes.domain.model.CoLikes;
+
 import java.util.Map;
 import java.util.Set;
 
@@ -75,10 +77,63 @@ public interface LikeUseCase {
   Map<Long, Integer> getLikeCountsForFilms(Set<Long> filmIds);
 
   /**
-   * Returns a mapping from user IDs to their liked film IDs.
-   * Used for collaborative filtering and recommendations.
+   * Returns a number that changes whenever a like of the user is added or removed. Versions come from one increasing
+   * sequence, so the largest version of several users also changes whenever any of them changes.
    *
-   * @return map of userId → set of liked film IDs
+   * @param userId ID of the user
+   * @return current like version of the user
+   */
+  long likeVersion(long userId);
+
+  /**
+   * @param userId ID of the user
+   * @return number of films the user liked
+   */
+  int countLikedFilms(long userId);
+
+  /**
+   * @return number of films liked by both users
+   */
+  int countCommonLikes(long userId, long otherUserId);
+
+  /**
+   * Finds every other user who liked at least one of the user's films, with the number of shared films.
+   *
+   * @param userId ID of the user
+   * @return users sharing at least one liked film with the user
+   */
+  CoLikes findCoLikedUsers(long userId);
+
+  /**
+   * Finds users likely to have liked many of the same films as the user, without scoring every co-liking user.
+   *
+   * @param userId ID of the user
+   * @return candidate user IDs, empty when approximate recommendations are disabled or none were found
+   */
+  long[] findSimilarUserCandidates(long userId);
+
+  /**
+   * @return IDs of the films liked by both users, in ascending order
+   */
+  long[] findCommonLikedFilms(long userId, long otherUserId);
+
+  /**
+   * @return IDs of the films liked by the first user and not by the second, in ascending order
+   */
+  long[] findFilmsLikedOnlyBy(long userId, long otherUserId);
+
+  /**
+   * @param filmId ID of the film
+   * @param limit  maximum number of films to return
+   * @return IDs of the films most often liked together with the film, most co-likes first
+   */
+  long[] findSimilarFilms(long filmId, int limit);
+
+  /**
+   * Recommends films often liked together with the user's liked films.
+   *
+   * @param userId ID of the user
+   * @return IDs of films the user has not liked, best first
    */
-  Map<Long, Set<Long>> findAllUserFilmLikes();
-}
\ No newline at end of file
+  long[] recommendCoLikedFilms(long userId);
+}
@@ -0,0 +1,307 @@
+package ru.yandex.practicum.filmorate.likes.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Item-to-item co-like model: for every film, the films most often liked by the same users, with the number of such
+ * users, pruned to the top {@code topK}.
+ * <p>
+ * The index follows the {@link LikeMatrix} by deltas: a like of film {@code f} by a user raises the pair of {@code f}
+ * with each of the user's other films by one in both films' lists, and an unlike or the deletion of the user lowers
+ * it. A change costs one pass over at most {@code topK} entries per pair, however many users liked the films.
+ * <p>
+ * A list pruned to {@code topK} no longer knows the counts of the films it dropped. A like of such a film, and an
+ * unlike after which a dropped film may outrank a kept one, mark the list stale; stale lists are recomputed from the
+ * matrix off the request thread every {@code recompute-interval} and rank those pairs by their previous counts until
+ * then. Every list is recomputed with every matrix rebuild, including the one that loads the matrix on startup, and
+ * every {@code rebuild-interval}.
+ */
+@Slf4j
+@Component
+public class FilmCooccurrenceIndex
+    implements LikeMatrix.Listener {
+  private static final int LOCK_STRIPES = 64;
+  private static final Neighbours NONE = new Neighbours(new int[0], new int[0], true);
+
+  private final LikeMatrix likeMatrix;
+  private final int topK;
+  private final Object[] locks = new Object[LOCK_STRIPES];
+  private final Set<Long> stale = ConcurrentHashMap.newKeySet();
+  private volatile boolean rebuilding;
+  private volatile Map<Long, Neighbours> neighbours = new ConcurrentHashMap<>();
+
+  public FilmCooccurrenceIndex(LikeMatrix likeMatrix, FilmCooccurrenceProperties properties) {
+    if (properties.topK() <= 0) {
+      throw new IllegalArgumentException("Co-like top-k must be positive, got " + properties.topK());
+    }
+    this.likeMatrix = likeMatrix;
+    this.topK = properties.topK();
+    Arrays.setAll(locks, i -> new Object());
+    likeMatrix.addListener(this);
+  }
+
+  /**
+   * @param filmId ID of the film
+   * @param limit  maximum number of films to return
+   * @return the films most often liked together with the film, most co-likes first, ties by lower film ID
+   */
+  public SimilarFilms findSimilarFilms(long filmId, int limit) {
+    Neighbours found = neighbours.getOrDefault(filmId, NONE);
+    int size = Math.min(limit, found.filmIds().length);
+    return new SimilarFilms(IdRows.toLongs(Arrays.copyOf(found.filmIds(), size)),
+                            Arrays.copyOf(found.coLikes(), size));
+  }
+
+  /**
+   * Scores every film in the neighbour lists of the user's liked films with the sum of its co-like counts across
+   * those lists. Costs one pass over at most {@code topK} entries per liked film, whatever the number of users.
+   *
+   * @param userId ID of the user
+   * @return IDs of films the user has not liked, highest score first, ties by lower film ID
+   */
+  public long[] recommendFilms(long userId) {
+    long[] likedFilms = likeMatrix.likedFilms(userId);
+    Map<Long, Neighbours> current = neighbours;
+    IntCountMap scores = new IntCountMap(likedFilms.length * 8);
+    for (long filmId : likedFilms) {
+      Neighbours found = current.getOrDefault(filmId, NONE);
+      for (int i = 0; i < found.filmIds().length; i++) {
+        scores.add(found.filmIds()[i], found.coLikes()[i]);
+      }
+    }
+    long[] filmIds = new long[scores.size()];
+    int[] totals = new int[scores.size()];
+    int size = scores.copyTo(-1, filmIds, totals);
+    long[] ranked = new long[size];
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      if (Arrays.binarySearch(likedFilms, filmIds[i]) < 0) {
+        ranked[count++] = rankKey(totals[i], (int) filmIds[i]);
+      }
+    }
+    Arrays.sort(ranked, 0, count);
+    long[] result = new long[count];
+    for (int i = 0; i < count; i++) {
+      result[i] = (int) ranked[i];
+    }
+    return result;
+  }
+
+  @Override
+  public void likeAdded(long filmId, long userId) {
+    adjustPairs(filmId, likeMatrix.likedFilms(userId), 1);
+  }
+
+  @Override
+  public void likeRemoved(long filmId, long userId) {
+    adjustPairs(filmId, likeMatrix.likedFilms(userId), -1);
+  }
+
+  @Override
+  public void userRemoved(long userId, long[] filmIds) {
+    for (long filmId : filmIds) {
+      for (long otherFilmId : filmIds) {
+        if (otherFilmId != filmId) {
+          adjustPair(filmId, otherFilmId, -1);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void rebuilt() {
+    rebuild();
+  }
+
+  /**
+   * Recomputes every neighbour list from the like matrix into a fresh index and swaps it in. Films changed meanwhile
+   * are marked stale and recomputed once more on the fresh index; recomputing from the matrix is idempotent.
+   */
+  @Scheduled(initialDelayString = "${filmorate.likes.cooccurrence.rebuild-interval:PT1H}",
+             fixedDelayString = "${filmorate.likes.cooccurrence.rebuild-interval:PT1H}")
+  public synchronized void rebuild() {
+    long started = System.nanoTime();
+    rebuilding = true;
+    Map<Long, Neighbours> fresh = new ConcurrentHashMap<>();
+    try {
+      Arrays.stream(likeMatrix.filmsWithLikes())
+            .parallel()
+            .forEach(filmId -> {
+              Neighbours computed = top(filmId);
+              if (computed.filmIds().length > 0) {
+                fresh.put(filmId, computed);
+              }
+            });
+    } catch (RuntimeException e) {
+      rebuilding = false;
+      throw e;
+    }
+    neighbours = fresh;
+    rebuilding = false;
+    recomputeStale();
+    log.info("Film co-like index rebuilt for {} films in {} ms",
+             fresh.size(),
+             (System.nanoTime() - started) / 1_000_000);
+  }
+
+  /**
+   * Recomputes the stale lists from the like matrix. Waits for a running rebuild, which marks the films it may have
+   * missed.
+   *
+   * @return number of films recomputed
+   */
+  @Scheduled(initialDelayString = "${filmorate.likes.cooccurrence.recompute-interval:PT1S}",
+             fixedDelayString = "${filmorate.likes.cooccurrence.recompute-interval:PT1S}")
+  public int recomputeStale() {
+    if (rebuilding) {
+      return 0;
+    }
+    int recomputed = 0;
+    for (Iterator<Long> filmIds = stale.iterator(); filmIds.hasNext(); ) {
+      long filmId = filmIds.next();
+      filmIds.remove();
+      recompute(filmId);
+      recomputed++;
+    }
+    return recomputed;
+  }
+
+  private void adjustPairs(long filmId, long[] otherFilmIds, int delta) {
+    for (long otherFilmId : otherFilmIds) {
+      if (otherFilmId != filmId) {
+        adjustPair(filmId, otherFilmId, delta);
+        adjustPair(otherFilmId, filmId, delta);
+      }
+    }
+  }
+
+  private void adjustPair(long filmId, long otherFilmId, int delta) {
+    int other = Math.toIntExact(otherFilmId);
+    change(filmId, existing -> {
+      Neighbours adjusted = existing.adjust(other, delta, topK);
+      if (adjusted == null || delta < 0 && adjusted != existing && !existing.complete()) {
+        stale.add(filmId);
+      }
+      return adjusted == null ? existing : adjusted;
+    });
+  }
+
+  private void recompute(long filmId) {
+    change(filmId, existing -> top(filmId));
+  }
+
+  /**
+   * Applies a change to one film's list. A delta cannot be replayed on a fresh index that may already count it, so a
+   * change made during a rebuild or raced with its swap marks the film stale instead.
+   */
+  private void change(long filmId, UnaryOperator<Neighbours> change) {
+    synchronized (locks[Math.floorMod(filmId, LOCK_STRIPES)]) {
+      Map<Long, Neighbours> current = neighbours;
+      Neighbours existing = current.getOrDefault(filmId, NONE);
+      Neighbours updated = change.apply(existing);
+      if (updated != existing) {
+        if (updated.filmIds().length == 0) {
+          current.remove(filmId);
+        } else {
+          current.put(filmId, updated);
+        }
+      }
+      if (rebuilding || current != neighbours) {
+        stale.add(filmId);
+      }
+    }
+  }
+
+  private Neighbours top(long filmId) {
+    IntCountMap counts = likeMatrix.countCoLikedFilms(filmId);
+    long[] filmIds = new long[counts.size()];
+    int[] coLikes = new int[counts.size()];
+    int size = counts.copyTo(Math.toIntExact(filmId), filmIds, coLikes);
+    long[] ranked = new long[size];
+    for (int i = 0; i < size; i++) {
+      ranked[i] = rankKey(coLikes[i], (int) filmIds[i]);
+    }
+    Arrays.sort(ranked);
+    return Neighbours.of(ranked, size, topK);
+  }
+
+  /**
+   * Packs a count and a film ID into one {@code long} whose natural order is by count descending, then by ID
+   * ascending.
+   */
+  private static long rankKey(int count, int filmId) {
+    return (long) (Integer.MAX_VALUE - count) << 32 | filmId;
+  }
+
+  /**
+   * Films most often liked together with a given film.
+   *
+   * @param filmIds IDs of the films, most co-likes first
+   * @param coLikes number of users who liked both, at the same positions as {@code filmIds}
+   */
+  public record SimilarFilms(long[] filmIds, int[] coLikes) {}
+
+  /**
+   * Immutable neighbour list of one film in rank order.
+   *
+   * @param complete whether no film was pruned from the list, so that a film missing from it has no co-likes
+   */
+  private record Neighbours(int[] filmIds, int[] coLikes, boolean complete) {
+    static Neighbours of(long[] ranked, int size, int limit) {
+      return of(ranked, size, limit, true);
+    }
+
+    static Neighbours of(long[] ranked, int size, int limit, boolean complete) {
+      int kept = Math.min(size, limit);
+      int[] filmIds = new int[kept];
+      int[] coLikes = new int[kept];
+      for (int i = 0; i < kept; i++) {
+        filmIds[i] = (int) ranked[i];
+        coLikes[i] = Integer.MAX_VALUE - (int) (ranked[i] >>> 32);
+      }
+      return new Neighbours(filmIds, coLikes, complete && size <= limit);
+    }
+
+    /**
+     * @return the list with the film's count changed by {@code delta}, this list if that changes nothing, or
+     *     {@code null} if the film was pruned from the list and its count is unknown
+     */
+    Neighbours adjust(int filmId, int delta, int limit) {
+      int position = -1;
+      for (int i = 0; i < filmIds.length; i++) {
+        if (filmIds[i] == filmId) {
+          position = i;
+          break;
+        }
+      }
+      if (position < 0 && delta < 0) {
+        return this;
+      }
+      if (position < 0 && !complete) {
+        return null;
+      }
+      int adjusted = (position < 0 ? 0 : coLikes[position]) + delta;
+      long[] ranked = new long[filmIds.length + 1];
+      int size = 0;
+      for (int i = 0; i < filmIds.length; i++) {
+        if (i != position) {
+          ranked[size++] = rankKey(coLikes[i], filmIds[i]);
+        }
+      }
+      if (adjusted > 0) {
+        ranked[size++] = rankKey(adjusted, filmId);
+      }
+      Arrays.sort(ranked, 0, size);
+      return of(ranked, size, limit, complete);
+    }
+  }
+}
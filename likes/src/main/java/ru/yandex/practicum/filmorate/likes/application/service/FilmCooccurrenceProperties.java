@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.likes.application.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the film co-like index. Maps to properties with prefix "filmorate.likes.cooccurrence".
+ *
+ * @param topK              Number of most co-liked films kept per film
+ * @param recomputeInterval How often the lists a like or unlike could not keep in rank order are recomputed
+ * @param rebuildInterval   How often all neighbours are recomputed
+ */
+@ConfigurationProperties(prefix = "filmorate.likes.cooccurrence")
+public record FilmCooccurrenceProperties(@DefaultValue("50")
+                                         int topK,
+                                         @DefaultValue("PT1S")
+                                         Duration recomputeInterval,
+                                         @DefaultValue("PT1H")
+                                         Duration rebuildInterval) {}
@@ -0,0 +1,362 @@
+package ru.yandex.practicum.filmorate.likes.application.service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * One direction of the like matrix in compressed sparse row form: for every row ID a sorted, duplicate-free
+ * {@code int[]} of column IDs, stored in an array indexed by the row ID. Identity-generated IDs are dense, so the
+ * array has no hashing or boxing overhead.
+ * <p>
+ * A row is a sorted base array plus a log of the columns added and removed since, so a like or unlike appends one
+ * entry instead of copying the whole row. The log is merged into a new base once it grows past a few times the square
+ * root of the row length, or when a reader needs the sorted row; the merged row is kept until the next write. Log
+ * entries are only ever appended behind the published length, so readers never lock and never see a half-written row.
+ * Writes are serialized on the instance.
+ */
+final class IdRows {
+  private static final int[] EMPTY = new int[0];
+  private static final int MIN_LOG_CAPACITY = 32;
+
+  private volatile AtomicReferenceArray<Row> rows;
+
+  IdRows() {
+    this(new AtomicReferenceArray<>(0));
+  }
+
+  private IdRows(AtomicReferenceArray<Row> rows) {
+    this.rows = rows;
+  }
+
+  /**
+   * Returns the sorted column IDs of a row. The array must not be modified.
+   *
+   * @param rowId ID of the row
+   * @return column IDs in ascending order, empty if the row has none
+   */
+  int[] row(long rowId) {
+    Row row = current(rowId);
+    return row == null ? EMPTY : row.sorted();
+  }
+
+  /**
+   * @param rowId ID of the row
+   * @return number of column IDs in the row
+   */
+  int size(long rowId) {
+    Row row = current(rowId);
+    return row == null ? 0 : row.size;
+  }
+
+  synchronized boolean add(long rowId, long columnId) {
+    int index = index(rowId);
+    int column = index(columnId);
+    Row row = current(rowId);
+    if (row == null) {
+      ensureCapacity(index).set(index, new Row(new int[] {column}));
+      return true;
+    }
+    if (row.contains(column)) {
+      return false;
+    }
+    ensureCapacity(index).set(index, row.append(column, 1));
+    return true;
+  }
+
+  synchronized boolean remove(long rowId, long columnId) {
+    Row row = current(rowId);
+    if (row == null || columnId < 0 || columnId > Integer.MAX_VALUE || !row.contains((int) columnId)) {
+      return false;
+    }
+    rows.set((int) rowId, row.size == 1 ? null : row.append(~(int) columnId, -1));
+    return true;
+  }
+
+  /**
+   * Removes a whole row.
+   *
+   * @param rowId ID of the row
+   * @return the column IDs the row had
+   */
+  synchronized int[] removeRow(long rowId) {
+    Row row = current(rowId);
+    if (row == null) {
+      return EMPTY;
+    }
+    rows.set((int) rowId, null);
+    return row.sorted();
+  }
+
+  /**
+   * @return IDs of the rows that have at least one column, in ascending order
+   */
+  long[] rowIds() {
+    AtomicReferenceArray<Row> current = rows;
+    long[] ids = new long[current.length()];
+    int count = 0;
+    for (int i = 0; i < current.length(); i++) {
+      if (current.get(i) != null) {
+        ids[count++] = i;
+      }
+    }
+    return Arrays.copyOf(ids, count);
+  }
+
+  private Row current(long rowId) {
+    AtomicReferenceArray<Row> current = rows;
+    if (rowId < 0 || rowId >= current.length()) {
+      return null;
+    }
+    return current.get((int) rowId);
+  }
+
+  private AtomicReferenceArray<Row> ensureCapacity(int index) {
+    AtomicReferenceArray<Row> current = rows;
+    if (index < current.length()) {
+      return current;
+    }
+    AtomicReferenceArray<Row> grown = new AtomicReferenceArray<>(Math.max(index + 1, current.length() * 2));
+    for (int i = 0; i < current.length(); i++) {
+      grown.set(i, current.get(i));
+    }
+    rows = grown;
+    return grown;
+  }
+
+  private static int index(long id) {
+    if (id < 0) {
+      throw new IllegalArgumentException("ID must not be negative: " + id);
+    }
+    return Math.toIntExact(id);
+  }
+
+  /**
+   * @return number of IDs present in both sorted arrays
+   */
+  static int intersectionSize(int[] a, int[] b) {
+    int i = 0;
+    int j = 0;
+    int count = 0;
+    while (i < a.length && j < b.length) {
+      if (a[i] < b[j]) {
+        i++;
+      } else if (a[i] > b[j]) {
+        j++;
+      } else {
+        count++;
+        i++;
+        j++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return IDs present in both sorted arrays, in ascending order
+   */
+  static long[] intersection(int[] a, int[] b) {
+    long[] result = new long[Math.min(a.length, b.length)];
+    int i = 0;
+    int j = 0;
+    int count = 0;
+    while (i < a.length && j < b.length) {
+      if (a[i] < b[j]) {
+        i++;
+      } else if (a[i] > b[j]) {
+        j++;
+      } else {
+        result[count++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(result, count);
+  }
+
+  /**
+   * @return IDs present in the first sorted array but not in the second, in ascending order
+   */
+  static long[] difference(int[] a, int[] b) {
+    long[] result = new long[a.length];
+    int j = 0;
+    int count = 0;
+    for (int value : a) {
+      while (j < b.length && b[j] < value) {
+        j++;
+      }
+      if (j == b.length || b[j] != value) {
+        result[count++] = value;
+      }
+    }
+    return Arrays.copyOf(result, count);
+  }
+
+  static long[] toLongs(int[] ids) {
+    long[] result = new long[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      result[i] = ids[i];
+    }
+    return result;
+  }
+
+  /**
+   * Collects entries in any order and builds the sorted rows in one pass, for full reloads.
+   */
+  static final class Builder {
+    private int[][] rows = new int[0][];
+    private int[] sizes = new int[0];
+
+    void add(long rowId, long columnId) {
+      int index = index(rowId);
+      if (index >= rows.length) {
+        int capacity = Math.max(index + 1, rows.length * 2);
+        rows = Arrays.copyOf(rows, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+      }
+      int[] row = rows[index];
+      if (row == null) {
+        row = rows[index] = new int[4];
+      } else if (sizes[index] == row.length) {
+        row = rows[index] = Arrays.copyOf(row, row.length * 2);
+      }
+      row[sizes[index]++] = index(columnId);
+    }
+
+    IdRows build() {
+      AtomicReferenceArray<Row> built = new AtomicReferenceArray<>(rows.length);
+      for (int i = 0; i < rows.length; i++) {
+        if (rows[i] == null) {
+          continue;
+        }
+        int[] row = Arrays.copyOf(rows[i], sizes[i]);
+        Arrays.sort(row);
+        built.set(i, new Row(Arrays.stream(row)
+                                   .distinct()
+                                   .toArray()));
+      }
+      return new IdRows(built);
+    }
+  }
+
+  /**
+   * Published state of one row: the sorted base and the first {@code logLength} entries of the change log. A log
+   * entry is a column ID for an addition or its complement {@code ~column}, always negative, for a removal; the last
+   * entry of a column decides whether it is present. The log array is shared with older states of the row, which only
+   * read up to their own length.
+   */
+  private static final class Row {
+    private final int[] base;
+    private final int[] log;
+    private final int logLength;
+    private final int size;
+    private volatile int[] sorted;
+
+    Row(int[] base) {
+      this(base, EMPTY, 0, base.length);
+      this.sorted = base;
+    }
+
+    private Row(int[] base, int[] log, int logLength, int size) {
+      this.base = base;
+      this.log = log;
+      this.logLength = logLength;
+      this.size = size;
+    }
+
+    int[] sorted() {
+      int[] result = sorted;
+      if (result == null) {
+        result = merge();
+        sorted = result;
+      }
+      return result;
+    }
+
+    boolean contains(int column) {
+      for (int i = logLength - 1; i >= 0; i--) {
+        int entry = log[i];
+        if (entry == column) {
+          return true;
+        }
+        if (entry == ~column) {
+          return false;
+        }
+      }
+      return Arrays.binarySearch(base, column) >= 0;
+    }
+
+    /**
+     * Returns the state after one more log entry. A row merged by a reader becomes the new base first, and the log is
+     * merged once it outgrows its limit.
+     */
+    Row append(int entry, int sizeChange) {
+      int[] merged = sorted;
+      Row from = merged != null && logLength > 0 ? new Row(merged) : this;
+      int[] target = from.log;
+      if (from.logLength == target.length) {
+        int limit = Math.max(MIN_LOG_CAPACITY, 2 * (int) Math.sqrt(from.base.length));
+        if (from.logLength >= limit) {
+          int[] full = Arrays.copyOf(target, from.logLength + 1);
+          full[from.logLength] = entry;
+          return new Row(new Row(from.base, full, full.length, from.size + sizeChange).merge());
+        }
+        target = Arrays.copyOf(target, Math.min(limit, Math.max(MIN_LOG_CAPACITY / 4, target.length * 2)));
+      }
+      target[from.logLength] = entry;
+      return new Row(from.base, target, from.logLength + 1, from.size + sizeChange);
+    }
+
+    /**
+     * Applies the log to the base: columns whose last entry is a removal are dropped, those whose last entry is an
+     * addition are merged in.
+     */
+    private int[] merge() {
+      long[] entries = new long[logLength];
+      for (int i = 0; i < logLength; i++) {
+        int entry = log[i];
+        int column = entry < 0 ? ~entry : entry;
+        entries[i] = (long) column << 32 | i;
+      }
+      Arrays.sort(entries);
+      int[] added = new int[logLength];
+      int[] removed = new int[logLength];
+      int addedCount = 0;
+      int removedCount = 0;
+      for (int i = 0; i < entries.length; i++) {
+        if (i + 1 < entries.length && entries[i + 1] >>> 32 == entries[i] >>> 32) {
+          continue;
+        }
+        int entry = log[(int) entries[i]];
+        if (entry < 0) {
+          removed[removedCount++] = ~entry;
+        } else {
+          added[addedCount++] = entry;
+        }
+      }
+
+      int[] result = new int[size];
+      int count = 0;
+      int a = 0;
+      int r = 0;
+      for (int column : base) {
+        while (a < addedCount && added[a] < column) {
+          result[count++] = added[a++];
+        }
+        if (a < addedCount && added[a] == column) {
+          a++;
+        }
+        while (r < removedCount && removed[r] < column) {
+          r++;
+        }
+        if (r < removedCount && removed[r] == column) {
+          continue;
+        }
+        result[count++] = column;
+      }
+      while (a < addedCount) {
+        result[count++] = added[a++];
+      }
+      return result;
+    }
+  }
+}
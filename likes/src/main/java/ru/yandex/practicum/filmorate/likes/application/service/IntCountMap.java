@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.likes.application.service;
+
+/**
+ * Open-addressing hash map from non-negative {@code int} keys to {@code int} counts, used to accumulate co-like counts
+ * and scores without boxing. Keys are stored shifted by one so that zero marks an empty slot.
+ */
+final class IntCountMap {
+  private int[] keys;
+  private int[] counts;
+  private int size;
+
+  IntCountMap(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+    keys = new int[capacity];
+    counts = new int[capacity];
+  }
+
+  void increment(int key) {
+    add(key, 1);
+  }
+
+  void add(int key, int delta) {
+    int slot = slot(keys, key + 1);
+    if (keys[slot] == 0) {
+      keys[slot] = key + 1;
+      if (++size * 2 > keys.length) {
+        grow();
+        slot = slot(keys, key + 1);
+      }
+    }
+    counts[slot] += delta;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Copies the entries into parallel arrays, leaving out one key.
+   *
+   * @param excludedKey key to leave out
+   * @param keysOut     receives the keys; must hold {@link #size()} entries
+   * @param countsOut   receives the counts at the same positions
+   * @return number of entries copied
+   */
+  int copyTo(int excludedKey, long[] keysOut, int[] countsOut) {
+    int count = 0;
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != 0 && keys[i] - 1 != excludedKey) {
+        keysOut[count] = keys[i] - 1;
+        countsOut[count] = counts[i];
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private void grow() {
+    int[] oldKeys = keys;
+    int[] oldCounts = counts;
+    keys = new int[oldKeys.length * 2];
+    counts = new int[oldKeys.length * 2];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        int slot = slot(keys, oldKeys[i]);
+        keys[slot] = oldKeys[i];
+        counts[slot] = oldCounts[i];
+      }
+    }
+  }
+
+  private static int slot(int[] keys, int storedKey) {
+    int mask = keys.length - 1;
+    int hash = storedKey * 0x9E3779B9;
+    int slot = (hash ^ hash >>> 16) & mask;
+    while (keys[slot] != 0 && keys[slot] != storedKey) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+}
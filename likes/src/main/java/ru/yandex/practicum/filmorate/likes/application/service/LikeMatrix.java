@@ -0,0 +1,363 @@
+package ru.yandex.practicum.filmorate.likes.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.common.cache.Rebuildable;
+import ru.yandex.practicum.filmorate.common.cache.RebuildableState;
+import ru.yandex.practicum.filmorate.common.cache.TransactionCallbacks;
+import ru.yandex.practicum.filmorate.common.events.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.likes.domain.model.CoLikes;
+import ru.yandex.practicum.filmorate.likes.domain.port.LikeRepository;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory copy of the {@code likes} table as two sparse matrices of primitive IDs: the films liked by each user
+ * and the users who liked each film. Recommendations and common-film queries intersect the sorted rows directly
+ * instead of loading the table into boxed collections.
+ * <p>
+ * The matrix is loaded on startup and kept up to date by {@link LikeService}, which reports every like, unlike and
+ * delete that changed a row, including the removal of all likes of a deleted film; inside a transaction the change
+ * is applied after commit. Likes removed by deleting a user are dropped on {@link UserDeletedEvent}.
+ * <p>
+ * Derived indexes in this package, such as {@link MinHashIndex}, register a {@link Listener} and are told about every
+ * change once it is visible in the matrix. Changes of one user are applied and reported one at a time, and a like
+ * that is already in the matrix, or an unlike that is not, is not reported, so listeners can keep counts by deltas.
+ * <p>
+ * Every change also advances the like version of the users whose rows it touched, so results derived from a user's
+ * likes can tell whether they are still current without comparing the rows.
+ */
+@Slf4j
+@Component
+public class LikeMatrix
+    implements Rebuildable {
+  private static final int USER_LOCK_STRIPES = 64;
+
+  private final LikeRepository likeRepository;
+  private final Object[] userLocks = new Object[USER_LOCK_STRIPES];
+  private final RebuildableState<Rows> rows = new RebuildableState<>(new Rows(new IdRows(), new IdRows()));
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+  private final AtomicLong versions = new AtomicLong();
+  private final Map<Long, Long> userVersions = new ConcurrentHashMap<>();
+  private volatile long rebuiltVersion;
+
+  public LikeMatrix(LikeRepository likeRepository) {
+    this.likeRepository = likeRepository;
+    Arrays.setAll(userLocks, i -> new Object());
+  }
+
+  /**
+   * @param userId ID of the user
+   * @return IDs of the films the user liked, in ascending order
+   */
+  public long[] likedFilms(long userId) {
+    return IdRows.toLongs(rows.get()
+                              .filmsByUser()
+                              .row(userId));
+  }
+
+  /**
+   * @param filmId ID of the film
+   * @return IDs of the users who liked the film, in ascending order
+   */
+  public long[] usersWhoLiked(long filmId) {
+    return IdRows.toLongs(rows.get()
+                              .usersByFilm()
+                              .row(filmId));
+  }
+
+  /**
+   * @param userId ID of the user
+   * @return number of films the user liked
+   */
+  public int countLikedFilms(long userId) {
+    return rows.get()
+               .filmsByUser()
+               .size(userId);
+  }
+
+  /**
+   * Finds every other user who liked at least one of the user's films by walking the users of each of those films,
+   * and counts the shared films per user. The cost grows with the number of co-likes, not with the number of users.
+   *
+   * @param userId ID of the user
+   * @return users sharing at least one liked film with the user, with the number of shared films
+   */
+  public CoLikes findCoLikedUsers(long userId) {
+    Rows current = rows.get();
+    int[] films = current.filmsByUser()
+                         .row(userId);
+    IntCountMap common = new IntCountMap(films.length * 4);
+    for (int filmId : films) {
+      for (int otherUserId : current.usersByFilm()
+                                    .row(filmId)) {
+        common.increment(otherUserId);
+      }
+    }
+    long[] userIds = new long[common.size()];
+    int[] counts = new int[common.size()];
+    int size = common.copyTo(Math.toIntExact(userId), userIds, counts);
+    return new CoLikes(Arrays.copyOf(userIds, size), Arrays.copyOf(counts, size));
+  }
+
+  /**
+   * @return number of films liked by both users
+   */
+  public int countCommonLikes(long userId, long otherUserId) {
+    Rows current = rows.get();
+    return IdRows.intersectionSize(current.filmsByUser()
+                                          .row(userId),
+                                   current.filmsByUser()
+                                          .row(otherUserId));
+  }
+
+  /**
+   * @return number of films liked by at least one of the users
+   */
+  public int countLikedByEither(long userId, long otherUserId) {
+    Rows current = rows.get();
+    int[] films = current.filmsByUser()
+                         .row(userId);
+    int[] otherFilms = current.filmsByUser()
+                              .row(otherUserId);
+    return films.length + otherFilms.length - IdRows.intersectionSize(films, otherFilms);
+  }
+
+  /**
+   * @return IDs of the films liked by both users, in ascending order
+   */
+  public long[] commonLikedFilms(long userId, long otherUserId) {
+    Rows current = rows.get();
+    return IdRows.intersection(current.filmsByUser()
+                                      .row(userId),
+                               current.filmsByUser()
+                                      .row(otherUserId));
+  }
+
+  /**
+   * @return IDs of the films liked by the first user and not by the second, in ascending order
+   */
+  public long[] filmsLikedOnlyBy(long userId, long otherUserId) {
+    Rows current = rows.get();
+    return IdRows.difference(current.filmsByUser()
+                                    .row(userId),
+                             current.filmsByUser()
+                                    .row(otherUserId));
+  }
+
+  void markLiked(long filmId, long userId) {
+    TransactionCallbacks.afterCommit(() -> {
+      synchronized (userLock(userId)) {
+        if (liked(filmId, userId)) {
+          return;
+        }
+        rows.apply(current -> current.add(filmId, userId));
+        touch(userId);
+        listeners.forEach(listener -> listener.likeAdded(filmId, userId));
+      }
+    });
+  }
+
+  void markUnliked(long filmId, long userId) {
+    TransactionCallbacks.afterCommit(() -> {
+      synchronized (userLock(userId)) {
+        if (!liked(filmId, userId)) {
+          return;
+        }
+        rows.apply(current -> current.remove(filmId, userId));
+        touch(userId);
+        listeners.forEach(listener -> listener.likeRemoved(filmId, userId));
+      }
+    });
+  }
+
+  /**
+   * Removes the film's likes one user at a time under the user's lock, like an unlike, so that each removed like is
+   * reported exactly once. The film's row is read again until it is empty, which also catches a like whose commit
+   * callback added it while the removal was running.
+   */
+  void markFilmRemoved(long filmId) {
+    TransactionCallbacks.afterCommit(() -> {
+      int[] userIds;
+      while ((userIds = rows.get()
+                            .usersByFilm()
+                            .row(filmId)).length > 0) {
+        for (int userId : userIds) {
+          synchronized (userLock(userId)) {
+            if (!liked(filmId, userId)) {
+              continue;
+            }
+            rows.apply(current -> current.remove(filmId, userId));
+            touch(userId);
+            listeners.forEach(listener -> listener.likeRemoved(filmId, userId));
+          }
+        }
+      }
+    });
+  }
+
+  void markUserRemoved(long userId) {
+    TransactionCallbacks.afterCommit(() -> removeUser(userId));
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onUserDeleted(UserDeletedEvent event) {
+    removeUser(event.getUserId());
+  }
+
+  /**
+   * Returns a number that changes whenever a like of the user is added or removed, including through a film or user
+   * deletion, and on every rebuild. Versions come from one increasing sequence, so the largest version of several
+   * users also changes whenever any of them changes.
+   *
+   * @param userId ID of the user
+   * @return current like version of the user
+   */
+  public long likeVersion(long userId) {
+    return Math.max(rebuiltVersion, userVersions.getOrDefault(userId, 0L));
+  }
+
+  /**
+   * Counts, for every film liked by at least one user who liked the given film, how many such users liked it. The
+   * given film itself is counted too.
+   */
+  IntCountMap countCoLikedFilms(long filmId) {
+    Rows current = rows.get();
+    int[] userIds = current.usersByFilm()
+                           .row(filmId);
+    IntCountMap counts = new IntCountMap(userIds.length * 4);
+    for (int userId : userIds) {
+      for (int otherFilmId : current.filmsByUser()
+                                    .row(userId)) {
+        counts.increment(otherFilmId);
+      }
+    }
+    return counts;
+  }
+
+  void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * @return IDs of the users with at least one like, in ascending order
+   */
+  long[] usersWithLikes() {
+    return rows.get()
+               .filmsByUser()
+               .rowIds();
+  }
+
+  /**
+   * @return IDs of the films with at least one like, in ascending order
+   */
+  long[] filmsWithLikes() {
+    return rows.get()
+               .usersByFilm()
+               .rowIds();
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadOnStartup() {
+    rebuild();
+  }
+
+  /**
+   * Streams the {@code likes} table into a fresh matrix and swaps it in. Changes that arrive while the table is read
+   * are replayed on the fresh matrix before the swap; since adding a present like and removing an absent one are
+   * no-ops, replaying a change the read already saw is harmless.
+   */
+  @Override
+  public synchronized void rebuild() {
+    long started = System.nanoTime();
+    long[] likes = {0};
+    rows.rebuild(() -> {
+      IdRows.Builder filmsByUser = new IdRows.Builder();
+      IdRows.Builder usersByFilm = new IdRows.Builder();
+      likeRepository.forEachLike((filmId, userId) -> {
+        filmsByUser.add(userId, filmId);
+        usersByFilm.add(filmId, userId);
+        likes[0]++;
+      });
+      return new Rows(filmsByUser.build(), usersByFilm.build());
+    });
+    rebuiltVersion = versions.incrementAndGet();
+    userVersions.values()
+                .removeIf(version -> version < rebuiltVersion);
+    log.info("Like matrix rebuilt with {} likes in {} ms", likes[0], (System.nanoTime() - started) / 1_000_000);
+    listeners.forEach(Listener::rebuilt);
+  }
+
+  private void removeUser(long userId) {
+    synchronized (userLock(userId)) {
+      int[] filmIds = rows.get()
+                          .filmsByUser()
+                          .row(userId);
+      rows.apply(current -> current.removeUser(userId));
+      userVersions.remove(userId);
+      if (filmIds.length > 0) {
+        listeners.forEach(listener -> listener.userRemoved(userId, IdRows.toLongs(filmIds)));
+      }
+    }
+  }
+
+  private boolean liked(long filmId, long userId) {
+    int[] filmIds = rows.get()
+                        .filmsByUser()
+                        .row(userId);
+    return filmId <= Integer.MAX_VALUE && Arrays.binarySearch(filmIds, (int) filmId) >= 0;
+  }
+
+  private Object userLock(long userId) {
+    return userLocks[Math.floorMod(userId, USER_LOCK_STRIPES)];
+  }
+
+  private void touch(long userId) {
+    userVersions.put(userId, versions.incrementAndGet());
+  }
+
+  /**
+   * Receives matrix changes after they are applied. Calls may come from several threads at once.
+   */
+  interface Listener {
+    void likeAdded(long filmId, long userId);
+
+    void likeRemoved(long filmId, long userId);
+
+    /**
+     * @param filmIds IDs of the films the user liked before the removal
+     */
+    void userRemoved(long userId, long[] filmIds);
+
+    /**
+     * Called after a rebuild swapped in a fresh matrix; derived state should be recomputed from it.
+     */
+    void rebuilt();
+  }
+
+  private record Rows(IdRows filmsByUser, IdRows usersByFilm) {
+    void add(long filmId, long userId) {
+      filmsByUser.add(userId, filmId);
+      usersByFilm.add(filmId, userId);
+    }
+
+    void remove(long filmId, long userId) {
+      filmsByUser.remove(userId, filmId);
+      usersByFilm.remove(filmId, userId);
+    }
+
+    void removeUser(long userId) {
+      for (int filmId : filmsByUser.removeRow(userId)) {
+        usersByFilm.remove(filmId, userId);
+      }
+    }
+  }
+}
@@ -1,19 +1,38 @@
 package ru.yandex.practicum.filmorate.likes.application.service;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.common.events.UserDeletedEvent;
 import ru.yandex.practicum.filmorate.common.exception.ValidationException;
 import ru.yandex.practicum.filmorate.likes.application.port.in.LikeUseCase;
+import ru.yandex.practicum.filmorate.likes.domain.model.CoLikes;
 import ru.yandex.practicum.filmorate.likes.domain.port.LikeRepository;
 
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 @Service
-@RequiredArgsConstructor
 public class LikeService implements LikeUseCase {
 
   private final LikeRepository likeRepository;
+  private final LikeMatrix likeMatrix;
+  private final FilmCooccurrenceIndex filmCooccurrenceIndex;
+  private final MinHashIndex minHashIndex;
+
+  /**
+   * @param minHashIndex present when {@code filmorate.recommendations.mode} is {@code approximate}
+   */
+  public LikeService(LikeRepository likeRepository,
+                     LikeMatrix likeMatrix,
+                     FilmCooccurrenceIndex filmCooccurrenceIndex,
+                     Optional<MinHashIndex> minHashIndex) {
+    this.likeRepository = likeRepository;
+    this.likeMatrix = likeMatrix;
+    this.filmCooccurrenceIndex = filmCooccurrenceIndex;
+    this.minHashIndex = minHashIndex.orElse(null);
+  }
 
   /**
    * Adds a like from a user to a film.
@@ -24,7 +43,11 @@ public class LikeService implements LikeUseCase {
    */
   @Override
   public boolean addLike(long filmId, long userId) {
-    return likeRepository.addLike(filmId, userId);
+    boolean added = likeRepository.addLike(filmId, userId);
+    if (added) {
+      likeMatrix.markLiked(filmId, userId);
+    }
+    return added;
   }
 
   /**
@@ -36,7 +59,11 @@ public class LikeService implements LikeUseCase {
    */
   @Override
   public boolean removeLike(long filmId, long userId) {
-    return likeRepository.removeLike(filmId, userId);
+    boolean removed = likeRepository.removeLike(filmId, userId);
+    if (removed) {
+      likeMatrix.markUnliked(filmId, userId);
+    }
+    return removed;
   }
 
   /**
@@ -82,13 +109,26 @@ public class LikeService implements LikeUseCase {
    * @return map of filmId → like count
    */
   @Override
+  @Transactional
   public void deleteLikesByFilmId(long filmId) {
     likeRepository.deleteByFilmId(filmId);
+    likeMatrix.markFilmRemoved(filmId);
   }
 
   @Override
+  @Transactional
   public void deleteLikesByUserId(long userId) {
     likeRepository.deleteByUserId(userId);
+    likeMatrix.markUserRemoved(userId);
+  }
+
+  /**
+   * Removes the likes of a user that is being deleted, so that the like counts in {@code film_stats} drop with them.
+   * Runs in the deleting transaction; the like matrix follows the event itself after commit.
+   */
+  @EventListener
+  public void onUserDeleted(UserDeletedEvent event) {
+    likeRepository.deleteByUserId(event.getUserId());
   }
 
   @Override
@@ -101,15 +141,49 @@ public class LikeService implements LikeUseCase {
     return likeRepository.getLikeCountsForFilms(filmIds);
   }
 
-  /**
-   * Returns full mapping of all users and their liked films.
-   * Used in collaborative filtering.
-   *
-   * @return map of userId → set of liked film IDs
-   */
   @Override
-  public Map<Long, Set<Long>> findAllUserFilmLikes() {
-    return likeRepository.findAllUserFilmLikes();
+  public long likeVersion(long userId) {
+    return likeMatrix.likeVersion(userId);
+  }
+
+  @Override
+  public int countLikedFilms(long userId) {
+    return likeMatrix.countLikedFilms(userId);
+  }
+
+  @Override
+  public int countCommonLikes(long userId, long otherUserId) {
+    return likeMatrix.countCommonLikes(userId, otherUserId);
+  }
+
+  @Override
+  public CoLikes findCoLikedUsers(long userId) {
+    return likeMatrix.findCoLikedUsers(userId);
+  }
+
+  @Override
+  public long[] findSimilarUserCandidates(long userId) {
+    return minHashIndex == null ? new long[0] : minHashIndex.findCandidates(userId);
+  }
+
+  @Override
+  public long[] findCommonLikedFilms(long userId, long otherUserId) {
+    return likeMatrix.commonLikedFilms(userId, otherUserId);
   }
 
-}
\ No newline at end of file
+  @Override
+  public long[] findFilmsLikedOnlyBy(long userId, long otherUserId) {
+    return likeMatrix.filmsLikedOnlyBy(userId, otherUserId);
+  }
+
+  @Override
+  public long[] findSimilarFilms(long filmId, int limit) {
+    return filmCooccurrenceIndex.findSimilarFilms(filmId, limit)
+                                .filmIds();
+  }
+
+  @Override
+  public long[] recommendCoLikedFilms(long userId) {
+    return filmCooccurrenceIndex.recommendFilms(userId);
+  }
+}
@@ -0,0 +1,267 @@
+package ru.yandex.practicum.filmorate.likes.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * MinHash signatures of the users' liked films, bucketed by locality-sensitive hashing so that users with similar
+ * likes can be found without looking at every co-liker. The chance that two users share a signature position equals
+ * the Jaccard index of their liked films; the signature is split into bands, and two users become candidates if all
+ * positions of at least one band match.
+ * <p>
+ * Only created when {@code filmorate.recommendations.mode} is {@code approximate}. Signatures follow the
+ * {@link LikeMatrix}: a new like lowers the signature in place, a removed like recomputes the signature from the
+ * user's row only if the film held one of its minimums, and a matrix rebuild rebuilds the whole index.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "filmorate.recommendations", name = "mode", havingValue = "approximate")
+public class MinHashIndex
+    implements LikeMatrix.Listener {
+  private static final long PRIME = (1L << 31) - 1;
+  private static final long SEED = 0x5DEECE66DL;
+  private static final int LOCK_STRIPES = 64;
+  private static final int[] NO_USERS = new int[0];
+
+  private final LikeMatrix likeMatrix;
+  private final int bands;
+  private final int rowsPerBand;
+  private final long[] multipliers;
+  private final long[] offsets;
+  private final Object[] locks = new Object[LOCK_STRIPES];
+  private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+  private volatile boolean rebuilding;
+  private volatile Buckets buckets = new Buckets();
+
+  public MinHashIndex(LikeMatrix likeMatrix, MinHashProperties properties) {
+    if (properties.bands() <= 0 || properties.hashes() <= 0 || properties.hashes() % properties.bands() != 0) {
+      throw new IllegalArgumentException("MinHash hashes must be a positive multiple of bands, got " +
+                                         properties.hashes() + " hashes and " + properties.bands() + " bands");
+    }
+    this.likeMatrix = likeMatrix;
+    this.bands = properties.bands();
+    this.rowsPerBand = properties.hashes() / properties.bands();
+    this.multipliers = new long[properties.hashes()];
+    this.offsets = new long[properties.hashes()];
+    SplittableRandom random = new SplittableRandom(SEED);
+    for (int i = 0; i < properties.hashes(); i++) {
+      multipliers[i] = random.nextLong(1, PRIME);
+      offsets[i] = random.nextLong(0, PRIME);
+    }
+    Arrays.setAll(locks, i -> new Object());
+    likeMatrix.addListener(this);
+    rebuilt();
+  }
+
+  /**
+   * Finds the users sharing at least one LSH band with the user. Users whose Jaccard index with the user is {@code s}
+   * are found with probability {@code 1 - (1 - s^r)^b} for {@code b} bands of {@code r} rows.
+   *
+   * @param userId ID of the user
+   * @return IDs of the candidate users in no particular order, without the user itself
+   */
+  public long[] findCandidates(long userId) {
+    Buckets current = buckets;
+    int[] signature = current.signatures.get(userId);
+    if (signature == null) {
+      return new long[0];
+    }
+    IntCountMap candidates = new IntCountMap(bands * 4);
+    for (int band = 0; band < bands; band++) {
+      for (int otherUserId : current.members.getOrDefault(bandKey(signature, band), NO_USERS)) {
+        candidates.increment(otherUserId);
+      }
+    }
+    long[] userIds = new long[candidates.size()];
+    int size = candidates.copyTo(Math.toIntExact(userId), userIds, new int[candidates.size()]);
+    return Arrays.copyOf(userIds, size);
+  }
+
+  @Override
+  public void likeAdded(long filmId, long userId) {
+    update(userId, current -> {
+      int[] signature = current.signatures.get(userId);
+      int[] updated = signature == null ? emptySignature() : signature.clone();
+      for (int i = 0; i < updated.length; i++) {
+        updated[i] = Math.min(updated[i], hash(i, filmId));
+      }
+      if (!Arrays.equals(signature, updated)) {
+        current.replace(userId, signature, updated);
+      }
+    });
+  }
+
+  @Override
+  public void likeRemoved(long filmId, long userId) {
+    update(userId, current -> {
+      int[] signature = current.signatures.get(userId);
+      if (signature != null && holdsMinimum(signature, filmId)) {
+        current.replace(userId, signature, signatureOf(likeMatrix.likedFilms(userId)));
+      }
+    });
+  }
+
+  @Override
+  public void userRemoved(long userId, long[] filmIds) {
+    update(userId, current -> current.replace(userId, current.signatures.get(userId), null));
+  }
+
+  /**
+   * Recomputes every signature from the matrix into fresh buckets and swaps them in. Users changed meanwhile are
+   * recomputed once more on the fresh buckets; recomputing from the matrix row is idempotent, so a change the first
+   * pass already saw does no harm.
+   */
+  @Override
+  public synchronized void rebuilt() {
+    long started = System.nanoTime();
+    changedDuringRebuild.clear();
+    rebuilding = true;
+    Buckets fresh = new Buckets();
+    long[] userIds = likeMatrix.usersWithLikes();
+    for (long userId : userIds) {
+      fresh.replace(userId, null, signatureOf(likeMatrix.likedFilms(userId)));
+    }
+    buckets = fresh;
+    rebuilding = false;
+    for (Long userId : changedDuringRebuild) {
+      synchronized (lock(userId)) {
+        fresh.replace(userId, fresh.signatures.get(userId), signatureOf(likeMatrix.likedFilms(userId)));
+      }
+    }
+    changedDuringRebuild.clear();
+    log.info("MinHash index rebuilt for {} users in {} ms", userIds.length,
+             (System.nanoTime() - started) / 1_000_000);
+  }
+
+  /**
+   * Applies a change for one user. Changes made during a rebuild are recorded for the rebuild to redo, and a change
+   * that raced with the swap is applied once more to the fresh buckets; every change is idempotent.
+   */
+  private void update(long userId, Consumer<Buckets> change) {
+    synchronized (lock(userId)) {
+      Buckets current;
+      do {
+        current = buckets;
+        change.accept(current);
+        if (rebuilding) {
+          changedDuringRebuild.add(userId);
+        }
+      } while (current != buckets);
+    }
+  }
+
+  private int[] signatureOf(long[] filmIds) {
+    if (filmIds.length == 0) {
+      return null;
+    }
+    int[] signature = emptySignature();
+    for (long filmId : filmIds) {
+      for (int i = 0; i < signature.length; i++) {
+        signature[i] = Math.min(signature[i], hash(i, filmId));
+      }
+    }
+    return signature;
+  }
+
+  private boolean holdsMinimum(int[] signature, long filmId) {
+    for (int i = 0; i < signature.length; i++) {
+      if (hash(i, filmId) == signature[i]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int[] emptySignature() {
+    int[] signature = new int[multipliers.length];
+    Arrays.fill(signature, Integer.MAX_VALUE);
+    return signature;
+  }
+
+  /**
+   * Universal hash {@code (a * x + b) mod p} with the Mersenne prime {@code 2^31 - 1}; film IDs below {@code p} are
+   * mapped without collisions.
+   */
+  private int hash(int function, long filmId) {
+    return (int) ((multipliers[function] * (filmId % PRIME) + offsets[function]) % PRIME);
+  }
+
+  private long bandKey(int[] signature, int band) {
+    int hash = 1;
+    for (int i = band * rowsPerBand; i < (band + 1) * rowsPerBand; i++) {
+      hash = 31 * hash + signature[i];
+    }
+    hash *= 0x9E3779B9;
+    return (long) band << 32 | (hash ^ hash >>> 16) & 0xFFFFFFFFL;
+  }
+
+  private Object lock(long userId) {
+    return locks[(int) (userId % LOCK_STRIPES)];
+  }
+
+  /**
+   * Signatures by user and the users in each band bucket. Bucket arrays are sorted and copied on write, so readers
+   * never lock; writes for one user are serialized by the caller.
+   */
+  private final class Buckets {
+    private final Map<Long, int[]> signatures = new ConcurrentHashMap<>();
+    private final Map<Long, int[]> members = new ConcurrentHashMap<>();
+
+    void replace(long userId, int[] signature, int[] updated) {
+      int user = Math.toIntExact(userId);
+      for (int band = 0; band < bands; band++) {
+        Long oldKey = signature == null ? null : bandKey(signature, band);
+        Long newKey = updated == null ? null : bandKey(updated, band);
+        if (oldKey != null && oldKey.equals(newKey)) {
+          continue;
+        }
+        if (oldKey != null) {
+          members.computeIfPresent(oldKey, (key, users) -> without(users, user));
+        }
+        if (newKey != null) {
+          members.merge(newKey, new int[] {user}, (users, added) -> with(users, user));
+        }
+      }
+      if (updated == null) {
+        signatures.remove(userId);
+      } else {
+        signatures.put(userId, updated);
+      }
+    }
+
+    private static int[] with(int[] users, int user) {
+      int position = Arrays.binarySearch(users, user);
+      if (position >= 0) {
+        return users;
+      }
+      int insertAt = -position - 1;
+      int[] grown = new int[users.length + 1];
+      System.arraycopy(users, 0, grown, 0, insertAt);
+      grown[insertAt] = user;
+      System.arraycopy(users, insertAt, grown, insertAt + 1, users.length - insertAt);
+      return grown;
+    }
+
+    private static int[] without(int[] users, int user) {
+      int position = Arrays.binarySearch(users, user);
+      if (position < 0) {
+        return users;
+      }
+      if (users.length == 1) {
+        return null;
+      }
+      int[] shrunk = new int[users.length - 1];
+      System.arraycopy(users, 0, shrunk, 0, position);
+      System.arraycopy(users, position + 1, shrunk, position, shrunk.length - position);
+      return shrunk;
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.likes.application.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration of the MinHash index behind approximate recommendations. Maps to properties with prefix
+ * "filmorate.recommendations.min-hash".
+ *
+ * @param hashes Number of hash functions, i.e. the signature length per user. Must be a multiple of {@code bands}.
+ * @param bands  Number of LSH bands the signature is split into. More bands with fewer rows each find less similar
+ *               users too, at the cost of more candidates to score.
+ */
+@ConfigurationProperties(prefix = "filmorate.recommendations.min-hash")
+public record MinHashProperties(@DefaultValue("128")
+                                int hashes,
+                                @DefaultValue("64")
+                                int bands) {}
@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.likes.domain.model;
+
+/**
+ * Users who liked at least one film in common with a given user, in no particular order.
+ *
+ * @param userIds      IDs of the users
+ * @param commonCounts number of shared liked films, at the same positions as {@code userIds}
+ */
+public record CoLikes(long[] userIds, int[] commonCounts) {}
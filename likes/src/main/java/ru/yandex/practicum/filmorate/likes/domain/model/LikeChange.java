@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.likes.domain.model;
+
+/**
+ * Pending change of a single like.
+ *
+ * @param filmId ID of the film
+ * @param userId ID of the user
+ * @param liked  true if the like is to be stored, false if it is to be removed
+ */
+public record LikeChange(long filmId,
+                         long userId,
+                         boolean liked) {}
@@ -1,6 +1,9 @@
 package ru.yandex.practicum.filmorate.likes.domain.port;
 
+import ru.yandex.practicum.filmorate.likes.domain.model.LikeChange;
+
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -26,6 +29,23 @@ public interface LikeRepository {
      */
     boolean removeLike(long filmId, long userId);
 
+    /**
+     * Check whether a user likes a film
+     *
+     * @param filmId ID of the film
+     * @param userId ID of the user
+     * @return true if the like exists, false otherwise
+     */
+    boolean hasLike(long filmId, long userId);
+
+    /**
+     * Applies a batch of like changes and adjusts the like counters of the affected films. Adding a like that
+     * already exists or removing one that does not is a no-op.
+     *
+     * @param changes changes to apply; at most one change per film and user
+     */
+    void saveChanges(List<LikeChange> changes);
+
     /**
      * Get IDs of most popular films based on number of likes
      *
@@ -90,10 +110,14 @@ public interface LikeRepository {
     Map<Long, Integer> getLikeCountsForFilms(Set<Long> filmIds);
 
     /**
-     * Returns a full map of all users and their liked films.
-     * Used in collaborative filtering.
+     * Streams every like without collecting them, for building in-memory views of the whole table
      *
-     * @return map of user IDs to sets of liked film IDs
+     * @param consumer called once per like
      */
-    Map<Long, Set<Long>> findAllUserFilmLikes();
+    void forEachLike(LikeConsumer consumer);
+
+    @FunctionalInterface
+    interface LikeConsumer {
+        void accept(long filmId, long userId);
+    }
 }
\ No newline at end of file
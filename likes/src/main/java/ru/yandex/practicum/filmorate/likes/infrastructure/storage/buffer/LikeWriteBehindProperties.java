@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.likes.infrastructure.storage.buffer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the write-behind like buffer. Maps to properties with prefix "filmorate.likes.write-behind".
+ *
+ * @param enabled       Whether likes are buffered in memory and written in batches. When disabled every like is
+ *                      written to the database before the request returns.
+ * @param flushInterval Longest time a buffered change waits before it is written
+ * @param maxBatchSize  Number of buffered changes that triggers a flush before the interval has passed
+ * @param durability    When a buffered change is acknowledged to the caller
+ */
+@ConfigurationProperties(prefix = "filmorate.likes.write-behind")
+public record LikeWriteBehindProperties(@DefaultValue("false")
+                                        boolean enabled,
+                                        @DefaultValue("50ms")
+                                        Duration flushInterval,
+                                        @DefaultValue("1000")
+                                        int maxBatchSize,
+                                        @DefaultValue("async")
+                                        Durability durability) {
+
+    public enum Durability {
+        /**
+         * The change is acknowledged as soon as it is buffered. Changes still in the buffer are lost if the process
+         * dies.
+         */
+        ASYNC,
+        /**
+         * The caller waits until the flush that contains its change has been committed. Concurrent changes still
+         * share one batch.
+         */
+        SYNC
+    }
+}
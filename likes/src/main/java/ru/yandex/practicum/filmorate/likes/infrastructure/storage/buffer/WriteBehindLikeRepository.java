@@ -0,0 +1,485 @@
+package ru.yandex.practicum.filmorate.likes.infrastructure.storage.buffer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.likes.domain.model.LikeChange;
+import ru.yandex.practicum.filmorate.likes.domain.port.LikeRepository;
+import ru.yandex.practicum.filmorate.likes.infrastructure.storage.jdbc.JdbcLikeRepository;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Write-behind buffer in front of {@link JdbcLikeRepository}. Likes and unlikes are collected in a striped in-memory
+ * map keyed by film and user, where a later change of a like replaces the pending one. A virtual-thread flusher writes
+ * the buffer in JDBC batches every {@code flush-interval}, or as soon as {@code max-batch-size} changes are pending.
+ * <p>
+ * A change is buffered without reading the stored like, so a like or unlike that only repeats the stored state is
+ * reported as a change too. Writing it is a no-op, and the listeners registered with {@link #onFlushed(Consumer)}
+ * are told which films were written, so that counts derived from the reported changes can be re-read.
+ * <p>
+ * Point reads overlay the buffer on the database, so a caller always sees its own writes. A read that overlaps a
+ * flush is repeated once the flush has committed, which keeps buffered and already written changes from being
+ * counted twice. Whole-table reads flush the buffer first; deletes discard the buffered changes they supersede.
+ * <p>
+ * Batches are written in their own transaction, so a flush reached from a caller's transaction neither commits nor
+ * rolls back with it.
+ * <p>
+ * Not injected directly: the like counters in front of it pick it up as their storage when it is enabled.
+ */
+@Slf4j
+@Repository
+@Profile("db")
+@ConditionalOnProperty(prefix = "filmorate.likes.write-behind", name = "enabled", havingValue = "true")
+public class WriteBehindLikeRepository implements LikeRepository {
+    private static final int STRIPES = 16;
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+
+    private final JdbcLikeRepository delegate;
+    private final TransactionTemplate ownTransaction;
+    private final LikeWriteBehindProperties properties;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicInteger depth = new AtomicInteger();
+    /**
+     * Incremented when a flush starts and when it ends; odd while a flush is writing.
+     */
+    private final AtomicLong flushSequence = new AtomicLong();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Timer flushTimer;
+    private final Counter droppedChanges;
+    private final List<Consumer<Set<Long>>> flushListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+    private Thread flusher;
+
+    public WriteBehindLikeRepository(JdbcLikeRepository delegate,
+                                     PlatformTransactionManager transactionManager,
+                                     LikeWriteBehindProperties properties,
+                                     MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.ownTransaction = new TransactionTemplate(transactionManager);
+        this.ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.properties = properties;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        Gauge.builder("filmorate.likes.buffer.depth", depth, AtomicInteger::get)
+             .description("Like changes waiting to be written")
+             .register(meterRegistry);
+        this.flushTimer = Timer.builder("filmorate.likes.buffer.flush")
+                               .description("Time to write one batch of buffered like changes")
+                               .register(meterRegistry);
+        this.droppedChanges = Counter.builder("filmorate.likes.buffer.dropped")
+                                     .description("Buffered like changes rejected by the database")
+                                     .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        flusher = Thread.ofVirtual()
+                        .name("like-write-behind")
+                        .start(this::runFlusher);
+        log.info("Like write-behind enabled: flush every {} or {} changes, {} durability",
+                 properties.flushInterval(), properties.maxBatchSize(), properties.durability());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(flusher);
+        flusher.join(SHUTDOWN_TIMEOUT);
+        flush();
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        return change(filmId, userId, true);
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        return change(filmId, userId, false);
+    }
+
+    @Override
+    public boolean hasLike(long filmId, long userId) {
+        LikeKey key = new LikeKey(filmId, userId);
+        return withBuffered(key::equals, buffered -> {
+            Boolean liked = buffered.get(key);
+            return liked != null ? liked : delegate.hasLike(filmId, userId);
+        });
+    }
+
+    @Override
+    public void saveChanges(List<LikeChange> changes) {
+        flush();
+        delegate.saveChanges(changes);
+    }
+
+    @Override
+    public LinkedHashSet<Long> getPopularFilmIds(int count) {
+        flush();
+        return delegate.getPopularFilmIds(count);
+    }
+
+    @Override
+    public Set<Long> findUsersWhoLikedFilm(long filmId) {
+        return withBuffered(key -> key.filmId() == filmId,
+                            buffered -> overlay(delegate.findUsersWhoLikedFilm(filmId), buffered, LikeKey::userId));
+    }
+
+    @Override
+    public boolean contains(long filmId) {
+        return withBuffered(key -> key.filmId() == filmId, buffered -> {
+            if (buffered.isEmpty()) {
+                return delegate.contains(filmId);
+            }
+            return buffered.containsValue(true)
+                   || !overlay(delegate.findUsersWhoLikedFilm(filmId), buffered, LikeKey::userId).isEmpty();
+        });
+    }
+
+    @Override
+    public Set<Long> findLikedFilms(long userId) {
+        return withBuffered(key -> key.userId() == userId,
+                            buffered -> overlay(delegate.findLikedFilms(userId), buffered, LikeKey::filmId));
+    }
+
+    @Override
+    public boolean deleteByFilmId(long filmId) {
+        boolean bufferedLike = discard(key -> key.filmId() == filmId);
+        return delegate.deleteByFilmId(filmId) || bufferedLike;
+    }
+
+    @Override
+    public boolean deleteByUserId(long userId) {
+        boolean bufferedLike = discard(key -> key.userId() == userId);
+        return delegate.deleteByUserId(userId) || bufferedLike;
+    }
+
+    @Override
+    public Map<Long, Long> getLikeCounts() {
+        flush();
+        return delegate.getLikeCounts();
+    }
+
+    @Override
+    public Map<Long, Integer> getLikeCountsForFilms(Set<Long> filmIds) {
+        if (filmIds == null || filmIds.isEmpty()) {
+            return Map.of();
+        }
+        return withBuffered(key -> filmIds.contains(key.filmId()), buffered -> {
+            Map<Long, Integer> counts = new HashMap<>(delegate.getLikeCountsForFilms(filmIds));
+            buffered.keySet()
+                    .stream()
+                    .map(LikeKey::filmId)
+                    .distinct()
+                    .forEach(filmId -> counts.put(filmId, overlay(delegate.findUsersWhoLikedFilm(filmId),
+                                                                  buffered,
+                                                                  LikeKey::userId).size()));
+            counts.values()
+                  .removeIf(count -> count <= 0);
+            return counts;
+        });
+    }
+
+    @Override
+    public void forEachLike(LikeConsumer consumer) {
+        flush();
+        delegate.forEachLike(consumer);
+    }
+
+    /**
+     * Writes every buffered change. Called by the flusher thread; callers that need the database to reflect all
+     * acknowledged changes may call it directly.
+     * <p>
+     * If the batch cannot be written at all, for example because no connection is available, the exception is
+     * rethrown. With async durability the changes were already acknowledged, so they go back into the buffer for the
+     * next flush; with sync durability the waiting callers get the exception and their changes are discarded.
+     */
+    public void flush() {
+        if (depth.get() == 0) {
+            return;
+        }
+        Set<Long> written = new HashSet<>();
+        flushLock.lock();
+        try {
+            flushSequence.incrementAndGet();
+            List<LikeChange> changes = new ArrayList<>();
+            List<CompletableFuture<Set<LikeKey>>> waiting = new ArrayList<>(STRIPES);
+            for (Stripe stripe : stripes) {
+                stripe.lock.lock();
+                try {
+                    stripe.pending.forEach((key, liked) -> changes.add(new LikeChange(key.filmId(),
+                                                                                      key.userId(),
+                                                                                      liked)));
+                    depth.addAndGet(-stripe.pending.size());
+                    stripe.pending.clear();
+                    waiting.add(stripe.flushed);
+                    stripe.flushed = new CompletableFuture<>();
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+            try {
+                Set<LikeKey> failed = changes.isEmpty() ? Set.of() : write(changes);
+                waiting.forEach(future -> future.complete(failed));
+                changes.forEach(change -> written.add(change.filmId()));
+            } catch (RuntimeException e) {
+                if (properties.durability() == LikeWriteBehindProperties.Durability.ASYNC) {
+                    rebuffer(changes);
+                }
+                waiting.forEach(future -> future.completeExceptionally(e));
+                throw e;
+            }
+        } finally {
+            if ((flushSequence.get() & 1) == 1) {
+                flushSequence.incrementAndGet();
+            }
+            flushLock.unlock();
+        }
+        if (!written.isEmpty()) {
+            flushListeners.forEach(listener -> listener.accept(written));
+        }
+    }
+
+    /**
+     * Registers a listener that is called after every flush, outside the flush, with the IDs of the films whose
+     * changes were written.
+     */
+    public void onFlushed(Consumer<Set<Long>> listener) {
+        flushListeners.add(listener);
+    }
+
+    public int bufferedChanges() {
+        return depth.get();
+    }
+
+    /**
+     * Buffers a change without reading the stored like. Only a change that repeats the pending one is reported as a
+     * no-op; anything else replaces the pending change, which is written even if it matches the stored state.
+     */
+    private boolean change(long filmId, long userId, boolean liked) {
+        LikeKey key = new LikeKey(filmId, userId);
+        Stripe stripe = stripes[Math.floorMod(key.hashCode(), STRIPES)];
+        Boolean previous;
+        CompletableFuture<Set<LikeKey>> flushed;
+        stripe.lock.lock();
+        try {
+            previous = stripe.pending.put(key, liked);
+            flushed = stripe.flushed;
+        } finally {
+            stripe.lock.unlock();
+        }
+        if (previous != null && previous == liked) {
+            return false;
+        }
+        if (previous == null && depth.incrementAndGet() >= properties.maxBatchSize()) {
+            LockSupport.unpark(flusher);
+        }
+        if (properties.durability() == LikeWriteBehindProperties.Durability.SYNC) {
+            try {
+                return !flushed.join()
+                               .contains(key);
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the buffered changes a delete supersedes instead of flushing them: writing them in a transaction of
+     * their own would wait on the rows the deleting transaction already holds. They are put back if that transaction
+     * rolls back. A sync caller waiting on a discarded change is released by the next flush.
+     *
+     * @return whether a discarded change was a like
+     */
+    private boolean discard(Predicate<LikeKey> filter) {
+        List<LikeChange> discarded = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.pending.entrySet()
+                              .removeIf(entry -> {
+                                  if (!filter.test(entry.getKey())) {
+                                      return false;
+                                  }
+                                  discarded.add(new LikeChange(entry.getKey()
+                                                                    .filmId(),
+                                                               entry.getKey()
+                                                                    .userId(),
+                                                               entry.getValue()));
+                                  return true;
+                              });
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        if (discarded.isEmpty()) {
+            return false;
+        }
+        depth.addAndGet(-discarded.size());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        rebuffer(discarded);
+                    }
+                }
+            });
+        }
+        return discarded.stream()
+                        .anyMatch(LikeChange::liked);
+    }
+
+    /**
+     * Puts changes back into the buffer unless a newer change for the same like is already pending. Called for a
+     * failed flush while the flush lock is held and the sequence is odd, and for the changes a rolled back delete
+     * had discarded.
+     */
+    private void rebuffer(List<LikeChange> changes) {
+        for (LikeChange change : changes) {
+            LikeKey key = new LikeKey(change.filmId(), change.userId());
+            Stripe stripe = stripes[Math.floorMod(key.hashCode(), STRIPES)];
+            stripe.lock.lock();
+            try {
+                if (stripe.pending.putIfAbsent(key, change.liked()) == null) {
+                    depth.incrementAndGet();
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Runs a read against the buffered changes that match the filter and the database, repeating it if a flush
+     * started or ended in between.
+     */
+    private <T> T withBuffered(Predicate<LikeKey> filter, Function<Map<LikeKey, Boolean>, T> read) {
+        while (true) {
+            long sequence = awaitNoFlush();
+            Map<LikeKey, Boolean> buffered = new HashMap<>();
+            if (depth.get() > 0) {
+                for (Stripe stripe : stripes) {
+                    stripe.copyMatching(filter, buffered);
+                }
+            }
+            T result = read.apply(buffered);
+            if (flushSequence.get() == sequence) {
+                return result;
+            }
+        }
+    }
+
+    private long awaitNoFlush() {
+        long sequence = flushSequence.get();
+        while ((sequence & 1) == 1) {
+            flushLock.lock();
+            flushLock.unlock();
+            sequence = flushSequence.get();
+        }
+        return sequence;
+    }
+
+    private static Set<Long> overlay(Set<Long> stored, Map<LikeKey, Boolean> buffered, Function<LikeKey, Long> id) {
+        Set<Long> result = new HashSet<>(stored);
+        buffered.forEach((key, liked) -> {
+            if (liked) {
+                result.add(id.apply(key));
+            } else {
+                result.remove(id.apply(key));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Writes one batch. If the batch is rejected, for example because a film or user was deleted while its like was
+     * buffered, the changes are retried one by one and those that still fail are dropped.
+     *
+     * @return keys of the dropped changes
+     */
+    private Set<LikeKey> write(List<LikeChange> changes) {
+        Timer.Sample sample = Timer.start();
+        try {
+            ownTransaction.executeWithoutResult(status -> delegate.saveChanges(changes));
+            return Set.of();
+        } catch (DataAccessException e) {
+            log.warn("Writing {} buffered like changes failed, retrying one by one: {}", changes.size(), e.getMessage());
+            Set<LikeKey> failed = new HashSet<>();
+            for (LikeChange change : changes) {
+                try {
+                    ownTransaction.executeWithoutResult(status -> delegate.saveChanges(List.of(change)));
+                } catch (DataAccessException rejected) {
+                    log.warn("Dropping buffered like change {}: {}", change, rejected.getMessage());
+                    failed.add(new LikeKey(change.filmId(), change.userId()));
+                    droppedChanges.increment();
+                }
+            }
+            return failed;
+        } finally {
+            sample.stop(flushTimer);
+        }
+    }
+
+    private void runFlusher() {
+        long intervalNanos = properties.flushInterval()
+                                       .toNanos();
+        while (running) {
+            LockSupport.parkNanos(this, intervalNanos);
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                log.error("Flushing buffered likes failed", e);
+            }
+        }
+    }
+
+    private record LikeKey(long filmId, long userId) {}
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<LikeKey, Boolean> pending = new HashMap<>();
+        private CompletableFuture<Set<LikeKey>> flushed = new CompletableFuture<>();
+
+        void copyMatching(Predicate<LikeKey> filter, Map<LikeKey, Boolean> target) {
+            lock.lock();
+            try {
+                pending.forEach((key, liked) -> {
+                    if (filter.test(key)) {
+                        target.put(key, liked);
+                    }
+                });
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package ru.yandex.practicum.filmorate.likes.infrastructure.storage.counter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.common.cache.Rebuildable;
+import ru.yandex.practicum.filmorate.likes.domain.model.LikeChange;
+import ru.yandex.practicum.filmorate.likes.domain.port.LikeRepository;
+import ru.yandex.practicum.filmorate.likes.infrastructure.storage.buffer.WriteBehindLikeRepository;
+import ru.yandex.practicum.filmorate.likes.infrastructure.storage.jdbc.JdbcLikeRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory like counters, one {@link LongAdder} per film, in front of the like storage. The counters are seeded
+ * from {@code film_stats} on startup and moved by every like, unlike and delete that actually changed a row, after
+ * its transaction commits. {@link #getLikeCounts()} and {@link #getLikeCountsForFilms(Set)} are answered from them
+ * without touching the database; every other call goes to the storage, which is the write-behind buffer when it is
+ * enabled and the JDBC repository otherwise.
+ * <p>
+ * A background check compares the counters with the database and repairs films that drifted, for example after a
+ * buffered like was dropped or a table was changed by hand. The write-behind buffer reports a like that repeats the
+ * stored one as a change, so the films of every flush are checked the same way right after it. Writes are tracked per lock stripe, and a film is only
+ * repaired if no write touched its stripe while the database was read, so the repair never overwrites a change the
+ * read did not see. The number of drifted films is exposed as {@code filmorate.likes.counters.drift}.
+ * <p>
+ * Ordered first so that a rebuild of all {@link Rebuildable}s reloads the counters before the indexes that read them.
+ */
+@Slf4j
+@Primary
+@Repository
+@Profile("db")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CountingLikeRepository implements LikeRepository, Rebuildable {
+    private static final int STRIPES = 256;
+    private static final int LOAD_ATTEMPTS = 3;
+
+    private final LikeRepository delegate;
+    private final ConcurrentMap<Long, LongAdder> counts = new ConcurrentHashMap<>();
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicLong drift = new AtomicLong();
+    private final Counter repairs;
+    private volatile boolean loaded;
+
+    public CountingLikeRepository(JdbcLikeRepository storage,
+                                  ObjectProvider<WriteBehindLikeRepository> writeBehind,
+                                  MeterRegistry meterRegistry) {
+        WriteBehindLikeRepository buffer = writeBehind.getIfAvailable();
+        this.delegate = buffer != null ? buffer : storage;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        if (buffer != null) {
+            buffer.onFlushed(this::reconcile);
+        }
+        Gauge.builder("filmorate.likes.counters.drift", drift, AtomicLong::get)
+             .description("Films whose in-memory like count differed from film_stats at the last check")
+             .register(meterRegistry);
+        this.repairs = Counter.builder("filmorate.likes.counters.repairs")
+                              .description("In-memory like counts corrected by the consistency check")
+                              .register(meterRegistry);
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        return write(Set.of(filmId), () -> delegate.addLike(filmId, userId), added -> {
+            if (added) {
+                counter(filmId).increment();
+            }
+        });
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        return write(Set.of(filmId), () -> delegate.removeLike(filmId, userId), removed -> {
+            if (removed) {
+                counter(filmId).decrement();
+            }
+        });
+    }
+
+    @Override
+    public boolean hasLike(long filmId, long userId) {
+        return delegate.hasLike(filmId, userId);
+    }
+
+    /**
+     * Applies the changes and then re-reads the counts of the affected films, since the storage does not report
+     * which of the changes were no-ops.
+     */
+    @Override
+    public void saveChanges(List<LikeChange> changes) {
+        Set<Long> filmIds = changes.stream()
+                                   .map(LikeChange::filmId)
+                                   .collect(Collectors.toSet());
+        write(filmIds, () -> {
+            delegate.saveChanges(changes);
+            return null;
+        }, ignored -> { });
+        afterCompletion(committed -> reconcile(filmIds));
+    }
+
+    @Override
+    public LinkedHashSet<Long> getPopularFilmIds(int count) {
+        return delegate.getPopularFilmIds(count);
+    }
+
+    @Override
+    public Set<Long> findUsersWhoLikedFilm(long filmId) {
+        return delegate.findUsersWhoLikedFilm(filmId);
+    }
+
+    @Override
+    public boolean contains(long filmId) {
+        return delegate.contains(filmId);
+    }
+
+    @Override
+    public Set<Long> findLikedFilms(long userId) {
+        return delegate.findLikedFilms(userId);
+    }
+
+    @Override
+    public boolean deleteByFilmId(long filmId) {
+        return write(Set.of(filmId), () -> delegate.deleteByFilmId(filmId), deleted -> counts.remove(filmId));
+    }
+
+    @Override
+    public boolean deleteByUserId(long userId) {
+        Set<Long> likedFilms = delegate.findLikedFilms(userId);
+        return write(likedFilms, () -> delegate.deleteByUserId(userId), deleted -> likedFilms.forEach(
+            filmId -> counter(filmId).decrement()));
+    }
+
+    @Override
+    public Map<Long, Long> getLikeCounts() {
+        if (!loaded) {
+            return delegate.getLikeCounts();
+        }
+        Map<Long, Long> result = new HashMap<>();
+        counts.forEach((filmId, counter) -> {
+            long count = counter.sum();
+            if (count > 0) {
+                result.put(filmId, count);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public Map<Long, Integer> getLikeCountsForFilms(Set<Long> filmIds) {
+        if (filmIds == null || filmIds.isEmpty()) {
+            return Map.of();
+        }
+        if (!loaded) {
+            return delegate.getLikeCountsForFilms(filmIds);
+        }
+        Map<Long, Integer> result = new HashMap<>();
+        for (Long filmId : filmIds) {
+            LongAdder counter = counts.get(filmId);
+            long count = counter == null ? 0 : counter.sum();
+            if (count > 0) {
+                result.put(filmId, Math.toIntExact(count));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void forEachLike(LikeConsumer consumer) {
+        delegate.forEachLike(consumer);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Reloads every counter from the database. Counts are served from the database until the reload has finished.
+     */
+    @Override
+    public synchronized void rebuild() {
+        loaded = false;
+        Set<Long> busy = reconcile(null).busy();
+        for (int attempt = 1; attempt < LOAD_ATTEMPTS && !busy.isEmpty(); attempt++) {
+            busy = reconcile(busy).busy();
+        }
+        if (!busy.isEmpty()) {
+            log.debug("{} like counters were being written during the reload and are left to the next check",
+                      busy.size());
+        }
+        loaded = true;
+    }
+
+    /**
+     * Compares every counter with {@code film_stats} and repairs the films that drifted.
+     *
+     * @return number of films whose count differed
+     */
+    @Scheduled(initialDelayString = "${filmorate.likes.counters.consistency-check-interval:PT1M}",
+               fixedDelayString = "${filmorate.likes.counters.consistency-check-interval:PT1M}")
+    public synchronized long checkConsistency() {
+        if (!loaded) {
+            return 0;
+        }
+        long drifted = reconcile(null).drifted();
+        drift.set(drifted);
+        if (drifted > 0) {
+            repairs.increment(drifted);
+            log.warn("In-memory like counts drifted from film_stats for {} films, repaired them", drifted);
+        }
+        return drifted;
+    }
+
+    /**
+     * Sets the counters of the given films, or of all films, to the values stored in the database. Films whose
+     * stripe was written while the database was read are skipped.
+     */
+    private Reconciliation reconcile(Set<Long> filmIds) {
+        long[] completedBefore = new long[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            completedBefore[i] = stripes[i].completed.get();
+        }
+        Map<Long, Long> stored;
+        Set<Long> candidates;
+        if (filmIds == null) {
+            stored = delegate.getLikeCounts();
+            candidates = new HashSet<>(stored.keySet());
+            candidates.addAll(counts.keySet());
+        } else {
+            stored = new HashMap<>();
+            delegate.getLikeCountsForFilms(filmIds)
+                    .forEach((filmId, count) -> stored.put(filmId, count.longValue()));
+            candidates = filmIds;
+        }
+
+        long drifted = 0;
+        Set<Long> busy = new HashSet<>();
+        for (Long filmId : candidates) {
+            int index = stripeIndex(filmId);
+            Stripe stripe = stripes[index];
+            stripe.lock.lock();
+            try {
+                if (stripe.writing.get() > 0 || stripe.completed.get() != completedBefore[index]) {
+                    busy.add(filmId);
+                    continue;
+                }
+                long expected = stored.getOrDefault(filmId, 0L);
+                LongAdder counter = counts.get(filmId);
+                long actual = counter == null ? 0 : counter.sum();
+                if (actual != expected) {
+                    drifted++;
+                    counter(filmId).add(expected - actual);
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return new Reconciliation(drifted, busy);
+    }
+
+    /**
+     * Runs a write while its films' stripes are marked as being written, and applies the counter change once the
+     * surrounding transaction, if any, has committed. The change is applied in the first after-commit callback, ahead
+     * of other callbacks and after-commit event listeners, so that they already see the new counts; the stripes are
+     * released only on completion.
+     */
+    private <T> T write(Collection<Long> filmIds, Supplier<T> action, Consumer<T> onCommit) {
+        List<Stripe> touched = filmIds.stream()
+                                      .map(this::stripeIndex)
+                                      .distinct()
+                                      .map(index -> stripes[index])
+                                      .toList();
+        touched.forEach(Stripe::begin);
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            touched.forEach(Stripe::end);
+            throw e;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    onCommit.accept(result);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    touched.forEach(Stripe::end);
+                }
+
+                @Override
+                public int getOrder() {
+                    return Ordered.HIGHEST_PRECEDENCE;
+                }
+            });
+        } else {
+            onCommit.accept(result);
+            touched.forEach(Stripe::end);
+        }
+        return result;
+    }
+
+    private LongAdder counter(long filmId) {
+        return counts.computeIfAbsent(filmId, id -> new LongAdder());
+    }
+
+    private int stripeIndex(long filmId) {
+        return Math.floorMod(Long.hashCode(filmId), STRIPES);
+    }
+
+    private static void afterCompletion(Consumer<Boolean> action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.accept(status == STATUS_COMMITTED);
+                }
+
+                @Override
+                public int getOrder() {
+                    return Ordered.HIGHEST_PRECEDENCE;
+                }
+            });
+        } else {
+            action.accept(true);
+        }
+    }
+
+    private record Reconciliation(long drifted, Set<Long> busy) {}
+
+    /**
+     * Write bookkeeping for the films hashed to one stripe. A write registers under the lock, so it cannot start
+     * while a repair of the stripe is in progress, and bumps {@code completed} before it deregisters.
+     */
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final AtomicInteger writing = new AtomicInteger();
+        private final AtomicLong completed = new AtomicLong();
+
+        void begin() {
+            lock.lock();
+            try {
+                writing.incrementAndGet();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void end() {
+            completed.incrementAndGet();
+            writing.decrementAndGet();
+        }
+    }
+}
@@ -6,6 +6,9 @@ import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.common.infrastructure.storage.jdbc.IdArrayParameter;
+import ru.yandex.practicum.filmorate.likes.domain.model.LikeChange;
 import ru.yandex.practicum.filmorate.likes.domain.port.LikeRepository;
 
 import java.util.*;
@@ -22,23 +25,115 @@ public class JdbcLikeRepository implements LikeRepository {
             rs.getLong("film_id")
         );
 
+    private static final String INCREMENT_LIKE_COUNT_SQL = """
+        UPDATE film_stats
+        SET like_count = like_count + 1, last_liked_at = CURRENT_TIMESTAMP
+        WHERE film_id = ?
+        """;
+
+    private static final String DECREMENT_LIKE_COUNT_SQL = """
+        UPDATE film_stats
+        SET like_count = like_count - 1
+        WHERE film_id = ?
+        """;
+
+    private static final String DECREMENT_LIKE_COUNTS_OF_USER_SQL = """
+        UPDATE film_stats
+        SET like_count = like_count - 1
+        WHERE film_id IN (SELECT film_id FROM likes WHERE user_id = ?)
+        """;
+
+    private static final String INSERT_LIKE_IF_ABSENT_SQL = """
+        INSERT INTO likes (film_id, user_id)
+        SELECT CAST(? AS BIGINT), CAST(? AS BIGINT)
+        WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)
+        """;
+
+    private static final String DELETE_LIKE_SQL = "DELETE FROM likes WHERE user_id = ? AND film_id = ?";
+
+    private static final String ADJUST_LIKE_COUNT_SQL = """
+        UPDATE film_stats
+        SET like_count = like_count + ?,
+            last_liked_at = CASE WHEN CAST(? AS BOOLEAN) THEN CURRENT_TIMESTAMP ELSE last_liked_at END
+        WHERE film_id = ?
+        """;
+
+    private static final int BATCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
 
     @Override
+    @Transactional
     public boolean addLike(long filmId, long userId) {
-        String sql = "INSERT INTO likes (film_id, user_id) VALUES (?, ?)";
         try {
-            jdbcTemplate.update(sql, filmId, userId);
-            return true;
+            if (jdbcTemplate.update(INSERT_LIKE_IF_ABSENT_SQL, filmId, userId, filmId, userId) == 0) {
+                return false;
+            }
         } catch (DuplicateKeyException e) {
+            // The same like was inserted concurrently between the NOT EXISTS check and the insert
             return false;
         }
+        jdbcTemplate.update(INCREMENT_LIKE_COUNT_SQL, filmId);
+        return true;
     }
 
     @Override
+    @Transactional
     public boolean removeLike(long filmId, long userId) {
-        String sql = "DELETE FROM likes WHERE user_id = ? AND film_id = ?";
-        return jdbcTemplate.update(sql, userId, filmId) > 0;
+        if (jdbcTemplate.update(DELETE_LIKE_SQL, userId, filmId) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(DECREMENT_LIKE_COUNT_SQL, filmId);
+        return true;
+    }
+
+    @Override
+    public boolean hasLike(long filmId, long userId) {
+        String sql = "SELECT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, filmId, userId));
+    }
+
+    @Override
+    @Transactional
+    public void saveChanges(List<LikeChange> changes) {
+        List<LikeChange> added = changes.stream().filter(LikeChange::liked).toList();
+        List<LikeChange> removed = changes.stream().filter(change -> !change.liked()).toList();
+        Map<Long, Integer> deltas = new HashMap<>();
+
+        int[][] inserted = jdbcTemplate.batchUpdate(INSERT_LIKE_IF_ABSENT_SQL, added, BATCH_SIZE, (ps, change) -> {
+            ps.setLong(1, change.filmId());
+            ps.setLong(2, change.userId());
+            ps.setLong(3, change.filmId());
+            ps.setLong(4, change.userId());
+        });
+        collectDeltas(added, inserted, 1, deltas);
+        int[][] deleted = jdbcTemplate.batchUpdate(DELETE_LIKE_SQL, removed, BATCH_SIZE, (ps, change) -> {
+            ps.setLong(1, change.userId());
+            ps.setLong(2, change.filmId());
+        });
+        collectDeltas(removed, deleted, -1, deltas);
+
+        List<Map.Entry<Long, Integer>> adjustments = deltas.entrySet()
+                                                           .stream()
+                                                           .filter(entry -> entry.getValue() != 0)
+                                                           .toList();
+        jdbcTemplate.batchUpdate(ADJUST_LIKE_COUNT_SQL, adjustments, BATCH_SIZE, (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setBoolean(2, entry.getValue() > 0);
+            ps.setLong(3, entry.getKey());
+        });
+    }
+
+    private static void collectDeltas(List<LikeChange> changes, int[][] counts, int sign, Map<Long, Integer> deltas) {
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count > 0) {
+                    deltas.merge(changes.get(index).filmId(), sign, Integer::sum);
+                }
+                index++;
+            }
+        }
     }
 
     @Override
@@ -46,9 +141,9 @@ public class JdbcLikeRepository implements LikeRepository {
         int expandedLimit = Math.max(count * 3, 50);
         String sql = """
             SELECT film_id
-            FROM likes
-            GROUP BY film_id
-            ORDER BY COUNT(user_id) DESC
+            FROM film_stats
+            WHERE like_count > 0
+            ORDER BY like_count DESC, film_id
             LIMIT ?
             """;
         List<Long> popularIds = jdbcTemplate.queryForList(sql, Long.class, expandedLimit);
@@ -77,17 +172,19 @@ public class JdbcLikeRepository implements LikeRepository {
 
     @Override
     public boolean deleteByFilmId(long filmId) {
+        jdbcTemplate.update("UPDATE film_stats SET like_count = 0 WHERE film_id = ?", filmId);
         return jdbcTemplate.update("DELETE FROM likes WHERE film_id = ?", filmId) > 0;
     }
 
     @Override
     public boolean deleteByUserId(long userId) {
+        jdbcTemplate.update(DECREMENT_LIKE_COUNTS_OF_USER_SQL, userId);
         return jdbcTemplate.update("DELETE FROM likes WHERE user_id = ?", userId) > 0;
     }
 
     @Override
     public Map<Long, Long> getLikeCounts() {
-        String sql = "SELECT film_id, COUNT(*) AS cnt FROM likes GROUP BY film_id";
+        String sql = "SELECT film_id, like_count AS cnt FROM film_stats WHERE like_count > 0";
         RowMapper<Map.Entry<Long, Long>> rowMapper = (rs, rowNum) ->
             Map.entry(rs.getLong("film_id"), rs.getLong("cnt"));
         List<Map.Entry<Long, Long>> entries = jdbcTemplate.query(sql, rowMapper);
@@ -100,29 +197,20 @@ public class JdbcLikeRepository implements LikeRepository {
         if (filmIds == null || filmIds.isEmpty()) {
             return Map.of();
         }
-        String placeholders = String.join(",", Collections.nCopies(filmIds.size(), "?"));
-        String sql = "SELECT film_id, COUNT(user_id) AS like_count " +
-                     "FROM likes WHERE film_id IN (" + placeholders + ") " +
-                     "GROUP BY film_id";
+        String sql = "SELECT film_id, like_count " +
+                     "FROM film_stats WHERE film_id = ANY(?) AND like_count > 0";
 
         Map<Long, Integer> result = new HashMap<>();
         jdbcTemplate.query(sql, rs -> {
             result.put(rs.getLong("film_id"), rs.getInt("like_count"));
-        }, filmIds.toArray());
+        }, IdArrayParameter.of(filmIds));
         return result;
     }
 
     @Override
-    public Map<Long, Set<Long>> findAllUserFilmLikes() {
-        String sql = "SELECT user_id, film_id FROM likes";
-        List<Map<String, Object>> rows = jdbcTemplate.queryForList(sql);
-
-        Map<Long, Set<Long>> result = new HashMap<>();
-        for (Map<String, Object> row : rows) {
-            Long userId = ((Number) row.get("user_id")).longValue();
-            Long filmId = ((Number) row.get("film_id")).longValue();
-            result.computeIfAbsent(userId, k -> new HashSet<>()).add(filmId);
-        }
-        return result;
+    public void forEachLike(LikeConsumer consumer) {
+        jdbcTemplate.query("SELECT film_id, user_id FROM likes", rs -> {
+            consumer.accept(rs.getLong("film_id"), rs.getLong("user_id"));
+        });
     }
 }
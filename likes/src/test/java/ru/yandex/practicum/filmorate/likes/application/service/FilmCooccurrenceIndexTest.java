@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.likes.application.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.common.events.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.likes.domain.port.LikeRepository;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ Checks that the co-like index follows the like matrix by deltas, recomputes the lists it could not keep exact and then
+ agrees with a full rebuild.
+ */
+@DisplayName("Film co-like index")
+class FilmCooccurrenceIndexTest {
+  private LikeMatrix likeMatrix;
+
+  @BeforeEach
+  void setup() {
+    likeMatrix = new LikeMatrix(mock(LikeRepository.class));
+  }
+
+  @Test
+  @DisplayName("Counts co-likes by deltas and ignores repeated likes and unlikes")
+  void shouldCountByDeltas() {
+    FilmCooccurrenceIndex index = index(10);
+    like(1, 10, 20);
+    like(2, 10, 20);
+    like(3, 20);
+    likeMatrix.markLiked(2, 10);
+
+    assertSimilar(index, 1, new long[] {2, 3}, new int[] {2, 1});
+
+    likeMatrix.markUnliked(2, 10);
+    likeMatrix.markUnliked(2, 10);
+
+    assertSimilar(index, 1, new long[] {2, 3}, new int[] {1, 1});
+    assertSimilar(index, 2, new long[] {1, 3}, new int[] {1, 1});
+    assertThat(index.recomputeStale()).isZero();
+  }
+
+  @Test
+  @DisplayName("Recomputes a pruned list after an unlike lets a pruned film outrank a kept one")
+  void shouldRecomputePrunedList() {
+    FilmCooccurrenceIndex index = index(2);
+    like(1, 10, 20, 30);
+    like(2, 10, 20);
+    like(3, 10, 20);
+    like(4, 30);
+
+    assertSimilar(index, 1, new long[] {2, 3}, new int[] {2, 2});
+
+    likeMatrix.markUnliked(2, 10);
+    likeMatrix.markUnliked(2, 20);
+
+    assertSimilar(index, 1, new long[] {3}, new int[] {2});
+    assertThat(index.recomputeStale()).isPositive();
+    assertSimilar(index, 1, new long[] {3, 4}, new int[] {2, 1});
+  }
+
+  @Test
+  @DisplayName("Drops a deleted user's pairs")
+  void shouldRemoveUser() {
+    FilmCooccurrenceIndex index = index(10);
+    like(1, 10, 20);
+    like(2, 10, 20);
+
+    likeMatrix.onUserDeleted(new UserDeletedEvent(this, 10));
+
+    assertSimilar(index, 1, new long[] {2}, new int[] {1});
+  }
+
+  @Test
+  @DisplayName("Agrees with a rebuild after random likes and unlikes")
+  void shouldMatchRebuild() {
+    Random random = new Random(7);
+    FilmCooccurrenceIndex index = index(5);
+    for (int i = 0; i < 5_000; i++) {
+      long filmId = 1 + random.nextInt(30);
+      long userId = 1 + random.nextInt(40);
+      if (random.nextInt(3) == 0) {
+        likeMatrix.markUnliked(filmId, userId);
+      } else {
+        likeMatrix.markLiked(filmId, userId);
+      }
+    }
+    index.recomputeStale();
+
+    FilmCooccurrenceIndex rebuilt = index(5);
+    rebuilt.rebuild();
+    for (long filmId = 1; filmId <= 30; filmId++) {
+      FilmCooccurrenceIndex.SimilarFilms expected = rebuilt.findSimilarFilms(filmId, 5);
+      assertSimilar(index, filmId, expected.filmIds(), expected.coLikes());
+    }
+  }
+
+  private FilmCooccurrenceIndex index(int topK) {
+    return new FilmCooccurrenceIndex(likeMatrix, new FilmCooccurrenceProperties(topK, null, null));
+  }
+
+  private void like(long filmId, long... userIds) {
+    for (long userId : userIds) {
+      likeMatrix.markLiked(filmId, userId);
+    }
+  }
+
+  private static void assertSimilar(FilmCooccurrenceIndex index, long filmId, long[] filmIds, int[] coLikes) {
+    FilmCooccurrenceIndex.SimilarFilms similar = index.findSimilarFilms(filmId, 10);
+    assertThat(similar.filmIds()).as("films similar to %d", filmId)
+                                 .containsExactly(filmIds);
+    assertThat(similar.coLikes()).as("co-likes of %d", filmId)
+                                 .containsExactly(coLikes);
+  }
+}
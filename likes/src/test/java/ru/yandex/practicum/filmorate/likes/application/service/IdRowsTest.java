@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.likes.application.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ Checks the sorted rows of one like matrix direction and the set operations on them.
+ */
+@DisplayName("Sparse ID rows")
+class IdRowsTest {
+
+  @Test
+  @DisplayName("Keeps rows sorted and free of duplicates and reports whether a write changed them")
+  void shouldAddAndRemove() {
+    IdRows rows = new IdRows();
+
+    assertThat(rows.add(3, 30)).isTrue();
+    assertThat(rows.add(3, 10)).isTrue();
+    assertThat(rows.add(3, 20)).isTrue();
+    assertThat(rows.add(3, 10)).isFalse();
+    assertThat(rows.add(1, 10)).isTrue();
+
+    assertThat(rows.row(3)).containsExactly(10, 20, 30);
+    assertThat(rows.row(2)).isEmpty();
+    assertThat(rows.row(1_000)).isEmpty();
+    assertThat(rows.rowIds()).containsExactly(1, 3);
+
+    assertThat(rows.remove(3, 20)).isTrue();
+    assertThat(rows.remove(3, 20)).isFalse();
+    assertThat(rows.remove(1_000, 20)).isFalse();
+    assertThat(rows.row(3)).containsExactly(10, 30);
+
+    assertThat(rows.removeRow(3)).containsExactly(10, 30);
+    assertThat(rows.remove(1, 10)).isTrue();
+    assertThat(rows.rowIds()).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Matches a sorted set through many likes and unlikes of one long row, with reads in between")
+  void shouldMergeLoggedChanges() {
+    Random random = new Random(7);
+    IdRows rows = new IdRows();
+    TreeSet<Long> expected = new TreeSet<>();
+    for (int i = 0; i < 20_000; i++) {
+      long columnId = random.nextInt(5_000);
+      boolean remove = random.nextInt(3) == 0;
+      boolean changed = remove ? rows.remove(1, columnId) : rows.add(1, columnId);
+      assertThat(changed).as("change %d of column %d", i, columnId)
+                         .isEqualTo(remove ? expected.remove(columnId) : expected.add(columnId));
+      assertThat(rows.size(1)).isEqualTo(expected.size());
+      if (random.nextInt(50) == 0) {
+        assertThat(rows.row(1)).containsExactly(toInts(expected));
+      }
+    }
+    assertThat(rows.row(1)).containsExactly(toInts(expected));
+  }
+
+  @Test
+  @DisplayName("Rejects negative IDs")
+  void shouldRejectNegativeIds() {
+    IdRows rows = new IdRows();
+
+    assertThatThrownBy(() -> rows.add(-1, 10)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> rows.add(1, -10)).isInstanceOf(IllegalArgumentException.class);
+    assertThat(rows.row(-1)).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Builds the same rows from unordered entries as adding them one by one")
+  void shouldBuildSortedRows() {
+    Random random = new Random(7);
+    IdRows.Builder builder = new IdRows.Builder();
+    IdRows added = new IdRows();
+    for (int i = 0; i < 2_000; i++) {
+      long rowId = random.nextInt(50);
+      long columnId = random.nextInt(200);
+      builder.add(rowId, columnId);
+      added.add(rowId, columnId);
+    }
+
+    IdRows built = builder.build();
+
+    assertThat(built.rowIds()).containsExactly(added.rowIds());
+    for (long rowId : added.rowIds()) {
+      assertThat(built.row(rowId)).as("row %d", rowId)
+                                  .containsExactly(added.row(rowId));
+    }
+  }
+
+  @Test
+  @DisplayName("Intersects and subtracts sorted rows like sets")
+  void shouldMatchSetOperations() {
+    Random random = new Random(7);
+    for (int i = 0; i < 200; i++) {
+      int[] a = randomRow(random);
+      int[] b = randomRow(random);
+      TreeSet<Long> common = set(a);
+      common.retainAll(set(b));
+      TreeSet<Long> onlyA = set(a);
+      onlyA.removeAll(set(b));
+
+      assertThat(IdRows.intersection(a, b)).containsExactly(toArray(common));
+      assertThat(IdRows.intersectionSize(a, b)).isEqualTo(common.size());
+      assertThat(IdRows.difference(a, b)).containsExactly(toArray(onlyA));
+    }
+  }
+
+  private static int[] randomRow(Random random) {
+    return IntStream.generate(() -> random.nextInt(60))
+                    .limit(random.nextInt(30))
+                    .sorted()
+                    .distinct()
+                    .toArray();
+  }
+
+  private static TreeSet<Long> set(int[] row) {
+    TreeSet<Long> set = new TreeSet<>();
+    for (int id : row) {
+      set.add((long) id);
+    }
+    return set;
+  }
+
+  private static int[] toInts(TreeSet<Long> set) {
+    return set.stream()
+              .mapToInt(Long::intValue)
+              .toArray();
+  }
+
+  private static long[] toArray(TreeSet<Long> set) {
+    return set.stream()
+              .mapToLong(Long::longValue)
+              .toArray();
+  }
+}
@@ -0,0 +1,204 @@
+package ru.yandex.practicum.filmorate.likes.application.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import ru.yandex.practicum.filmorate.common.events.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.likes.domain.model.CoLikes;
+import ru.yandex.practicum.filmorate.likes.domain.port.LikeRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ Checks the queries of the like matrix, that changes become visible only after commit and are reported once, and that
+ a rebuild keeps the changes made while the table is read.
+ */
+@DisplayName("Like matrix")
+class LikeMatrixTest {
+  private LikeRepository likeRepository;
+  private LikeMatrix likeMatrix;
+  private final List<String> events = new ArrayList<>();
+
+  @BeforeEach
+  void setup() {
+    likeRepository = mock(LikeRepository.class);
+    likeMatrix = new LikeMatrix(likeRepository);
+    likeMatrix.addListener(new LikeMatrix.Listener() {
+      @Override
+      public void likeAdded(long filmId, long userId) {
+        events.add("+" + filmId + "/" + userId);
+      }
+
+      @Override
+      public void likeRemoved(long filmId, long userId) {
+        events.add("-" + filmId + "/" + userId);
+      }
+
+      @Override
+      public void userRemoved(long userId, long[] filmIds) {
+        events.add("user " + userId);
+      }
+
+      @Override
+      public void rebuilt() {
+        events.add("rebuilt");
+      }
+    });
+  }
+
+  @Test
+  @DisplayName("Answers like queries from both directions of the matrix")
+  void shouldAnswerQueries() {
+    like(1, 10, 20, 30);
+    like(2, 20, 30, 40);
+    like(3, 40);
+
+    assertThat(likeMatrix.likedFilms(1)).containsExactly(10, 20, 30);
+    assertThat(likeMatrix.usersWhoLiked(40)).containsExactly(2, 3);
+    assertThat(likeMatrix.countLikedFilms(2)).isEqualTo(3);
+    assertThat(likeMatrix.countCommonLikes(1, 2)).isEqualTo(2);
+    assertThat(likeMatrix.countLikedByEither(1, 2)).isEqualTo(4);
+    assertThat(likeMatrix.commonLikedFilms(1, 2)).containsExactly(20, 30);
+    assertThat(likeMatrix.filmsLikedOnlyBy(2, 1)).containsExactly(40);
+    CoLikes coLikes = likeMatrix.findCoLikedUsers(2);
+    assertThat(coLikes.userIds()).containsExactlyInAnyOrder(1, 3);
+    assertThat(coLikes.commonCounts()).containsExactlyInAnyOrder(2, 1);
+  }
+
+  @Test
+  @DisplayName("Reports only likes and unlikes that changed the matrix and advances the user's version")
+  void shouldReportChanges() {
+    long before = likeMatrix.likeVersion(1);
+
+    likeMatrix.markLiked(10, 1);
+    likeMatrix.markLiked(10, 1);
+    likeMatrix.markUnliked(20, 1);
+    long liked = likeMatrix.likeVersion(1);
+    likeMatrix.markUnliked(10, 1);
+
+    assertThat(events).containsExactly("+10/1", "-10/1");
+    assertThat(liked).isGreaterThan(before);
+    assertThat(likeMatrix.likeVersion(1)).isGreaterThan(liked);
+    assertThat(likeMatrix.likeVersion(2)).isEqualTo(before);
+  }
+
+  @Test
+  @DisplayName("Applies a change after commit and drops it on rollback")
+  void shouldApplyAfterCommit() {
+    inTransaction(TransactionSynchronization.STATUS_ROLLED_BACK, () -> likeMatrix.markLiked(10, 1));
+    assertThat(likeMatrix.likedFilms(1)).isEmpty();
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      likeMatrix.markLiked(10, 1);
+      assertThat(likeMatrix.likedFilms(1)).isEmpty();
+      TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    assertThat(likeMatrix.likedFilms(1)).containsExactly(10);
+    assertThat(events).containsExactly("+10/1");
+  }
+
+  @Test
+  @DisplayName("Removes a film's and a user's likes from both directions")
+  void shouldRemoveFilmsAndUsers() {
+    like(1, 10, 20);
+    like(2, 10, 20);
+    events.clear();
+
+    likeMatrix.markFilmRemoved(10);
+    likeMatrix.onUserDeleted(new UserDeletedEvent(this, 2));
+
+    assertThat(likeMatrix.likedFilms(1)).containsExactly(20);
+    assertThat(likeMatrix.usersWhoLiked(20)).containsExactly(1);
+    assertThat(likeMatrix.usersWhoLiked(10)).isEmpty();
+    assertThat(likeMatrix.usersWithLikes()).containsExactly(1);
+    assertThat(likeMatrix.filmsWithLikes()).containsExactly(20);
+    assertThat(events).containsExactly("-10/1", "-10/2", "user 2");
+  }
+
+  @Test
+  @DisplayName("Reports a like added while its film's likes are removed")
+  void shouldReportLikeAddedDuringFilmRemoval() {
+    like(1, 10);
+    like(2, 10);
+    likeMatrix.addListener(new LikeMatrix.Listener() {
+      @Override
+      public void likeAdded(long filmId, long userId) {
+      }
+
+      @Override
+      public void likeRemoved(long filmId, long userId) {
+        if (userId == 1) {
+          likeMatrix.markLiked(10, 3);
+        }
+      }
+
+      @Override
+      public void userRemoved(long userId, long[] filmIds) {
+      }
+
+      @Override
+      public void rebuilt() {
+      }
+    });
+    events.clear();
+
+    likeMatrix.markFilmRemoved(10);
+
+    assertThat(likeMatrix.usersWhoLiked(10)).isEmpty();
+    assertThat(likeMatrix.likedFilms(3)).isEmpty();
+    assertThat(events).containsExactly("-10/1", "+10/3", "-10/2", "-10/3");
+  }
+
+  @Test
+  @DisplayName("A rebuild loads the table and keeps the changes made while it is read")
+  void shouldReplayChangesDuringRebuild() {
+    like(1, 10, 20);
+    doAnswer(invocation -> {
+      LikeRepository.LikeConsumer consumer = invocation.getArgument(0);
+      consumer.accept(10, 1);
+      consumer.accept(20, 1);
+      likeMatrix.markLiked(30, 2);
+      likeMatrix.markUnliked(20, 1);
+      return null;
+    }).when(likeRepository)
+      .forEachLike(any());
+    long before = likeMatrix.likeVersion(3);
+
+    likeMatrix.rebuild();
+
+    assertThat(likeMatrix.likedFilms(1)).containsExactly(10);
+    assertThat(likeMatrix.likedFilms(2)).containsExactly(30);
+    assertThat(likeMatrix.likeVersion(3)).isGreaterThan(before);
+    assertThat(events).endsWith("rebuilt");
+  }
+
+  private void like(long userId, long... filmIds) {
+    for (long filmId : filmIds) {
+      likeMatrix.markLiked(filmId, userId);
+    }
+  }
+
+  private static void inTransaction(int status, Runnable action) {
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      action.run();
+      TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                                                            status);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.likes.application.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.common.events.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.likes.domain.port.LikeRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ Checks that MinHash candidates follow the like matrix: users with the same likes find each other, and stop doing so
+ once an unlike, a user deletion or a rebuild separates them.
+ */
+@DisplayName("MinHash index")
+class MinHashIndexTest {
+  private LikeRepository likeRepository;
+  private LikeMatrix likeMatrix;
+  private MinHashIndex index;
+
+  @BeforeEach
+  void setup() {
+    likeRepository = mock(LikeRepository.class);
+    likeMatrix = new LikeMatrix(likeRepository);
+    index = new MinHashIndex(likeMatrix, new MinHashProperties(128, 64));
+  }
+
+  @Test
+  @DisplayName("Finds users with the same likes and not users with disjoint likes")
+  void shouldFindSimilarUsers() {
+    like(1, 10, 11, 12, 13);
+    like(2, 10, 11, 12, 13);
+    like(3, 20, 21, 22, 23);
+
+    assertThat(index.findCandidates(1)).containsExactly(2);
+    assertThat(index.findCandidates(3)).isEmpty();
+    assertThat(index.findCandidates(4)).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Recomputes a signature when an unlike removes one of its minimums")
+  void shouldFollowUnlikes() {
+    like(1, 10, 11, 12, 13);
+    like(2, 10, 11, 12, 13);
+
+    for (long filmId = 10; filmId <= 13; filmId++) {
+      likeMatrix.markUnliked(filmId, 2);
+    }
+    like(2, 20);
+
+    assertThat(index.findCandidates(1)).isEmpty();
+    assertThat(index.findCandidates(2)).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Forgets a deleted user")
+  void shouldRemoveUser() {
+    like(1, 10, 11);
+    like(2, 10, 11);
+
+    likeMatrix.onUserDeleted(new UserDeletedEvent(this, 2));
+
+    assertThat(index.findCandidates(1)).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Rebuilds the signatures when the matrix is reloaded")
+  void shouldRebuildWithMatrix() {
+    doAnswer(invocation -> {
+      LikeRepository.LikeConsumer consumer = invocation.getArgument(0);
+      consumer.accept(10, 1);
+      consumer.accept(10, 2);
+      return null;
+    }).when(likeRepository)
+      .forEachLike(any());
+
+    assertThat(index.findCandidates(1)).isEmpty();
+
+    likeMatrix.rebuild();
+
+    assertThat(index.findCandidates(1)).containsExactly(2);
+  }
+
+  @Test
+  @DisplayName("Rejects a signature that does not split into equal bands")
+  void shouldRejectUnevenBands() {
+    assertThatThrownBy(() -> new MinHashIndex(likeMatrix, new MinHashProperties(100, 64)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private void like(long userId, long... filmIds) {
+    for (long filmId : filmIds) {
+      likeMatrix.markLiked(filmId, userId);
+    }
+  }
+}
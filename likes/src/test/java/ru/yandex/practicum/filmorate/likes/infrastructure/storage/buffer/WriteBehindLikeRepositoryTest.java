@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.likes.infrastructure.storage.buffer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.yandex.practicum.filmorate.likes.domain.model.LikeChange;
+import ru.yandex.practicum.filmorate.likes.infrastructure.storage.jdbc.JdbcLikeRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class WriteBehindLikeRepositoryTest {
+
+    private JdbcLikeRepository delegate;
+
+    @BeforeEach
+    void setup() {
+        delegate = mock(JdbcLikeRepository.class);
+    }
+
+    @Test
+    @DisplayName("Should write the latest change of each like in one batch")
+    void shouldWriteBatch() {
+        WriteBehindLikeRepository repository = repository(LikeWriteBehindProperties.Durability.ASYNC);
+
+        assertThat(repository.addLike(1, 10)).isTrue();
+        assertThat(repository.addLike(2, 10)).isTrue();
+        assertThat(repository.addLike(1, 10)).isFalse();
+        assertThat(repository.removeLike(2, 10)).isTrue();
+        assertThat(repository.hasLike(1, 10)).isTrue();
+        assertThat(repository.hasLike(2, 10)).isFalse();
+        assertThat(repository.bufferedChanges()).isEqualTo(2);
+
+        repository.flush();
+
+        verify(delegate).saveChanges(argThat(changes -> Set.copyOf(changes)
+                                                          .equals(Set.of(new LikeChange(1, 10, true),
+                                                                         new LikeChange(2, 10, false)))));
+        assertThat(repository.bufferedChanges()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should buffer changes without reading the stored likes and report the flushed films")
+    void shouldBufferWithoutReadingStoredLikes() {
+        WriteBehindLikeRepository repository = repository(LikeWriteBehindProperties.Durability.ASYNC);
+        List<Set<Long>> flushed = new ArrayList<>();
+        repository.onFlushed(flushed::add);
+
+        assertThat(repository.addLike(1, 10)).isTrue();
+        assertThat(repository.removeLike(2, 10)).isTrue();
+        repository.flush();
+
+        verify(delegate, never()).hasLike(anyLong(), anyLong());
+        assertThat(flushed).containsExactly(Set.of(1L, 2L));
+    }
+
+    @Test
+    @DisplayName("Should keep acknowledged changes buffered when the batch cannot be written")
+    void shouldRebufferAfterFailedFlush() {
+        doThrow(new CannotCreateTransactionException("No connection")).doNothing()
+                                                                      .when(delegate)
+                                                                      .saveChanges(anyList());
+        WriteBehindLikeRepository repository = repository(LikeWriteBehindProperties.Durability.ASYNC);
+        repository.addLike(1, 10);
+
+        assertThatThrownBy(repository::flush).isInstanceOf(CannotCreateTransactionException.class);
+        assertThat(repository.bufferedChanges()).isEqualTo(1);
+        assertThat(repository.hasLike(1, 10)).isTrue();
+
+        repository.flush();
+
+        verify(delegate, times(2)).saveChanges(List.of(new LikeChange(1, 10, true)));
+        assertThat(repository.bufferedChanges()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should fail waiting sync callers when the batch cannot be written")
+    void shouldFailSyncCallers() throws InterruptedException {
+        doThrow(new CannotCreateTransactionException("No connection")).when(delegate)
+                                                                      .saveChanges(anyList());
+        WriteBehindLikeRepository repository = repository(LikeWriteBehindProperties.Durability.SYNC);
+        repository.start();
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertThatThrownBy(() -> repository.addLike(1, 10))
+                .isInstanceOf(CannotCreateTransactionException.class));
+            assertThat(repository.bufferedChanges()).isZero();
+        } finally {
+            repository.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Should drop only the changes the database rejects")
+    void shouldDropRejectedChanges() {
+        LikeChange rejected = new LikeChange(2, 10, true);
+        doThrow(new DataIntegrityViolationException("Film deleted")).when(delegate)
+                                                                    .saveChanges(argThat(changes -> changes.contains(
+                                                                        rejected)));
+        WriteBehindLikeRepository repository = repository(LikeWriteBehindProperties.Durability.ASYNC);
+        repository.addLike(1, 10);
+        repository.addLike(2, 10);
+
+        repository.flush();
+
+        verify(delegate).saveChanges(List.of(new LikeChange(1, 10, true)));
+        assertThat(repository.bufferedChanges()).isZero();
+    }
+
+    private WriteBehindLikeRepository repository(LikeWriteBehindProperties.Durability durability) {
+        return new WriteBehindLikeRepository(delegate,
+                                             mock(PlatformTransactionManager.class),
+                                             new LikeWriteBehindProperties(true,
+                                                                           Duration.ofMillis(10),
+                                                                           1000,
+                                                                           durability),
+                                             new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate.likes.infrastructure.storage.counter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import ru.yandex.practicum.filmorate.likes.infrastructure.storage.jdbc.JdbcLikeRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class CountingLikeRepositoryTest {
+
+    private JdbcLikeRepository delegate;
+    private CountingLikeRepository repository;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        delegate = mock(JdbcLikeRepository.class);
+        when(delegate.getLikeCounts()).thenReturn(Map.of(1L, 2L));
+        repository = new CountingLikeRepository(delegate, mock(ObjectProvider.class), new SimpleMeterRegistry());
+        repository.rebuild();
+    }
+
+    @Test
+    @DisplayName("Should move the counters only for likes and unlikes that changed a row")
+    void shouldCountChanges() {
+        when(delegate.addLike(1, 10)).thenReturn(true);
+        when(delegate.addLike(2, 10)).thenReturn(false);
+        when(delegate.removeLike(1, 11)).thenReturn(true);
+
+        repository.addLike(1, 10);
+        repository.addLike(2, 10);
+        repository.removeLike(1, 11);
+
+        assertThat(repository.getLikeCountsForFilms(Set.of(1L, 2L))).isEqualTo(Map.of(1L, 2));
+        repository.addLike(1, 10);
+        assertThat(repository.getLikeCounts()).isEqualTo(Map.of(1L, 3L));
+        verify(delegate, never()).getLikeCountsForFilms(anySet());
+    }
+
+    @Test
+    @DisplayName("Should move the counters after commit and leave them on rollback")
+    void shouldFollowTransactionOutcome() {
+        when(delegate.addLike(1, 10)).thenReturn(true);
+        when(delegate.addLike(1, 11)).thenReturn(true);
+
+        inTransaction(TransactionSynchronization.STATUS_ROLLED_BACK, () -> repository.addLike(1, 10));
+        assertThat(repository.getLikeCounts()).isEqualTo(Map.of(1L, 2L));
+
+        inTransaction(TransactionSynchronization.STATUS_COMMITTED, () -> {
+            repository.addLike(1, 11);
+            assertThat(repository.getLikeCounts()).isEqualTo(Map.of(1L, 2L));
+        });
+        assertThat(repository.getLikeCounts()).isEqualTo(Map.of(1L, 3L));
+    }
+
+    @Test
+    @DisplayName("Should repair drifted counters but skip films written while the database is read")
+    void shouldRepairDriftOutsideWrites() {
+        when(delegate.addLike(2, 10)).thenReturn(true);
+        when(delegate.getLikeCounts()).thenReturn(Map.of(1L, 5L, 2L, 7L));
+
+        inTransaction(TransactionSynchronization.STATUS_COMMITTED, () -> {
+            repository.addLike(2, 10);
+            assertThat(repository.checkConsistency()).isEqualTo(1);
+        });
+
+        assertThat(repository.getLikeCounts()).isEqualTo(Map.of(1L, 5L, 2L, 1L));
+        assertThat(repository.checkConsistency()).isEqualTo(1);
+        assertThat(repository.getLikeCounts()).isEqualTo(Map.of(1L, 5L, 2L, 7L));
+        assertThat(repository.checkConsistency()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should show the new counts to after-commit callbacks of the same transaction")
+    void shouldApplyBeforeOtherAfterCommitCallbacks() {
+        when(delegate.addLike(1, 10)).thenReturn(true);
+        List<Map<Long, Long>> seen = new ArrayList<>();
+
+        inTransaction(TransactionSynchronization.STATUS_COMMITTED, () -> {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    seen.add(repository.getLikeCounts());
+                }
+            });
+            repository.addLike(1, 10);
+        });
+
+        assertThat(seen).containsExactly(Map.of(1L, 3L));
+    }
+
+    private static void inTransaction(int status, Runnable action) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            action.run();
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+            }
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                                                                  status);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
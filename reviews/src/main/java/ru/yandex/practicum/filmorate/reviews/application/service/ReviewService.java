@@ -1,7 +1,10 @@
 package ru.yandex.practicum.filmorate.reviews.application.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.common.events.UserDeletedEvent;
 import ru.yandex.practicum.filmorate.reviews.application.port.in.ReviewUseCase;
 import ru.yandex.practicum.filmorate.reviews.domain.model.Review;
 import ru.yandex.practicum.filmorate.reviews.domain.port.CreateReviewCommand;
@@ -18,20 +21,32 @@ public class ReviewService implements ReviewUseCase {
     private final ReviewRepository reviewRepository;
 
     @Override
+    @Transactional
     public Review addReview(CreateReviewCommand command) {
         return reviewRepository.addReview(command);
     }
 
     @Override
+    @Transactional
     public Review updateReview(UpdateReviewCommand command) {
         return reviewRepository.updateReview(command);
     }
 
     @Override
+    @Transactional
     public boolean removeReview(long reviewId) {
         return reviewRepository.removeReview(reviewId);
     }
 
+    /**
+     * Removes the reviews of a user that is being deleted, so that the review counts in {@code film_stats} drop with
+     * them. Runs in the deleting transaction.
+     */
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        reviewRepository.removeReviewsByUserId(event.getUserId());
+    }
+
     @Override
     public Optional<Review> getReviewById(long reviewId) {
         return reviewRepository.getReviewById(reviewId);
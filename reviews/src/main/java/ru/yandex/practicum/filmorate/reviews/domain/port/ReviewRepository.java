@@ -11,6 +11,8 @@ public interface ReviewRepository {
 
     boolean removeReview(long reviewId);
 
+    void removeReviewsByUserId(long userId);
+
     Optional<Review> getReviewById(long reviewId);
 
     List<Review> getReviewsByFilmId(long filmId);
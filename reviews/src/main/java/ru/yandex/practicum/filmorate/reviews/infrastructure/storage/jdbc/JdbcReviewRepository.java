@@ -21,6 +21,9 @@ import java.util.*;
 @RequiredArgsConstructor
 @Profile("db")
 public class JdbcReviewRepository implements ReviewRepository {
+    private static final String CHANGE_REVIEW_COUNT_SQL =
+            "UPDATE film_stats SET review_count = review_count + ? WHERE film_id = ?";
+
     private final JdbcTemplate jdbcTemplate;
     private final ReviewFactory reviewFactory;
 
@@ -54,12 +57,15 @@ public class JdbcReviewRepository implements ReviewRepository {
 
         long reviewId = simpleJdbcInsert.executeAndReturnKey(params)
                 .longValue();
+        jdbcTemplate.update(CHANGE_REVIEW_COUNT_SQL, 1, command.filmId());
 
         return reviewFactory.create(reviewId, command);
     }
 
     @Override
     public Review updateReview(UpdateReviewCommand command) {
+        List<Long> previousFilmIds = jdbcTemplate.queryForList(
+                "SELECT film_id FROM reviews WHERE review_id = ?", Long.class, command.reviewId());
         String sql = "UPDATE reviews SET content = ?, is_positive = ?, useful = ?, user_id = ?, film_id = ? " +
                 "WHERE review_id = ?";
         int rowsAffected = jdbcTemplate.update(sql, command.content(), command.isPositive(), command.useful(),
@@ -68,16 +74,30 @@ public class JdbcReviewRepository implements ReviewRepository {
         if (rowsAffected == 0) {
             throw new ResourceNotFoundException("Review with id " + command.reviewId() + " not found.");
         }
+        if (!previousFilmIds.isEmpty() && previousFilmIds.get(0) != command.filmId()) {
+            jdbcTemplate.update(CHANGE_REVIEW_COUNT_SQL, -1, previousFilmIds.get(0));
+            jdbcTemplate.update(CHANGE_REVIEW_COUNT_SQL, 1, command.filmId());
+        }
 
         return reviewFactory.update(command);
     }
 
     @Override
     public boolean removeReview(long reviewId) {
+        jdbcTemplate.update("UPDATE film_stats SET review_count = review_count - 1 " +
+                "WHERE film_id = (SELECT film_id FROM reviews WHERE review_id = ?)", reviewId);
         String removeReviewQuery = "DELETE FROM reviews WHERE review_id = ?";
         return jdbcTemplate.update(removeReviewQuery, reviewId) > 0;
     }
 
+    @Override
+    public void removeReviewsByUserId(long userId) {
+        jdbcTemplate.update("UPDATE film_stats AS s SET review_count = review_count - " +
+                "(SELECT COUNT(*) FROM reviews AS r WHERE r.film_id = s.film_id AND r.user_id = ?) " +
+                "WHERE film_id IN (SELECT film_id FROM reviews WHERE user_id = ?)", userId, userId);
+        jdbcTemplate.update("DELETE FROM reviews WHERE user_id = ?", userId);
+    }
+
     @Override
     public Optional<Review> getReviewById(long reviewId) {
         List<Review> reviews = mapRowsToReviews(jdbcTemplate.queryForList("SELECT * FROM reviews WHERE review_id = ?", reviewId));
@@ -8,5 +8,7 @@ import java.util.Set;
 public interface SearchRepository {
   void save(SearchableFilm film);
 
+  void saveAll(List<SearchableFilm> films);
+
   List<Long> search(String query, Set<String> by);
 }
\ No newline at end of file
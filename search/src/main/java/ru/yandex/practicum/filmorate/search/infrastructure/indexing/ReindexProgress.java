@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.search.infrastructure.indexing;
+
+import java.time.Instant;
+
+/**
+ State of the last full search reindex.
+ @param status Current state of the job
+ @param totalFilms Number of films counted when the job started
+ @param indexedFilms Number of films written to the shadow table so far
+ @param startedAt When the job started, {@code null} if it never ran
+ @param finishedAt When the job completed or failed, {@code null} while it runs
+ @param filmsPerSecond Average throughput since the start
+ @param etaSeconds Estimated seconds until all counted films are written, {@code null} unless running
+ @param error Message of the failure, {@code null} unless failed */
+public record ReindexProgress(Status status,
+                              long totalFilms,
+                              long indexedFilms,
+                              Instant startedAt,
+                              Instant finishedAt,
+                              double filmsPerSecond,
+                              Long etaSeconds,
+                              String error) {
+  public enum Status {
+    IDLE,
+    RUNNING,
+    COMPLETED,
+    FAILED
+  }
+}
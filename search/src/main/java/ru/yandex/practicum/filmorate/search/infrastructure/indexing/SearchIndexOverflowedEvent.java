@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.search.infrastructure.indexing;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ Published by {@link SearchIndexingQueue} while film changes it had no room for are waiting to be indexed. They reach
+ {@code search_index} only through a full rebuild, which {@link SearchReindexJob} starts on this event. */
+public class SearchIndexOverflowedEvent
+    extends ApplicationEvent {
+  public SearchIndexOverflowedEvent(Object source) {
+    super(source);
+  }
+}
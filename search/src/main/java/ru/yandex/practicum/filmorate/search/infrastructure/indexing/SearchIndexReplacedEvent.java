@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.search.infrastructure.indexing;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ Published after {@link SearchReindexJob} swapped a freshly built {@code search_index} table in. Search backends that
+ keep state derived from the table, or attached to it, have to rebuild it. */
+public class SearchIndexReplacedEvent
+    extends ApplicationEvent {
+  public SearchIndexReplacedEvent(Object source) {
+    super(source);
+  }
+}
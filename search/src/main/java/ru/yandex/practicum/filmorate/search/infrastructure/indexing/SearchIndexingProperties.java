@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.search.infrastructure.indexing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ Configuration of the search indexing queue. Maps to properties with prefix "filmorate.search.indexing".
+ @param queueCapacity Number of films that may wait to be indexed; a committed change of another film that finds the
+ queue full is left to a full reindex
+ @param maxBatchSize Most rows written in one batch, and the queue depth that triggers a write before the interval
+ has passed
+ @param flushInterval Longest time a queued film waits before it is written
+ @param initialBackoff Time a row waits after its first failed write before it is written again; it doubles with every
+ further failure of the row
+ @param maxBackoff Longest time a failed row waits
+ @param maxAttempts Number of failed writes after which a row is dropped; a row rejected by a constraint is dropped
+ after the first */
+@ConfigurationProperties(prefix = "filmorate.search.indexing")
+public record SearchIndexingProperties(@DefaultValue("10000")
+                                       int queueCapacity,
+                                       @DefaultValue("500")
+                                       int maxBatchSize,
+                                       @DefaultValue("50ms")
+                                       Duration flushInterval,
+                                       @DefaultValue("100ms")
+                                       Duration initialBackoff,
+                                       @DefaultValue("30s")
+                                       Duration maxBackoff,
+                                       @DefaultValue("10")
+                                       int maxAttempts) {
+}
@@ -0,0 +1,346 @@
+package ru.yandex.practicum.filmorate.search.infrastructure.indexing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.search.domain.model.SearchableFilm;
+import ru.yandex.practicum.filmorate.search.domain.port.SearchRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ Bounded queue of committed film changes waiting to be written to the search index. A film queued again before it was
+ written keeps its place and only its newest row is written. A virtual-thread writer sends the queue to the
+ {@link SearchRepository} in batches of {@code max-batch-size} every {@code flush-interval}, or as soon as a full batch
+ is waiting.
+ <p>
+ Queueing never blocks the committing thread. A change of a film that is not queued yet and finds the queue full at
+ {@code queue-capacity} is not kept; instead the queue is marked as overflowed, and every flush asks for a full
+ rebuild with a {@link SearchIndexOverflowedEvent} until a {@link SearchReindexJob} starts recording. The change was
+ committed before it was queued, so the rebuild reads it from the database.
+ <p>
+ A rejected batch is written again row by row. A row the database refuses outright, such as one whose film was
+ deleted meanwhile, is dropped at once. Other rows that still fail go back to the queue, unless a newer row of the same
+ film arrived meanwhile, and wait for a backoff of their own that doubles with every failed write of the row up to
+ {@code max-backoff}; the rows behind them are written on. A row is dropped after {@code max-attempts} failures.
+ <p>
+ While a {@link SearchReindexJob} runs, queued rows are also recorded so that the job can queue them again once it has
+ replaced the table they may have been written to. */
+@Slf4j
+@Component
+public class SearchIndexingQueue {
+  private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+
+  private final SearchRepository searchRepository;
+  private final SearchIndexingProperties properties;
+  private final ApplicationEventPublisher eventPublisher;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Map<Long, Pending> pending = new LinkedHashMap<>();
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final Timer flushTimer;
+  private final Counter droppedRows;
+  private final Counter overflowedRows;
+  private volatile boolean running;
+  private boolean overflowed;
+  private Thread writer;
+  private Map<Long, SearchableFilm> recorded;
+
+  public SearchIndexingQueue(SearchRepository searchRepository,
+                             SearchIndexingProperties properties,
+                             ApplicationEventPublisher eventPublisher,
+                             MeterRegistry meterRegistry) {
+    this.searchRepository = searchRepository;
+    this.properties = properties;
+    this.eventPublisher = eventPublisher;
+    Gauge.builder("filmorate.search.indexing.depth", this, SearchIndexingQueue::depth)
+         .description("Films waiting to be written to the search index")
+         .register(meterRegistry);
+    TimeGauge.builder("filmorate.search.indexing.lag", this, TimeUnit.NANOSECONDS, SearchIndexingQueue::lagNanos)
+             .description("Time the longest waiting film change has spent in the queue")
+             .register(meterRegistry);
+    this.flushTimer = Timer.builder("filmorate.search.indexing.flush")
+                           .description("Time to write one batch of search index rows")
+                           .register(meterRegistry);
+    this.droppedRows = Counter.builder("filmorate.search.indexing.dropped")
+                              .description("Search index rows dropped after repeated failures")
+                              .register(meterRegistry);
+    this.overflowedRows = Counter.builder("filmorate.search.indexing.overflowed")
+                                 .description("Film changes left to a full reindex because the queue was full")
+                                 .register(meterRegistry);
+  }
+
+  @PostConstruct
+  void start() {
+    running = true;
+    writer = Thread.ofVirtual()
+                   .name("search-indexing")
+                   .start(this::runWriter);
+  }
+
+  @PreDestroy
+  void stop() throws InterruptedException {
+    running = false;
+    LockSupport.unpark(writer);
+    writer.join(SHUTDOWN_TIMEOUT);
+    flush();
+  }
+
+  /**
+   Queues rows to be written, replacing queued rows of the same films. Never waits: rows of new films that do not fit
+   are left to a full reindex.
+   @param films Rows to write
+   */
+  public void enqueue(List<SearchableFilm> films) {
+    long now = System.nanoTime();
+    int depth;
+    int overflow = 0;
+    lock.lock();
+    try {
+      for (SearchableFilm film : films) {
+        if (recorded != null) {
+          recorded.put(film.filmId(), film);
+        }
+        Pending previous = pending.get(film.filmId());
+        if (previous == null && pending.size() >= properties.queueCapacity()) {
+          overflow++;
+          continue;
+        }
+        pending.put(film.filmId(), new Pending(film, previous == null ? now : previous.queuedAt(), 0, now));
+      }
+      if (overflow > 0 && recorded == null) {
+        overflowed = true;
+      }
+      depth = pending.size();
+    } finally {
+      lock.unlock();
+    }
+    if (overflow > 0) {
+      overflowedRows.increment(overflow);
+      log.warn("Search indexing queue is full, {} film changes are left to a full reindex", overflow);
+    }
+    if (depth >= properties.maxBatchSize() || overflow > 0) {
+      LockSupport.unpark(writer);
+    }
+  }
+
+  /**
+   Writes every queued row that is not waiting out a backoff, then asks for a full reindex if rows were left out
+   since the last one started. Rows that fail stay queued for the writer to retry.
+   @return Whether every row was written
+   */
+  public boolean flush() {
+    long started = System.nanoTime();
+    flushLock.lock();
+    try {
+      boolean written = true;
+      while (true) {
+        List<Pending> batch = take(properties.maxBatchSize(), started);
+        if (batch.isEmpty()) {
+          break;
+        }
+        written &= write(batch);
+      }
+      if (isOverflowed()) {
+        eventPublisher.publishEvent(new SearchIndexOverflowedEvent(this));
+      }
+      return written;
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   Starts recording queued rows, replacing any earlier recording. The reindex that records reads every change left
+   out by an overflow so far, so the overflow is cleared.
+   */
+  public void startRecording() {
+    lock.lock();
+    try {
+      recorded = new LinkedHashMap<>();
+      overflowed = false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   Stops recording queued rows.
+   @return The newest row of every film queued since {@link #startRecording()}
+   */
+  public List<SearchableFilm> stopRecording() {
+    lock.lock();
+    try {
+      List<SearchableFilm> films = recorded == null ? List.of() : List.copyOf(recorded.values());
+      recorded = null;
+      return films;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   @return Whether film changes were left out of the queue since the last reindex started recording
+   */
+  public boolean isOverflowed() {
+    lock.lock();
+    try {
+      return overflowed;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int depth() {
+    lock.lock();
+    try {
+      return pending.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private double lagNanos() {
+    long now = System.nanoTime();
+    lock.lock();
+    try {
+      return pending.values()
+                    .stream()
+                    .mapToLong(item -> now - item.queuedAt())
+                    .max()
+                    .orElse(0);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   Takes up to {@code count} rows in queue order, skipping rows that wait to be retried after {@code now}, such as
+   rows that failed during the current flush.
+   */
+  private List<Pending> take(int count, long now) {
+    lock.lock();
+    try {
+      List<Pending> batch = new ArrayList<>(Math.min(count, pending.size()));
+      Iterator<Pending> iterator = pending.values()
+                                          .iterator();
+      while (batch.size() < count && iterator.hasNext()) {
+        Pending item = iterator.next();
+        if (item.retryAt() - now <= 0) {
+          batch.add(item);
+          iterator.remove();
+        }
+      }
+      return batch;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   Writes one batch, falling back to single rows if the batch is rejected.
+   @return Whether every row was written
+   */
+  private boolean write(List<Pending> batch) {
+    Timer.Sample sample = Timer.start();
+    try {
+      searchRepository.saveAll(batch.stream()
+                                    .map(Pending::film)
+                                    .toList());
+      return true;
+    } catch (DataAccessException e) {
+      log.warn("Writing {} search index rows failed, retrying one by one: {}", batch.size(), e.getMessage());
+      boolean written = true;
+      for (Pending item : batch) {
+        try {
+          searchRepository.save(item.film());
+        } catch (DataAccessException rejected) {
+          written = false;
+          requeue(item, rejected);
+        }
+      }
+      return written;
+    } finally {
+      sample.stop(flushTimer);
+    }
+  }
+
+  private void requeue(Pending item, DataAccessException failure) {
+    if (failure instanceof DataIntegrityViolationException) {
+      log.error("Dropping the search index row of film {} rejected by the database: {}",
+                item.film()
+                    .filmId(),
+                failure.getMessage());
+      droppedRows.increment();
+      return;
+    }
+    int attempts = item.attempts() + 1;
+    if (attempts >= properties.maxAttempts()) {
+      log.error("Dropping the search index row of film {} after {} failed writes: {}",
+                item.film()
+                    .filmId(),
+                attempts,
+                failure.getMessage());
+      droppedRows.increment();
+      return;
+    }
+    lock.lock();
+    try {
+      long retryAt = System.nanoTime() + backoffNanos(attempts);
+      pending.putIfAbsent(item.film()
+                              .filmId(), new Pending(item.film(), item.queuedAt(), attempts, retryAt));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   @return Time a row waits after its {@code attempts}-th failed write
+   */
+  private long backoffNanos(int attempts) {
+    long maxNanos = properties.maxBackoff()
+                              .toNanos();
+    long backoffNanos = properties.initialBackoff()
+                                  .toNanos();
+    for (int i = 1; i < attempts && backoffNanos < maxNanos; i++) {
+      backoffNanos *= 2;
+    }
+    return Math.min(backoffNanos, maxNanos);
+  }
+
+  private void runWriter() {
+    long intervalNanos = properties.flushInterval()
+                                   .toNanos();
+    while (running) {
+      LockSupport.parkNanos(this, intervalNanos);
+      try {
+        flush();
+      } catch (RuntimeException e) {
+        log.error("Writing the search index failed", e);
+      }
+    }
+  }
+
+  /**
+   @param queuedAt {@link System#nanoTime()} when the film was first queued since it was last written
+   @param attempts Number of failed writes of the row
+   @param retryAt {@link System#nanoTime()} before which the row is not written again
+   */
+  private record Pending(SearchableFilm film, long queuedAt, int attempts, long retryAt) {}
+}
@@ -0,0 +1,319 @@
+package ru.yandex.practicum.filmorate.search.infrastructure.indexing;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.search.domain.model.SearchableFilm;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ Rebuilds {@code search_index} from {@code films}, {@code film_directors} and {@code directors} without blocking
+ search. The films and their directors are read through one forward-only cursor that fetches {@code chunk-size} rows at
+ a time, so the catalogue never has to fit in memory. Every chunk of films is written to a shadow table by one of
+ {@code parallelism} writers while the cursor reads on; the reader waits when all writers are busy.
+ <p>
+ Once every chunk is written the old table is renamed to {@code search_index_old}, the shadow table to
+ {@code search_index}, and the old table dropped. H2 commits every DDL statement on its own, so the swap is not atomic:
+ a search that runs between the two renames may miss the table, and if the second rename fails the first one is undone
+ so that search keeps the old table. Search keeps using the old table until the swap, then a
+ {@link SearchIndexReplacedEvent} lets the search backends reload.
+ <p>
+ Changes queued by {@link SearchIndexingQueue} while the job runs may reach either table, so they are recorded and
+ queued again after the swap. The job also starts on its own when the queue overflowed. */
+@Slf4j
+@Component
+public class SearchReindexJob {
+  private static final String SHADOW_TABLE = "search_index_shadow";
+  private static final String OLD_TABLE = "search_index_old";
+  /**
+   Creates the shadow table with the columns of {@code search_index}. H2 does not copy constraints, or even
+   {@code NOT NULL}, into a table created from a query, so those are added back.
+   */
+  private static final List<String> CREATE_SHADOW_TABLE = List.of(
+      "CREATE TABLE " + SHADOW_TABLE + " AS SELECT * FROM search_index WHERE 1 = 0",
+      "ALTER TABLE " + SHADOW_TABLE + " ALTER COLUMN film_id SET NOT NULL",
+      "ALTER TABLE " + SHADOW_TABLE + " ALTER COLUMN title SET NOT NULL",
+      "ALTER TABLE " + SHADOW_TABLE + " ADD PRIMARY KEY (film_id)",
+      "ALTER TABLE " + SHADOW_TABLE + " ADD FOREIGN KEY (film_id) REFERENCES films (film_id) ON DELETE CASCADE");
+  private static final String SELECT_FILMS = "SELECT f.film_id, f.name, d.name AS director_name FROM films AS f " +
+                                             "LEFT JOIN film_directors AS fd ON fd.film_id = f.film_id " +
+                                             "LEFT JOIN directors AS d ON d.director_id = fd.director_id " +
+                                             "ORDER BY f.film_id, d.name";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate readOnly;
+  private final SearchIndexingQueue searchIndexingQueue;
+  private final ApplicationEventPublisher eventPublisher;
+  private final SearchReindexProperties properties;
+  private final AtomicBoolean running = new AtomicBoolean();
+  private final AtomicLong indexedFilms = new AtomicLong();
+  private volatile ReindexProgress.Status status = ReindexProgress.Status.IDLE;
+  private volatile long totalFilms;
+  private volatile Instant startedAt;
+  private volatile Instant finishedAt;
+  private volatile String error;
+  private volatile Thread worker;
+
+  public SearchReindexJob(JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          SearchIndexingQueue searchIndexingQueue,
+                          ApplicationEventPublisher eventPublisher,
+                          SearchReindexProperties properties) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.readOnly = new TransactionTemplate(transactionManager);
+    this.readOnly.setReadOnly(true);
+    this.searchIndexingQueue = searchIndexingQueue;
+    this.eventPublisher = eventPublisher;
+    this.properties = properties;
+  }
+
+  @PreDestroy
+  void stop() throws InterruptedException {
+    Thread current = worker;
+    if (current != null) {
+      current.interrupt();
+      current.join(Duration.ofSeconds(5));
+    }
+  }
+
+  /**
+   Starts a reindex on a background thread unless one is already running.
+   @return Progress of the started or the already running reindex
+   */
+  public ReindexProgress start() {
+    if (running.compareAndSet(false, true)) {
+      begin();
+      worker = Thread.ofVirtual()
+                     .name("search-reindex")
+                     .start(this::execute);
+    }
+    return progress();
+  }
+
+  /**
+   Catches up with film changes the indexing queue had no room for. Does nothing while a reindex is running; the queue
+   asks again on its next flush until one starts.
+   */
+  @EventListener(SearchIndexOverflowedEvent.class)
+  public void onQueueOverflowed() {
+    start();
+  }
+
+  /**
+   Runs a reindex on the calling thread.
+   @return Progress after the reindex completed or failed, or of the reindex that was already running
+   */
+  public ReindexProgress run() {
+    if (running.compareAndSet(false, true)) {
+      begin();
+      execute();
+    }
+    return progress();
+  }
+
+  public ReindexProgress progress() {
+    ReindexProgress.Status currentStatus = status;
+    long indexed = indexedFilms.get();
+    long total = totalFilms;
+    Instant started = startedAt;
+    Instant finished = finishedAt;
+    if (started == null) {
+      return new ReindexProgress(currentStatus, 0, 0, null, null, 0, null, null);
+    }
+    double seconds = Duration.between(started, finished == null ? Instant.now() : finished)
+                             .toNanos() / 1e9;
+    double filmsPerSecond = seconds > 0 ? indexed / seconds : 0;
+    Long etaSeconds = null;
+    if (currentStatus == ReindexProgress.Status.RUNNING && filmsPerSecond > 0) {
+      etaSeconds = (long) Math.ceil(Math.max(0, total - indexed) / filmsPerSecond);
+    }
+    return new ReindexProgress(currentStatus, total, indexed, started, finished, filmsPerSecond, etaSeconds, error);
+  }
+
+  private void begin() {
+    indexedFilms.set(0);
+    totalFilms = 0;
+    error = null;
+    finishedAt = null;
+    startedAt = Instant.now();
+    status = ReindexProgress.Status.RUNNING;
+  }
+
+  private void execute() {
+    searchIndexingQueue.startRecording();
+    try {
+      Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Long.class);
+      totalFilms = count == null ? 0 : count;
+      jdbcTemplate.execute("DROP TABLE IF EXISTS " + SHADOW_TABLE);
+      CREATE_SHADOW_TABLE.forEach(jdbcTemplate::execute);
+      copyFilms();
+      swap();
+      eventPublisher.publishEvent(new SearchIndexReplacedEvent(this));
+      finish(ReindexProgress.Status.COMPLETED, null);
+      log.info("Search index rebuilt with {} films in {} ms",
+               indexedFilms.get(),
+               Duration.between(startedAt, finishedAt)
+                       .toMillis());
+    } catch (RuntimeException | InterruptedException | ExecutionException e) {
+      if (e instanceof InterruptedException) {
+        Thread.currentThread()
+              .interrupt();
+      }
+      log.error("Rebuilding the search index failed", e);
+      jdbcTemplate.execute("DROP TABLE IF EXISTS " + SHADOW_TABLE);
+      finish(ReindexProgress.Status.FAILED, e.getMessage());
+    } finally {
+      searchIndexingQueue.enqueue(searchIndexingQueue.stopRecording());
+      worker = null;
+      running.set(false);
+    }
+  }
+
+  /**
+   Renames the shadow table to {@code search_index}. A failed second rename puts the old table back, so search never
+   stays without one; a failed drop only leaves the old table behind until the next reindex.
+   */
+  private void swap() {
+    jdbcTemplate.execute("DROP TABLE IF EXISTS " + OLD_TABLE);
+    jdbcTemplate.execute("ALTER TABLE search_index RENAME TO " + OLD_TABLE);
+    try {
+      jdbcTemplate.execute("ALTER TABLE " + SHADOW_TABLE + " RENAME TO search_index");
+    } catch (RuntimeException e) {
+      jdbcTemplate.execute("ALTER TABLE " + OLD_TABLE + " RENAME TO search_index");
+      throw e;
+    }
+    try {
+      jdbcTemplate.execute("DROP TABLE " + OLD_TABLE);
+    } catch (RuntimeException e) {
+      log.warn("Dropping the replaced search index failed, it is dropped by the next reindex", e);
+    }
+  }
+
+  private void finish(ReindexProgress.Status finalStatus, String message) {
+    error = message;
+    finishedAt = Instant.now();
+    status = finalStatus;
+  }
+
+  /**
+   Streams the catalogue into the shadow table. Rows of one film arrive together thanks to the ordering, so a film is
+   complete once the cursor moves to the next one. The cursor runs in a read-only transaction, which PostgreSQL needs
+   to honour the fetch size instead of reading the whole result.
+   */
+  private void copyFilms() throws InterruptedException, ExecutionException {
+    int chunkSize = properties.chunkSize();
+    Semaphore writers = new Semaphore(properties.parallelism());
+    List<Future<?>> writes = new ArrayList<>();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      ChunkReader reader = new ChunkReader(chunkSize, chunk -> {
+        writers.acquireUninterruptibly();
+        writes.add(executor.submit(() -> {
+          try {
+            writeChunk(chunk);
+          } finally {
+            writers.release();
+          }
+        }));
+      });
+      PreparedStatementCreator cursor = connection -> {
+        PreparedStatement statement = connection.prepareStatement(SELECT_FILMS,
+                                                                  ResultSet.TYPE_FORWARD_ONLY,
+                                                                  ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(chunkSize);
+        return statement;
+      };
+      try {
+        readOnly.executeWithoutResult(transaction -> jdbcTemplate.query(cursor, reader::accept));
+        reader.finish();
+        for (Future<?> write : writes) {
+          write.get();
+        }
+      } catch (RuntimeException | InterruptedException | ExecutionException e) {
+        writes.forEach(write -> write.cancel(true));
+        throw e;
+      }
+    }
+  }
+
+  private void writeChunk(List<SearchableFilm> chunk) {
+    jdbcTemplate.batchUpdate("INSERT INTO " + SHADOW_TABLE + " (film_id, title, directors_names) VALUES (?, ?, ?)",
+                             chunk.stream()
+                                  .map(film -> new Object[] {film.filmId(), film.title(), film.directorNames()})
+                                  .toList());
+    indexedFilms.addAndGet(chunk.size());
+  }
+
+  /**
+   Groups the cursor rows into search index rows and hands them on in chunks.
+   */
+  private static final class ChunkReader {
+    private final int chunkSize;
+    private final Consumer<List<SearchableFilm>> sink;
+    private List<SearchableFilm> chunk = new ArrayList<>();
+    private long filmId = -1;
+    private String title;
+    private StringJoiner directors;
+
+    ChunkReader(int chunkSize, Consumer<List<SearchableFilm>> sink) {
+      this.chunkSize = chunkSize;
+      this.sink = sink;
+    }
+
+    void accept(ResultSet rs) throws SQLException {
+      long rowFilmId = rs.getLong("film_id");
+      if (rowFilmId != filmId) {
+        completeFilm();
+        filmId = rowFilmId;
+        title = rs.getString("name");
+        directors = new StringJoiner(" ");
+      }
+      String director = rs.getString("director_name");
+      if (director != null) {
+        directors.add(director);
+      }
+    }
+
+    void finish() {
+      completeFilm();
+      if (!chunk.isEmpty()) {
+        sink.accept(chunk);
+        chunk = new ArrayList<>();
+      }
+    }
+
+    private void completeFilm() {
+      if (filmId < 0) {
+        return;
+      }
+      chunk.add(new SearchableFilm(filmId, title.toLowerCase(), directors.toString()
+                                                                         .toLowerCase()));
+      filmId = -1;
+      if (chunk.size() >= chunkSize) {
+        sink.accept(chunk);
+        chunk = new ArrayList<>();
+      }
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.search.infrastructure.indexing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ Configuration of the full search reindex. Maps to properties with prefix "filmorate.search.reindex".
+ @param chunkSize Number of films read from the cursor and written to the shadow table as one chunk
+ @param parallelism Number of chunks written at the same time */
+@ConfigurationProperties(prefix = "filmorate.search.reindex")
+public record SearchReindexProperties(@DefaultValue("1000")
+                                      int chunkSize,
+                                      @DefaultValue("4")
+                                      int parallelism) {
+}
@@ -2,32 +2,45 @@ package ru.yandex.practicum.filmorate.search.infrastructure.listener;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.common.events.FilmSearchDataBatchUpdatedEvent;
 import ru.yandex.practicum.filmorate.common.events.FilmSearchDataUpdatedEvent;
 import ru.yandex.practicum.filmorate.search.domain.model.SearchableFilm;
-import ru.yandex.practicum.filmorate.search.domain.port.SearchRepository;
+import ru.yandex.practicum.filmorate.search.infrastructure.indexing.SearchIndexingQueue;
 
+import java.util.List;
+import java.util.Set;
+
+/**
+ Hands committed film changes to the {@link SearchIndexingQueue}, so the search index is written outside the film
+ request and a rolled-back change is never indexed. */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class FilmEventsListener {
 
-  private final SearchRepository searchRepository;
+  private final SearchIndexingQueue searchIndexingQueue;
 
-  @EventListener
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
   public void handleFilmSearchDataUpdate(FilmSearchDataUpdatedEvent event) {
-    log.info("Received event to update search index for filmId: {}", event.getFilmId());
-    try {
-      SearchableFilm searchableFilm = new SearchableFilm(event.getFilmId(),
-                                                         event.getTitle()
-                                                              .toLowerCase(),
-                                                         String.join(" ", event.getDirectors())
-                                                               .toLowerCase());
-      searchRepository.save(searchableFilm);
-      log.info("Successfully updated search index for filmId: {}", event.getFilmId());
-    } catch (Exception e) {
-      log.error("Failed to update search index for filmId: {}", event.getFilmId(), e);
-    }
+    log.debug("Queueing search index update for filmId: {}", event.getFilmId());
+    searchIndexingQueue.enqueue(List.of(toSearchableFilm(event.getFilmId(), event.getTitle(), event.getDirectors())));
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void handleFilmSearchDataBatchUpdate(FilmSearchDataBatchUpdatedEvent event) {
+    log.debug("Queueing search index update for {} films", event.getFilms()
+                                                               .size());
+    searchIndexingQueue.enqueue(event.getFilms()
+                                     .stream()
+                                     .map(film -> toSearchableFilm(film.filmId(), film.title(), film.directors()))
+                                     .toList());
+  }
+
+  private static SearchableFilm toSearchableFilm(long filmId, String title, Set<String> directors) {
+    return new SearchableFilm(filmId, title.toLowerCase(), String.join(" ", directors)
+                                                                 .toLowerCase());
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.search.infrastructure.storage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.search.domain.model.SearchableFilm;
+import ru.yandex.practicum.filmorate.search.domain.port.SearchRepository;
+import ru.yandex.practicum.filmorate.search.infrastructure.indexing.SearchIndexReplacedEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ Search backed by H2's native full-text index over {@code search_index}, selected with the {@code fulltext} profile
+ instead of {@link TrigramSearchRepository}. H2 keeps the word index up to date with triggers on the table, so writes
+ are plain {@link JdbcSearchRepository} MERGEs and nothing is held in application memory.
+ <p>
+ The full-text index matches whole words: {@code FT_SEARCH_DATA} returns the rows containing every word of the query,
+ and only those rows are then checked with the former {@code LIKE} conditions, which restrict the match to the
+ requested columns. A query that is only part of a word therefore finds nothing, unlike the substring search of the
+ other implementations. */
+@Slf4j
+@Primary
+@Repository
+@Profile("fulltext")
+public class H2FullTextSearchRepository
+    implements SearchRepository {
+  private static final String TABLE = "SEARCH_INDEX";
+
+  private final JdbcSearchRepository delegate;
+  private final JdbcTemplate jdbcTemplate;
+
+  public H2FullTextSearchRepository(JdbcSearchRepository delegate, JdbcTemplate jdbcTemplate) {
+    this.delegate = delegate;
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   Registers the H2 full-text functions and indexes the title and director columns unless the table already has the
+   index triggers. The index is recreated when the triggers are missing, for example after the schema script dropped
+   and recreated the table or a reindex swapped in a new one, and the rows already in the table are indexed on creation.
+   */
+  @PostConstruct
+  @EventListener(SearchIndexReplacedEvent.class)
+  public void createIndex() {
+    jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS FT_INIT FOR 'org.h2.fulltext.FullText.init'");
+    jdbcTemplate.execute("CALL FT_INIT()");
+    Integer triggers = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TRIGGERS " +
+                                                   "WHERE EVENT_OBJECT_TABLE = ? AND TRIGGER_NAME LIKE 'FT\\_%'",
+                                                   Integer.class,
+                                                   TABLE);
+    if (triggers == null || triggers == 0) {
+      jdbcTemplate.update("CALL FT_DROP_INDEX('PUBLIC', ?)", TABLE);
+      jdbcTemplate.update("CALL FT_CREATE_INDEX('PUBLIC', ?, 'TITLE,DIRECTORS_NAMES')", TABLE);
+      log.info("Created the H2 full-text index of {}", TABLE);
+    }
+  }
+
+  @Override
+  public void save(SearchableFilm film) {
+    delegate.save(film);
+  }
+
+  @Override
+  public void saveAll(List<SearchableFilm> films) {
+    delegate.saveAll(films);
+  }
+
+  @Override
+  public List<Long> search(String query, Set<String> by) {
+    List<String> conditions = new ArrayList<>();
+    List<Object> params = new ArrayList<>();
+    params.add(query);
+    String searchQuery = "%" + query + "%";
+
+    if (by.contains("TITLE")) {
+      conditions.add("si.title LIKE ?");
+      params.add(searchQuery);
+    }
+    if (by.contains("DIRECTOR")) {
+      conditions.add("si.directors_names LIKE ?");
+      params.add(searchQuery);
+    }
+
+    if (conditions.isEmpty() || query.isBlank()) {
+      return List.of();
+    }
+
+    String sql = "SELECT si.film_id FROM FT_SEARCH_DATA(?, 0, 0) AS ft " +
+                 "JOIN search_index AS si ON si.film_id = CAST(ft.KEYS[1] AS BIGINT) " +
+                 "JOIN film_stats AS s ON s.film_id = si.film_id " +
+                 "WHERE ft.\"TABLE\" = '" + TABLE + "' AND (" + String.join(" OR ", conditions) + ") " +
+                 "ORDER BY s.like_count DESC, si.film_id";
+    return jdbcTemplate.queryForList(sql, Long.class, params.toArray());
+  }
+}
@@ -3,12 +3,15 @@ package ru.yandex.practicum.filmorate.search.infrastructure.storage;
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.common.infrastructure.storage.jdbc.IdArrayParameter;
 import ru.yandex.practicum.filmorate.search.domain.model.SearchableFilm;
 import ru.yandex.practicum.filmorate.search.domain.port.SearchRepository;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository
 @RequiredArgsConstructor
@@ -17,10 +20,22 @@ public class JdbcSearchRepository
 
   private final JdbcTemplate jdbcTemplate;
 
+  private static final String MERGE_SQL =
+      "MERGE INTO search_index (film_id, title, directors_names) KEY(film_id) VALUES (?, ?, ?)";
+  private static final int BATCH_SIZE = 1000;
+
   @Override
   public void save(SearchableFilm film) {
-    String sql = "MERGE INTO search_index (film_id, title, directors_names) KEY(film_id) VALUES (?, ?, ?)";
-    jdbcTemplate.update(sql, film.filmId(), film.title(), film.directorNames());
+    jdbcTemplate.update(MERGE_SQL, film.filmId(), film.title(), film.directorNames());
+  }
+
+  @Override
+  public void saveAll(List<SearchableFilm> films) {
+    jdbcTemplate.batchUpdate(MERGE_SQL, films, BATCH_SIZE, (ps, film) -> {
+      ps.setLong(1, film.filmId());
+      ps.setString(2, film.title());
+      ps.setString(3, film.directorNames());
+    });
   }
 
   @Override
@@ -43,10 +58,31 @@ public class JdbcSearchRepository
     }
 
     String whereClause = String.join(" OR ", conditions);
-    String sql = "SELECT si.film_id FROM search_index si LEFT JOIN likes l ON si.film_id = l.film_id WHERE " +
-            whereClause + " GROUP BY si.film_id\n" +
-            "ORDER BY COUNT(l.user_id) DESC;";
+    String sql = "SELECT si.film_id FROM search_index si JOIN film_stats s ON si.film_id = s.film_id WHERE (" +
+            whereClause + ") ORDER BY s.like_count DESC, si.film_id";
 
     return jdbcTemplate.queryForList(sql, Long.class, params.toArray());
   }
+
+  /**
+   Streams every row of {@code search_index} without collecting them in memory.
+   @param consumer Receives each row
+   */
+  public void forEachFilm(Consumer<SearchableFilm> consumer) {
+    jdbcTemplate.query("SELECT film_id, title, directors_names FROM search_index", rs -> {
+      consumer.accept(new SearchableFilm(rs.getLong("film_id"), rs.getString("title"), rs.getString("directors_names")));
+    });
+  }
+
+  /**
+   Orders films the way {@link #search(String, Set)} orders its matches, reading only the given films.
+   @param filmIds IDs of the matched films
+   @return IDs of the films that still exist, by like count (descending), then by ID
+   */
+  public List<Long> rankByLikes(Collection<Long> filmIds) {
+    return jdbcTemplate.queryForList("SELECT s.film_id FROM film_stats AS s WHERE s.film_id = ANY(?) " +
+                                     "ORDER BY s.like_count DESC, s.film_id",
+                                     Long.class,
+                                     IdArrayParameter.of(filmIds));
+  }
 }
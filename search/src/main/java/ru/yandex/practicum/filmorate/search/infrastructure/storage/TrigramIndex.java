@@ -0,0 +1,269 @@
+package ru.yandex.practicum.filmorate.search.infrastructure.storage;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ Inverted index from the trigrams (three consecutive characters) of one text field to the IDs of the films whose text
+ contains them. A substring of at least three characters can only occur in a text that contains all of its trigrams,
+ so intersecting their posting lists gives a small candidate set that is then verified against the text.
+ <p>
+ Posting lists are sorted, immutable {@code int[]} arrays; a change copies the affected list and swaps it in, so
+ lookups never lock and never see a half-written list. Batches are collected in {@link Changes} first, so every list
+ they touch is copied once per batch rather than once per film. */
+final class TrigramIndex {
+  static final int TRIGRAM_LENGTH = 3;
+  private static final int[] EMPTY = new int[0];
+  private static final long[] NO_TRIGRAMS = new long[0];
+  /**
+   A list this many times longer than the running intersection is probed by binary search instead of merged.
+   */
+  private static final int GALLOP_RATIO = 8;
+
+  private final Map<Long, int[]> postings;
+
+  TrigramIndex() {
+    this(new ConcurrentHashMap<>());
+  }
+
+  private TrigramIndex(Map<Long, int[]> postings) {
+    this.postings = postings;
+  }
+
+  void add(int filmId, long[] trigrams) {
+    for (long trigram : trigrams) {
+      postings.compute(trigram, (key, ids) -> insert(ids == null ? EMPTY : ids, filmId));
+    }
+  }
+
+  void remove(int filmId, long[] trigrams) {
+    for (long trigram : trigrams) {
+      postings.computeIfPresent(trigram, (key, ids) -> delete(ids, filmId));
+    }
+  }
+
+  /**
+   Adds the collected films to every posting list in one merge per trigram.
+   @param changes Film IDs per trigram
+   */
+  void addAll(Changes changes) {
+    changes.forEach((trigram, filmIds) -> postings.compute(trigram,
+                                                           (key, ids) -> union(ids == null ? EMPTY : ids, filmIds)));
+  }
+
+  /**
+   Removes the collected films from every posting list in one pass per trigram.
+   @param changes Film IDs per trigram
+   */
+  void removeAll(Changes changes) {
+    changes.forEach((trigram, filmIds) -> postings.computeIfPresent(trigram, (key, ids) -> subtract(ids, filmIds)));
+  }
+
+  /**
+   Finds the films whose text contains every given trigram, starting from the shortest posting list.
+   @param trigrams Trigrams of the query, see {@link #trigrams(String)}
+   @return Film IDs in ascending order
+   */
+  int[] findAll(long[] trigrams) {
+    int[][] lists = new int[trigrams.length][];
+    for (int i = 0; i < trigrams.length; i++) {
+      lists[i] = postings.getOrDefault(trigrams[i], EMPTY);
+      if (lists[i].length == 0) {
+        return EMPTY;
+      }
+    }
+    Arrays.sort(lists, Comparator.comparingInt(list -> list.length));
+    int[] result = lists.length == 0 ? EMPTY : lists[0];
+    for (int i = 1; i < lists.length && result.length > 0; i++) {
+      result = intersect(result, lists[i]);
+    }
+    return result;
+  }
+
+  /**
+   @return Number of distinct trigrams in the index
+   */
+  int size() {
+    return postings.size();
+  }
+
+  /**
+   Returns the distinct trigrams of a text, each packed into a {@code long} as three 16-bit characters.
+   @param text Text to split, may be {@code null}
+   @return Trigrams in ascending order, empty for texts shorter than three characters
+   */
+  static long[] trigrams(String text) {
+    if (text == null || text.length() < TRIGRAM_LENGTH) {
+      return NO_TRIGRAMS;
+    }
+    long[] trigrams = new long[text.length() - TRIGRAM_LENGTH + 1];
+    for (int i = 0; i < trigrams.length; i++) {
+      trigrams[i] = (long) text.charAt(i) << 32 | (long) text.charAt(i + 1) << 16 | text.charAt(i + 2);
+    }
+    Arrays.sort(trigrams);
+    return Arrays.stream(trigrams)
+                 .distinct()
+                 .toArray();
+  }
+
+  /**
+   @return Trigrams present in the first sorted array but not in the second
+   */
+  static long[] difference(long[] a, long[] b) {
+    return Arrays.stream(a)
+                 .filter(trigram -> Arrays.binarySearch(b, trigram) < 0)
+                 .toArray();
+  }
+
+  private static int[] insert(int[] ids, int filmId) {
+    int position = Arrays.binarySearch(ids, filmId);
+    if (position >= 0) {
+      return ids;
+    }
+    int insertAt = -position - 1;
+    int[] grown = new int[ids.length + 1];
+    System.arraycopy(ids, 0, grown, 0, insertAt);
+    grown[insertAt] = filmId;
+    System.arraycopy(ids, insertAt, grown, insertAt + 1, ids.length - insertAt);
+    return grown;
+  }
+
+  private static int[] delete(int[] ids, int filmId) {
+    int position = Arrays.binarySearch(ids, filmId);
+    if (position < 0) {
+      return ids;
+    }
+    if (ids.length == 1) {
+      return null;
+    }
+    int[] shrunk = new int[ids.length - 1];
+    System.arraycopy(ids, 0, shrunk, 0, position);
+    System.arraycopy(ids, position + 1, shrunk, position, shrunk.length - position);
+    return shrunk;
+  }
+
+  private static int[] union(int[] ids, int[] added) {
+    int[] result = new int[ids.length + added.length];
+    int i = 0;
+    int j = 0;
+    int count = 0;
+    while (i < ids.length || j < added.length) {
+      if (j == added.length || (i < ids.length && ids[i] < added[j])) {
+        result[count++] = ids[i++];
+      } else if (i == ids.length || added[j] < ids[i]) {
+        result[count++] = added[j++];
+      } else {
+        result[count++] = ids[i++];
+        j++;
+      }
+    }
+    return count == result.length ? result : Arrays.copyOf(result, count);
+  }
+
+  private static int[] subtract(int[] ids, int[] removed) {
+    int[] result = new int[ids.length];
+    int j = 0;
+    int count = 0;
+    for (int id : ids) {
+      while (j < removed.length && removed[j] < id) {
+        j++;
+      }
+      if (j == removed.length || removed[j] != id) {
+        result[count++] = id;
+      }
+    }
+    if (count == 0) {
+      return null;
+    }
+    return count == ids.length ? ids : Arrays.copyOf(result, count);
+  }
+
+  private static int[] intersect(int[] smaller, int[] larger) {
+    int[] result = new int[smaller.length];
+    int count = 0;
+    if (larger.length > smaller.length * GALLOP_RATIO) {
+      for (int id : smaller) {
+        if (Arrays.binarySearch(larger, id) >= 0) {
+          result[count++] = id;
+        }
+      }
+    } else {
+      int j = 0;
+      for (int id : smaller) {
+        while (j < larger.length && larger[j] < id) {
+          j++;
+        }
+        if (j < larger.length && larger[j] == id) {
+          result[count++] = id;
+        }
+      }
+    }
+    return Arrays.copyOf(result, count);
+  }
+
+  /**
+   Collects postings in any order and sorts every list once, for full reloads.
+   */
+  static final class Builder {
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    void add(int filmId, long[] trigrams) {
+      for (long trigram : trigrams) {
+        postings.computeIfAbsent(trigram, key -> new Postings())
+                .add(filmId);
+      }
+    }
+
+    TrigramIndex build() {
+      Map<Long, int[]> built = new ConcurrentHashMap<>(postings.size() * 2);
+      postings.forEach((trigram, list) -> {
+        int[] ids = Arrays.copyOf(list.ids, list.size);
+        Arrays.sort(ids);
+        built.put(trigram, Arrays.stream(ids)
+                                 .distinct()
+                                 .toArray());
+      });
+      return new TrigramIndex(built);
+    }
+  }
+
+  /**
+   Film IDs grouped by trigram for {@link #addAll(Changes)} and {@link #removeAll(Changes)}.
+   */
+  static final class Changes {
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    void add(int filmId, long[] trigrams) {
+      for (long trigram : trigrams) {
+        postings.computeIfAbsent(trigram, key -> new Postings())
+                .add(filmId);
+      }
+    }
+
+    private void forEach(BiConsumer<Long, int[]> action) {
+      postings.forEach((trigram, list) -> {
+        int[] ids = Arrays.copyOf(list.ids, list.size);
+        Arrays.sort(ids);
+        action.accept(trigram, Arrays.stream(ids)
+                                     .distinct()
+                                     .toArray());
+      });
+    }
+  }
+
+  private static final class Postings {
+    private int[] ids = new int[4];
+    private int size;
+
+    void add(int filmId) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      ids[size++] = filmId;
+    }
+  }
+}
@@ -0,0 +1,194 @@
+package ru.yandex.practicum.filmorate.search.infrastructure.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.common.cache.Rebuildable;
+import ru.yandex.practicum.filmorate.common.cache.RebuildableState;
+import ru.yandex.practicum.filmorate.common.cache.TransactionCallbacks;
+import ru.yandex.practicum.filmorate.search.domain.model.SearchableFilm;
+import ru.yandex.practicum.filmorate.search.domain.port.SearchRepository;
+import ru.yandex.practicum.filmorate.search.infrastructure.indexing.SearchIndexReplacedEvent;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ Substring search over an in-memory trigram index of the {@code search_index} rows, in front of
+ {@link JdbcSearchRepository}. Writes go to the table, which stays the persistent copy the index is loaded from on
+ startup, and reach the index after commit.
+ <p>
+ A query of at least three characters is answered by intersecting the posting lists of its trigrams in
+ {@link TrigramIndex} and checking each candidate's text, so the cost follows the number of candidates rather than
+ the catalogue size; shorter queries check every indexed text in memory. Only the matched films are then read from
+ {@code film_stats} to order them by likes. Rows of deleted films stay in the index until the next rebuild; the
+ ranking query skips them. The query is matched literally, so {@code %} and {@code _} are no longer wildcards.
+ <p>
+ The {@code fulltext} profile replaces this index with {@link H2FullTextSearchRepository}. */
+@Slf4j
+@Primary
+@Repository
+@Profile("!fulltext")
+public class TrigramSearchRepository
+    implements SearchRepository, Rebuildable {
+  private final JdbcSearchRepository delegate;
+  private final RebuildableState<Documents> documents = new RebuildableState<>(new Documents());
+
+  public TrigramSearchRepository(JdbcSearchRepository delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void save(SearchableFilm film) {
+    delegate.save(film);
+    TransactionCallbacks.afterCommit(() -> documents.apply(current -> current.put(film)));
+  }
+
+  @Override
+  public void saveAll(List<SearchableFilm> films) {
+    delegate.saveAll(films);
+    TransactionCallbacks.afterCommit(() -> documents.apply(current -> current.putAll(films)));
+  }
+
+  @Override
+  public List<Long> search(String query, Set<String> by) {
+    Documents current = documents.get();
+    Set<Long> matches = new HashSet<>();
+    if (by.contains("TITLE")) {
+      current.find(query, current.titles, SearchableFilm::title, matches);
+    }
+    if (by.contains("DIRECTOR")) {
+      current.find(query, current.directors, SearchableFilm::directorNames, matches);
+    }
+    if (matches.isEmpty()) {
+      return List.of();
+    }
+    return delegate.rankByLikes(matches);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadOnStartup() {
+    rebuild();
+  }
+
+  @EventListener(SearchIndexReplacedEvent.class)
+  public void reloadReplacedIndex() {
+    rebuild();
+  }
+
+  /**
+   Streams {@code search_index} into a fresh index and swaps it in. Rows saved while the table is read are replayed
+   on the fresh index before the swap; saving a row twice is harmless.
+   */
+  @Override
+  public synchronized void rebuild() {
+    long started = System.nanoTime();
+    Documents fresh = documents.rebuild(() -> {
+      Map<Long, SearchableFilm> films = new ConcurrentHashMap<>();
+      TrigramIndex.Builder titles = new TrigramIndex.Builder();
+      TrigramIndex.Builder directors = new TrigramIndex.Builder();
+      delegate.forEachFilm(film -> {
+        int filmId = Math.toIntExact(film.filmId());
+        films.put(film.filmId(), film);
+        titles.add(filmId, TrigramIndex.trigrams(film.title()));
+        directors.add(filmId, TrigramIndex.trigrams(film.directorNames()));
+      });
+      return new Documents(films, titles.build(), directors.build());
+    });
+    log.info("Search index rebuilt with {} films and {} title trigrams in {} ms",
+             fresh.films.size(),
+             fresh.titles.size(),
+             (System.nanoTime() - started) / 1_000_000);
+  }
+
+  /**
+   The indexed rows and the trigram index of each searchable field.
+   */
+  private static final class Documents {
+    private final Map<Long, SearchableFilm> films;
+    private final TrigramIndex titles;
+    private final TrigramIndex directors;
+
+    Documents() {
+      this(new ConcurrentHashMap<>(), new TrigramIndex(), new TrigramIndex());
+    }
+
+    Documents(Map<Long, SearchableFilm> films, TrigramIndex titles, TrigramIndex directors) {
+      this.films = films;
+      this.titles = titles;
+      this.directors = directors;
+    }
+
+    /**
+     Replaces the row of a film. New trigrams are added before the row is swapped and stale ones removed after, so a
+     concurrent search finds the film under either version of its text.
+     */
+    synchronized void put(SearchableFilm film) {
+      int filmId = Math.toIntExact(film.filmId());
+      SearchableFilm previous = films.get(film.filmId());
+      long[] oldTitle = TrigramIndex.trigrams(previous == null ? null : previous.title());
+      long[] newTitle = TrigramIndex.trigrams(film.title());
+      long[] oldDirectors = TrigramIndex.trigrams(previous == null ? null : previous.directorNames());
+      long[] newDirectors = TrigramIndex.trigrams(film.directorNames());
+      titles.add(filmId, TrigramIndex.difference(newTitle, oldTitle));
+      directors.add(filmId, TrigramIndex.difference(newDirectors, oldDirectors));
+      films.put(film.filmId(), film);
+      titles.remove(filmId, TrigramIndex.difference(oldTitle, newTitle));
+      directors.remove(filmId, TrigramIndex.difference(oldDirectors, newDirectors));
+    }
+
+    /**
+     Replaces the rows of several films like {@link #put(SearchableFilm)}, but merges the trigrams of the whole batch
+     into each posting list at once, so a bulk import does not copy a list once per film.
+     */
+    synchronized void putAll(List<SearchableFilm> batch) {
+      Map<Long, SearchableFilm> latest = new LinkedHashMap<>();
+      batch.forEach(film -> latest.put(film.filmId(), film));
+      TrigramIndex.Changes addedTitles = new TrigramIndex.Changes();
+      TrigramIndex.Changes addedDirectors = new TrigramIndex.Changes();
+      TrigramIndex.Changes removedTitles = new TrigramIndex.Changes();
+      TrigramIndex.Changes removedDirectors = new TrigramIndex.Changes();
+      for (SearchableFilm film : latest.values()) {
+        int filmId = Math.toIntExact(film.filmId());
+        SearchableFilm previous = films.get(film.filmId());
+        long[] oldTitle = TrigramIndex.trigrams(previous == null ? null : previous.title());
+        long[] newTitle = TrigramIndex.trigrams(film.title());
+        long[] oldDirectors = TrigramIndex.trigrams(previous == null ? null : previous.directorNames());
+        long[] newDirectors = TrigramIndex.trigrams(film.directorNames());
+        addedTitles.add(filmId, TrigramIndex.difference(newTitle, oldTitle));
+        addedDirectors.add(filmId, TrigramIndex.difference(newDirectors, oldDirectors));
+        removedTitles.add(filmId, TrigramIndex.difference(oldTitle, newTitle));
+        removedDirectors.add(filmId, TrigramIndex.difference(oldDirectors, newDirectors));
+      }
+      titles.addAll(addedTitles);
+      directors.addAll(addedDirectors);
+      films.putAll(latest);
+      titles.removeAll(removedTitles);
+      directors.removeAll(removedDirectors);
+    }
+
+    void find(String query, TrigramIndex index, Function<SearchableFilm, String> text, Set<Long> matches) {
+      if (query.length() < TrigramIndex.TRIGRAM_LENGTH) {
+        films.values()
+             .stream()
+             .filter(film -> contains(text.apply(film), query))
+             .forEach(film -> matches.add(film.filmId()));
+        return;
+      }
+      for (int filmId : index.findAll(TrigramIndex.trigrams(query))) {
+        SearchableFilm film = films.get((long) filmId);
+        if (film != null && contains(text.apply(film), query)) {
+          matches.add(film.filmId());
+        }
+      }
+    }
+
+    private static boolean contains(String text, String query) {
+      return text != null && text.contains(query);
+    }
+  }
+}
@@ -18,6 +18,8 @@ public interface UserUseCase {
 
   Optional<User> findUserById(long userId);
 
+  boolean existsById(long userId);
+
   List<User> findUsersByIds(Set<Long> ids);
 
   void deleteUserById(long userId);
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.users.application.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.common.cache.IdExistenceIndex;
+import ru.yandex.practicum.filmorate.users.domain.port.UserRepository;
+
+import java.util.Collection;
+
+/**
+ Existence index over {@code users.user_id}, maintained by {@link UserService}. */
+@Component
+@RequiredArgsConstructor
+class UserIdIndex
+    extends IdExistenceIndex {
+  private final UserRepository userRepository;
+
+  @Override
+  protected Collection<Long> loadIds() {
+    return userRepository.findAllIds();
+  }
+}
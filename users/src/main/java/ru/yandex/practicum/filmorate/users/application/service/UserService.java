@@ -8,6 +8,7 @@ import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.common.events.UserCreatedEvent;
+import ru.yandex.practicum.filmorate.common.events.UserDeletedEvent;
 import ru.yandex.practicum.filmorate.common.exception.ResourceNotFoundException;
 import ru.yandex.practicum.filmorate.users.application.port.in.UserUseCase;
 import ru.yandex.practicum.filmorate.users.domain.model.User;
@@ -26,10 +27,12 @@ public class UserService
     implements UserUseCase {
   private final UserRepository userRepository;
   private final ApplicationEventPublisher eventPublisher;
+  private final UserIdIndex userIds;
 
   @Override
   public User addUser(CreateUserCommand command) {
     User newUser = userRepository.save(command);
+    userIds.markPresent(newUser.id());
     UserCreatedEvent userCreatedEvent = new UserCreatedEvent(this, newUser.id());
     logEventPublishing(userCreatedEvent);
     eventPublisher.publishEvent(userCreatedEvent);
@@ -58,6 +61,11 @@ public class UserService
     return userRepository.findById(userId);
   }
 
+  @Override
+  public boolean existsById(long userId) {
+    return userIds.contains(userId, userRepository::existsById);
+  }
+
   @Override
   public List<User> findUsersByIds(Set<Long> ids) {
     return userRepository.findByIds(ids);
@@ -66,8 +74,15 @@ public class UserService
   @Transactional
   @Override
   public void deleteUserById(long userId) {
+    if (!userRepository.existsById(userId)) {
+      throw new ResourceNotFoundException("User with id " + userId + " not found.");
+    }
+    UserDeletedEvent userDeletedEvent = new UserDeletedEvent(this, userId);
+    logEventPublishing(userDeletedEvent);
+    eventPublisher.publishEvent(userDeletedEvent);
     if (!userRepository.deleteById(userId)) {
       throw new ResourceNotFoundException("User with id " + userId + " not found.");
     }
+    userIds.markAbsent(userId);
   }
 }
@@ -22,6 +22,19 @@ public interface UserRepository {
    */
   Optional<User> findById(long id);
 
+  /**
+   Checks whether a user exists without loading it.
+   @param id User ID to check
+   @return true if the user exists, false otherwise
+   */
+  boolean existsById(long id);
+
+  /**
+   Retrieves the IDs of all users.
+   @return IDs of all stored users
+   */
+  List<Long> findAllIds();
+
   /**
    Retrieves all films.
    @return List of all films
@@ -7,6 +7,7 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.common.exception.ResourceNotFoundException;
+import ru.yandex.practicum.filmorate.common.infrastructure.storage.jdbc.IdArrayParameter;
 import ru.yandex.practicum.filmorate.users.domain.factory.UserFactory;
 import ru.yandex.practicum.filmorate.users.domain.model.User;
 import ru.yandex.practicum.filmorate.users.domain.model.value.Email;
@@ -19,7 +20,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Repository
 @Profile("db")
@@ -69,6 +69,18 @@ public class JdbcUserRepository
                   .findFirst();
   }
 
+  @Override
+  public boolean existsById(long id) {
+    return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM users WHERE user_id = ?)",
+                                                           Boolean.class,
+                                                           id));
+  }
+
+  @Override
+  public List<Long> findAllIds() {
+    return jdbcTemplate.queryForList("SELECT user_id FROM users", Long.class);
+  }
+
   @Override
   public List<User> findAll() {
     String sql = "SELECT * FROM users";
@@ -80,11 +92,7 @@ public class JdbcUserRepository
     if (ids == null || ids.isEmpty()) {
       return List.of();
     }
-    String inSql = ids.stream()
-                      .map(String::valueOf)
-                      .collect(Collectors.joining(","));
-    String sql = String.format("SELECT * FROM users WHERE user_id IN (%s)", inSql);
-    return jdbcTemplate.query(sql, USER_ROW_MAPPER);
+    return jdbcTemplate.query("SELECT * FROM users WHERE user_id = ANY(?)", USER_ROW_MAPPER, IdArrayParameter.of(ids));
   }
 
   @Override